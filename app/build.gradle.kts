@@ -16,6 +16,9 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // true : les lignes d'avis sont dessinées par ReviewRowView au lieu d'item_review.xml
+        buildConfigField("boolean", "FLAT_REVIEW_ROWS", "false")
     }
 
     buildTypes {
@@ -34,9 +37,49 @@ android {
 
     buildFeatures {
         viewBinding = true
+        buildConfig = true
+    }
+
+    testOptions {
+        unitTests {
+            // ressources Android disponibles dans les tests Robolectric
+            isIncludeAndroidResources = true
+            all {
+                // Mesures des tests (temps, affichage) : avec -Pbenchmarks, toujours dans benchmarkUnitTest (plus bas)
+                it.systemProperty("reviewBenchmark.enabled", project.hasProperty("benchmarks").toString())
+                // Seuils de ReviewListBenchmarkTest en mode mesure : le build échoue s'ils sont dépassés
+                it.systemProperty("reviewBenchmark.maxCreateMicrosPerRow", "15000")
+                it.systemProperty("reviewBenchmark.maxBindMicrosPerRow", "3000")
+                it.systemProperty("reviewBenchmark.maxDiffMicrosPerRow", "50")
+                it.systemProperty("reviewBenchmark.maxInsertMicrosPerUpdate", "5000")
+                it.systemProperty("reviewBenchmark.maxCreateAllocKbPerRow", "512")
+                it.systemProperty("reviewBenchmark.maxBindAllocKbPerRow", "128")
+                it.systemProperty("reviewBenchmark.maxCreatedRows", "60")
+            }
+        }
     }
 }
 
+// Suite des tests unitaires en mode mesure, lancée par ./gradlew check (donc par la CI) :
+// un seuil dépassé fait échouer le build, même sans -Pbenchmarks
+val benchmarkUnitTest = tasks.register<Test>("benchmarkUnitTest") {
+    description = "Runs the debug unit tests in benchmark mode: the performance thresholds fail the build."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    val unitTest = tasks.named<Test>("testDebugUnitTest").get()
+    testClassesDirs = unitTest.testClassesDirs
+    classpath = unitTest.classpath
+    // mêmes seuils que testDebugUnitTest, mode mesure forcé
+    systemProperties(unitTest.systemProperties)
+    systemProperty("reviewBenchmark.enabled", "true")
+    // un seul JVM de test : les mesures ne se disputent pas le processeur
+    maxParallelForks = 1
+    mustRunAfter(unitTest)
+}
+
+tasks.named("check") {
+    dependsOn(benchmarkUnitTest)
+}
+
 dependencies {
     implementation("androidx.work:work-runtime:2.8.1")
     val hiltVersion = "2.44"
@@ -51,10 +94,15 @@ dependencies {
     implementation("androidx.work:work-runtime:2.8.1")
     implementation("androidx.core:core-splashscreen:1.0.0")
     implementation("com.github.bumptech.glide:glide:4.16.0")
+    annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
 
     testImplementation("junit:junit:4.13.2")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
     testImplementation("org.mockito:mockito-core:5.3.1")
     testImplementation("androidx.arch.core:core-testing:2.2.0")
+    testImplementation("org.robolectric:robolectric:4.10.3")
+    testImplementation("androidx.test:core:1.5.0")
+    testImplementation("com.google.dagger:hilt-android-testing:${hiltVersion}")
+    testAnnotationProcessor("com.google.dagger:hilt-compiler:${hiltVersion}")
 }
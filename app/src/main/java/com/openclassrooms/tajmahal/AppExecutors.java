@@ -0,0 +1,70 @@
+package com.openclassrooms.tajmahal;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Global executor pools for the whole application.
+ * <p>
+ * Grouping tasks like this avoids the effects of task starvation (e.g. a slow review check
+ * waiting behind another background job) and lets the tests replace every executor by a
+ * synchronous one.
+ * </p>
+ */
+@Singleton
+public class AppExecutors {
+
+    private final Executor background;
+    private final Executor mainThread;
+
+    /**
+     * Constructs the executors used by the application: a single background thread,
+     * so tasks run one after the other in submission order, and the main thread.
+     */
+    @Inject
+    public AppExecutors() {
+        this(Executors.newSingleThreadExecutor(), new MainThreadExecutor());
+    }
+
+    /**
+     * Constructs custom executors, typically synchronous ones in unit tests.
+     *
+     * @param background the executor for work that must stay off the main thread
+     * @param mainThread the executor delivering results on the main thread
+     */
+    public AppExecutors(Executor background, Executor mainThread) {
+        this.background = background;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * @return the executor for work that must stay off the main thread.
+     */
+    public Executor background() {
+        return background;
+    }
+
+    /**
+     * @return the executor running tasks on the main thread.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mainThreadHandler.post(command);
+        }
+    }
+}
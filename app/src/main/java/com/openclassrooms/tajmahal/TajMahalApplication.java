@@ -2,6 +2,10 @@ package com.openclassrooms.tajmahal;
 
 import android.app.Application;
 
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsWarmUp;
+
+import javax.inject.Inject;
+
 import dagger.hilt.android.HiltAndroidApp;
 
 /**
@@ -27,4 +31,15 @@ import dagger.hilt.android.HiltAndroidApp;
  */
 @HiltAndroidApp
 public class TajMahalApplication extends Application {
+
+    @Inject
+    DetailsWarmUp detailsWarmUp; // ne construit rien à l'injection : le repository est créé en arrière-plan
+
+    @Override
+    public void onCreate() {
+        super.onCreate(); // Hilt injecte les champs ici
+        // Le repository, le restaurant, les avis et leur résumé sont chargés en arrière-plan
+        // pendant que l'activité et sa vue se créent : DetailsFragment les trouve prêts
+        detailsWarmUp.start();
+    }
 }
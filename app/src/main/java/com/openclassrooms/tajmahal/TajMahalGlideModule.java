@@ -0,0 +1,79 @@
+package com.openclassrooms.tajmahal;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityManagerCompat;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * App-wide Glide configuration.
+ * <p>
+ * Glide's defaults size its memory cache and bitmap pool for a generic app. This module bounds
+ * them according to the device class (low-RAM device, small or large heap), and makes every
+ * request decode the image at most at the size of its target: an image is downsampled to fit
+ * the view, and never upscaled.
+ * </p>
+ * Glide still releases its caches by itself on {@code onTrimMemory}; avatars kept by
+ * {@link com.openclassrooms.tajmahal.ui.AvatarCache} are released by the cache itself.
+ */
+@GlideModule
+public final class TajMahalGlideModule extends AppGlideModule {
+
+    private static final String TAG = "TajMahalGlideModule";
+
+    // Au-delà de cette classe mémoire (en Mo), l'appareil garde les réglages de Glide
+    private static final int LARGE_MEMORY_CLASS_MB = 256;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = ActivityManagerCompat.isLowRamDevice(activityManager);
+        int memoryClass = activityManager.getMemoryClass();
+
+        MemorySizeCalculator.Builder sizes = new MemorySizeCalculator.Builder(context);
+        if (lowRam) {
+            // Appareil Android Go : un seul écran en cache (Glide n'y garde déjà pas de pool à partir d'Android O)
+            sizes.setMemoryCacheScreens(1)
+                    .setLowMemoryMaxSizeMultiplier(0.2f);
+        } else if (memoryClass < LARGE_MEMORY_CLASS_MB) {
+            sizes.setMemoryCacheScreens(1.5f)
+                    .setBitmapPoolScreens(1)
+                    .setMaxSizeMultiplier(0.3f);
+        }
+        MemorySizeCalculator calculator = sizes.build();
+
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .downsample(DownsampleStrategy.CENTER_INSIDE)
+                .format(lowRam ? DecodeFormat.PREFER_RGB_565 : DecodeFormat.PREFER_ARGB_8888));
+        builder.setLogLevel(Log.ERROR);
+
+        if (BuildConfig.DEBUG) {
+            // mesure uniquement, comme les autres journaux de performance : rien en release
+            Log.i(TAG, "lowRam=" + lowRam + " memoryClass=" + memoryClass + "MB"
+                    + " memoryCache=" + calculator.getMemoryCacheSize() / 1024 + "KB"
+                    + " bitmapPool=" + calculator.getBitmapPoolSize() / 1024 + "KB");
+        }
+    }
+
+    /**
+     * The app has no Glide module declared in its manifest: skips the manifest parsing.
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
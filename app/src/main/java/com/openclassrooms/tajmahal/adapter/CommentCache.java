@@ -0,0 +1,107 @@
+package com.openclassrooms.tajmahal.adapter;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.StoredComment;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded comments of the rows recently bound by a {@link ReviewAdapter}.
+ * <p>
+ * The repository keeps the comments compressed (see {@link Review#getStoredComment()}): decoding
+ * one on each bind would repeat the work every time a row scrolls back into view. This cache keeps
+ * the decoded text, least recently used first out, as long as the total length fits in the budget.
+ * Comments kept as a String are returned as they are and never cached.
+ * </p>
+ * Must be used from the main thread.
+ */
+public class CommentCache {
+
+    /** Default budget: about 300 rows of 200 characters, 128 KB of UTF-16 text. */
+    public static final int DEFAULT_MAX_CHARS = 64 * 1024;
+
+    private final int maxChars;
+
+    // ordre d'accès : les premières entrées sont les moins récemment utilisées ;
+    // clé = commentaire stocké, comparé par identité
+    private final LinkedHashMap<StoredComment, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private int cachedChars;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param maxChars maximum total length of the cached comments
+     */
+    public CommentCache(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Returns the comment of a review, decoding and caching it if it is stored compressed.
+     *
+     * @param review the review being bound
+     * @return its comment
+     */
+    public String get(Review review) {
+        StoredComment stored = review.getStoredComment();
+        if (stored == null) return review.getComment();
+        String comment = entries.get(stored);
+        if (comment != null) {
+            hitCount++;
+            return comment;
+        }
+        missCount++;
+        comment = stored.decode();
+        entries.put(stored, comment);
+        cachedChars += comment.length();
+        trimTo(maxChars);
+        return comment;
+    }
+
+    /**
+     * Drops every cached comment.
+     */
+    public void clear() {
+        entries.clear();
+        cachedChars = 0;
+    }
+
+    private void trimTo(int limit) {
+        Iterator<Map.Entry<StoredComment, String>> iterator = entries.entrySet().iterator();
+        // on garde au moins le dernier commentaire, même s'il dépasse à lui seul le budget
+        while (cachedChars > limit && entries.size() > 1 && iterator.hasNext()) {
+            cachedChars -= iterator.next().getValue().length();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return the total length of the cached comments, in characters.
+     */
+    public int getCachedChars() {
+        return cachedChars;
+    }
+
+    /**
+     * @return the number of cached comments.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of binds served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of binds that decoded their comment.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.tajmahal.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RatingBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+/**
+ * Adapter of the "my reviews" section of the review screen: the reviews of the logged-in user,
+ * each with an edit and a delete button.
+ */
+public class MyReviewAdapter extends ListAdapter<Review, MyReviewAdapter.ViewHolder> {
+
+    /**
+     * Receives the actions of the user on one of their reviews.
+     */
+    public interface Actions {
+        void onEdit(Review review);
+
+        void onDelete(Review review);
+    }
+
+    private final Actions actions;
+
+    /**
+     * @param actions called when the user taps the edit or delete button of a row
+     */
+    public MyReviewAdapter(Actions actions) {
+        super(new ReviewAdapter.ItemCallback()); // mêmes règles que la liste des avis
+        this.actions = actions;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_my_review, parent, false);
+        ViewHolder holder = new ViewHolder(itemView);
+        // la position est lue au clic : la ligne a pu être déplacée depuis sa création
+        holder.tvEdit.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) actions.onEdit(getItem(position));
+        });
+        holder.tvDelete.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) actions.onDelete(getItem(position));
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Review review = getItem(position);
+        holder.rbRating.setRating(review.getRate());
+        holder.tvComment.setText(review.getComment());
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final RatingBar rbRating;
+        final TextView tvComment;
+        final TextView tvEdit;
+        final TextView tvDelete;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            rbRating = itemView.findViewById(R.id.rbMyReviewRating);
+            tvComment = itemView.findViewById(R.id.tvMyReviewComment);
+            tvEdit = itemView.findViewById(R.id.tvEditReview);
+            tvDelete = itemView.findViewById(R.id.tvDeleteReview);
+        }
+    }
+
+}
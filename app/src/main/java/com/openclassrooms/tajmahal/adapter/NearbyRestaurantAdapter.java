@@ -0,0 +1,86 @@
+package com.openclassrooms.tajmahal.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.data.repository.RestaurantLocationIndex;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+
+/**
+ * Adapter of the nearby screen: the open restaurants of the chain, nearest first,
+ * each with its distance, address and opening hours.
+ */
+public class NearbyRestaurantAdapter extends ListAdapter<RestaurantLocationIndex.Neighbor, NearbyRestaurantAdapter.ViewHolder> {
+
+    public NearbyRestaurantAdapter() {
+        super(new ItemCallback());
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_nearby_restaurant, parent, false);
+        return new ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        RestaurantLocationIndex.Neighbor neighbor = getItem(position);
+        Restaurant restaurant = neighbor.getRestaurant();
+        holder.tvName.setText(restaurant.getName());
+        holder.tvDistance.setText(formatDistance(holder.itemView.getContext(), neighbor.getDistanceMeters()));
+        holder.tvAddress.setText(restaurant.getAddress());
+        holder.tvHours.setText(restaurant.getHours());
+    }
+
+    /**
+     * "850 m" sous le kilomètre, "1.9 km" au-delà.
+     */
+    private static String formatDistance(Context context, double meters) {
+        if (meters < 1000) {
+            return context.getString(R.string.nearby_distance_meters, (int) Math.round(meters));
+        }
+        return context.getString(R.string.nearby_distance_kilometers, meters / 1000);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName;
+        final TextView tvDistance;
+        final TextView tvAddress;
+        final TextView tvHours;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tvNearbyName);
+            tvDistance = itemView.findViewById(R.id.tvNearbyDistance);
+            tvAddress = itemView.findViewById(R.id.tvNearbyAddress);
+            tvHours = itemView.findViewById(R.id.tvNearbyHours);
+        }
+    }
+
+    /**
+     * Même restaurant = même ligne ; contenu identique si la distance affichée n'a pas changé.
+     */
+    private static class ItemCallback extends DiffUtil.ItemCallback<RestaurantLocationIndex.Neighbor> {
+
+        @Override
+        public boolean areItemsTheSame(@NonNull RestaurantLocationIndex.Neighbor oldItem, @NonNull RestaurantLocationIndex.Neighbor newItem) {
+            return oldItem.getRestaurant().equals(newItem.getRestaurant());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull RestaurantLocationIndex.Neighbor oldItem, @NonNull RestaurantLocationIndex.Neighbor newItem) {
+            return oldItem.getRestaurant().equals(newItem.getRestaurant())
+                    && Math.round(oldItem.getDistanceMeters()) == Math.round(newItem.getDistanceMeters());
+        }
+    }
+}
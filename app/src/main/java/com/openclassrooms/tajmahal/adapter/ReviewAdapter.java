@@ -1,6 +1,8 @@
 package com.openclassrooms.tajmahal.adapter;
 
-import android.net.Uri;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,81 +11,436 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.openclassrooms.tajmahal.BuildConfig;
 import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.data.repository.ReviewListUpdate;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+import com.openclassrooms.tajmahal.ui.reviews.ReviewRowView;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /** Adapter class for RecyclerView that manage list of reviews
  * Bind data of reviews using ViewHolders
+ * <p>
+ * Rows are either inflated from item_review.xml, or drawn by a single {@link ReviewRowView}
+ * when flat rows are enabled ({@code BuildConfig.FLAT_REVIEW_ROWS} by default).
+ * Avatars come from the shared {@link AvatarCache}: each row holds a lease on its avatar,
+ * released when the row is rebound or recycled.
+ * Rows show a "helpful" button once {@link #setHelpfulVotes(HelpfulVotes)} is called; a vote only rebinds the button.
+ * Compressed comments are decoded on bind and kept in a {@link CommentCache}, so a row scrolling
+ * back into view does not decode its comment again.
+ * <p>
+ * The list is updated in two ways. {@link #applyUpdate(ReviewListUpdate)} applies the changes
+ * reported by the repository (rows inserted at the top, edited, removed) as item range
+ * notifications, in O(changes). {@link #submitList(List)} is the fallback for full refreshes:
+ * like a {@code ListAdapter}, it compares the two lists with DiffUtil off the main thread.
+ * </p>
+ * Must be used from the main thread.
  */
-public class ReviewAdapter extends ListAdapter<Review, ReviewAdapter.ViewHolder> {
+public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder> {
+
+    // Payload de notifyItemChanged : seul le bouton "utile" est remis à jour
+    private static final Object HELPFUL_PAYLOAD = new Object();
+    // Même pool d'arrière-plan que les ListAdapter pour les diffs de secours
+    private static final Executor DIFF_EXECUTOR =
+            new AsyncDifferConfig.Builder<>(new ItemCallback()).build().getBackgroundThreadExecutor();
+
+    /**
+     * Provides the helpful votes displayed by the rows, and records the votes.
+     */
+    public interface HelpfulVotes {
+        int getVotes(Review review);
+
+        boolean hasVoted(Review review);
+
+        void vote(Review review);
+    }
+
+    private final AvatarCache avatarCache;
+    private final boolean flatRows;
+    private final CommentCache commentCache = new CommentCache(CommentCache.DEFAULT_MAX_CHARS);
+    private HelpfulVotes helpfulVotes;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<AsyncListDiffer.ListListener<Review>> listListeners = new CopyOnWriteArrayList<>();
+    // liste affichée, jamais modifiée : un snapshot du repository ou une liste soumise
+    private List<Review> currentList = Collections.emptyList();
+    // incrémenté à chaque nouvelle liste : un diff terminé après une liste plus récente est ignoré
+    private int generation;
 
     /**
      * Constructor with reviews list
      * constructeur pour les avis précédents
+     *
+     * @param avatarCache the cache providing the reviewers' avatars
+     */
+    public ReviewAdapter(AvatarCache avatarCache) {
+        this(avatarCache, BuildConfig.FLAT_REVIEW_ROWS);
+    }
+
+    /**
+     * @param avatarCache the cache providing the reviewers' avatars
+     * @param flatRows    true pour dessiner les lignes avec ReviewRowView, false pour item_review.xml
+     */
+    public ReviewAdapter(AvatarCache avatarCache, boolean flatRows) {
+        this.avatarCache = avatarCache;
+        this.flatRows = flatRows;
+    }
+
+    /**
+     * @param helpfulVotes the votes to display, or null to hide the helpful button
+     */
+    public void setHelpfulVotes(@Nullable HelpfulVotes helpfulVotes) {
+        this.helpfulVotes = helpfulVotes;
+        refreshHelpfulVotes();
+    }
+
+    /**
+     * @return the displayed reviews; the list is never modified.
+     */
+    public List<Review> getCurrentList() {
+        return currentList;
+    }
+
+    /**
+     * @param position a row
+     * @return the review displayed by the row
+     */
+    public Review getItem(int position) {
+        return currentList.get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return currentList.size();
+    }
+
+    /**
+     * @param listener notified each time the displayed list changes
+     */
+    public void addListListener(@NonNull AsyncListDiffer.ListListener<Review> listener) {
+        listListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener added by {@link #addListListener}
      */
-    public ReviewAdapter() {
-        super(new ItemCallback());
+    public void removeListListener(@NonNull AsyncListDiffer.ListListener<Review> listener) {
+        listListeners.remove(listener);
+    }
+
+    /**
+     * Displays a new snapshot of the repository.
+     * <p>
+     * When the update starts from the displayed list and lists its changes, they are notified
+     * directly, without DiffUtil: adding a review only inserts its row at the top. Otherwise
+     * (first snapshot, full refresh, a diff still running...) the snapshot is submitted with
+     * {@link #submitList(List)}.
+     *
+     * @param update the update published by the repository
+     */
+    public void applyUpdate(ReviewListUpdate update) {
+        List<ReviewListUpdate.Change> changes = update.getChanges();
+        if (changes == null || update.getPrevious() != currentList) {
+            submitList(update.getReviews());
+            return;
+        }
+        generation++; // un diff encore en cours porte sur une liste dépassée
+        List<Review> previous = currentList;
+        currentList = update.getReviews();
+        for (ReviewListUpdate.Change change : changes) {
+            switch (change.getType()) {
+                case INSERTED:
+                    notifyItemRangeInserted(change.getPosition(), change.getCount());
+                    break;
+                case REMOVED:
+                    notifyItemRangeRemoved(change.getPosition(), change.getCount());
+                    break;
+                case CHANGED:
+                    notifyItemRangeChanged(change.getPosition(), change.getCount());
+                    break;
+            }
+        }
+        onCurrentListChanged(previous, null);
+    }
+
+    /**
+     * Displays a new list; the rows are updated once DiffUtil has compared it with the displayed one, off the main thread.
+     *
+     * @param list the reviews to display, never modified afterwards; null for none
+     */
+    public void submitList(@Nullable List<Review> list) {
+        submitList(list, null);
+    }
+
+    /**
+     * Same as {@link #submitList(List)}, and runs a callback once the list is displayed.
+     *
+     * @param list           the reviews to display, never modified afterwards; null for none
+     * @param commitCallback run on the main thread once the list is displayed, or null;
+     *                       not run if a newer list is displayed first
+     */
+    public void submitList(@Nullable List<Review> list, @Nullable Runnable commitCallback) {
+        int runGeneration = ++generation;
+        List<Review> previous = currentList;
+        if (list == previous) {
+            if (commitCallback != null) commitCallback.run();
+            return;
+        }
+        List<Review> next = list == null ? Collections.<Review>emptyList() : list;
+        if (previous.isEmpty() || next.isEmpty()) {
+            // rien à comparer : toutes les lignes sont retirées ou insérées
+            currentList = next;
+            if (!previous.isEmpty()) notifyItemRangeRemoved(0, previous.size());
+            if (!next.isEmpty()) notifyItemRangeInserted(0, next.size());
+            onCurrentListChanged(previous, commitCallback);
+            return;
+        }
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ListDiff(previous, next));
+            mainHandler.post(() -> {
+                if (generation != runGeneration) return; // une liste plus récente a été affichée
+                currentList = next;
+                result.dispatchUpdatesTo(this);
+                onCurrentListChanged(previous, commitCallback);
+            });
+        });
+    }
+
+    private void onCurrentListChanged(List<Review> previous, @Nullable Runnable commitCallback) {
+        for (AsyncListDiffer.ListListener<Review> listener : listListeners) {
+            listener.onCurrentListChanged(previous, currentList);
+        }
+        if (commitCallback != null) commitCallback.run();
+    }
+
+    /**
+     * @return the decoded comments of the rows bound recently
+     */
+    public CommentCache getCommentCache() {
+        return commentCache;
+    }
+
+    /**
+     * Rebinds the helpful button of every row, e.g. after votes made through another adapter.
+     */
+    public void refreshHelpfulVotes() {
+        notifyItemRangeChanged(0, getItemCount(), HELPFUL_PAYLOAD);
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        /**Crée la vue à partir de item_review.xml
-         * retourne un nouveau viewholder
-         */
-        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_review, parent, false);
-        return new ViewHolder(itemView);
+        ViewHolder holder;
+        if (flatRows) {
+            // Une seule vue, sans inflation ni findViewById
+            ReviewRowView rowView = new ReviewRowView(parent.getContext());
+            rowView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            holder = new FlatViewHolder(rowView, avatarCache);
+        } else {
+            /*Crée la vue à partir de item_review.xml
+             * retourne un nouveau viewholder
+             */
+            View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_review, parent, false);
+            holder = new XmlViewHolder(itemView, avatarCache);
+        }
+        holder.setOnHelpfulClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION || helpfulVotes == null) return;
+            helpfulVotes.vote(getItem(position));
+            notifyItemChanged(position, HELPFUL_PAYLOAD);
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         // Appelle holder.bind() avec l'élément à la position donnée
-        holder.bind(getItem(position));
+        Review review = getItem(position);
+        holder.bind(review, commentCache.get(review));
+        bindHelpful(holder, review);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindHelpful(holder, getItem(position));
+        }
     }
 
-    static class ViewHolder extends RecyclerView.ViewHolder {
+    private void bindHelpful(ViewHolder holder, Review review) {
+        if (helpfulVotes == null) {
+            holder.showHelpful(null);
+            return;
+        }
+        int label = helpfulVotes.hasVoted(review) ? R.string.review_helpful_voted : R.string.review_helpful;
+        holder.showHelpful(holder.itemView.getContext().getString(label, helpfulVotes.getVotes(review)));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // La ligne part dans le pool : on libère son avatar pour qu'il puisse être évincé
+        holder.releaseAvatar();
+    }
+
+    /**
+     * Base class of the two kinds of rows; holds the lease on the displayed avatar.
+     */
+    public abstract static class ViewHolder extends RecyclerView.ViewHolder {
+
+        private final AvatarCache avatarCache;
+        private AvatarCache.Lease avatarLease;
+        private String avatarUrl;
+
+        ViewHolder(@NonNull View itemView, AvatarCache avatarCache) {
+            super(itemView);
+            this.avatarCache = avatarCache;
+        }
+
+        /**
+         * @param review  the review to display
+         * @param comment its comment, already decoded
+         */
+        abstract void bind(Review review, String comment);
+
+        /** Affiche l'avatar, ou null pour vider l'image. */
+        abstract void showAvatar(Bitmap avatar);
+
+        /** Affiche le bouton "utile" avec ce libellé, ou le cache si null. */
+        abstract void showHelpful(@Nullable String label);
+
+        abstract void setOnHelpfulClickListener(View.OnClickListener listener);
+
+        abstract int avatarSize();
+
+        void bindAvatar(String url) {
+            if (avatarLease != null && url != null && url.equals(avatarUrl)) {
+                return; // même avatar, déjà affiché ou en cours de chargement
+            }
+            releaseAvatar();
+            if (url == null) return;
+            avatarUrl = url;
+            avatarLease = avatarCache.acquire(url, avatarSize(), this::showAvatar);
+        }
+
+        void releaseAvatar() {
+            if (avatarLease == null) return;
+            // l'image est vidée avant de rendre le bitmap, qui peut être réutilisé par Glide
+            showAvatar(null);
+            avatarLease.release();
+            avatarLease = null;
+            avatarUrl = null;
+        }
+    }
+
+    static class XmlViewHolder extends ViewHolder {
         // Déclare les variables pour chaque élément du layout
         private final TextView tvReviewerName;
         private final TextView tvReviewerComment;
         private final RatingBar rbReviewRating;
         private final ImageView ivReviewerAvatar;
+        private final TextView tvHelpful;
 
-        public ViewHolder(@NonNull View itemView) {
-            super(itemView);
+        public XmlViewHolder(@NonNull View itemView, AvatarCache avatarCache) {
+            super(itemView, avatarCache);
             // Initialise les variables avec findViewById
             tvReviewerName = itemView.findViewById(R.id.tvReviewerName);
             tvReviewerComment = itemView.findViewById(R.id.tvReviewerComment);
             rbReviewRating = itemView.findViewById(R.id.rbReviewRating);
             ivReviewerAvatar = itemView.findViewById(R.id.ivReviewerAvatar);
+            tvHelpful = itemView.findViewById(R.id.tvHelpful);
         }
 
-        public void bind(Review review) {
+        @Override
+        public void bind(Review review, String comment) {
             // Remplit les TextView, ImageView, RatingBar avec les données de review
             tvReviewerName.setText(review.getUsername());
-            tvReviewerComment.setText(review.getComment());
+            tvReviewerComment.setText(comment);
             rbReviewRating.setRating(review.getRate());
-            Glide.with(itemView.getContext())
-                    .load(review.getPicture())
-                    .circleCrop()
-                    .into(ivReviewerAvatar);
+            bindAvatar(review.getPicture());
+        }
+
+        @Override
+        void showAvatar(Bitmap avatar) {
+            ivReviewerAvatar.setImageDrawable(avatar == null ? null : AvatarCache.asCircle(itemView.getResources(), avatar));
+        }
+
+        @Override
+        int avatarSize() {
+            return itemView.getResources().getDimensionPixelSize(R.dimen.review_avatar_size);
+        }
+
+        @Override
+        void showHelpful(@Nullable String label) {
+            tvHelpful.setVisibility(label == null ? View.GONE : View.VISIBLE);
+            tvHelpful.setText(label);
+        }
+
+        @Override
+        void setOnHelpfulClickListener(View.OnClickListener listener) {
+            tvHelpful.setOnClickListener(listener);
+        }
+    }
+
+    static class FlatViewHolder extends ViewHolder {
+        private final ReviewRowView rowView;
+
+        FlatViewHolder(@NonNull ReviewRowView rowView, AvatarCache avatarCache) {
+            super(rowView, avatarCache);
+            this.rowView = rowView;
+        }
+
+        @Override
+        public void bind(Review review, String comment) {
+            rowView.bind(review, comment);
+            bindAvatar(review.getPicture());
+        }
+
+        @Override
+        void showAvatar(Bitmap avatar) {
+            rowView.setAvatar(avatar);
+        }
+
+        @Override
+        int avatarSize() {
+            return rowView.getAvatarSize();
+        }
+
+        @Override
+        void showHelpful(@Nullable String label) {
+            rowView.setHelpfulLabel(label);
+        }
+
+        @Override
+        void setOnHelpfulClickListener(View.OnClickListener listener) {
+            rowView.setOnHelpfulClickListener(listener);
         }
     }
 
     /**
      * compare les avis.
-     * AreItemsTheSame compare par référence mémoire - 2 avis 2 objets
+     * areItemsTheSame : même objet, ou avis égal ; un snapshot mappé (ReviewSnapshotFile) décode un nouvel objet
+     * à chaque lecture, la référence seule ferait retirer et réinsérer toutes ses lignes
      * areContentsTheSame compare tous les champs de l'objet
+     * (Review est immuable : equals compare d'abord les hashCode déjà en cache, les chaînes seulement si besoin)
      */
-    private static class ItemCallback extends DiffUtil.ItemCallback<Review> {
+    static class ItemCallback extends DiffUtil.ItemCallback<Review> {
 
         @Override
         public boolean areItemsTheSame(@NonNull Review oldItem, @NonNull Review newItem) {
-            return oldItem == newItem;
+            return oldItem == newItem || oldItem.equals(newItem);
         }
 
         @Override
@@ -92,4 +449,40 @@ public class ReviewAdapter extends ListAdapter<Review, ReviewAdapter.ViewHolder>
         }
 
     }
+
+    /**
+     * Comparaison de deux listes pour le diff de secours, avec les règles de {@link ItemCallback}.
+     */
+    private static class ListDiff extends DiffUtil.Callback {
+
+        private static final ItemCallback ITEMS = new ItemCallback();
+
+        private final List<Review> oldList;
+        private final List<Review> newList;
+
+        ListDiff(List<Review> oldList, List<Review> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return ITEMS.areItemsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return ITEMS.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Publishes snapshots of a data source through a {@link LiveData}, coalescing bursts of changes.
+ * <p>
+ * Each change only marks the publisher as dirty with {@link #invalidate()}: the first change
+ * schedules an emission, the following ones are absorbed until that emission runs. The snapshot
+ * is taken when the emission runs, so observers receive at most one value per frame (or per
+ * interval), and that value always reflects every change made before it.
+ * </p>
+ * {@link #invalidate()} can be called from any thread; emissions happen on the main thread.
+ *
+ * @param <T> the type of the published snapshots
+ */
+public class CoalescingPublisher<T> {
+
+    /**
+     * Decides when a pending emission runs. The emission must be run on the main thread.
+     */
+    public interface Scheduler {
+        void schedule(Runnable emission);
+    }
+
+    private final MutableLiveData<T> liveData;
+    private final Supplier<T> snapshotSupplier;
+    private final Scheduler scheduler;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /**
+     * @param snapshotSupplier provides the value to publish, called on the main thread
+     * @param scheduler        decides when pending emissions run
+     */
+    public CoalescingPublisher(Supplier<T> snapshotSupplier, Scheduler scheduler) {
+        this.liveData = new MutableLiveData<>();
+        this.snapshotSupplier = snapshotSupplier;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates a publisher whose LiveData already holds a first snapshot. Unlike {@link #publishNow()},
+     * this constructor can be called from any thread.
+     *
+     * @param snapshotSupplier provides the value to publish, called on the main thread
+     * @param scheduler        decides when pending emissions run
+     * @param initialSnapshot  the value held by the LiveData until the first emission
+     */
+    public CoalescingPublisher(Supplier<T> snapshotSupplier, Scheduler scheduler, T initialSnapshot) {
+        // valeur initiale passée au constructeur de la LiveData : pas de setValue(), donc pas de contrôle du thread
+        this.liveData = new MutableLiveData<>(initialSnapshot);
+        this.snapshotSupplier = snapshotSupplier;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the LiveData receiving the snapshots.
+     */
+    public LiveData<T> getLiveData() {
+        return liveData;
+    }
+
+    /**
+     * Marks the data as changed. Only the first call of a burst schedules an emission.
+     */
+    public void invalidate() {
+        if (pending.compareAndSet(false, true)) {
+            scheduler.schedule(this::publishNow);
+        }
+    }
+
+    /**
+     * Publishes a snapshot immediately. Must be called on the main thread.
+     */
+    public void publishNow() {
+        // remis à false AVANT la lecture : un changement pendant la lecture reprogramme une émission
+        pending.set(false);
+        liveData.setValue(snapshotSupplier.get());
+    }
+
+    /**
+     * @return a scheduler emitting at the next frame drawn by the main thread.
+     */
+    public static Scheduler nextFrame() {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        return emission -> mainHandler.post(() ->
+                Choreographer.getInstance().postFrameCallback(frameTimeNanos -> emission.run()));
+    }
+
+    /**
+     * @param intervalMillis the delay between the first change of a burst and the emission
+     * @return a scheduler emitting at most once per interval.
+     */
+    public static Scheduler interval(long intervalMillis) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        return emission -> mainHandler.postDelayed(emission, intervalMillis);
+    }
+}
@@ -0,0 +1,505 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A stream of values with backpressure, for consumers that work off the main thread
+ * (sync, search indexing, export...), alongside the {@link androidx.lifecycle.LiveData} used by the UI.
+ * <p>
+ * It follows the Reactive Streams protocol: a {@link Subscriber} receives a {@link Subscription}
+ * and only gets as many values as it {@link Subscription#request(long) requested}. Unlike
+ * LiveData, no value is silently replaced by a newer one: a source that produces faster than
+ * its consumer must be given an explicit strategy with {@link #observeOn(Executor, int, Overflow)},
+ * which buffers the values and decides what to drop when the buffer is full.
+ * </p>
+ * Streams are composed with {@link #filter(Predicate)}, {@link #map(Function)} and {@link #window(int)}.
+ * Signals to a subscriber are never concurrent.
+ *
+ * @param <T> the type of the values
+ */
+public abstract class DataStream<T> {
+
+    /**
+     * Receives the values of a stream. After {@link #onError(Throwable)} or {@link #onComplete()},
+     * nothing more is received.
+     */
+    public interface Subscriber<T> {
+        /** Called first; values only arrive after {@link Subscription#request(long)}. */
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T value);
+
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a stream and one of its subscribers.
+     */
+    public interface Subscription {
+        /**
+         * @param count the number of additional values the subscriber can receive, positive;
+         *              {@link Long#MAX_VALUE} for no limit
+         */
+        void request(long count);
+
+        /** Stops the values; the subscriber may still receive the values already on their way. */
+        void cancel();
+    }
+
+    /**
+     * What {@link #observeOn(Executor, int, Overflow)} does when a value arrives and the buffer is full.
+     */
+    public enum Overflow {
+        /** The stream fails with a {@link BackpressureException}. */
+        ERROR,
+        /** The oldest buffered value is dropped, e.g. for a consumer only interested in recent values. */
+        DROP_OLDEST,
+        /** The new value is dropped. */
+        DROP_NEWEST
+    }
+
+    /**
+     * Signaled when a consumer cannot keep up: no demand for a value, or a full buffer with {@link Overflow#ERROR}.
+     */
+    public static final class BackpressureException extends IllegalStateException {
+        public BackpressureException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Starts the stream for a subscriber.
+     *
+     * @param subscriber receives the values, once it requested them
+     */
+    public abstract void subscribe(Subscriber<? super T> subscriber);
+
+    // --- sources ---
+
+    /**
+     * A cold stream: each subscriber gets the values of a new iterable, read only as fast as requested.
+     *
+     * @param source called at each subscription, on the thread of the subscription
+     * @param <T>    the type of the values
+     * @return a stream of the values of the iterable, then completes
+     */
+    public static <T> DataStream<T> fromIterable(Supplier<? extends Iterable<? extends T>> source) {
+        return new DataStream<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                Iterator<? extends T> iterator;
+                try {
+                    iterator = source.get().iterator();
+                } catch (RuntimeException e) {
+                    subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+                    subscriber.onError(e);
+                    return;
+                }
+                new IterableSubscription<T>(subscriber, iterator).start();
+            }
+        };
+    }
+
+    // --- operators ---
+
+    /**
+     * @param predicate decides which values are kept
+     * @return a stream of the values accepted by the predicate
+     */
+    public DataStream<T> filter(Predicate<? super T> predicate) {
+        DataStream<T> source = this;
+        return new DataStream<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                source.subscribe(new Operator<T, T>(subscriber) {
+                    @Override
+                    public void onNext(T value) {
+                        boolean accepted;
+                        try {
+                            accepted = predicate.test(value);
+                        } catch (RuntimeException e) {
+                            fail(e);
+                            return;
+                        }
+                        if (accepted) {
+                            downstream.onNext(value);
+                        } else {
+                            upstream.request(1); // valeur écartée : la demande reste due
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * @param mapper transforms each value
+     * @param <R>    the type of the transformed values
+     * @return a stream of the transformed values
+     */
+    public <R> DataStream<R> map(Function<? super T, ? extends R> mapper) {
+        DataStream<T> source = this;
+        return new DataStream<R>() {
+            @Override
+            public void subscribe(Subscriber<? super R> subscriber) {
+                source.subscribe(new Operator<T, R>(subscriber) {
+                    @Override
+                    public void onNext(T value) {
+                        R mapped;
+                        try {
+                            mapped = mapper.apply(value);
+                        } catch (RuntimeException e) {
+                            fail(e);
+                            return;
+                        }
+                        downstream.onNext(mapped);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Groups the values by windows of a fixed size, e.g. to index reviews by batches.
+     * The last window may be smaller when the stream completes.
+     *
+     * @param size the number of values per window
+     * @return a stream of windows; requesting one window requests {@code size} values upstream
+     */
+    public DataStream<List<T>> window(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        DataStream<T> source = this;
+        return new DataStream<List<T>>() {
+            @Override
+            public void subscribe(Subscriber<? super List<T>> subscriber) {
+                source.subscribe(new Operator<T, List<T>>(subscriber) {
+                    private List<T> window = new ArrayList<>(size);
+
+                    @Override
+                    long upstreamDemand(long count) {
+                        return count >= Long.MAX_VALUE / size ? Long.MAX_VALUE : count * size;
+                    }
+
+                    @Override
+                    public void onNext(T value) {
+                        window.add(value);
+                        if (window.size() == size) {
+                            List<T> full = window;
+                            window = new ArrayList<>(size);
+                            downstream.onNext(full);
+                        }
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        if (!window.isEmpty()) downstream.onNext(window);
+                        downstream.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Delivers the values on an executor, through a bounded buffer. The stream upstream is
+     * requested without limit; when the subscriber does not keep up, the buffer fills and the
+     * overflow strategy decides what is dropped.
+     *
+     * @param executor   runs the deliveries, e.g. {@code AppExecutors.background()}; one at a time per subscriber
+     * @param bufferSize the maximum number of values waiting for the subscriber
+     * @param overflow   what to do when a value arrives and the buffer is full
+     * @return the same values, delivered on the executor
+     */
+    public DataStream<T> observeOn(Executor executor, int bufferSize, Overflow overflow) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be positive");
+        DataStream<T> source = this;
+        return new DataStream<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                source.subscribe(new ObserveOnSubscriber<>(subscriber, executor, bufferSize, overflow));
+            }
+        };
+    }
+
+    // --- implementation ---
+
+    static final Subscription EMPTY_SUBSCRIPTION = new Subscription() {
+        @Override
+        public void request(long count) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    /** Ajoute une demande sans dépasser Long.MAX_VALUE (demande illimitée). */
+    static long addDemand(AtomicLong requested, long count) {
+        while (true) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE) return current;
+            long next = current + count < 0 ? Long.MAX_VALUE : current + count;
+            if (requested.compareAndSet(current, next)) return current;
+        }
+    }
+
+    /**
+     * Base des opérateurs : relaie la souscription et la demande, transforme les valeurs.
+     */
+    private abstract static class Operator<T, R> implements Subscriber<T>, Subscription {
+        final Subscriber<? super R> downstream;
+        Subscription upstream;
+
+        Operator(Subscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        /** @return la demande à transmettre en amont pour une demande de l'aval */
+        long upstreamDemand(long count) {
+            return count;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            downstream.onError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            downstream.onComplete();
+        }
+
+        /** Une fonction de l'opérateur a échoué : l'amont est arrêté, l'aval reçoit l'erreur. */
+        void fail(Throwable error) {
+            upstream.cancel();
+            downstream.onError(error);
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                fail(new IllegalArgumentException("request must be positive: " + count));
+                return;
+            }
+            upstream.request(upstreamDemand(count));
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+    }
+
+    /**
+     * Source froide : émet les valeurs de l'itérateur au rythme de la demande, sur le thread qui la fait.
+     */
+    private static final class IterableSubscription<T> implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        private final Iterator<? extends T> iterator;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger(); // une seule boucle d'émission à la fois
+        private volatile boolean cancelled;
+
+        IterableSubscription(Subscriber<? super T> subscriber, Iterator<? extends T> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+            if (!iterator.hasNext() && !cancelled) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("request must be positive: " + count));
+                return;
+            }
+            addDemand(requested, count);
+            if (wip.getAndIncrement() != 0) return; // la boucle en cours prendra la demande
+            int missed = 1;
+            do {
+                long emitted = 0;
+                long demand = requested.get();
+                while (emitted != demand && !cancelled && iterator.hasNext()) {
+                    subscriber.onNext(iterator.next());
+                    emitted++;
+                }
+                if (!cancelled && !iterator.hasNext()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) requested.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Tampon borné entre l'amont et un abonné livré sur un executor.
+     */
+    private static final class ObserveOnSubscriber<T> implements Subscriber<T>, Subscription, Runnable {
+        private final Subscriber<? super T> downstream;
+        private final Executor executor;
+        private final int bufferSize;
+        private final Overflow overflow;
+        private final ArrayDeque<T> buffer;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private Subscription upstream;
+        private volatile boolean cancelled;
+        private boolean done; // terminal reçu de l'amont, protégé par buffer
+        private Throwable error;
+
+        ObserveOnSubscriber(Subscriber<? super T> downstream, Executor executor, int bufferSize, Overflow overflow) {
+            this.downstream = downstream;
+            this.executor = executor;
+            this.bufferSize = bufferSize;
+            this.overflow = overflow;
+            this.buffer = new ArrayDeque<>(Math.min(bufferSize, 256));
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+            upstream.request(Long.MAX_VALUE); // le tampon applique la stratégie
+        }
+
+        @Override
+        public void onNext(T value) {
+            boolean failed = false;
+            synchronized (buffer) {
+                if (done) return;
+                if (buffer.size() < bufferSize) {
+                    buffer.offer(value);
+                } else if (overflow == Overflow.DROP_OLDEST) {
+                    buffer.poll();
+                    buffer.offer(value);
+                } else if (overflow == Overflow.ERROR) {
+                    done = true;
+                    error = new BackpressureException("buffer of " + bufferSize + " values is full");
+                    failed = true;
+                }
+                // DROP_NEWEST : la valeur est ignorée
+            }
+            if (failed) upstream.cancel();
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (buffer) {
+                if (done) return;
+                done = true;
+                error = throwable;
+            }
+            schedule();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (buffer) {
+                if (done) return;
+                done = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                onError(new IllegalArgumentException("request must be positive: " + count));
+                return;
+            }
+            addDemand(requested, count);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        /** Livraison sur l'executor : une seule à la fois, jusqu'à épuisement de la demande ou du tampon. */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                long emitted = 0;
+                long demand = requested.get();
+                while (!cancelled) {
+                    T value;
+                    boolean terminated;
+                    Throwable failure;
+                    synchronized (buffer) {
+                        terminated = done;
+                        failure = error;
+                        // une erreur est livrée sans attendre les valeurs en tampon
+                        value = failure == null && emitted != demand ? buffer.poll() : null;
+                        if (failure != null) buffer.clear();
+                    }
+                    if (failure != null) {
+                        cancelled = true;
+                        downstream.onError(failure);
+                        return;
+                    }
+                    if (value == null) {
+                        if (terminated && isEmpty()) {
+                            cancelled = true;
+                            downstream.onComplete();
+                            return;
+                        }
+                        break;
+                    }
+                    downstream.onNext(value);
+                    emitted++;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) requested.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.isEmpty();
+            }
+        }
+    }
+}
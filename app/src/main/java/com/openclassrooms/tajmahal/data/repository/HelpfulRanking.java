@@ -0,0 +1,181 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Helpful votes on reviews, and the ranking of the K most helpful reviews.
+ * <p>
+ * The helpfulness score of a review is its number of votes. The K best reviews are kept in a
+ * min-heap, updated on each vote in O(log K): since a vote only ever increases one score, the
+ * voted review either moves inside the heap, or replaces the heap's weakest review, or stays out.
+ * Reading the ranking sorts the K reviews only, never the whole list. Reviews without votes are
+ * not ranked.
+ * </p>
+ * Reviews are identified by instance, like in the change tracker of the repository: two identical
+ * reviews, e.g. the same comment posted twice, have their own votes. An edited review keeps its votes
+ * ({@link #replace}); a deleted one leaves the ranking ({@link #remove}). The ranking does not know which
+ * reviews are still stored: the caller must not vote for a deleted review, see
+ * {@link RestaurantRepository#voteHelpful}.
+ * Thread-safe.
+ */
+public class HelpfulRanking {
+
+    /** Moins bon en tête : moins de votes, puis atteint ce score plus tard. */
+    private static final Comparator<Score> WEAKEST_FIRST = (a, b) -> {
+        if (a.votes != b.votes) return Integer.compare(a.votes, b.votes);
+        return Long.compare(b.reachedAt, a.reachedAt);
+    };
+
+    private final int size;
+    private final Map<Review, Score> scores = new IdentityHashMap<>();
+    private final PriorityQueue<Score> top;
+    private long voteCount;
+
+    /**
+     * @param size the number of reviews kept in the ranking (K)
+     */
+    public HelpfulRanking(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        this.size = size;
+        this.top = new PriorityQueue<>(size, WEAKEST_FIRST);
+    }
+
+    /**
+     * Records a helpful vote. Each voter can vote once per review.
+     *
+     * @param review the review voted helpful
+     * @param voter  the name of the user voting
+     * @return true if the ranking changed (order or members), false otherwise,
+     * including when the voter had already voted for this review.
+     */
+    public synchronized boolean vote(Review review, String voter) {
+        Score score = scores.get(review);
+        if (score == null) {
+            score = new Score(review);
+            scores.put(review, score);
+        }
+        if (!score.voters.add(voter)) return false;
+
+        score.votes++;
+        score.reachedAt = ++voteCount;
+        if (score.inTop) {
+            // remonte dans le tas : retrait puis ajout, le tas ne contient que K éléments
+            top.remove(score);
+            top.add(score);
+            return true;
+        }
+        if (top.size() < size) {
+            score.inTop = true;
+            top.add(score);
+            return true;
+        }
+        if (WEAKEST_FIRST.compare(score, top.peek()) > 0) {
+            top.poll().inTop = false;
+            score.inTop = true;
+            top.add(score);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the votes of a review to its edited version.
+     *
+     * @param current the review before the edit
+     * @param updated the edited review
+     * @return true if the ranking changed, i.e. the review was ranked
+     */
+    public synchronized boolean replace(Review current, Review updated) {
+        Score score = scores.remove(current);
+        if (score == null) return false;
+        score.review = updated;
+        scores.put(updated, score);
+        return score.inTop;
+    }
+
+    /**
+     * Forgets the votes of a deleted review. If it was ranked, the best review left out takes its place:
+     * this one case scans the voted reviews.
+     *
+     * @param review the deleted review
+     * @return true if the ranking changed
+     */
+    public synchronized boolean remove(Review review) {
+        Score score = scores.remove(review);
+        if (score == null || !score.inTop) return false;
+        top.remove(score);
+        Score best = null;
+        for (Score candidate : scores.values()) {
+            if (!candidate.inTop && (best == null || WEAKEST_FIRST.compare(candidate, best) > 0)) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            best.inTop = true;
+            top.add(best);
+        }
+        return true;
+    }
+
+    /**
+     * @param review a review
+     * @return true if the review has at least one vote, i.e. it was voted and has not been removed since.
+     */
+    public synchronized boolean hasVotes(Review review) {
+        return scores.containsKey(review);
+    }
+
+    /**
+     * @param review a review
+     * @return the number of helpful votes of the review.
+     */
+    public synchronized int getVotes(Review review) {
+        Score score = scores.get(review);
+        return score == null ? 0 : score.votes;
+    }
+
+    /**
+     * @param review a review
+     * @param voter  the name of a user
+     * @return true if the user has already voted for the review.
+     */
+    public synchronized boolean hasVoted(Review review, String voter) {
+        Score score = scores.get(review);
+        return score != null && score.voters.contains(voter);
+    }
+
+    /**
+     * @return the most helpful reviews, most helpful first, at most K.
+     */
+    public synchronized List<Review> getTop() {
+        List<Score> ranked = new ArrayList<>(top);
+        Collections.sort(ranked, Collections.reverseOrder(WEAKEST_FIRST));
+        List<Review> reviews = new ArrayList<>(ranked.size());
+        for (Score score : ranked) {
+            reviews.add(score.review);
+        }
+        return reviews;
+    }
+
+    private static final class Score {
+        Review review;
+        final Set<String> voters = new HashSet<>(2);
+        int votes;
+        long reachedAt; // numéro du vote qui a donné ce score, pour départager les ex æquo
+        boolean inTop;
+
+        Score(Review review) {
+            this.review = review;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming summary of the words most mentioned in review comments ("people mention: curry, service, rapide").
+ * <p>
+ * Counting every word exactly would need one counter per distinct word, and recounting all the
+ * comments on each change. Instead, each comment is added once:
+ * <ul>
+ *     <li>a count-min sketch ({@code depth} rows of {@code width} counters) estimates how many
+ *     comments mention each word. An estimate is never below the exact count, and exceeds it by
+ *     at most {@code e / width} of the total number of words, with high probability;</li>
+ *     <li>a min-heap keeps the {@code capacity} words with the best estimates, so the top words
+ *     are read without scanning the vocabulary.</li>
+ * </ul>
+ * Memory is bounded by the sketch and the heap, whatever the number of comments.
+ * </p>
+ * <p>
+ * Every row is incremented for each word, so a comment can be {@link #remove(String) removed}
+ * exactly when its review is edited or deleted. After a removal, a word that left the heap earlier
+ * is only found again when it is mentioned again: the top words stay approximate.
+ * </p>
+ * A word counts once per comment. Words are lowercased; French stop words, numbers and words
+ * shorter than {@link #MIN_WORD_LENGTH} letters are ignored. Thread-safe.
+ */
+public class KeywordSketch {
+
+    /** Les mots plus courts sont ignorés (articles, pronoms...). */
+    static final int MIN_WORD_LENGTH = 3;
+
+    private static final Pattern NON_LETTER = Pattern.compile("[^\\p{L}]+");
+
+    // Mots vides français, plus quelques mots trop généraux pour un avis de restaurant
+    private static final Set<String> FRENCH_STOP_WORDS = new HashSet<>(Arrays.asList(
+            "alors", "aucun", "aussi", "autre", "aux", "avant", "avec", "avoir", "bon", "car", "cela", "ces", "cet",
+            "cette", "ceux", "chaque", "chez", "comme", "comment", "dans", "des", "donc", "dont", "elle", "elles",
+            "encore", "est", "etc", "les", "été", "être", "fait", "faire", "fois", "font", "hors", "ici", "ils", "juste",
+            "leur", "leurs", "lui", "mais", "mes", "moi", "moins", "mon", "même", "nos", "notre", "nous", "ont",
+            "oui", "par", "parce", "pas", "peu", "peut", "plus", "pour", "pourquoi", "quand", "que", "quel",
+            "quelle", "quelles", "quels", "qui", "sans", "ses", "seulement", "son", "sont", "sous", "sur", "tandis",
+            "tellement", "tels", "tes", "ton", "tous", "tout", "toute", "toutes", "très", "trop", "une", "vos",
+            "votre", "vous", "était", "étaient", "avons", "avez", "suis", "sera", "serait", "avait", "cest", "non",
+            "rien", "bien", "vraiment", "également", "assez", "ceci", "celle", "celui", "lors", "puis", "quoi",
+            "selon", "vers", "via", "déjà", "jamais", "toujours", "beaucoup", "restaurant"));
+
+    /** Moins bon en tête : plus petite estimation, puis ordre alphabétique inverse. */
+    private static final Comparator<Candidate> WEAKEST_FIRST = (a, b) -> {
+        if (a.estimate != b.estimate) return Long.compare(a.estimate, b.estimate);
+        return b.word.compareTo(a.word);
+    };
+
+    private final int width;
+    private final int[][] counters;
+    private final int capacity;
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate> heap;
+    private long wordCount;
+
+    /**
+     * @param width    counters per row of the sketch; the estimation error shrinks as the width grows
+     * @param depth    rows of the sketch; the probability of a bad estimate shrinks as the depth grows
+     * @param capacity number of candidate words kept by the heap, at least the number of keywords read
+     */
+    public KeywordSketch(int width, int depth, int capacity) {
+        if (width <= 0 || depth <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("width, depth and capacity must be positive");
+        }
+        this.width = width;
+        this.counters = new int[depth][width];
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity, WEAKEST_FIRST);
+    }
+
+    /**
+     * Adds the words of a comment to the summary.
+     *
+     * @param comment the comment of a review, may be null
+     */
+    public synchronized void add(String comment) {
+        for (String word : keywords(comment)) {
+            wordCount++;
+            offer(word, increment(word));
+        }
+    }
+
+    /**
+     * Removes the words of a comment previously added, e.g. when its review is edited or deleted.
+     *
+     * @param comment the comment of a review, may be null
+     */
+    public synchronized void remove(String comment) {
+        for (String word : keywords(comment)) {
+            wordCount--;
+            long estimate = decrement(word);
+            Candidate candidate = candidates.get(word);
+            if (candidate != null) {
+                heap.remove(candidate);
+                if (estimate > 0) {
+                    candidate.estimate = estimate;
+                    heap.add(candidate);
+                } else {
+                    candidates.remove(word); // plus aucun commentaire ne le cite
+                }
+            }
+        }
+    }
+
+    /**
+     * @param count the number of keywords wanted, at most the capacity of the summary
+     * @return the most mentioned words, most mentioned first.
+     */
+    public synchronized List<String> top(int count) {
+        List<Candidate> ranked = new ArrayList<>(heap);
+        Collections.sort(ranked, Collections.reverseOrder(WEAKEST_FIRST));
+        List<String> words = new ArrayList<>(Math.min(count, ranked.size()));
+        for (int i = 0; i < Math.min(count, ranked.size()); i++) {
+            words.add(ranked.get(i).word);
+        }
+        return words;
+    }
+
+    /**
+     * @param word a word, lowercased
+     * @return the estimated number of comments mentioning the word, never below the exact count.
+     */
+    public synchronized long estimate(String word) {
+        long hash = hash(word);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            min = Math.min(min, counters[row][index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * @return the number of words counted so far, stop words excepted.
+     */
+    public synchronized long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Extracts the words counted in a comment: lowercased, distinct, without stop words.
+     * Elisions are split: "l'accueil" gives "accueil".
+     *
+     * @param comment the comment, may be null
+     * @return the distinct keywords, in order of appearance
+     */
+    static Set<String> keywords(String comment) {
+        Set<String> words = new LinkedHashSet<>();
+        if (comment == null) return words;
+        for (String word : NON_LETTER.split(comment.toLowerCase(Locale.FRENCH))) {
+            if (word.length() >= MIN_WORD_LENGTH && !FRENCH_STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Incrémente le compteur du mot sur chaque ligne. Pas de mise à jour conservatrice
+     * (seulement les compteurs minimaux) : elle ne permettrait plus de retirer un commentaire.
+     *
+     * @return la nouvelle estimation du mot
+     */
+    private long increment(String word) {
+        return add(word, 1);
+    }
+
+    /** Décrémente le compteur du mot sur chaque ligne, @return la nouvelle estimation du mot. */
+    private long decrement(String word) {
+        return add(word, -1);
+    }
+
+    private long add(String word, int delta) {
+        long hash = hash(word);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int index = index(hash, row);
+            counters[row][index] += delta;
+            min = Math.min(min, counters[row][index]);
+        }
+        return min;
+    }
+
+    /** Met à jour le tas des candidats après un ajout : l'estimation du mot vient de croître. */
+    private void offer(String word, long estimate) {
+        Candidate candidate = candidates.get(word);
+        if (candidate != null) {
+            heap.remove(candidate);
+            candidate.estimate = estimate;
+            heap.add(candidate);
+            return;
+        }
+        if (heap.size() < capacity) {
+            candidate = new Candidate(word, estimate);
+        } else if (estimate > heap.peek().estimate) {
+            candidates.remove(heap.poll().word);
+            candidate = new Candidate(word, estimate);
+        } else {
+            return;
+        }
+        candidates.put(word, candidate);
+        heap.add(candidate);
+    }
+
+    /** Double hachage : la ligne i utilise h1 + i * h2. */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + row * h2, width);
+    }
+
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * 0x100000001b3L;
+        }
+        // Finaliseur de MurmurHash3, comme dans ReviewFingerprintIndex
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Candidate {
+        final String word;
+        long estimate;
+
+        Candidate(String word, long estimate) {
+            this.word = word;
+            this.estimate = estimate;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Aggregates of the dimension scores (food, service, ambience, value) of all the reviews.
+ * <p>
+ * The aggregates are kept in primitive columns, one slot per {@link RatingDimension}: number
+ * of reviews scoring it, sum of the scores and histogram of the scores. Adding, editing or
+ * removing a review updates a few slots, so the breakdown shown by the details screen is read
+ * in O(dimensions) instead of scanning the reviews. Reviews that did not score a dimension
+ * are left out of its aggregates.
+ * </p>
+ * Not thread-safe: {@link RestaurantRepository} guards it with its own lock.
+ */
+public class RatingBreakdown {
+
+    // values() copie le tableau à chaque appel : une seule copie
+    private static final RatingDimension[] DIMENSION_VALUES = RatingDimension.values();
+    private static final int DIMENSIONS = DIMENSION_VALUES.length;
+    private static final int SCORES = RatingDimension.MAX_SCORE;
+
+    private final int[] counts = new int[DIMENSIONS];
+    private final long[] sums = new long[DIMENSIONS];
+    // histogrammes à la suite : [dimension * SCORES + score - 1]
+    private final int[] histograms = new int[DIMENSIONS * SCORES];
+
+    /**
+     * Adds the scores of a review.
+     *
+     * @param review the added review
+     */
+    public void add(Review review) {
+        apply(review, 1);
+    }
+
+    /**
+     * Removes the scores of a review, e.g. when it is deleted or before adding its edited version.
+     *
+     * @param review the removed review, with the scores it had when it was added
+     */
+    public void remove(Review review) {
+        apply(review, -1);
+    }
+
+    private void apply(Review review, int delta) {
+        if (!review.hasScores()) return;
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            int score = review.getScore(DIMENSION_VALUES[dimension]);
+            if (score == 0) continue;
+            counts[dimension] += delta;
+            sums[dimension] += delta * score;
+            histograms[dimension * SCORES + score - 1] += delta;
+        }
+    }
+
+    /**
+     * @return an immutable copy of the current aggregates.
+     */
+    public Summary summary() {
+        return new Summary(counts.clone(), sums.clone(), histograms.clone());
+    }
+
+    /**
+     * Immutable aggregates of the dimension scores, ready to display.
+     */
+    public static final class Summary {
+
+        /** Summary of no review at all. */
+        public static final Summary EMPTY = new Summary(new int[DIMENSIONS], new long[DIMENSIONS], new int[DIMENSIONS * SCORES]);
+
+        private final int[] counts;
+        private final long[] sums;
+        private final int[] histograms;
+
+        private Summary(int[] counts, long[] sums, int[] histograms) {
+            this.counts = counts;
+            this.sums = sums;
+            this.histograms = histograms;
+        }
+
+        /**
+         * @param dimension a rated aspect
+         * @return the number of reviews scoring it
+         */
+        public int getCount(RatingDimension dimension) {
+            return counts[dimension.ordinal()];
+        }
+
+        /**
+         * @param dimension a rated aspect
+         * @return its average score, 0 if no review scores it
+         */
+        public float getAverage(RatingDimension dimension) {
+            int count = counts[dimension.ordinal()];
+            return count == 0 ? 0 : (float) sums[dimension.ordinal()] / count;
+        }
+
+        /**
+         * @param dimension a rated aspect
+         * @return its average score formatted for display, e.g. "4.2"
+         */
+        public String getAverageText(RatingDimension dimension) {
+            return String.format(Locale.getDefault(), "%.1f", getAverage(dimension));
+        }
+
+        /**
+         * @param dimension a rated aspect
+         * @param score     a score, from 1 to {@link RatingDimension#MAX_SCORE}
+         * @return the percentage of the reviews scoring the dimension that gave this score, from 0 to 100
+         */
+        public int getPercentage(RatingDimension dimension, int score) {
+            int count = counts[dimension.ordinal()];
+            return count == 0 ? 0 : (int) (histograms[dimension.ordinal() * SCORES + score - 1] * 100L / count);
+        }
+
+        /**
+         * @return true if no review scores any dimension.
+         */
+        public boolean isEmpty() {
+            for (int count : counts) {
+                if (count != 0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Summary summary = (Summary) o;
+            return Arrays.equals(counts, summary.counts) && Arrays.equals(sums, summary.sums) && Arrays.equals(histograms, summary.histograms);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(counts) + Arrays.hashCode(sums)) + Arrays.hashCode(histograms);
+        }
+    }
+}
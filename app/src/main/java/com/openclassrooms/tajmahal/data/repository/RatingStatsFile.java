@@ -0,0 +1,202 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A tiny file holding the rating summary (number of reviews and sum of the ratings), for readers
+ * that must not load the reviews, like the home-screen widget.
+ * <p>
+ * Layout of the file (big endian, {@value #FILE_SIZE} bytes): {@code [MAGIC (int)][count (int)][rating sum (long)]}.
+ * </p>
+ * <p>
+ * {@link RestaurantRepository} calls {@link #update(Supplier)} after each change of the reviews.
+ * The summary is recomputed on the background executor, from the rates only, once per burst of
+ * changes; the file is rewritten only when the summary changed, through a temporary file renamed
+ * over it, so a reader sees the old summary or the new one, never a half-written file.
+ * </p>
+ * A reader only needs {@link #read(File)}: no dependency injection, no repository, no network.
+ */
+public class RatingStatsFile {
+
+    /** Name of the file, in the app's files directory. */
+    public static final String FILE_NAME = "rating.stats";
+
+    /** Size of the file, in bytes. */
+    public static final int FILE_SIZE = 4 + 4 + 8;
+
+    /** "TJST" : marque de début de fichier. */
+    static final int MAGIC = 0x544A5354;
+
+    private static final String TAG = "RatingStatsFile";
+
+    /**
+     * Notified on the background executor each time a new summary has been written.
+     */
+    public interface Listener {
+        /** @param stats the summary just written */
+        void onStatsWritten(Stats stats);
+    }
+
+    private final File file;
+    private final Executor executor;
+    @Nullable
+    private final Listener listener;
+    // une mise à jour est déjà prévue : elle lira les avis au moment où elle s'exécutera
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    // dernier résumé écrit, lu et écrit sur l'exécuteur uniquement
+    private Stats written;
+
+    /**
+     * @param file     the stats file
+     * @param executor the executor computing and writing the summary, off the main thread
+     * @param listener notified after each write, or null
+     */
+    public RatingStatsFile(File file, Executor executor, @Nullable Listener listener) {
+        this.file = file;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules a new summary. Calls made before it is computed share it.
+     *
+     * @param reviews supplies the current reviews, called on the background executor
+     */
+    public void update(Supplier<List<Review>> reviews) {
+        if (!updatePending.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            // remis à false avant la lecture : un changement pendant le calcul prévoit un nouveau calcul
+            updatePending.set(false);
+            Stats stats = Stats.of(reviews.get());
+            if (written == null) written = read(file);
+            if (stats.equals(written)) return;
+            try {
+                write(stats);
+                written = stats;
+                if (listener != null) listener.onStatsWritten(stats);
+            } catch (IOException e) {
+                Log.w(TAG, "Rating stats not written", e);
+            }
+        });
+    }
+
+    private void write(Stats stats) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(stats.count);
+            out.writeLong(stats.ratingSum);
+            out.flush();
+            // sur disque avant le renommage : après un crash, le fichier renommé est complet
+            stream.getFD().sync();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Cannot rename " + temporary + " to " + file);
+        }
+    }
+
+    /**
+     * Reads the summary written last.
+     *
+     * @param file the stats file
+     * @return the summary, or null if the file does not exist yet or is not valid
+     */
+    @Nullable
+    public static Stats read(File file) {
+        if (file.length() != FILE_SIZE) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) return null;
+            int count = in.readInt();
+            long ratingSum = in.readLong();
+            return count < 0 || ratingSum < 0 ? null : new Stats(count, ratingSum);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The rating summary: number of reviews and average rating.
+     */
+    public static final class Stats {
+
+        private final int count;
+        private final long ratingSum;
+
+        /**
+         * @param count     the number of reviews
+         * @param ratingSum the sum of their ratings
+         */
+        public Stats(int count, long ratingSum) {
+            this.count = count;
+            this.ratingSum = ratingSum;
+        }
+
+        /**
+         * Computes the summary of the given reviews, reading their rates only.
+         *
+         * @param reviews the reviews
+         * @return their summary
+         */
+        public static Stats of(List<Review> reviews) {
+            long sum = 0;
+            for (Review review : reviews) sum += review.getRate();
+            return new Stats(reviews.size(), sum);
+        }
+
+        /**
+         * @return the number of reviews.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the average rating, 0 if there are no reviews.
+         */
+        public float getAverage() {
+            return count == 0 ? 0 : (float) ratingSum / count;
+        }
+
+        /**
+         * @return the average rating formatted for display, e.g. "4.2", like the details screen.
+         */
+        public String getAverageText() {
+            return String.format(Locale.getDefault(), "%.1f", getAverage());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Stats stats = (Stats) o;
+            return count == stats.count && ratingSum == stats.ratingSum;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * count + Long.hashCode(ratingSum);
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{count=" + count + ", ratingSum=" + ratingSum + '}';
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.OpeningHours;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Spatial index of the restaurants of a chain, answering "the k nearest restaurants open now"
+ * and "the restaurants in this area of the map".
+ * <p>
+ * The index is a balanced 2-d tree (k-d tree) stored in parallel arrays: the restaurant at the
+ * middle of a range splits it in two halves, on latitude or longitude alternately, so the tree
+ * has no node objects and its depth is log2(n). A query only visits the halves that may contain
+ * an answer: about log(n) + k restaurants for the nearest ones, log(n) + the number of results
+ * for an area, instead of every restaurant for a linear scan.
+ * </p>
+ * <p>
+ * Distances are great-circle distances on the Earth (haversine formula). The halves are pruned
+ * with exact lower bounds of the distance to a line of latitude or longitude, so the results are
+ * exactly those of a linear scan, including near the 180th meridian and the poles.
+ * </p>
+ * Restaurants without coordinates are left out. Immutable once built, so it can be queried from
+ * any thread; a new index is built when the restaurants change.
+ */
+public class RestaurantLocationIndex {
+
+    /** Heure de la requête pour ignorer les horaires : tous les restaurants sont candidats. */
+    public static final int ANY_TIME = -1;
+
+    /** Mean radius of the Earth, in meters. */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private static final int LATITUDE = 0;
+    private static final int LONGITUDE = 1;
+
+    // un restaurant par case, dans l'ordre de l'arbre : le milieu de chaque intervalle est son nœud
+    private final Restaurant[] restaurants;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final OpeningHours[] hours;
+
+    /**
+     * Builds the index in O(n log n).
+     *
+     * @param restaurants the restaurants to index; those without coordinates are ignored
+     */
+    public RestaurantLocationIndex(List<Restaurant> restaurants) {
+        int size = 0;
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.hasLocation()) size++;
+        }
+        this.restaurants = new Restaurant[size];
+        latitudes = new double[size];
+        longitudes = new double[size];
+        hours = new OpeningHours[size];
+        int i = 0;
+        for (Restaurant restaurant : restaurants) {
+            if (!restaurant.hasLocation()) continue;
+            this.restaurants[i] = restaurant;
+            latitudes[i] = restaurant.getLatitude();
+            longitudes[i] = restaurant.getLongitude();
+            // horaires analysés une fois ici, pas à chaque requête
+            hours[i] = OpeningHours.parse(restaurant.getHours());
+            i++;
+        }
+        build(0, size, LATITUDE);
+    }
+
+    /**
+     * @return the number of indexed restaurants.
+     */
+    public int size() {
+        return restaurants.length;
+    }
+
+    /**
+     * Finds the restaurants nearest to a place.
+     *
+     * @param latitude    the latitude of the place, in degrees
+     * @param longitude   the longitude of the place, in degrees
+     * @param count       the maximum number of restaurants wanted
+     * @param minuteOfDay only the restaurants open at this time (minutes since midnight) are returned;
+     *                    {@link #ANY_TIME} to ignore the opening hours
+     * @return at most {@code count} restaurants, nearest first
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int count, int minuteOfDay) {
+        if (count <= 0 || restaurants.length == 0) return Collections.emptyList();
+        NearestSearch search = new NearestSearch(latitude, longitude, Math.min(count, restaurants.length), minuteOfDay);
+        search.visit(0, restaurants.length, LATITUDE);
+        return search.sortedResults();
+    }
+
+    /**
+     * Finds the restaurants in an area of the map.
+     * A box whose west edge is east of its east edge crosses the 180th meridian.
+     *
+     * @param south the southern edge, in degrees
+     * @param west  the western edge, in degrees
+     * @param north the northern edge, in degrees
+     * @param east  the eastern edge, in degrees
+     * @return the restaurants in the box, edges included, in no particular order
+     */
+    public List<Restaurant> within(double south, double west, double north, double east) {
+        List<Restaurant> results = new ArrayList<>();
+        if (south > north) return results;
+        if (west <= east) {
+            collect(0, restaurants.length, LATITUDE, south, west, north, east, results);
+        } else {
+            // de part et d'autre du 180e méridien : deux boîtes
+            collect(0, restaurants.length, LATITUDE, south, west, north, 180, results);
+            collect(0, restaurants.length, LATITUDE, south, -180, north, east, results);
+        }
+        return results;
+    }
+
+    /**
+     * Great-circle distance between two places (haversine formula).
+     *
+     * @return the distance in meters
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinDeltaPhi * sinDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinDeltaLambda * sinDeltaLambda;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private double coordinate(int i, int axis) {
+        return axis == LATITUDE ? latitudes[i] : longitudes[i];
+    }
+
+    /**
+     * Place le médian de [from, to) au milieu selon l'axe, les plus petits avant et les plus grands après,
+     * puis recommence sur chaque moitié avec l'autre axe.
+     */
+    private void build(int from, int to, int axis) {
+        while (to - from > 1) {
+            int middle = (from + to) >>> 1;
+            select(from, to, middle, axis);
+            build(from, middle, 1 - axis);
+            // la moitié droite en boucle : récursion bornée par la profondeur
+            from = middle + 1;
+            axis = 1 - axis;
+        }
+    }
+
+    /**
+     * Quickselect : le k-ième plus petit de [from, to) selon l'axe arrive en k, en O(n) en moyenne.
+     * Partition en trois pour que les coordonnées égales (restaurants d'un même centre commercial) restent linéaires.
+     */
+    private void select(int from, int to, int k, int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = medianOfThree(coordinate(lo, axis), coordinate((lo + hi) >>> 1, axis), coordinate(hi, axis));
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i <= gt) {
+                double value = coordinate(i, axis);
+                if (value < pivot) {
+                    swap(lt++, i++);
+                } else if (value > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private void swap(int i, int j) {
+        Restaurant restaurant = restaurants[i];
+        restaurants[i] = restaurants[j];
+        restaurants[j] = restaurant;
+        double latitude = latitudes[i];
+        latitudes[i] = latitudes[j];
+        latitudes[j] = latitude;
+        double longitude = longitudes[i];
+        longitudes[i] = longitudes[j];
+        longitudes[j] = longitude;
+        OpeningHours openingHours = hours[i];
+        hours[i] = hours[j];
+        hours[j] = openingHours;
+    }
+
+    private void collect(int from, int to, int axis, double south, double west, double north, double east,
+                         List<Restaurant> results) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            double latitude = latitudes[middle];
+            double longitude = longitudes[middle];
+            if (latitude >= south && latitude <= north && longitude >= west && longitude <= east) {
+                results.add(restaurants[middle]);
+            }
+            double split = axis == LATITUDE ? latitude : longitude;
+            double min = axis == LATITUDE ? south : west;
+            double max = axis == LATITUDE ? north : east;
+            // moitié gauche : coordonnées <= split, moitié droite : >= split
+            boolean left = min <= split;
+            boolean right = max >= split;
+            if (left && right) {
+                collect(from, middle, 1 - axis, south, west, north, east, results);
+                from = middle + 1;
+            } else if (left) {
+                to = middle;
+            } else {
+                from = middle + 1;
+            }
+            axis = 1 - axis;
+        }
+    }
+
+    /**
+     * A restaurant found by {@link #nearest(double, double, int, int)}, with its distance.
+     */
+    public static final class Neighbor {
+
+        private final Restaurant restaurant;
+        private final double distanceMeters;
+
+        /**
+         * @param restaurant     the restaurant found
+         * @param distanceMeters its distance to the place searched, in meters
+         */
+        public Neighbor(Restaurant restaurant, double distanceMeters) {
+            this.restaurant = restaurant;
+            this.distanceMeters = distanceMeters;
+        }
+
+        /**
+         * @return the restaurant found.
+         */
+        public Restaurant getRestaurant() {
+            return restaurant;
+        }
+
+        /**
+         * @return its great-circle distance to the place searched, in meters.
+         */
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    /**
+     * Recherche des k plus proches : les meilleurs candidats dans un tas max de taille k,
+     * une moitié n'est visitée que si elle peut contenir un restaurant plus proche que le pire candidat.
+     */
+    private final class NearestSearch {
+
+        private final double latitude;
+        private final double longitude;
+        private final double cosLatitude;
+        private final int minuteOfDay;
+        // tas max sur la distance : la racine est le candidat le plus loin
+        private final int[] heap;
+        private final double[] heapDistances;
+        private int heapSize;
+
+        NearestSearch(double latitude, double longitude, int count, int minuteOfDay) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            cosLatitude = Math.cos(Math.toRadians(latitude));
+            this.minuteOfDay = minuteOfDay;
+            heap = new int[count];
+            heapDistances = new double[count];
+        }
+
+        void visit(int from, int to, int axis) {
+            if (from >= to) return;
+            int middle = (from + to) >>> 1;
+            if (minuteOfDay == ANY_TIME || hours[middle].isOpenAt(minuteOfDay)) {
+                offer(middle, distanceMeters(latitude, longitude, latitudes[middle], longitudes[middle]));
+            }
+            double split = coordinate(middle, axis);
+            boolean queryFirst = (axis == LATITUDE ? latitude : longitude) < split;
+            // d'abord la moitié du point cherché, l'autre seulement si elle peut faire mieux
+            if (queryFirst) {
+                visit(from, middle, 1 - axis);
+            } else {
+                visit(middle + 1, to, 1 - axis);
+            }
+            if (heapSize < heap.length || boundToOtherSide(axis, split, queryFirst) < heapDistances[0]) {
+                if (queryFirst) {
+                    visit(middle + 1, to, 1 - axis);
+                } else {
+                    visit(from, middle, 1 - axis);
+                }
+            }
+        }
+
+        /**
+         * Minore la distance à tout point de l'autre côté de la coupe : au-delà d'un parallèle,
+         * ou dans le fuseau de longitudes au-delà d'un méridien (qui s'arrête au 180e méridien).
+         */
+        private double boundToOtherSide(int axis, double split, boolean queryBelow) {
+            if (axis == LATITUDE) {
+                return EARTH_RADIUS_METERS * Math.toRadians(Math.abs(split - latitude));
+            }
+            // écart au bord le plus proche du fuseau : le méridien de coupe ou le 180e méridien
+            double delta = queryBelow
+                    ? Math.min(split - longitude, 180 + longitude)
+                    : Math.min(longitude - split, 180 - longitude);
+            if (delta >= 90) {
+                // le point le plus proche du fuseau est un pôle
+                return EARTH_RADIUS_METERS * (Math.PI / 2 - Math.toRadians(Math.abs(latitude)));
+            }
+            // distance au grand cercle du méridien
+            return EARTH_RADIUS_METERS * Math.asin(Math.min(1, cosLatitude * Math.sin(Math.toRadians(delta))));
+        }
+
+        private void offer(int index, double distance) {
+            if (heapSize < heap.length) {
+                int i = heapSize++;
+                // remonte le nouveau candidat
+                while (i > 0 && heapDistances[(i - 1) / 2] < distance) {
+                    int parent = (i - 1) / 2;
+                    heap[i] = heap[parent];
+                    heapDistances[i] = heapDistances[parent];
+                    i = parent;
+                }
+                heap[i] = index;
+                heapDistances[i] = distance;
+            } else if (distance < heapDistances[0]) {
+                // remplace le plus loin et le redescend
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= heapSize) break;
+                    if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) child++;
+                    if (heapDistances[child] <= distance) break;
+                    heap[i] = heap[child];
+                    heapDistances[i] = heapDistances[child];
+                    i = child;
+                }
+                heap[i] = index;
+                heapDistances[i] = distance;
+            }
+        }
+
+        List<Neighbor> sortedResults() {
+            // vide le tas : du plus loin au plus proche
+            Neighbor[] sorted = new Neighbor[heapSize];
+            while (heapSize > 0) {
+                int last = --heapSize;
+                sorted[last] = new Neighbor(restaurants[heap[0]], heapDistances[0]);
+                int index = heap[last];
+                double distance = heapDistances[last];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= heapSize) break;
+                    if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) child++;
+                    if (heapDistances[child] <= distance) break;
+                    heap[i] = heap[child];
+                    heapDistances[i] = heapDistances[child];
+                    i = child;
+                }
+                if (heapSize > 0) {
+                    heap[i] = index;
+                    heapDistances[i] = distance;
+                }
+            }
+            List<Neighbor> results = new ArrayList<>(sorted.length);
+            Collections.addAll(results, sorted);
+            return results;
+        }
+    }
+}
@@ -2,14 +2,20 @@ package com.openclassrooms.tajmahal.data.repository;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.ReviewExchange;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
 import com.openclassrooms.tajmahal.domain.model.Review;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -29,20 +35,94 @@ import javax.inject.Singleton;
 @Singleton
 public class RestaurantRepository {
 
+    /** Number of reviews in the "most helpful" ranking. */
+    public static final int TOP_REVIEWS = 3;
+
+    /** Number of reviews added at once by {@link #importReviews(Reader, ReviewExchange.Format)}. */
+    public static final int IMPORT_BATCH_SIZE = 1000;
+
     // The API interface instance that will be used for network requests related to restaurant data.
     private final RestaurantApi restaurantApi;
-    //creation mutableLiveData pour les reviews
-    private final MutableLiveData<List<Review>> reviewsLiveData = new MutableLiveData<>();
+    // requêtes identiques simultanées (écrans, rotation) : un seul appel à l'API, résultat partagé
+    private final SingleFlight<Request> requests = new SingleFlight<>();
+    // restaurant chargé au démarrage par preloadRestaurant(), null avant
+    private volatile Restaurant preloadedRestaurant;
+    // index spatial des restaurants de la chaîne, construit à la première recherche ; immuable
+    private volatile RestaurantLocationIndex locationIndex;
+    // avis ajoutés, pour les consommateurs en arrière-plan (synchronisation, indexation...)
+    private final StreamEmitter<Review> addedReviews = new StreamEmitter<>();
+    // publication des reviews : une rafale d'ajouts ne donne qu'une émission par frame
+    private final CoalescingPublisher<List<Review>> reviewsPublisher;
+    // changements depuis la dernière publication ; verrou des écritures et de la prise du snapshot publié
+    private final ReviewChangeTracker changeTracker = new ReviewChangeTracker();
+    private final MutableLiveData<ReviewListUpdate> reviewUpdates;
+    // empreintes des commentaires publiés, construites au premier contrôle de doublon
+    private final ReviewFingerprintIndex fingerprintIndex = new ReviewFingerprintIndex();
+    private boolean fingerprintIndexReady;
+    // votes "utile" et classement des avis les plus utiles, mis à jour à chaque vote
+    private final HelpfulRanking helpfulRanking = new HelpfulRanking(TOP_REVIEWS);
+    private final MutableLiveData<List<Review>> topReviews = new MutableLiveData<>(Collections.emptyList());
+    // mots les plus cités dans les commentaires, résumé en mémoire bornée construit au premier appel
+    private final KeywordSketch keywordSketch = new KeywordSketch(4096, 4, 50);
+    private boolean keywordSketchReady;
+    // sommes et histogrammes des notes par critère, construits au premier appel puis tenus à jour
+    private final RatingBreakdown ratingBreakdown = new RatingBreakdown();
+    private boolean ratingBreakdownReady;
+    // résumé des notes pour le widget de l'écran d'accueil, réécrit en arrière-plan ; null dans les tests
+    @Nullable
+    private final RatingStatsFile ratingStatsFile;
+
     /**
      * Constructs a new instance of {@link RestaurantRepository} with the given {@link RestaurantApi}.
      *
      * @param restaurantApi The network API interface for fetching restaurant data.
      */
-    @Inject
     public RestaurantRepository(RestaurantApi restaurantApi) {
+        this(restaurantApi, CoalescingPublisher.nextFrame(), null);
+    }
+
+    /**
+     * Constructs the repository of the application, which keeps the rating summary file up to date.
+     *
+     * @param restaurantApi   The network API interface for fetching restaurant data.
+     * @param ratingStatsFile The file read by the home-screen widget.
+     */
+    @Inject
+    public RestaurantRepository(RestaurantApi restaurantApi, RatingStatsFile ratingStatsFile) {
+        this(restaurantApi, CoalescingPublisher.nextFrame(), ratingStatsFile);
+    }
+
+    /**
+     * Constructs a new instance of {@link RestaurantRepository} emitting the reviews with the given scheduler.
+     *
+     * @param restaurantApi   The network API interface for fetching restaurant data.
+     * @param reviewsSchedule Decides when a burst of review changes is published.
+     */
+    public RestaurantRepository(RestaurantApi restaurantApi, CoalescingPublisher.Scheduler reviewsSchedule) {
+        this(restaurantApi, reviewsSchedule, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link RestaurantRepository}.
+     *
+     * @param restaurantApi   The network API interface for fetching restaurant data.
+     * @param reviewsSchedule Decides when a burst of review changes is published.
+     * @param ratingStatsFile The rating summary file to keep up to date, or null.
+     */
+    public RestaurantRepository(RestaurantApi restaurantApi, CoalescingPublisher.Scheduler reviewsSchedule,
+                                @Nullable RatingStatsFile ratingStatsFile) {
         this.restaurantApi = restaurantApi;
-        // initialize the reviewsLiveData when the repository is created
-        reviewsLiveData.setValue(restaurantApi.getReviews());
+        this.ratingStatsFile = ratingStatsFile;
+        // initialize the reviews LiveData when the repository is created; the first snapshot is their initial
+        // value rather than a setValue(), so the repository can be built off the main thread (DetailsWarmUp)
+        ReviewListUpdate initialUpdate;
+        synchronized (changeTracker) {
+            initialUpdate = changeTracker.publish(loadReviews());
+        }
+        this.reviewUpdates = new MutableLiveData<>(initialUpdate);
+        this.reviewsPublisher = new CoalescingPublisher<>(this::publishReviews, reviewsSchedule, initialUpdate.getReviews());
+        // le fichier peut dater d'une version précédente des avis
+        onRatingsChanged();
     }
 
     /**
@@ -51,11 +131,25 @@ public class RestaurantRepository {
      * This method will make a network call using the provided {@link RestaurantApi} instance
      * to fetch restaurant data. Note that error handling and any transformations on the data
      * would need to be managed.
+     * Concurrent calls share a single call to the API; once {@link #preloadRestaurant()} has run,
+     * the preloaded details are returned without calling the API.
      *
      * @return LiveData holding the restaurant details.
      */
     public LiveData<Restaurant> getRestaurant() {
-        return new MutableLiveData<>(restaurantApi.getRestaurant());
+        Restaurant restaurant = preloadedRestaurant;
+        if (restaurant == null) {
+            restaurant = requests.execute(Request.RESTAURANT, restaurantApi::getRestaurant);
+        }
+        return new MutableLiveData<>(restaurant);
+    }
+
+    /**
+     * Loads the restaurant details and keeps them for {@link #getRestaurant()}, e.g. during the startup warm-up.
+     * Must be called off the main thread.
+     */
+    public void preloadRestaurant() {
+        preloadedRestaurant = requests.execute(Request.RESTAURANT, restaurantApi::getRestaurant);
     }
     /**
      * Retrieves the list of user reviews.
@@ -63,16 +157,504 @@ public class RestaurantRepository {
      * @return LiveData containing the list of reviews
      */
     public LiveData<List<Review>> getReviews() {
-        return reviewsLiveData;
+        return reviewsPublisher.getLiveData();
+    }
+
+    /**
+     * Retrieves the snapshots of {@link #getReviews()} with what changed since the previous one:
+     * rows inserted at the top, edited or removed. A list can apply these changes directly
+     * instead of comparing the two snapshots.
+     * Each update is published on the main thread just before the same snapshot reaches {@link #getReviews()}.
+     *
+     * @return LiveData containing the last update
+     */
+    public LiveData<ReviewListUpdate> getReviewUpdates() {
+        return reviewUpdates;
+    }
+
+    /**
+     * Streams the restaurant details, for consumers off the main thread.
+     *
+     * @return a cold stream of one restaurant, read from the API at each subscription
+     */
+    public DataStream<Restaurant> streamRestaurant() {
+        return DataStream.fromIterable(() ->
+                Collections.singletonList(requests.execute(Request.RESTAURANT, restaurantApi::getRestaurant)));
+    }
+
+    /**
+     * Streams all the reviews, newest first, as fast as the subscriber requests them.
+     *
+     * @return a cold stream; each subscription reads a snapshot of the reviews, then completes
+     */
+    public DataStream<Review> streamReviews() {
+        return DataStream.fromIterable(this::loadReviews);
+    }
+
+    /**
+     * Streams the reviews added from now on, one by one, including imported ones.
+     * Subscribe through {@link DataStream#observeOn} to choose the thread and the overflow strategy.
+     *
+     * @return a hot stream that never completes
+     */
+    public DataStream<Review> streamAddedReviews() {
+        return addedReviews;
     }
 
     /* update reviews and notifies observers
+     * the observers receive the new list at the next frame, once per burst of additions
      *
     @param review - the review to add
      */
     public void addReview(Review review) {
-        restaurantApi.addReview(review);
-        // ✅ Crée une NOUVELLE liste pour que LiveData détecte le changement
-        reviewsLiveData.setValue(new ArrayList<>(restaurantApi.getReviews()));
+        synchronized (changeTracker) {
+            restaurantApi.addReview(review);
+            // une lecture déjà en cours peut ne pas voir l'avis : les lectures suivantes ne la partagent pas
+            requests.forget(Request.REVIEWS);
+            changeTracker.inserted(1);
+        }
+        synchronized (fingerprintIndex) {
+            if (fingerprintIndexReady) {
+                fingerprintIndex.add(review.getComment());
+            }
+        }
+        synchronized (keywordSketch) {
+            if (keywordSketchReady) {
+                keywordSketch.add(review.getComment());
+            }
+        }
+        synchronized (ratingBreakdown) {
+            if (ratingBreakdownReady) {
+                ratingBreakdown.add(review);
+            }
+        }
+        addedReviews.emit(review);
+        // ✅ L'API renverra une NOUVELLE liste (snapshot) au moment de l'émission
+        reviewsPublisher.invalidate();
+        onRatingsChanged();
+    }
+
+    /**
+     * Adds several reviews at once and notifies observers once, e.g. when importing a backup.
+     *
+     * @param reviews the reviews to add, oldest first; the list is not kept
+     */
+    public void addReviews(List<Review> reviews) {
+        synchronized (changeTracker) {
+            restaurantApi.addReviews(reviews);
+            requests.forget(Request.REVIEWS);
+            changeTracker.inserted(reviews.size());
+        }
+        synchronized (fingerprintIndex) {
+            if (fingerprintIndexReady) {
+                for (Review review : reviews) fingerprintIndex.add(review.getComment());
+            }
+        }
+        synchronized (keywordSketch) {
+            if (keywordSketchReady) {
+                for (Review review : reviews) keywordSketch.add(review.getComment());
+            }
+        }
+        synchronized (ratingBreakdown) {
+            if (ratingBreakdownReady) {
+                for (Review review : reviews) ratingBreakdown.add(review);
+            }
+        }
+        for (Review review : reviews) addedReviews.emit(review);
+        reviewsPublisher.invalidate();
+        onRatingsChanged();
+    }
+
+    /**
+     * Retrieves the reviews written by a user, e.g. the "my reviews" section of the review screen.
+     * The API looks them up in its author index: the cost depends on the number of reviews of
+     * the user, not on the total number of reviews.
+     *
+     * @param userId the user, identified by the username shown on the reviews
+     * @return the reviews of the user, newest first
+     */
+    public List<Review> getReviewsBy(String userId) {
+        return restaurantApi.getReviewsBy(userId);
+    }
+
+    /**
+     * Edits a review in place: it keeps its position in the list and its helpful votes.
+     * The duplicate index and the keyword summary are updated incrementally.
+     * Must be called off the main thread.
+     *
+     * @param current the review to edit, as published by {@link #getReviews()}
+     * @param updated the edited review, by the same author
+     * @return true if the review was edited, false if it no longer exists
+     */
+    public boolean editReview(Review current, Review updated) {
+        boolean rankingChanged;
+        synchronized (changeTracker) {
+            if (!restaurantApi.updateReview(current, updated)) return false;
+            requests.forget(Request.REVIEWS);
+            changeTracker.changed(current);
+            // sous le même verrou que voteHelpful : aucun vote ne se perd entre les deux versions
+            rankingChanged = helpfulRanking.replace(current, updated);
+        }
+        updateSearchIndexes(current.getComment(), updated.getComment());
+        updateRatingBreakdown(current, updated);
+        if (rankingChanged) {
+            topReviews.postValue(helpfulRanking.getTop());
+        }
+        reviewsPublisher.invalidate();
+        onRatingsChanged();
+        return true;
+    }
+
+    /**
+     * Deletes a review. The duplicate index, the keyword summary and the helpful ranking are
+     * updated incrementally. Must be called off the main thread.
+     *
+     * @param review the review to delete, as published by {@link #getReviews()}
+     * @return true if the review was deleted, false if it no longer exists
+     */
+    public boolean deleteReview(Review review) {
+        boolean rankingChanged;
+        synchronized (changeTracker) {
+            if (!restaurantApi.deleteReview(review)) return false;
+            requests.forget(Request.REVIEWS);
+            changeTracker.removed(review);
+            // sous le même verrou que voteHelpful : un vote arrivé ensuite ne remet pas l'avis dans le classement
+            rankingChanged = helpfulRanking.remove(review);
+        }
+        updateSearchIndexes(review.getComment(), null);
+        updateRatingBreakdown(review, null);
+        if (rankingChanged) {
+            topReviews.postValue(helpfulRanking.getTop());
+        }
+        reviewsPublisher.invalidate();
+        onRatingsChanged();
+        return true;
+    }
+
+    /**
+     * Fait recalculer en arrière-plan le résumé lu par le widget : une seule fois par rafale de changements.
+     */
+    private void onRatingsChanged() {
+        if (ratingStatsFile != null) {
+            ratingStatsFile.update(this::loadReviews);
+        }
+    }
+
+    /**
+     * Retire les notes par critère de l'avis modifié ou supprimé et ajoute celles du nouveau (null = aucun).
+     */
+    private void updateRatingBreakdown(Review removed, Review added) {
+        synchronized (ratingBreakdown) {
+            if (ratingBreakdownReady) {
+                ratingBreakdown.remove(removed);
+                if (added != null) ratingBreakdown.add(added);
+            }
+        }
+    }
+
+    /**
+     * Retire l'ancien commentaire des index déjà construits et y ajoute le nouveau (null = aucun).
+     */
+    private void updateSearchIndexes(String removedComment, String addedComment) {
+        synchronized (fingerprintIndex) {
+            if (fingerprintIndexReady) {
+                fingerprintIndex.remove(removedComment);
+                if (addedComment != null) fingerprintIndex.add(addedComment);
+            }
+        }
+        synchronized (keywordSketch) {
+            if (keywordSketchReady) {
+                keywordSketch.remove(removedComment);
+                if (addedComment != null) keywordSketch.add(addedComment);
+            }
+        }
+    }
+
+    /**
+     * Writes all the reviews, oldest first, one record at a time.
+     * Importing the output with {@link #importReviews(Reader, ReviewExchange.Format)} restores the same order.
+     * Must be called off the main thread.
+     *
+     * @param out    where to write, buffered by the caller
+     * @param format the format to write
+     * @return the number of reviews written
+     * @throws IOException if writing fails
+     */
+    public long exportReviews(Writer out, ReviewExchange.Format format) throws IOException {
+        List<Review> reviews = loadReviews(); // snapshot, le plus récent en premier
+        ReviewExchange.RecordWriter writer = ReviewExchange.newWriter(out, format);
+        for (int i = reviews.size() - 1; i >= 0; i--) {
+            writer.write(reviews.get(i));
+        }
+        writer.flush();
+        return reviews.size();
+    }
+
+    /**
+     * Reads reviews one record at a time and adds them by batches of {@link #IMPORT_BATCH_SIZE},
+     * so memory does not depend on the size of the input. Reviews read before an error are kept.
+     * Must be called off the main thread.
+     *
+     * @param in     what to read, e.g. the output of {@link #exportReviews(Writer, ReviewExchange.Format)}
+     * @param format the format to read
+     * @return the number of reviews imported
+     * @throws IOException if reading fails or the input is malformed
+     */
+    public long importReviews(Reader in, ReviewExchange.Format format) throws IOException {
+        ReviewExchange.RecordReader reader = ReviewExchange.newReader(in, format);
+        List<Review> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long count = 0;
+        try {
+            Review review;
+            while ((review = reader.read()) != null) {
+                batch.add(review);
+                count++;
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    addReviews(batch);
+                    batch.clear(); // l'API ne garde pas la liste : elle est réutilisée
+                }
+            }
+        } finally {
+            if (!batch.isEmpty()) addReviews(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Records a helpful vote on a review. The ranking of the most helpful reviews is updated
+     * incrementally, and published only if it changed.
+     * <p>
+     * Votes are counted per review instance, as published by {@link #getReviews()}. A vote for a review
+     * that is no longer stored, e.g. from a row still showing a deleted or edited review, is ignored: the
+     * first vote of a review looks for it among the reviews of its author, the next ones find its votes.
+     * </p>
+     *
+     * @param review the review voted helpful
+     * @param voter  the name of the user voting; a second vote of the same user is ignored
+     */
+    public void voteHelpful(Review review, String voter) {
+        boolean changed;
+        // sous le verrou des écritures : l'avis ne peut pas être supprimé entre la vérification et le vote
+        synchronized (changeTracker) {
+            if (!helpfulRanking.hasVotes(review) && !isStored(review)) return;
+            changed = helpfulRanking.vote(review, voter);
+        }
+        if (changed) {
+            topReviews.postValue(helpfulRanking.getTop());
+        }
+    }
+
+    /** Vrai si cette instance de l'avis est encore enregistrée : comparée par référence, comme les votes. */
+    private boolean isStored(Review review) {
+        for (Review stored : restaurantApi.getReviewsBy(review.getUsername())) {
+            if (stored == review) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param review a review
+     * @return the number of helpful votes of the review.
+     */
+    public int getHelpfulVotes(Review review) {
+        return helpfulRanking.getVotes(review);
+    }
+
+    /**
+     * @param review a review
+     * @param voter  the name of a user
+     * @return true if the user has already voted the review helpful.
+     */
+    public boolean hasVotedHelpful(Review review, String voter) {
+        return helpfulRanking.hasVoted(review, voter);
+    }
+
+    /**
+     * Retrieves the most helpful reviews, most helpful first.
+     *
+     * @return LiveData containing at most {@link #TOP_REVIEWS} reviews, empty while nobody has voted
+     */
+    public LiveData<List<Review>> getTopReviews() {
+        return topReviews;
+    }
+
+    /**
+     * Retrieves the words most mentioned in the review comments, e.g. "curry", "service", "rapide".
+     * <p>
+     * The counts are approximate and kept in bounded memory by a {@link KeywordSketch}, built from all
+     * the reviews on the first call, then updated by {@link #addReview(Review)}.
+     * Must be called off the main thread.
+     *
+     * @param count the number of keywords wanted, at most 50
+     * @return the most mentioned words, most mentioned first
+     */
+    public List<String> getTopKeywords(int count) {
+        synchronized (keywordSketch) {
+            if (!keywordSketchReady) {
+                for (Review review : loadReviews()) {
+                    keywordSketch.add(review.getComment());
+                }
+                keywordSketchReady = true;
+            }
+            return keywordSketch.top(count);
+        }
+    }
+
+    /**
+     * Retrieves the average and the distribution of the scores of each {@link com.openclassrooms.tajmahal.domain.model.RatingDimension}.
+     * <p>
+     * The aggregates are built from all the reviews on the first call, then updated by each
+     * addition, edit and deletion: later calls do not read the reviews.
+     * Must be called off the main thread.
+     *
+     * @return the current breakdown
+     */
+    public RatingBreakdown.Summary getRatingBreakdown() {
+        synchronized (ratingBreakdown) {
+            if (!ratingBreakdownReady) {
+                for (Review review : loadReviews()) {
+                    ratingBreakdown.add(review);
+                }
+                ratingBreakdownReady = true;
+            }
+            return ratingBreakdown.summary();
+        }
+    }
+
+    /**
+     * Finds the restaurants of the chain nearest to a place, open at a given time.
+     * <p>
+     * The restaurants are loaded and indexed in a {@link RestaurantLocationIndex} on the first call;
+     * each later search visits about log(n) + count restaurants.
+     * Must be called off the main thread.
+     *
+     * @param latitude    the latitude of the place, in degrees
+     * @param longitude   the longitude of the place, in degrees
+     * @param count       the maximum number of restaurants wanted
+     * @param minuteOfDay the time, in minutes since midnight, or {@link RestaurantLocationIndex#ANY_TIME}
+     *                    to include the closed restaurants
+     * @return at most {@code count} restaurants with their distance, nearest first
+     */
+    public List<RestaurantLocationIndex.Neighbor> getNearestRestaurants(double latitude, double longitude,
+                                                                        int count, int minuteOfDay) {
+        return loadLocationIndex().nearest(latitude, longitude, count, minuteOfDay);
+    }
+
+    /**
+     * Finds the restaurants of the chain in an area of the map, e.g. the visible part of a map.
+     * Must be called off the main thread.
+     *
+     * @param south the southern edge, in degrees
+     * @param west  the western edge, in degrees; east of {@code east} if the area crosses the 180th meridian
+     * @param north the northern edge, in degrees
+     * @param east  the eastern edge, in degrees
+     * @return the restaurants in the area, in no particular order
+     */
+    public List<Restaurant> getRestaurantsIn(double south, double west, double north, double east) {
+        return loadLocationIndex().within(south, west, north, east);
+    }
+
+    /**
+     * Checks whether a comment duplicates an already published review.
+     * <p>
+     * The fingerprint index is built from all the reviews on the first call, then kept up to date
+     * by {@link #addReview(Review)}; each later check runs in constant time.
+     * Must be called off the main thread.
+     *
+     * @param comment the comment to check
+     * @return the kind of duplicate found, {@link ReviewFingerprintIndex.Match#NONE} if none
+     */
+    public ReviewFingerprintIndex.Match findDuplicate(String comment) {
+        synchronized (fingerprintIndex) {
+            buildFingerprintIndex();
+            return fingerprintIndex.find(comment);
+        }
+    }
+
+    /**
+     * Adds a review unless its comment duplicates an already published review.
+     * <p>
+     * The check and the addition are made under the lock of the fingerprint index, so two identical
+     * reviews submitted at the same time cannot both be added: the second one sees the first.
+     * Must be called off the main thread.
+     *
+     * @param review the review to add
+     * @return {@link ReviewFingerprintIndex.Match#NONE} if the review was added, otherwise the kind of duplicate found
+     */
+    public ReviewFingerprintIndex.Match addReviewIfAbsent(Review review) {
+        synchronized (fingerprintIndex) {
+            buildFingerprintIndex();
+            ReviewFingerprintIndex.Match duplicate = fingerprintIndex.find(review.getComment());
+            if (duplicate == ReviewFingerprintIndex.Match.NONE) {
+                // le verrou est réentrant : addReview met l'index à jour avant qu'un autre ajout ne le consulte
+                addReview(review);
+            }
+            return duplicate;
+        }
+    }
+
+    /**
+     * Construit l'index d'empreintes au premier appel ; à appeler sous le verrou de l'index.
+     */
+    private void buildFingerprintIndex() {
+        if (!fingerprintIndexReady) {
+            for (Review review : loadReviews()) {
+                fingerprintIndex.add(review.getComment());
+            }
+            fingerprintIndexReady = true;
+        }
+    }
+
+    /**
+     * @return the number of calls made to the API for the restaurants and the reviews.
+     */
+    public long getApiCallCount() {
+        return requests.getExecutedCount();
+    }
+
+    /**
+     * @return the number of requests that shared a call already in flight instead of calling the API.
+     */
+    public long getCoalescedCallCount() {
+        return requests.getCoalescedCount();
+    }
+
+    /**
+     * Prend le snapshot à publier et les changements faits depuis le précédent, appelé par le publisher
+     * sur le thread principal. Le verrou garantit que le snapshot contient exactement les écritures enregistrées.
+     */
+    private List<Review> publishReviews() {
+        ReviewListUpdate update;
+        synchronized (changeTracker) {
+            update = changeTracker.publish(loadReviews());
+        }
+        reviewUpdates.setValue(update);
+        return update.getReviews();
+    }
+
+    /**
+     * Lit les avis dans l'API ; les lectures simultanées partagent le même snapshot, qui n'est jamais modifié.
+     */
+    private List<Review> loadReviews() {
+        return requests.execute(Request.REVIEWS, restaurantApi::getReviews);
+    }
+
+    /**
+     * Construit l'index spatial au premier appel ; les appels simultanés attendent la même construction.
+     */
+    private RestaurantLocationIndex loadLocationIndex() {
+        RestaurantLocationIndex index = locationIndex;
+        if (index == null) {
+            index = requests.execute(Request.LOCATIONS, () -> new RestaurantLocationIndex(restaurantApi.getRestaurants()));
+            locationIndex = index;
+        }
+        return index;
+    }
+
+    /** Requêtes de lecture dédupliquées par {@link SingleFlight}. */
+    private enum Request {
+        RESTAURANT,
+        REVIEWS,
+        LOCATIONS
     }
 }
@@ -0,0 +1,106 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.AppExecutors;
+import com.openclassrooms.tajmahal.data.service.ReviewExchange;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Exports the reviews to a file and imports them back, as CSV or JSON Lines.
+ * <p>
+ * Files are streamed on the background executor, one record at a time, by
+ * {@link RestaurantRepository#exportReviews} and {@link RestaurantRepository#importReviews};
+ * the result is delivered on the main thread.
+ * </p>
+ */
+@Singleton
+public class ReviewBackup {
+
+    /**
+     * Receives the result of an export or an import, on the main thread.
+     */
+    public interface Callback {
+        /** @param count the number of reviews written or read */
+        void onSuccess(long count);
+
+        /** @param error what went wrong; for an import, the reviews read before the error are kept */
+        void onError(IOException error);
+    }
+
+    // Tampon des fichiers : les enregistrements sont écrits et lus par blocs
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final RestaurantRepository restaurantRepository;
+    private final AppExecutors appExecutors;
+
+    /**
+     * @param restaurantRepository the repository holding the reviews
+     * @param appExecutors         the executors used to run the transfers off the main thread
+     */
+    @Inject
+    public ReviewBackup(RestaurantRepository restaurantRepository, AppExecutors appExecutors) {
+        this.restaurantRepository = restaurantRepository;
+        this.appExecutors = appExecutors;
+    }
+
+    /**
+     * Writes all the reviews to a file, in UTF-8. An existing file is replaced.
+     *
+     * @param file     the file to write
+     * @param format   the format of the file
+     * @param callback receives the number of reviews written
+     */
+    public void exportTo(File file, ReviewExchange.Format format, Callback callback) {
+        appExecutors.background().execute(() -> {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), StandardCharsets.UTF_8), FILE_BUFFER_SIZE)) {
+                long count = restaurantRepository.exportReviews(out, format);
+                deliver(callback, count, null);
+            } catch (IOException e) {
+                deliver(callback, 0, e);
+            }
+        });
+    }
+
+    /**
+     * Adds the reviews of a UTF-8 file to the existing ones.
+     *
+     * @param file     the file to read
+     * @param format   the format of the file
+     * @param callback receives the number of reviews imported
+     */
+    public void importFrom(File file, ReviewExchange.Format format, Callback callback) {
+        appExecutors.background().execute(() -> {
+            try (Reader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8), FILE_BUFFER_SIZE)) {
+                long count = restaurantRepository.importReviews(in, format);
+                deliver(callback, count, null);
+            } catch (IOException e) {
+                deliver(callback, 0, e);
+            }
+        });
+    }
+
+    private void deliver(Callback callback, long count, IOException error) {
+        appExecutors.mainThread().execute(() -> {
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onSuccess(count);
+            }
+        });
+    }
+}
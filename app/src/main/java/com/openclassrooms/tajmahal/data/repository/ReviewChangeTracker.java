@@ -0,0 +1,148 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the writes made to the reviews between two published snapshots, and turns them
+ * into the positional changes of a {@link ReviewListUpdate}.
+ * <p>
+ * Additions are recorded as a number of rows inserted at the top. Edits and deletions are
+ * recorded with the review they target, as found in the previous snapshot; their positions are
+ * resolved when the next snapshot is published, in one scan of the previous snapshot from the
+ * top that stops as soon as every target is found. The reviews a user edits or deletes are
+ * usually recent, so the scan is short.
+ * </p>
+ * Not thread-safe: {@link RestaurantRepository} makes each write and its record atomic, and
+ * takes the snapshot under the same lock.
+ */
+class ReviewChangeTracker {
+
+    /** Au-delà, les positions coûteraient plus cher que le diff : rafraîchissement complet. */
+    static final int MAX_TARGETED_CHANGES = 64;
+
+    // changements depuis la dernière publication, dans l'ordre
+    private final List<Pending> pending = new ArrayList<>();
+    private int targetedCount;
+    // dernier snapshot publié, null avant la première publication
+    private List<Review> published;
+
+    /**
+     * @param count the number of reviews added at the top of the list
+     */
+    void inserted(int count) {
+        if (count == 0) return;
+        // ajouts consécutifs : une seule insertion en tête
+        Pending last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+        if (last != null && last.type == ReviewListUpdate.Type.INSERTED) {
+            last.count += count;
+        } else {
+            pending.add(new Pending(ReviewListUpdate.Type.INSERTED, null, count));
+        }
+    }
+
+    /**
+     * @param review the edited review, as found in the published snapshot
+     */
+    void changed(Review review) {
+        pending.add(new Pending(ReviewListUpdate.Type.CHANGED, review, 1));
+        targetedCount++;
+    }
+
+    /**
+     * @param review the deleted review, as found in the published snapshot
+     */
+    void removed(Review review) {
+        pending.add(new Pending(ReviewListUpdate.Type.REMOVED, review, 1));
+        targetedCount++;
+    }
+
+    /**
+     * Publishes a new snapshot and forgets the recorded changes.
+     *
+     * @param snapshot the reviews after every recorded change
+     * @return the update from the previously published snapshot to this one
+     */
+    ReviewListUpdate publish(List<Review> snapshot) {
+        List<Review> previous = published;
+        List<ReviewListUpdate.Change> changes = previous == null ? null : resolve(previous, snapshot.size());
+        published = snapshot;
+        pending.clear();
+        targetedCount = 0;
+        return new ReviewListUpdate(previous, snapshot, changes);
+    }
+
+    /**
+     * @return the changes in order, or null if they cannot be resolved (full refresh)
+     */
+    private List<ReviewListUpdate.Change> resolve(List<Review> previous, int newSize) {
+        if (targetedCount > MAX_TARGETED_CHANGES) return null;
+        Map<Review, Integer> previousPositions = findPositions(previous);
+        if (previousPositions == null) return null;
+
+        List<ReviewListUpdate.Change> changes = new ArrayList<>(pending.size());
+        List<Integer> removedPositions = new ArrayList<>(); // positions dans le snapshot précédent
+        int insertedCount = 0;
+        for (Pending change : pending) {
+            if (change.type == ReviewListUpdate.Type.INSERTED) {
+                changes.add(new ReviewListUpdate.Change(change.type, 0, change.count));
+                insertedCount += change.count;
+                continue;
+            }
+            int previousPosition = previousPositions.get(change.review);
+            // les insertions sont au-dessus de toutes les lignes précédentes, les suppressions seulement si elles sont plus haut
+            int position = previousPosition + insertedCount;
+            for (int removed : removedPositions) {
+                if (removed == previousPosition) return null; // ligne déjà supprimée
+                if (removed < previousPosition) position--;
+            }
+            changes.add(new ReviewListUpdate.Change(change.type, position, 1));
+            if (change.type == ReviewListUpdate.Type.REMOVED) removedPositions.add(previousPosition);
+        }
+        // garde-fou : le snapshot doit avoir exactement la taille attendue
+        if (previous.size() + insertedCount - removedPositions.size() != newSize) return null;
+        return changes;
+    }
+
+    /**
+     * Finds the positions of the edited and deleted reviews in one scan from the top.
+     *
+     * @return the position of each target, or null if one is not in the previous snapshot
+     */
+    private Map<Review, Integer> findPositions(List<Review> previous) {
+        // par identité : deux avis égaux restent deux lignes distinctes
+        Map<Review, Integer> positions = new IdentityHashMap<>();
+        if (targetedCount == 0) return positions;
+        Map<Review, Boolean> targets = new IdentityHashMap<>();
+        for (Pending change : pending) {
+            if (change.review != null) targets.put(change.review, Boolean.TRUE);
+        }
+        int remaining = targets.size();
+        for (int i = 0, size = previous.size(); i < size && remaining > 0; i++) {
+            Review review = previous.get(i);
+            if (targets.remove(review) != null) {
+                positions.put(review, i);
+                remaining--;
+            }
+        }
+        // avis ajouté ou déjà modifié depuis la publication : position inconnue
+        return remaining == 0 ? positions : null;
+    }
+
+    /** Un changement enregistré, en attente de la prochaine publication. */
+    private static final class Pending {
+        final ReviewListUpdate.Type type;
+        final Review review;
+        int count;
+
+        Pending(ReviewListUpdate.Type type, Review review, int count) {
+            this.type = type;
+            this.review = review;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Index of review comment fingerprints used to detect duplicate and spam submissions.
+ * <p>
+ * Each comment is reduced to two 64-bit fingerprints, counted in hash maps so that a comment
+ * edited or deleted can be removed:
+ * <ul>
+ *     <li>the <b>exact</b> fingerprint hashes the normalized words: case, accents, punctuation
+ *     and spaces are ignored;</li>
+ *     <li>the <b>near</b> fingerprint hashes the sorted set of significant words, with repeated
+ *     letters collapsed: word order, repeated words, short filler words ("le", "et"...) and
+ *     stretched words ("trèèès") are ignored too.</li>
+ * </ul>
+ * A lookup costs one normalization of the submitted comment plus two hash lookups,
+ * whatever the number of reviews already indexed.
+ * </p>
+ * This class is thread-safe.
+ */
+public class ReviewFingerprintIndex {
+
+    /**
+     * Result of a lookup in the index.
+     */
+    public enum Match {
+        /** The comment has never been seen. */
+        NONE,
+        /** The same comment, once normalized, has already been posted. */
+        EXACT,
+        /** A comment with the same significant words has already been posted. */
+        NEAR
+    }
+
+    /** Les mots plus courts sont ignorés par l'empreinte "near" (articles, conjonctions...). */
+    static final int MIN_SIGNIFICANT_WORD_LENGTH = 3;
+
+    /** En dessous de ce nombre de mots significatifs, seuls les doublons exacts sont détectés. */
+    static final int MIN_SIGNIFICANT_WORDS = 3;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern REPEATED_CHARS = Pattern.compile("(.)\\1+");
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // empreinte -> nombre de commentaires indexés qui la produisent
+    private final Map<Long, Integer> exactFingerprints = new HashMap<>();
+    private final Map<Long, Integer> nearFingerprints = new HashMap<>();
+
+    /**
+     * Looks the comment up in the index.
+     *
+     * @param comment the submitted comment
+     * @return whether an exact or near duplicate has already been indexed
+     */
+    public synchronized Match find(String comment) {
+        String[] words = words(comment);
+        if (exactFingerprints.containsKey(hash(Arrays.asList(words)))) {
+            return Match.EXACT;
+        }
+        Set<String> significantWords = significantWords(words);
+        if (significantWords.size() >= MIN_SIGNIFICANT_WORDS
+                && nearFingerprints.containsKey(hash(significantWords))) {
+            return Match.NEAR;
+        }
+        return Match.NONE;
+    }
+
+    /**
+     * Adds the comment to the index.
+     *
+     * @param comment a comment that has been published
+     */
+    public synchronized void add(String comment) {
+        String[] words = words(comment);
+        exactFingerprints.merge(hash(Arrays.asList(words)), 1, Integer::sum);
+        Set<String> significantWords = significantWords(words);
+        if (significantWords.size() >= MIN_SIGNIFICANT_WORDS) {
+            nearFingerprints.merge(hash(significantWords), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes a comment from the index, e.g. when its review is edited or deleted.
+     * Identical comments of other reviews stay indexed.
+     *
+     * @param comment a comment previously added
+     */
+    public synchronized void remove(String comment) {
+        String[] words = words(comment);
+        decrement(exactFingerprints, hash(Arrays.asList(words)));
+        Set<String> significantWords = significantWords(words);
+        if (significantWords.size() >= MIN_SIGNIFICANT_WORDS) {
+            decrement(nearFingerprints, hash(significantWords));
+        }
+    }
+
+    private static void decrement(Map<Long, Integer> counts, long fingerprint) {
+        // null : la dernière occurrence disparaît de la table
+        counts.computeIfPresent(fingerprint, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return the number of distinct comments indexed.
+     */
+    public synchronized int size() {
+        return exactFingerprints.size();
+    }
+
+    /**
+     * Normalizes a comment into words: lower case, no accents, no punctuation.
+     */
+    static String[] words(String comment) {
+        if (comment == null) return new String[0];
+        String normalized = Normalizer.normalize(comment, Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("").toLowerCase(Locale.ROOT);
+        normalized = NON_WORD.matcher(normalized).replaceAll(" ").trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    /**
+     * Distinct significant words, sorted, with repeated letters collapsed ("tresss" -> "tres").
+     */
+    static Set<String> significantWords(String[] words) {
+        Set<String> significantWords = new TreeSet<>();
+        for (String word : words) {
+            String collapsed = REPEATED_CHARS.matcher(word).replaceAll("$1");
+            if (collapsed.length() >= MIN_SIGNIFICANT_WORD_LENGTH) {
+                significantWords.add(collapsed);
+            }
+        }
+        return significantWords;
+    }
+
+    private static long hash(Iterable<String> words) {
+        long h = FNV_OFFSET;
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                h = (h ^ word.charAt(i)) * FNV_PRIME;
+            }
+            h = (h ^ ' ') * FNV_PRIME;
+        }
+        // Finaliseur de MurmurHash3 : répartit les bits du FNV sur tout le mot
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
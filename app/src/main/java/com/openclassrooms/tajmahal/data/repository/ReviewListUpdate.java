@@ -0,0 +1,131 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A published snapshot of the reviews, with the changes made since the previous snapshot.
+ * <p>
+ * The repository knows what each write did: an addition inserts at the top of the list, an edit
+ * changes one row, a deletion removes one row. The changes are given as positions, in the order
+ * they happened, so a list can move from {@link #getPrevious()} to {@link #getReviews()} by
+ * applying them one after the other, without comparing the two lists.
+ * </p>
+ * When the changes are unknown (first snapshot, too many edits at once, a review not found in
+ * the previous snapshot...), the update is a full refresh: {@link #getChanges()} is null and the
+ * two lists must be compared, e.g. with DiffUtil.
+ */
+public final class ReviewListUpdate {
+
+    /** Kind of change of a row. */
+    public enum Type {
+        /** Rows inserted at {@link Change#getPosition()}. */
+        INSERTED,
+        /** Rows removed from {@link Change#getPosition()}. */
+        REMOVED,
+        /** Rows whose review was edited, at the same position. */
+        CHANGED
+    }
+
+    /**
+     * One change of the list, relative to the list as left by the previous changes.
+     */
+    public static final class Change {
+
+        private final Type type;
+        private final int position;
+        private final int count;
+
+        Change(Type type, int position, int count) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+        }
+
+        /**
+         * @return the kind of change.
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the position of the first row changed.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the number of rows changed, from {@link #getPosition()}.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Change change = (Change) o;
+            return type == change.type && position == change.position && count == change.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * type.hashCode() + position) + count;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(" + position + ", " + count + ")";
+        }
+    }
+
+    @Nullable
+    private final List<Review> previous;
+    private final List<Review> reviews;
+    @Nullable
+    private final List<Change> changes;
+
+    ReviewListUpdate(@Nullable List<Review> previous, List<Review> reviews, @Nullable List<Change> changes) {
+        this.previous = previous;
+        this.reviews = reviews;
+        this.changes = changes == null ? null : Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * @return the snapshot published before this one, null for the first snapshot.
+     */
+    @Nullable
+    public List<Review> getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return the new snapshot, newest first; never modified.
+     */
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * @return the changes turning {@link #getPrevious()} into {@link #getReviews()}, in order;
+     * null for a full refresh.
+     */
+    @Nullable
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return true if the changes are unknown and the lists must be compared.
+     */
+    public boolean isFullRefresh() {
+        return changes == null;
+    }
+}
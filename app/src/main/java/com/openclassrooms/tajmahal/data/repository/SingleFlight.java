@@ -0,0 +1,97 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical requests ("single flight").
+ * <p>
+ * The first caller for a key runs the request; callers arriving with the same key while it is in
+ * flight do not run it again, they wait for it and share its result, or its exception. Once the
+ * request completes, the next caller starts a new one: results are never cached.
+ * </p>
+ * Thread-safe. The counters tell how many requests were run and how many were coalesced.
+ *
+ * @param <K> the type of the keys identifying identical requests
+ */
+public class SingleFlight<K> {
+
+    private final ConcurrentHashMap<K, FutureTask<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Runs the request, or joins the identical request already in flight.
+     *
+     * @param key     identifies identical requests
+     * @param request the request, run by the first caller only, on its thread
+     * @param <T>     the type of the result
+     * @return the result of the request, shared by every caller of the flight
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(K key, Supplier<T> request) {
+        FutureTask<T> task = new FutureTask<>(request::get);
+        FutureTask<?> running = inFlight.putIfAbsent(key, task);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (T) await(running);
+        }
+        executed.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            // retiré avant de rendre le résultat : l'appel suivant relance une requête
+            inFlight.remove(key, task);
+        }
+        return await(task);
+    }
+
+    /**
+     * Stops sharing the request in flight for a key, e.g. after a write that it may not see:
+     * the next caller runs a new request. Callers already waiting still get its result.
+     *
+     * @param key identifies the request
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * @return the number of requests actually run.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return the number of calls that shared the result of a request in flight instead of running it.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Attend le résultat sans être interrompu, et relance l'exception de la requête telle quelle. */
+    private static <T> T await(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
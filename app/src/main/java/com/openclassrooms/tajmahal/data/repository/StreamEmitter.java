@@ -0,0 +1,88 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hot {@link DataStream}: values are pushed with {@link #emit(Object)} and received by the
+ * subscribers present at that moment, e.g. the reviews added to the repository.
+ * <p>
+ * A hot source cannot wait for its subscribers: a subscriber that has no demand when a value is
+ * emitted fails with a {@link DataStream.BackpressureException}. Slow consumers subscribe through
+ * {@link DataStream#observeOn(java.util.concurrent.Executor, int, DataStream.Overflow)}, which
+ * requests without limit and applies its buffer and drop strategy.
+ * </p>
+ * {@link #emit(Object)} can be called from any thread; the values reach each subscriber one at a time.
+ *
+ * @param <T> the type of the values
+ */
+public class StreamEmitter<T> extends DataStream<T> {
+
+    private final CopyOnWriteArrayList<Emission<T>> subscriptions = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Emission<T> emission = new Emission<>(this, subscriber);
+        subscriptions.add(emission);
+        subscriber.onSubscribe(emission);
+    }
+
+    /**
+     * Sends a value to every current subscriber.
+     *
+     * @param value the value, not null
+     */
+    public void emit(T value) {
+        for (Emission<T> emission : subscriptions) {
+            emission.next(value);
+        }
+    }
+
+    /**
+     * @return the number of current subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private static final class Emission<T> implements Subscription {
+        private final StreamEmitter<T> emitter;
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        Emission(StreamEmitter<T> emitter, Subscriber<? super T> subscriber) {
+            this.emitter = emitter;
+            this.subscriber = subscriber;
+        }
+
+        // synchronized : les émissions de plusieurs threads arrivent une à une chez l'abonné
+        synchronized void next(T value) {
+            if (cancelled) return;
+            long demand = requested.get();
+            if (demand == 0) {
+                cancel();
+                subscriber.onError(new BackpressureException("no demand for a value; subscribe through observeOn()"));
+                return;
+            }
+            if (demand != Long.MAX_VALUE) requested.decrementAndGet();
+            subscriber.onNext(value);
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("request must be positive: " + count));
+                return;
+            }
+            addDemand(requested, count);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            emitter.subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.StoredComment;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the comments of the stored reviews, which are by far their largest field.
+ * <p>
+ * Only a screenful of comments is displayed at a time: the others are kept as raw Deflate data
+ * (see {@link Review#withStoredComment}) and decoded when read. Review comments are short, too short
+ * for Deflate to find repetitions inside one comment, so every comment is compressed against a
+ * shared preset dictionary: the words and expressions that come back in French restaurant reviews
+ * ("le service", "très bon", "délicieux"...), built from a corpus by {@link #buildDictionary}.
+ * </p>
+ * Comments shorter than {@link #MIN_COMPRESSED_LENGTH} characters are kept as they are: the
+ * compressed form would not be smaller. Can be used from any thread.
+ */
+public class CommentCompressor {
+
+    /** Comments shorter than this are not compressed. */
+    public static final int MIN_COMPRESSED_LENGTH = 48;
+
+    /** Maximum size of the dictionary: Deflate only looks back 32 KB, short dictionaries are as good. */
+    static final int MAX_DICTIONARY_BYTES = 4096;
+
+    // Corpus d'avis en français : les mots et expressions fréquents forment le dictionnaire
+    private static final String[] FRENCH_CORPUS = {
+            "Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end, c'est très rapide et savoureux. Continuez ainsi!",
+            "Un service excellent et des plats incroyablement savoureux. Nous sommes vraiment satisfaits de notre expérience au restaurant.",
+            "La cuisine est délicieuse et le service est également excellent. Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. Cet endroit est un choix sûr!",
+            "Les currys manquaient de diversité de saveurs et semblaient tous à base de tomates. Malgré les évaluations élevées que nous avons vues et nos attentes, nous avons été déçus.",
+            "Très bon restaurant Indien ! Je recommande.",
+            "Le poulet tikka masala était parfait, la sauce bien épicée et le naan au fromage encore chaud.",
+            "Accueil chaleureux, le personnel est aux petits soins. Les plats sont copieux et les prix raisonnables.",
+            "Le biryani d'agneau est le meilleur que j'ai mangé à Paris, je reviendrai avec plaisir.",
+            "Nous avons attendu très longtemps avant d'être servis et les plats étaient tièdes. Dommage.",
+            "Le cadre est agréable et la décoration soignée, mais la musique était un peu trop forte.",
+            "Excellent rapport qualité prix, le menu du midi est très complet avec entrée, plat et dessert.",
+            "Les samoussas et les pakoras en entrée étaient croustillants, le lassi à la mangue délicieux.",
+            "Une très bonne adresse pour découvrir la cuisine indienne, les épices sont bien dosées.",
+            "Le service était un peu lent ce soir, mais le serveur était très aimable et souriant.",
+            "Plats trop salés et portions assez petites pour le prix. Je ne pense pas revenir.",
+            "Le dal et le palak paneer sont parfaits pour les végétariens, avec du riz basmati parfumé.",
+            "Réservation facile, table prête à l'heure, repas excellent du début à la fin. Merci à toute l'équipe !",
+            "C'est notre restaurant préféré du quartier, toujours aussi bon depuis des années.",
+            "La livraison est arrivée rapidement et les plats étaient encore chauds, bien emballés.",
+            "Le butter chicken est crémeux et savoureux, le cheese naan est une tuerie. Je recommande vivement.",
+            "Ambiance calme et reposante, idéal pour un dîner en famille ou entre amis.",
+            "Déçu par le curry de légumes, sans goût, et le riz était trop cuit. Le service était correct.",
+            "Les desserts maison sont excellents, surtout le kulfi à la pistache et le gulab jamun.",
+            "Un peu cher pour la qualité, mais l'accueil est vraiment agréable et le lieu est propre.",
+    };
+
+    private static final int OUTPUT_CHUNK = 256;
+
+    private final byte[] dictionary;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters;
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong decodedCount = new AtomicLong();
+
+    /**
+     * @param dictionary the preset dictionary shared by every comment, see {@link #buildDictionary}
+     */
+    public CommentCompressor(byte[] dictionary) {
+        this.dictionary = dictionary.clone();
+        // Deflate brut (nowrap) : pas d'en-tête zlib ni de checksum, 6 octets de moins par commentaire
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION, true));
+        this.inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    }
+
+    /**
+     * @return a compressor whose dictionary is built from a corpus of French restaurant reviews
+     */
+    public static CommentCompressor french() {
+        return new CommentCompressor(buildDictionary(Arrays.asList(FRENCH_CORPUS), MAX_DICTIONARY_BYTES));
+    }
+
+    /**
+     * Builds a preset dictionary from sample comments.
+     * <p>
+     * Words and repeated pairs of words are scored by the bytes they would save (occurrences × length);
+     * the best ones are kept until the dictionary is full, the most useful at the end, where
+     * Deflate reaches them with the shortest distances.
+     * </p>
+     *
+     * @param corpus   sample comments
+     * @param maxBytes maximum size of the dictionary, in UTF-8 bytes
+     * @return the dictionary
+     */
+    public static byte[] buildDictionary(Iterable<String> corpus, int maxBytes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String comment : corpus) {
+            if (comment == null) continue;
+            String[] words = comment.split("\\s+");
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].isEmpty()) continue;
+                counts.merge(words[i] + " ", 1, Integer::sum);
+                if (i + 1 < words.length) {
+                    counts.merge(words[i] + " " + words[i + 1] + " ", 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>(counts.entrySet());
+        // les plus utiles d'abord ; à égalité, ordre alphabétique pour un dictionnaire stable
+        candidates.sort((a, b) -> {
+            int byScore = Long.compare(score(b), score(a));
+            return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+        });
+
+        List<byte[]> kept = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            // une paire de mots vue une seule fois n'est qu'un hasard du corpus
+            if (candidate.getValue() < 2 && candidate.getKey().indexOf(' ') < candidate.getKey().length() - 1) continue;
+            byte[] bytes = candidate.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > maxBytes) continue;
+            kept.add(bytes);
+            size += bytes.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            out.write(kept.get(i), 0, kept.get(i).length);
+        }
+        return out.toByteArray();
+    }
+
+    private static long score(Map.Entry<String, Integer> candidate) {
+        return (long) candidate.getValue() * candidate.getKey().length();
+    }
+
+    /**
+     * Returns the review to store: the same review with its comment compressed, or the review
+     * itself when its comment is too short or already compressed. Both are equal.
+     *
+     * @param review the review to store
+     * @return the review to keep in memory
+     */
+    public Review compact(Review review) {
+        if (review.getStoredComment() != null) return review;
+        String comment = review.getComment();
+        if (comment == null || comment.length() < MIN_COMPRESSED_LENGTH) return review;
+        return review.withStoredComment(compress(comment));
+    }
+
+    /**
+     * @param text the text to compress
+     * @return the compressed text, decoded by {@link StoredComment#decode()}
+     */
+    public StoredComment compress(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(utf8);
+        deflater.finish();
+        byte[] buffer = new byte[utf8.length + OUTPUT_CHUNK];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length + OUTPUT_CHUNK);
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        compressedCount.incrementAndGet();
+        return new CompressedComment(Arrays.copyOf(buffer, length), utf8.length, text.hashCode());
+    }
+
+    private String decompress(CompressedComment comment) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        // en Deflate brut, le dictionnaire se donne avant toute donnée
+        inflater.setDictionary(dictionary);
+        inflater.setInput(comment.data);
+        byte[] utf8 = new byte[comment.utf8Length];
+        int length = 0;
+        try {
+            while (length < utf8.length && !inflater.finished()) {
+                int read = inflater.inflate(utf8, length, utf8.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("corrupted comment", e);
+        }
+        if (length != utf8.length) throw new IllegalStateException("truncated comment");
+        decodedCount.incrementAndGet();
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the size of the dictionary, in bytes.
+     */
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * @return the number of comments compressed so far.
+     */
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    /**
+     * @return the number of comments decoded so far.
+     */
+    public long getDecodedCount() {
+        return decodedCount.get();
+    }
+
+    /**
+     * A comment kept as raw Deflate data. Two instances are never equal:
+     * equality of the reviews is checked on the decoded text.
+     */
+    public final class CompressedComment implements StoredComment {
+        private final byte[] data;
+        private final int utf8Length;
+        private final int textHash;
+
+        CompressedComment(byte[] data, int utf8Length, int textHash) {
+            this.data = data;
+            this.utf8Length = utf8Length;
+            this.textHash = textHash;
+        }
+
+        @Override
+        public String decode() {
+            return decompress(this);
+        }
+
+        @Override
+        public int textHashCode() {
+            return textHash;
+        }
+
+        /**
+         * @return the size of the compressed data, in bytes.
+         */
+        public int getCompressedSize() {
+            return data.length;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Thread-safe store of reviews with lock-free snapshot reads.
+ * <p>
+ * Reviews are appended into fixed-size chunks, the leaves of a binary tree. Writers are serialized
+ * by a lock and publish their work by replacing a volatile, immutable {@code State} (tree root, size,
+ * number of removed reviews); readers never lock: {@link #snapshot()} reads the published state and
+ * returns an immutable view, in O(1) and without copying.
+ * </p>
+ * A snapshot therefore stays consistent while writers keep adding reviews: it can be iterated
+ * from any thread without {@code ConcurrentModificationException}.
+ * <p>
+ * Reviews can also be edited or removed by their author ({@link #replace}, {@link #remove}).
+ * Published nodes are never modified: the path from the root to the chunk holding the review is
+ * copied (copy-on-write), so the snapshots taken before keep their content. A removed slot is left
+ * empty; each chunk keeps the sorted offsets of its removed slots and each node the number of removed
+ * reviews below it, so snapshots skip them while going down the tree.
+ * The positions of each author's reviews are indexed, so {@link #reviewsBy(String)} finds them in
+ * O(reviews of the author), whatever the size of the store.
+ * </p>
+ * Costs, for n reviews in the store:
+ * <ul>
+ *     <li>{@link #add}: O(1) amortized, nothing is copied;</li>
+ *     <li>{@link #replace} and {@link #remove}: O(reviews of the author) to find the review, then
+ *     O(log(n / {@value #CHUNK_SIZE})) copied nodes and one copied chunk of {@value #CHUNK_SIZE} slots;
+ *     the cost does not grow with the number of previous removals;</li>
+ *     <li>reading a review of a snapshot: O(log n).</li>
+ * </ul>
+ * The slot of a removed review stays reserved (one empty reference and one int per removal).
+ * <p>
+ * With a {@link CommentCompressor}, the comments are compressed as the reviews are added,
+ * outside of the write lock: the store then holds equal reviews whose comments are decoded on read.
+ * </p>
+ */
+public class ConcurrentReviewStore {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int[] NONE_REMOVED = new int[0];
+
+    private final Object writeLock = new Object();
+    @Nullable
+    private final CommentCompressor compressor;
+
+    // Écrits sous writeLock : d'abord les slots et les nœuds ajoutés, ensuite l'état publié.
+    // Un lecteur ne lit que l'état publié : il voit donc toujours des slots complets.
+    private volatile State state = new State(new Leaf(), 0, 0);
+
+    // Positions des avis de chaque auteur, sous writeLock
+    private final Map<String, Positions> authors = new HashMap<>();
+
+    /**
+     * Constructs a store keeping the reviews as they are given.
+     */
+    public ConcurrentReviewStore() {
+        this(null);
+    }
+
+    /**
+     * @param compressor compresses the comments of the added reviews, or null to keep them as they are
+     */
+    public ConcurrentReviewStore(@Nullable CommentCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Appends a review. It becomes the newest one.
+     *
+     * @param review the review to add
+     */
+    public void add(Review review) {
+        Review stored = compact(review);
+        synchronized (writeLock) {
+            State published = grownFor(state, 1);
+            appendAt(published, published.size, stored);
+            state = published.withSize(published.size + 1);
+        }
+    }
+
+    /**
+     * Appends several reviews at once, publishing them together.
+     * The last one of the collection becomes the newest review.
+     *
+     * @param reviews the reviews to add, oldest first
+     */
+    public void addAll(Collection<Review> reviews) {
+        Collection<Review> stored = reviews;
+        if (compressor != null) {
+            // compression hors verrou : les autres écrivains ne l'attendent pas
+            List<Review> compacted = new ArrayList<>(reviews.size());
+            for (Review review : reviews) compacted.add(compressor.compact(review));
+            stored = compacted;
+        }
+        synchronized (writeLock) {
+            State published = grownFor(state, stored.size());
+            int position = published.size;
+            for (Review review : stored) {
+                appendAt(published, position++, review);
+            }
+            state = published.withSize(position);
+        }
+    }
+
+    /**
+     * Replaces a review by its edited version, at the same place in the list.
+     *
+     * @param current the review to replace, as found in a snapshot
+     * @param updated the edited review, by the same author
+     * @return true if the review was found and replaced, false if it is not in the store
+     * @throws IllegalArgumentException if the edited review has another author
+     */
+    public boolean replace(Review current, Review updated) {
+        if (!Objects.equals(current.getUsername(), updated.getUsername())) {
+            throw new IllegalArgumentException("an edited review keeps its author");
+        }
+        Review stored = compact(updated);
+        synchronized (writeLock) {
+            int position = find(current);
+            if (position < 0) return false;
+            State published = state;
+            state = new State(setAt(published.root, position, stored), published.size, published.removed);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a review. Snapshots taken before still contain it.
+     *
+     * @param review the review to remove, as found in a snapshot
+     * @return true if the review was found and removed, false if it is not in the store
+     */
+    public boolean remove(Review review) {
+        synchronized (writeLock) {
+            int position = find(review);
+            if (position < 0) return false;
+            Positions positions = authors.get(review.getUsername());
+            positions.remove(position);
+            if (positions.size == 0) authors.remove(review.getUsername());
+            State published = state;
+            state = new State(setAt(published.root, position, null), published.size, published.removed + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the reviews of an author, found through the author index.
+     *
+     * @param author the username of the author
+     * @return the reviews of the author, newest first; empty if there are none
+     */
+    public List<Review> reviewsBy(String author) {
+        synchronized (writeLock) {
+            Positions positions = authors.get(author);
+            if (positions == null || positions.size == 0) return Collections.emptyList();
+            List<Review> reviews = new ArrayList<>(positions.size);
+            Node root = state.root;
+            for (int i = positions.size - 1; i >= 0; i--) {
+                reviews.add(slot(root, positions.values[i]));
+            }
+            return reviews;
+        }
+    }
+
+    /**
+     * @return the number of reviews published so far, removed ones excepted.
+     */
+    public int size() {
+        State published = state;
+        return published.size - published.removed;
+    }
+
+    /**
+     * @return the number of removed reviews whose slot is still reserved.
+     */
+    public int removedCount() {
+        return state.removed;
+    }
+
+    /**
+     * Returns an immutable view of the reviews published so far, newest first.
+     * Reviews added, edited or removed afterwards do not change it.
+     *
+     * @return the snapshot, built in O(1) without copying
+     */
+    public List<Review> snapshot() {
+        return new Snapshot(state);
+    }
+
+    private Review compact(Review review) {
+        return compressor == null ? review : compressor.compact(review);
+    }
+
+    /**
+     * Position de l'avis parmi ceux de son auteur, -1 s'il n'y est pas : l'instance elle-même d'abord,
+     * pour ne pas retirer un autre avis identique, sinon un avis égal.
+     */
+    private int find(Review review) {
+        Positions positions = authors.get(review.getUsername());
+        if (positions == null) return -1;
+        Node root = state.root;
+        // du plus récent au plus ancien : un auteur modifie surtout ses derniers avis
+        for (int i = positions.size - 1; i >= 0; i--) {
+            if (slot(root, positions.values[i]) == review) return positions.values[i];
+        }
+        for (int i = positions.size - 1; i >= 0; i--) {
+            if (slot(root, positions.values[i]).equals(review)) return positions.values[i];
+        }
+        return -1;
+    }
+
+    /** Avis à une position (slot), en descendant l'arbre selon les bits de son numéro de chunk. */
+    private static Review slot(Node root, int position) {
+        return leaf(root, position).slots[position & CHUNK_MASK];
+    }
+
+    private static Leaf leaf(Node node, int position) {
+        int chunk = position >>> CHUNK_SHIFT;
+        int span = node.chunks;
+        while (node instanceof Branch) {
+            span >>>= 1;
+            Branch branch = (Branch) node;
+            if (chunk < span) {
+                node = branch.left;
+            } else {
+                node = branch.right;
+                chunk -= span;
+            }
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Double la capacité de l'arbre tant que les avis ajoutés n'y tiennent pas : nouvelle racine,
+     * l'ancienne à gauche. Les snapshots gardent l'ancienne racine.
+     */
+    private static State grownFor(State published, int added) {
+        State grown = published;
+        while ((long) grown.size + added > (long) grown.root.chunks << CHUNK_SHIFT) {
+            Branch root = new Branch(grown.root, null, grown.root.removed, grown.root.chunks * 2);
+            grown = new State(root, grown.size, grown.removed);
+        }
+        return grown;
+    }
+
+    /**
+     * Écrit un avis après la taille publiée : aucun snapshot ne lit encore ce slot, ni les nœuds créés ici.
+     */
+    private void appendAt(State published, int position, Review review) {
+        int chunk = position >>> CHUNK_SHIFT;
+        Node node = published.root;
+        int span = node.chunks;
+        while (span > 1) {
+            span >>>= 1;
+            Branch branch = (Branch) node;
+            if (chunk < span) {
+                node = branch.left;
+            } else {
+                if (branch.right == null) branch.right = emptyNode(span);
+                node = branch.right;
+                chunk -= span;
+            }
+        }
+        ((Leaf) node).slots[position & CHUNK_MASK] = review;
+        Positions positions = authors.get(review.getUsername());
+        if (positions == null) {
+            positions = new Positions();
+            authors.put(review.getUsername(), positions);
+        }
+        positions.add(position);
+    }
+
+    /** Sous-arbre vide couvrant span chunks, créé avec son premier chunk. */
+    private static Node emptyNode(int span) {
+        return span == 1 ? new Leaf() : new Branch(emptyNode(span >>> 1), null, 0, span);
+    }
+
+    /**
+     * Copie le chemin de la racine au chunk, et le chunk (copy-on-write) : les snapshots existants gardent
+     * l'ancien slot. Avec review == null, le slot est retiré et compté dans chaque nœud copié.
+     *
+     * @return la nouvelle racine
+     */
+    private static Node setAt(Node node, int position, @Nullable Review review) {
+        int removed = review == null ? 1 : 0;
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int offset = position & CHUNK_MASK;
+            Review[] slots = leaf.slots.clone();
+            slots[offset] = review;
+            return new Leaf(slots, review == null ? insertSorted(leaf.removedOffsets, offset) : leaf.removedOffsets);
+        }
+        Branch branch = (Branch) node;
+        int half = node.chunks >>> 1;
+        if (position >>> CHUNK_SHIFT < half) {
+            return new Branch(setAt(branch.left, position, review), branch.right, branch.removed + removed, node.chunks);
+        }
+        return new Branch(branch.left, setAt(branch.right, position - (half << CHUNK_SHIFT), review),
+                branch.removed + removed, node.chunks);
+    }
+
+    private static int[] insertSorted(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        int insertion = -index - 1;
+        int[] copy = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, insertion);
+        copy[insertion] = value;
+        System.arraycopy(sorted, insertion, copy, insertion + 1, sorted.length - insertion);
+        return copy;
+    }
+
+    /**
+     * Published state: never modified, replaced by each write.
+     */
+    private static final class State {
+        final Node root;
+        final int size; // slots publiés, retirés compris
+        final int removed;
+
+        State(Node root, int size, int removed) {
+            this.root = root;
+            this.size = size;
+            this.removed = removed;
+        }
+
+        State withSize(int size) {
+            return new State(root, size, removed);
+        }
+    }
+
+    /**
+     * A node of the tree: a chunk of slots, or a branch over two halves.
+     * Only the slots and the children beyond the published size are written after creation.
+     */
+    private abstract static class Node {
+        final int removed; // avis retirés sous ce nœud
+        final int chunks; // chunks couverts par ce nœud : une puissance de 2
+
+        Node(int removed, int chunks) {
+            this.removed = removed;
+            this.chunks = chunks;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node left;
+        Node right; // null tant qu'aucun avis n'a été ajouté dans la moitié droite
+
+        Branch(Node left, @Nullable Node right, int removed, int chunks) {
+            super(removed, chunks);
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final Review[] slots;
+        final int[] removedOffsets; // slots retirés de ce chunk, triés
+
+        Leaf() {
+            this(new Review[CHUNK_SIZE], NONE_REMOVED);
+        }
+
+        Leaf(Review[] slots, int[] removedOffsets) {
+            super(removedOffsets.length, 1);
+            this.slots = slots;
+            this.removedOffsets = removedOffsets;
+        }
+    }
+
+    /**
+     * Positions of the reviews of one author, oldest first.
+     */
+    private static final class Positions {
+        int[] values = new int[1]; // la plupart des auteurs n'ont qu'un avis
+        int size;
+
+        void add(int position) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = position;
+        }
+
+        void remove(int position) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == position) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Newest first view over the published reviews, removed ones skipped.
+     */
+    private static final class Snapshot extends AbstractList<Review> implements RandomAccess {
+
+        private final Node root;
+        private final int slots;
+        private final int size;
+
+        Snapshot(State state) {
+            this.root = state.root;
+            this.slots = state.size;
+            this.size = state.size - state.removed;
+        }
+
+        @Override
+        public Review get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            // rang parmi les avis présents, du plus ancien au plus récent
+            int rank = size - 1 - index;
+            Node node = root;
+            int base = 0; // premier slot couvert par le nœud
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int half = (node.chunks >>> 1) << CHUNK_SHIFT;
+                int leftPresent = Math.min(slots - base, half) - branch.left.removed;
+                if (rank < leftPresent) {
+                    node = branch.left;
+                } else {
+                    rank -= leftPresent;
+                    base += half;
+                    node = branch.right;
+                }
+            }
+            Leaf leaf = (Leaf) node;
+            return leaf.slots[offset(leaf.removedOffsets, rank)];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Position du rang-ième avis présent dans un chunk.
+         * removed[j] - j = nombre d'avis présents avant le j-ième slot retiré, croissant :
+         * les slots retirés à sauter sont ceux où cette valeur est <= rang.
+         */
+        private static int offset(int[] removed, int rank) {
+            if (removed.length == 0) return rank;
+            int low = 0;
+            int high = removed.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (removed[middle] - middle <= rank) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return rank + low;
+        }
+    }
+}
@@ -5,7 +5,10 @@ import androidx.lifecycle.LiveData;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
 import com.openclassrooms.tajmahal.domain.model.Review;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Interface for fetching restaurant data.
@@ -40,12 +43,26 @@ public interface RestaurantApi {
      */
     Restaurant getRestaurant();
 
+    /**
+     * Retrieves all the restaurants of the chain, e.g. to find the nearest ones.
+     * The default implementation returns the only restaurant of {@link #getRestaurant()}.
+     *
+     * @return the restaurants, each with its coordinates when known
+     */
+    default List<Restaurant> getRestaurants() {
+        return Collections.singletonList(getRestaurant());
+    }
+
     /**
      * Retrieves all the reviews of the restaurant.
      * <p>
      * This method will usually be connected to a network call or database query in its
      * implementing class, fetching the list of the existing reviews.
+     * </p>
+     * The returned list is a snapshot: it is not modified by later calls to
+     * {@link #addReview(Review)}, so callers can publish it as is.
      *
+     * @return the reviews, newest first.
      */
     List<Review> getReviews();
 
@@ -55,4 +72,53 @@ public interface RestaurantApi {
       * @param review
      */
     void addReview(Review review);
+
+    /**
+     * Adds several reviews at once, e.g. when importing a backup.
+     * The implementation must not keep the given list, which the caller may reuse.
+     *
+     * @param reviews the reviews to add, oldest first: the last one becomes the first of the list
+     */
+    default void addReviews(List<Review> reviews) {
+        for (Review review : reviews) {
+            addReview(review);
+        }
+    }
+
+    /**
+     * Retrieves the reviews written by a user.
+     * The default implementation scans all the reviews; implementations should use an index.
+     *
+     * @param username the name of the author
+     * @return the reviews of the user, newest first
+     */
+    default List<Review> getReviewsBy(String username) {
+        List<Review> reviews = new ArrayList<>();
+        for (Review review : getReviews()) {
+            if (Objects.equals(username, review.getUsername())) {
+                reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * Replaces a review by its edited version, keeping its place in the list.
+     * Every implementation supports it: the repository edits reviews whatever the API it is given.
+     *
+     * @param current the review to edit, as returned by {@link #getReviews()}
+     * @param updated the edited review, by the same author
+     * @return true if the review was edited, false if it was not found
+     * @throws IllegalArgumentException if the edited review has another author
+     */
+    boolean updateReview(Review current, Review updated);
+
+    /**
+     * Deletes a review.
+     * Every implementation supports it: the repository deletes reviews whatever the API it is given.
+     *
+     * @param review the review to delete, as returned by {@link #getReviews()}
+     * @return true if the review was deleted, false if it was not found
+     */
+    boolean deleteReview(Review review);
 }
@@ -5,6 +5,7 @@ import com.openclassrooms.tajmahal.domain.model.Review;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -30,13 +31,47 @@ import java.util.List;
  */
 public class RestaurantFakeApi implements RestaurantApi {
 
-List<Review> reviews = new ArrayList<>(Arrays.asList(
-        new Review("Ranjit Singh", "https://xsgames.co/randomusers/assets/avatars/male/71.jpg", "Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end, c'est très rapide et savoureux. Continuez ainsi!", 5),
-        new Review("Martyna Siddeswara", "https://xsgames.co/randomusers/assets/avatars/female/31.jpg", "Un service excellent et des plats incroyablement savoureux. Nous sommes vraiment satisfaits de notre expérience au restaurant.", 4),
-        new Review("Komala Alanazi", "https://xsgames.co/randomusers/assets/avatars/male/46.jpg", "La cuisine est délicieuse et le service est également excellent. Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. Cet endroit est un choix sûr!", 5),
-        new Review("David John", "https://xsgames.co/randomusers/assets/avatars/male/67.jpg", "Les currys manquaient de diversité de saveurs et semblaient tous à base de tomates. Malgré les évaluations élevées que nous avons vues et nos attentes, nous avons été déçus.", 2),
-        new Review("Emilie Hood", "https://xsgames.co/randomusers/assets/avatars/female/20.jpg", "Très bon restaurant Indien ! Je recommande.", 4)
-));
+    // Liste initiale, la plus récente en premier
+    private static final List<Review> INITIAL_REVIEWS = Arrays.asList(
+            new Review("Ranjit Singh", "https://xsgames.co/randomusers/assets/avatars/male/71.jpg", "Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end, c'est très rapide et savoureux. Continuez ainsi!", 5),
+            new Review("Martyna Siddeswara", "https://xsgames.co/randomusers/assets/avatars/female/31.jpg", "Un service excellent et des plats incroyablement savoureux. Nous sommes vraiment satisfaits de notre expérience au restaurant.", 4),
+            new Review("Komala Alanazi", "https://xsgames.co/randomusers/assets/avatars/male/46.jpg", "La cuisine est délicieuse et le service est également excellent. Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. Cet endroit est un choix sûr!", 5),
+            new Review("David John", "https://xsgames.co/randomusers/assets/avatars/male/67.jpg", "Les currys manquaient de diversité de saveurs et semblaient tous à base de tomates. Malgré les évaluations élevées que nous avons vues et nos attentes, nous avons été déçus.", 2),
+            new Review("Emilie Hood", "https://xsgames.co/randomusers/assets/avatars/female/20.jpg", "Très bon restaurant Indien ! Je recommande.", 4)
+    );
+
+    // Autres restaurants de la chaîne (adresses fictives), pour l'écran "À proximité"
+    private static final List<Restaurant> OTHER_RESTAURANTS = Arrays.asList(
+            new Restaurant("Taj Mahal Bastille", "Indien", "12h00 - 15h00・19h00 - 23h30",
+                    "8 Rue de la Roquette - 75011 Paris", "http://www.tajmahal.fr", "06 12 34 56 79",
+                    true, true, 48.8540, 2.3725),
+            new Restaurant("Taj Mahal Montparnasse", "Indien", "11h30 - 14h30・18h30 - 22h00",
+                    "30 Rue du Départ - 75014 Paris", "http://www.tajmahal.fr", "06 12 34 56 80",
+                    true, false, 48.8421, 2.3219),
+            new Restaurant("Taj Mahal Batignolles", "Indien", "18h00 - 01h00",
+                    "41 Rue des Dames - 75017 Paris", "http://www.tajmahal.fr", "06 12 34 56 81",
+                    true, true, 48.8839, 2.3215),
+            new Restaurant("Taj Mahal La Défense", "Indien", "11h00 - 15h00",
+                    "2 Place de la Défense - 92800 Puteaux", "http://www.tajmahal.fr", "06 12 34 56 82",
+                    false, true, 48.8918, 2.2384),
+            new Restaurant("Taj Mahal Lyon", "Indien", "11h30 - 14h30・18h30 - 22h30",
+                    "15 Rue Mercière - 69002 Lyon", "http://www.tajmahal.fr", "06 12 34 56 83",
+                    true, true, 45.7616, 4.8326)
+    );
+
+    // Stockage thread-safe : plusieurs écrivains, lecteurs sans verrou sur des snapshots cohérents,
+    // commentaires compressés (seul un écran d'avis est affiché à la fois)
+    private final ConcurrentReviewStore reviews = new ConcurrentReviewStore(CommentCompressor.french());
+
+    /**
+     * Constructs the fake API with its hard-coded reviews.
+     */
+    public RestaurantFakeApi() {
+        List<Review> oldestFirst = new ArrayList<>(INITIAL_REVIEWS);
+        Collections.reverse(oldestFirst);
+        reviews.addAll(oldestFirst);
+    }
+
     /**
      * Retrieves a hard-coded {@link Restaurant} object for the "Taj Mahal".
      * <p>
@@ -51,7 +86,20 @@ List<Review> reviews = new ArrayList<>(Arrays.asList(
     public Restaurant getRestaurant() {
         return new Restaurant("Taj Mahal", "Indien", "11h30 - 14h30・18h30 - 22h00",
                 "12 Avenue de la Brique - 75010 Paris", "http://www.tajmahal.fr", "06 12 34 56 78",
-                true, true);
+                true, true, 48.8720, 2.3570);
+    }
+
+    /**
+     * Retrieves the "Taj Mahal" and the other hard-coded restaurants of the chain.
+     *
+     * @return the restaurants of the chain, all with their coordinates
+     */
+    @Override
+    public List<Restaurant> getRestaurants() {
+        List<Restaurant> restaurants = new ArrayList<>(OTHER_RESTAURANTS.size() + 1);
+        restaurants.add(getRestaurant());
+        restaurants.addAll(OTHER_RESTAURANTS);
+        return restaurants;
     }
 
 
@@ -62,16 +110,52 @@ List<Review> reviews = new ArrayList<>(Arrays.asList(
      * with pre-defined attributes.
      * </p>
      *
-     * @return The hard-coded list {@link Review} for the "Taj Mahal".
+     * @return A snapshot of the list {@link Review} for the "Taj Mahal", newest first.
      */
     @Override
     public List<Review> getReviews() {
-        return reviews;
+        return reviews.snapshot();
     }
 
+    /**
+     * Adds a review. Can be called from any thread.
+     *
+     * @param review the review to add, it becomes the first of the list
+     */
     @Override
     public void addReview(Review review) {
-        reviews.add(0, review);  // Ajoute en tête de liste (position 0)
+        reviews.add(review);  // Ajoute en tête de liste (position 0 des snapshots)
+    }
+
+    /**
+     * Adds reviews in one write to the store. Can be called from any thread.
+     *
+     * @param reviews the reviews to add, oldest first
+     */
+    @Override
+    public void addReviews(List<Review> reviews) {
+        this.reviews.addAll(reviews);
+    }
+
+    /**
+     * Retrieves the reviews of a user through the author index of the store.
+     *
+     * @param username the name of the author
+     * @return the reviews of the user, newest first
+     */
+    @Override
+    public List<Review> getReviewsBy(String username) {
+        return reviews.reviewsBy(username);
+    }
+
+    @Override
+    public boolean updateReview(Review current, Review updated) {
+        return reviews.replace(current, updated);
+    }
+
+    @Override
+    public boolean deleteReview(Review review) {
+        return reviews.remove(review);
     }
 
 }
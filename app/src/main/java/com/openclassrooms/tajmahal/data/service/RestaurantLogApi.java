@@ -0,0 +1,177 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An implementation of {@link RestaurantApi} whose reviews are persisted in a {@link ReviewLog}.
+ * <p>
+ * The reviews are read from the log once, when the API is constructed, then served from a
+ * {@link ConcurrentReviewStore} like {@link RestaurantFakeApi} does. Each write is appended to the
+ * log before it is visible in the store: an insert for a new review, an update for an edit and a
+ * tombstone for a delete. When the garbage left by edits and deletes passes the thresholds of
+ * the log, the compaction scheduler is called (see {@code ReviewCompactionWorker}).
+ * </p>
+ * A brand new log is filled with the reviews of the source API, so the first launch shows the
+ * same reviews as before; the log records it, so the reviews are not added again once deleted.
+ * Restaurant details are always read from the source API.
+ * The writes throw an {@link UncheckedIOException} if the log cannot be written.
+ */
+public class RestaurantLogApi implements RestaurantApi {
+
+    private final RestaurantApi source;
+    private final ReviewLog log;
+    private final Runnable compactionScheduler;
+    private final CommentCompressor compressor = CommentCompressor.french();
+    private final ConcurrentReviewStore reviews = new ConcurrentReviewStore(compressor);
+
+    // Écritures sérialisées : le journal et le store restent dans le même ordre.
+    // Id des avis du store, les plus anciens en premier pour chaque avis égal ;
+    // la clé est l'avis tel que stocké (commentaire compressé), pas une copie.
+    private final Object writeLock = new Object();
+    private final Map<Review, List<Long>> ids = new HashMap<>();
+
+    /**
+     * Reads the reviews of the log, or fills a new log with the reviews of the source, once.
+     *
+     * @param source              the API providing the restaurant details and the initial reviews
+     * @param log                 the opened review log
+     * @param compactionScheduler called when the log needs a compaction; it must not compact on the calling thread
+     * @throws IOException if the log cannot be read or written
+     */
+    public RestaurantLogApi(RestaurantApi source, ReviewLog log, Runnable compactionScheduler) throws IOException {
+        this.source = source;
+        this.log = log;
+        this.compactionScheduler = compactionScheduler;
+        if (!log.isSeeded()) {
+            // une seule fois, sur un journal neuf : des avis tous supprimés ne reviennent pas.
+            // Après un crash pendant le remplissage, les avis déjà écrits (les plus anciens) ne sont pas réécrits.
+            List<Review> oldestFirst = new ArrayList<>(source.getReviews());
+            Collections.reverse(oldestFirst);
+            int written = Math.min(log.getLiveCount(), oldestFirst.size());
+            for (Review review : oldestFirst.subList(written, oldestFirst.size())) log.insert(review);
+            log.markSeeded();
+        }
+        List<Review> stored = new ArrayList<>();
+        for (Map.Entry<Long, Review> entry : log.readLive().entrySet()) {
+            Review review = compressor.compact(entry.getValue());
+            stored.add(review);
+            index(review, entry.getKey());
+        }
+        reviews.addAll(stored);
+        scheduleCompactionIfNeeded();
+    }
+
+    @Override
+    public Restaurant getRestaurant() {
+        return source.getRestaurant();
+    }
+
+    @Override
+    public List<Restaurant> getRestaurants() {
+        return source.getRestaurants();
+    }
+
+    @Override
+    public List<Review> getReviews() {
+        return reviews.snapshot();
+    }
+
+    @Override
+    public void addReview(Review review) {
+        synchronized (writeLock) {
+            long id = write(() -> log.insert(review));
+            // déjà compressé : le store le garde tel quel
+            Review stored = compressor.compact(review);
+            reviews.add(stored);
+            index(stored, id);
+        }
+    }
+
+    @Override
+    public List<Review> getReviewsBy(String username) {
+        return reviews.reviewsBy(username);
+    }
+
+    @Override
+    public boolean updateReview(Review current, Review updated) {
+        // vérifié avant d'écrire dans le journal
+        if (!Objects.equals(current.getUsername(), updated.getUsername())) {
+            throw new IllegalArgumentException("an edited review keeps its author");
+        }
+        synchronized (writeLock) {
+            Long id = newestId(current);
+            if (id == null) return false;
+            Review stored = compressor.compact(updated);
+            write(() -> log.update(id, stored));
+            reviews.replace(current, stored);
+            unindex(current, id);
+            index(stored, id);
+        }
+        scheduleCompactionIfNeeded();
+        return true;
+    }
+
+    @Override
+    public boolean deleteReview(Review review) {
+        synchronized (writeLock) {
+            Long id = newestId(review);
+            if (id == null) return false;
+            write(() -> log.delete(id));
+            reviews.remove(review);
+            unindex(review, id);
+        }
+        scheduleCompactionIfNeeded();
+        return true;
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (log.needsCompaction()) {
+            compactionScheduler.run();
+        }
+    }
+
+    /** Le store retrouve l'avis égal le plus récent : on prend donc le plus grand id. */
+    private Long newestId(Review review) {
+        List<Long> candidates = ids.get(review);
+        return candidates == null ? null : candidates.get(candidates.size() - 1);
+    }
+
+    private void index(Review stored, long id) {
+        List<Long> candidates = ids.get(stored);
+        if (candidates == null) {
+            candidates = new ArrayList<>(1);
+            ids.put(stored, candidates);
+        }
+        // les ids croissent avec la position dans le store : on garde la liste triée
+        int insertion = Collections.binarySearch(candidates, id);
+        candidates.add(-insertion - 1, id);
+    }
+
+    private void unindex(Review review, long id) {
+        List<Long> candidates = ids.get(review);
+        candidates.remove(Long.valueOf(id));
+        if (candidates.isEmpty()) ids.remove(review);
+    }
+
+    private static <T> T write(LogWrite<T> write) {
+        try {
+            return write.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the review log", e);
+        }
+    }
+
+    private interface LogWrite<T> {
+        T run() throws IOException;
+    }
+}
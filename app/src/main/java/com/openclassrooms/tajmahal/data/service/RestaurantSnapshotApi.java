@@ -0,0 +1,385 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An implementation of {@link RestaurantApi} that serves the review history from a
+ * memory-mapped {@link ReviewSnapshotFile}.
+ * <p>
+ * The snapshot is never copied onto the heap: {@link #getReviews()} returns a view where
+ * each {@link Review} is decoded only when it is accessed, typically when the
+ * {@code ReviewAdapter} binds that position. Reviews added during the session are kept
+ * in a small in-memory list placed in front of the snapshot (newest first).
+ * </p>
+ * <p>
+ * Every review can be edited or deleted. The snapshot file is never written: the edits of its records
+ * are kept in memory, in a persistent tree of patches indexed by position (path copying, O(log n) per
+ * edit), which the views skip or apply while reading; the views taken before an edit keep their content.
+ * </p>
+ * <p>
+ * {@link #getReviewsBy(String)} uses an index of the authors of the snapshot, built at its first call
+ * by decoding only the username of each record: one int per review, then O(reviews of the author) per call.
+ * </p>
+ * <p>
+ * A record decoded again while its review is still referenced, e.g. by a row or a helpful vote, gives back
+ * the same instance: the repository identifies the reviews by instance. Only weak references to the
+ * decoded reviews are kept, so the records no longer referenced leave the heap.
+ * </p>
+ * Restaurant details are not part of the snapshot and are read from another {@link RestaurantApi}.
+ *
+ * @see ReviewSnapshotFile
+ */
+public class RestaurantSnapshotApi implements RestaurantApi {
+
+    private final RestaurantApi restaurantSource;
+    private final ReviewSnapshotFile.Reader snapshot;
+
+    // Enregistrements décodés encore référencés, par position : décoder deux fois rend la même instance
+    private final ConcurrentHashMap<Integer, DecodedReview> decoded = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Review> collected = new ReferenceQueue<>();
+    private final List<Review> records = new Records();
+
+    // Avis ajoutés depuis l'ouverture du snapshot
+    private final ConcurrentReviewStore addedReviews = new ConcurrentReviewStore();
+
+    // Positions des enregistrements du snapshot par auteur : [nombre, positions...], construit au premier appel
+    private Map<String, int[]> snapshotAuthors;
+
+    // Enregistrements du snapshot modifiés ou retirés, remplacés sous le verrou de l'instance
+    private final int patchSpan; // positions couvertes par l'arbre : une puissance de 2
+    private volatile Patches patches = Patches.NONE;
+
+    /**
+     * Opens the snapshot file.
+     *
+     * @param restaurantSource the API providing the restaurant details
+     * @param snapshotFile     the review snapshot to map
+     * @throws IOException if the snapshot cannot be mapped
+     */
+    public RestaurantSnapshotApi(RestaurantApi restaurantSource, File snapshotFile) throws IOException {
+        this.restaurantSource = restaurantSource;
+        this.snapshot = ReviewSnapshotFile.open(snapshotFile);
+        this.patchSpan = Integer.highestOneBit(Math.max(1, snapshot.size() - 1)) << 1;
+    }
+
+    @Override
+    public Restaurant getRestaurant() {
+        return restaurantSource.getRestaurant();
+    }
+
+    @Override
+    public List<Restaurant> getRestaurants() {
+        return restaurantSource.getRestaurants();
+    }
+
+    /**
+     * Returns a read-only view of the reviews, newest first.
+     * The view is a snapshot: reviews added afterwards are not visible through it.
+     */
+    @Override
+    public List<Review> getReviews() {
+        return new ReviewsView(addedReviews.snapshot(), records, patches, patchSpan);
+    }
+
+    @Override
+    public void addReview(Review review) {
+        addedReviews.add(review);
+    }
+
+    @Override
+    public void addReviews(List<Review> reviews) {
+        addedReviews.addAll(reviews);
+    }
+
+    /**
+     * Returns the reviews of an author: those added during the session, then those of the snapshot,
+     * found through the author index.
+     */
+    @Override
+    public List<Review> getReviewsBy(String username) {
+        List<Review> reviews = new ArrayList<>(addedReviews.reviewsBy(username));
+        int[] positions = snapshotAuthors().get(username);
+        if (positions != null) {
+            Patches current = patches;
+            for (int i = 1; i <= positions[0]; i++) {
+                Review review = current.apply(records, patchSpan, positions[i]);
+                if (review != null) reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * Edits a review added during the session, or a review of the snapshot; the file itself is not modified.
+     */
+    @Override
+    public boolean updateReview(Review current, Review updated) {
+        if (addedReviews.replace(current, updated)) return true;
+        synchronized (this) {
+            int position = findInSnapshot(current);
+            if (position < 0) return false;
+            patches = patches.with(patchSpan, position, updated);
+            return true;
+        }
+    }
+
+    /**
+     * Deletes a review added during the session, or a review of the snapshot; the file itself is not modified.
+     */
+    @Override
+    public boolean deleteReview(Review review) {
+        if (addedReviews.remove(review)) return true;
+        synchronized (this) {
+            int position = findInSnapshot(review);
+            if (position < 0) return false;
+            patches = patches.with(patchSpan, position, null);
+            return true;
+        }
+    }
+
+    /**
+     * Position de l'avis parmi les enregistrements de son auteur, -1 s'il n'y est pas ou plus :
+     * l'instance elle-même d'abord, pour ne pas modifier un autre avis identique, sinon un avis égal.
+     */
+    private int findInSnapshot(Review review) {
+        // un nom absent est enregistré vide dans le snapshot
+        String author = review.getUsername() == null ? "" : review.getUsername();
+        int[] positions = snapshotAuthors().get(author);
+        if (positions == null) return -1;
+        for (int i = 1; i <= positions[0]; i++) {
+            if (patches.apply(records, patchSpan, positions[i]) == review) return positions[i];
+        }
+        for (int i = 1; i <= positions[0]; i++) {
+            if (review.equals(patches.apply(records, patchSpan, positions[i]))) return positions[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Décode l'enregistrement, ou rend l'instance déjà décodée si elle est encore référencée.
+     */
+    private Review record(int position) {
+        // oublie les enregistrements dont l'avis a été libéré par le ramasse-miettes
+        DecodedReview released;
+        while ((released = (DecodedReview) collected.poll()) != null) {
+            decoded.remove(released.position, released);
+        }
+        DecodedReview known = decoded.get(position);
+        Review review = known == null ? null : known.get();
+        if (review != null) return review;
+        // compute est atomique : deux threads qui décodent la même position gardent la même instance
+        Review[] result = new Review[1];
+        decoded.compute(position, (key, current) -> {
+            Review kept = current == null ? null : current.get();
+            if (kept == null) {
+                kept = snapshot.get(key);
+                current = new DecodedReview(key, kept, collected);
+            }
+            result[0] = kept;
+            return current;
+        });
+        return result[0];
+    }
+
+    /**
+     * Construit l'index des auteurs au premier appel : seul le nom de chaque enregistrement est décodé.
+     */
+    private synchronized Map<String, int[]> snapshotAuthors() {
+        if (snapshotAuthors == null) {
+            Map<String, int[]> authors = new HashMap<>();
+            for (int position = 0; position < snapshot.size(); position++) {
+                String author = snapshot.getUsername(position);
+                int[] positions = authors.get(author);
+                if (positions == null) {
+                    positions = new int[2]; // la plupart des auteurs n'ont qu'un avis
+                    authors.put(author, positions);
+                } else if (positions[0] + 1 == positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                    authors.put(author, positions);
+                }
+                positions[++positions[0]] = position;
+            }
+            snapshotAuthors = authors;
+        }
+        return snapshotAuthors;
+    }
+
+    /**
+     * Les enregistrements du snapshot, décodés par {@link #record(int)}.
+     */
+    private final class Records extends AbstractList<Review> implements RandomAccess {
+
+        @Override
+        public Review get(int index) {
+            return record(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+
+    /** Référence faible vers un avis décodé, qui retient sa position pour être retirée du cache. */
+    private static final class DecodedReview extends WeakReference<Review> {
+        final int position;
+
+        DecodedReview(int position, Review review, ReferenceQueue<Review> queue) {
+            super(review, queue);
+            this.position = position;
+        }
+    }
+
+    /**
+     * Newest first view: the added reviews followed by the mapped snapshot, patches applied.
+     */
+    private static final class ReviewsView extends AbstractList<Review> implements RandomAccess {
+
+        private final List<Review> added;
+        private final List<Review> snapshot;
+        private final Patches patches;
+        private final int patchSpan;
+
+        ReviewsView(List<Review> added, List<Review> snapshot, Patches patches, int patchSpan) {
+            this.added = added;
+            this.snapshot = snapshot;
+            this.patches = patches;
+            this.patchSpan = patchSpan;
+        }
+
+        @Override
+        public Review get(int index) {
+            if (index < added.size()) {
+                return added.get(index);
+            }
+            if (patches.root == null) {
+                return snapshot.get(index - added.size());
+            }
+            int position = patches.position(patchSpan, snapshot.size(), index - added.size());
+            return patches.apply(snapshot, patchSpan, position);
+        }
+
+        @Override
+        public int size() {
+            return added.size() + snapshot.size() - patches.removed;
+        }
+    }
+
+    /**
+     * Edits of the snapshot records: a binary tree over the positions, never modified, copied along
+     * the path of each edit. A leaf holds the edited review, or null for a removed record; each node
+     * counts the removed records below it.
+     */
+    private static final class Patches {
+        static final Patches NONE = new Patches(null);
+
+        @Nullable
+        final Node root;
+        final int removed;
+
+        Patches(@Nullable Node root) {
+            this.root = root;
+            this.removed = removed(root);
+        }
+
+        /**
+         * @param review the edited review, or null to remove the record
+         * @return the patches with this edit
+         */
+        Patches with(int span, int position, @Nullable Review review) {
+            return new Patches(with(root, span, position, review));
+        }
+
+        /**
+         * @return the record at this position with its edit, or null if it was removed
+         */
+        @Nullable
+        Review apply(List<Review> snapshot, int span, int position) {
+            Node node = root;
+            int offset = position; // position dans le nœud courant
+            while (node != null && span > 1) {
+                span >>>= 1;
+                if (offset < span) {
+                    node = node.left;
+                } else {
+                    node = node.right;
+                    offset -= span;
+                }
+            }
+            // pas de feuille : l'enregistrement n'a jamais été modifié
+            return node == null ? snapshot.get(position) : node.review;
+        }
+
+        /**
+         * Position du rang-ième enregistrement présent : à chaque nœud, les enregistrements de la moitié
+         * gauche moins ceux qui en ont été retirés.
+         */
+        int position(int span, int count, int rank) {
+            Node node = root;
+            int base = 0; // première position couverte par le nœud
+            while (node != null && span > 1) {
+                span >>>= 1;
+                int leftPresent = Math.min(span, count - base) - removed(node.left);
+                if (rank < leftPresent) {
+                    node = node.left;
+                } else {
+                    rank -= leftPresent;
+                    base += span;
+                    node = node.right;
+                }
+            }
+            return base + rank;
+        }
+
+        private static Node with(@Nullable Node node, int span, int position, @Nullable Review review) {
+            if (span == 1) return new Node(null, null, review);
+            int half = span >>> 1;
+            Node left = node == null ? null : node.left;
+            Node right = node == null ? null : node.right;
+            if (position < half) {
+                left = with(left, half, position, review);
+            } else {
+                right = with(right, half, position - half, review);
+            }
+            return new Node(left, right, null);
+        }
+
+        private static int removed(@Nullable Node node) {
+            return node == null ? 0 : node.removed;
+        }
+    }
+
+    private static final class Node {
+        @Nullable
+        final Node left;
+        @Nullable
+        final Node right;
+        @Nullable
+        final Review review; // feuille : l'avis modifié, null si l'enregistrement est retiré
+        final int removed;
+
+        Node(@Nullable Node left, @Nullable Node right, @Nullable Review review) {
+            this.left = left;
+            this.right = right;
+            this.review = review;
+            boolean leaf = left == null && right == null;
+            this.removed = leaf ? (review == null ? 1 : 0) : Patches.removed(left) + Patches.removed(right);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+
+import dagger.hilt.EntryPoint;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.EntryPointAccessors;
+import dagger.hilt.components.SingletonComponent;
+
+/**
+ * Background job compacting the {@link ReviewLog}, scheduled with WorkManager.
+ * <p>
+ * {@link RestaurantLogApi} calls {@link #schedule(Context)} when the garbage of the log passes
+ * its thresholds. The job runs on a WorkManager thread, only while the battery is not low, and
+ * at most one is pending at a time. Reviews can still be written while it runs.
+ * </p>
+ * For beginners: WorkManager runs deferrable background work, even if the app is closed in the
+ * meantime; a {@link Worker} is the unit of work it runs on one of its threads.
+ *
+ * @see <a href="https://developer.android.com/topic/libraries/architecture/workmanager">WorkManager's official documentation</a>
+ */
+public class ReviewCompactionWorker extends Worker {
+
+    /** Unique name of the job: a compaction already pending is kept, not duplicated. */
+    public static final String WORK_NAME = "review-log-compaction";
+
+    private static final String TAG = "ReviewCompaction";
+
+    /**
+     * Gives the worker access to the log of the singleton component: WorkManager constructs
+     * the worker itself, Hilt cannot inject it.
+     */
+    @EntryPoint
+    @InstallIn(SingletonComponent.class)
+    public interface ReviewLogEntryPoint {
+        /** @return the review log of the application */
+        ReviewLog reviewLog();
+    }
+
+    /**
+     * Called by WorkManager.
+     *
+     * @param context the application context
+     * @param params  the parameters of the job
+     */
+    public ReviewCompactionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Enqueues a compaction, unless one is already pending.
+     *
+     * @param context any context of the application
+     */
+    public static void schedule(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReviewCompactionWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiresBatteryNotLow(true).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        ReviewLog log = EntryPointAccessors.fromApplication(getApplicationContext(), ReviewLogEntryPoint.class).reviewLog();
+        if (!log.needsCompaction()) {
+            return Result.success(); // déjà compacté, ou pas encore assez de déchets
+        }
+        try {
+            long reclaimed = log.compact();
+            Log.i(TAG, "Review log compacted, " + reclaimed / 1024 + " KB reclaimed");
+            return Result.success();
+        } catch (IOException e) {
+            // le journal est resté intact : on réessaiera plus tard
+            Log.w(TAG, "Review log compaction failed", e);
+            return Result.retry();
+        }
+    }
+}
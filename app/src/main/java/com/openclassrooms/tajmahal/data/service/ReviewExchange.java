@@ -0,0 +1,505 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Text formats used to export and import reviews: CSV and JSON Lines.
+ * <p>
+ * Both formats are streamed one record at a time: a {@link RecordWriter} writes each review as
+ * soon as it is given, and a {@link RecordReader} decodes one review per call, with a fixed-size
+ * buffer. Memory does not depend on the number of reviews.
+ * </p>
+ * <ul>
+ *     <li>CSV (RFC 4180): a header {@code username,picture,comment,rate,food,service,ambience,value},
+ *     then one record per review. Fields containing a comma, a quote or a line break are quoted,
+ *     quotes are doubled. A null field, or a dimension the reviewer did not rate, is written as an
+ *     empty field. Files with the older header {@code username,picture,comment,rate} are still read.</li>
+ *     <li>JSON Lines: one object per line,
+ *     {@code {"username":"...","picture":"...","comment":"...","rate":5,"food":4}}; a score key
+ *     (one per {@link RatingDimension}, lower case) is only written when the dimension is rated.
+ *     Unknown keys are ignored.</li>
+ * </ul>
+ */
+public final class ReviewExchange {
+
+    /**
+     * A supported text format.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    // Colonnes de base, puis une colonne facultative par critère noté (voir dimensionKey)
+    private static final String[] CSV_BASE_COLUMNS = {"username", "picture", "comment", "rate"};
+    private static final String CSV_HEADER = csvHeader();
+    private static final int BUFFER_SIZE = 8192;
+
+    private ReviewExchange() {
+    }
+
+    /**
+     * @param out    where to write, buffered by the caller if needed
+     * @param format the format to write
+     * @return a writer of reviews; for CSV, the header is written on the first review
+     */
+    public static RecordWriter newWriter(Writer out, Format format) {
+        return format == Format.CSV ? new CsvWriter(out) : new JsonLinesWriter(out);
+    }
+
+    /**
+     * @param in     what to read; it is read through an internal buffer
+     * @param format the format to read
+     * @return a reader of reviews
+     */
+    public static RecordReader newReader(Reader in, Format format) {
+        return format == Format.CSV ? new CsvReader(in) : new JsonLinesReader(in);
+    }
+
+    /**
+     * @return the name of the CSV column and JSON key of a dimension, e.g. "food".
+     */
+    static String dimensionKey(RatingDimension dimension) {
+        return dimension.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String csvHeader() {
+        StringBuilder header = new StringBuilder(String.join(",", CSV_BASE_COLUMNS));
+        for (RatingDimension dimension : RatingDimension.values()) {
+            header.append(',').append(dimensionKey(dimension));
+        }
+        return header.toString();
+    }
+
+    /**
+     * Writes reviews one at a time, in the order they are given.
+     */
+    public abstract static class RecordWriter {
+        final Writer out;
+
+        RecordWriter(Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * @param review the review to write
+         * @throws IOException if writing fails
+         */
+        public abstract void write(Review review) throws IOException;
+
+        /**
+         * Flushes the underlying writer, without closing it.
+         *
+         * @throws IOException if writing fails
+         */
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads reviews one at a time.
+     */
+    public abstract static class RecordReader {
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        int line = 1;
+        int recordLine = 1; // ligne du début de l'enregistrement en cours, pour les erreurs
+
+        RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next review, or null at the end of the input
+         * @throws IOException if reading fails or the input is malformed; the message gives the line
+         */
+        @Nullable
+        public abstract Review read() throws IOException;
+
+        /** @return le prochain caractère, -1 à la fin */
+        int next() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[position++];
+            if (c == '\n') line++;
+            return c;
+        }
+
+        /** @return le prochain caractère sans le consommer, -1 à la fin */
+        int peek() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+
+        IOException malformed(String message) {
+            return new IOException("line " + recordLine + ": " + message);
+        }
+
+        void setScore(Review.Builder builder, RatingDimension dimension, int score) throws IOException {
+            try {
+                builder.setScore(dimension, score);
+            } catch (IllegalArgumentException e) {
+                throw malformed("invalid " + dimensionKey(dimension) + " " + score);
+            }
+        }
+    }
+
+    // --- CSV ---
+
+    private static final class CsvWriter extends RecordWriter {
+        private boolean headerWritten;
+
+        CsvWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(Review review) throws IOException {
+            if (!headerWritten) {
+                out.write(CSV_HEADER);
+                out.write('\n');
+                headerWritten = true;
+            }
+            writeField(review.getUsername());
+            out.write(',');
+            writeField(review.getPicture());
+            out.write(',');
+            writeField(review.getComment());
+            out.write(',');
+            out.write(Integer.toString(review.getRate()));
+            for (RatingDimension dimension : RatingDimension.values()) {
+                out.write(',');
+                int score = review.getScore(dimension);
+                if (score != 0) out.write(Integer.toString(score)); // critère non noté : champ vide
+            }
+            out.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) return;
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quoted) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') out.write('"');
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    private static final class CsvReader extends RecordReader {
+        private final List<String> fields = new ArrayList<>(CSV_BASE_COLUMNS.length + RatingDimension.values().length);
+        private final StringBuilder field = new StringBuilder();
+        private boolean headerRead;
+        // 4 colonnes (ancien en-tête, sans notes par critère) ou 4 + une par critère
+        private int columns;
+
+        CsvReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public Review read() throws IOException {
+            if (!headerRead) {
+                headerRead = true;
+                if (!readRecord()) return null;
+                if (!String.join(",", fields).equals(CSV_HEADER)
+                        && !String.join(",", fields).equals(String.join(",", CSV_BASE_COLUMNS))) {
+                    throw malformed("expected header " + CSV_HEADER);
+                }
+                columns = fields.size();
+            }
+            if (!readRecord()) return null;
+            if (fields.size() != columns) {
+                throw malformed("expected " + columns + " fields, found " + fields.size());
+            }
+            Review.Builder builder = new Review.Builder()
+                    .setUsername(fields.get(0))
+                    .setPicture(fields.get(1))
+                    .setComment(fields.get(2))
+                    .setRate(parseInt("rate", fields.get(3)));
+            for (int i = CSV_BASE_COLUMNS.length; i < columns; i++) {
+                RatingDimension dimension = RatingDimension.values()[i - CSV_BASE_COLUMNS.length];
+                String value = fields.get(i);
+                if (!value.trim().isEmpty()) {
+                    setScore(builder, dimension, parseInt(dimensionKey(dimension), value));
+                }
+            }
+            return builder.build();
+        }
+
+        private int parseInt(String column, String value) throws IOException {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw malformed("invalid " + column + " \"" + value + "\"");
+            }
+        }
+
+        /** Lit un enregistrement dans {@link #fields} ; false à la fin du fichier. */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            int c = next();
+            while (c == '\r' || c == '\n') c = next(); // lignes vides ignorées
+            if (c == -1) return false;
+            recordLine = line;
+            while (true) {
+                field.setLength(0);
+                if (c == '"') {
+                    while (true) {
+                        c = next();
+                        if (c == -1) throw malformed("unterminated quoted field");
+                        if (c == '"') {
+                            if (peek() != '"') break;
+                            next();
+                        }
+                        field.append((char) c);
+                    }
+                    c = next();
+                } else {
+                    while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                        field.append((char) c);
+                        c = next();
+                    }
+                }
+                fields.add(field.toString());
+                if (c == ',') {
+                    c = next();
+                    continue;
+                }
+                if (c == '\r' && peek() == '\n') next();
+                if (c == '\r' || c == '\n' || c == -1) return true;
+                throw malformed("unexpected character after quoted field");
+            }
+        }
+    }
+
+    // --- JSON Lines ---
+
+    private static final class JsonLinesWriter extends RecordWriter {
+
+        JsonLinesWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(Review review) throws IOException {
+            out.write("{\"username\":");
+            writeString(review.getUsername());
+            out.write(",\"picture\":");
+            writeString(review.getPicture());
+            out.write(",\"comment\":");
+            writeString(review.getComment());
+            out.write(",\"rate\":");
+            out.write(Integer.toString(review.getRate()));
+            for (RatingDimension dimension : RatingDimension.values()) {
+                int score = review.getScore(dimension);
+                if (score == 0) continue; // critère non noté : clé absente
+                out.write(",\"");
+                out.write(dimensionKey(dimension));
+                out.write("\":");
+                out.write(Integer.toString(score));
+            }
+            out.write("}\n");
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.write("null");
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': out.write("\\\""); break;
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    case '\r': out.write("\\r"); break;
+                    case '\t': out.write("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    private static final class JsonLinesReader extends RecordReader {
+        private final StringBuilder text = new StringBuilder();
+
+        JsonLinesReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public Review read() throws IOException {
+            int c = skipWhitespace();
+            if (c == -1) return null;
+            recordLine = line;
+            if (c != '{') throw malformed("expected '{'");
+            Review.Builder builder = new Review.Builder();
+            c = skipWhitespace();
+            while (c != '}') {
+                if (c != '"') throw malformed("expected a key");
+                String key = readString();
+                if (skipWhitespace() != ':') throw malformed("expected ':' after \"" + key + "\"");
+                c = skipWhitespace();
+                switch (key) {
+                    case "username": builder.setUsername(readStringValue(c)); break;
+                    case "picture": builder.setPicture(readStringValue(c)); break;
+                    case "comment": builder.setComment(readStringValue(c)); break;
+                    case "rate": builder.setRate(readInt(c)); break;
+                    default:
+                        RatingDimension dimension = dimension(key);
+                        if (dimension != null) {
+                            setScore(builder, dimension, readInt(c));
+                        } else {
+                            skipValue(c);
+                        }
+                }
+                c = skipWhitespace();
+                if (c == ',') {
+                    c = skipWhitespace();
+                } else if (c != '}') {
+                    throw malformed("expected ',' or '}'");
+                }
+            }
+            return builder.build();
+        }
+
+        /** @return le critère dont c'est la clé, null pour une clé inconnue */
+        @Nullable
+        private static RatingDimension dimension(String key) {
+            for (RatingDimension dimension : RatingDimension.values()) {
+                if (dimensionKey(dimension).equals(key)) return dimension;
+            }
+            return null;
+        }
+
+        /** Ignore les espaces et les fins de ligne, retourne le caractère suivant. */
+        private int skipWhitespace() throws IOException {
+            int c = next();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') c = next();
+            return c;
+        }
+
+        private String readStringValue(int first) throws IOException {
+            if (first == '"') return readString();
+            if (first == 'n') {
+                expectLiteral("ull");
+                return null;
+            }
+            throw malformed("expected a string");
+        }
+
+        /** Lit une chaîne dont le guillemet ouvrant a déjà été lu. */
+        private String readString() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c = next();
+                if (c == -1 || c == '\n') throw malformed("unterminated string");
+                if (c == '"') return text.toString();
+                if (c != '\\') {
+                    text.append((char) c);
+                    continue;
+                }
+                c = next();
+                switch (c) {
+                    case '"': text.append('"'); break;
+                    case '\\': text.append('\\'); break;
+                    case '/': text.append('/'); break;
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) throw malformed("invalid \\u escape");
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    default:
+                        throw malformed("invalid escape");
+                }
+            }
+        }
+
+        private int readInt(int first) throws IOException {
+            boolean negative = first == '-';
+            int c = negative ? next() : first;
+            if (c < '0' || c > '9') throw malformed("expected a number");
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) throw malformed("number too large");
+                if (peek() < '0' || peek() > '9') break;
+                c = next();
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        /** Ignore la valeur d'une clé inconnue : chaîne, nombre, booléen ou null. */
+        private void skipValue(int first) throws IOException {
+            if (first == '"') {
+                readString();
+                return;
+            }
+            if (first == '{' || first == '[') throw malformed("nested values are not supported");
+            while (true) {
+                int c = peek();
+                if (c == ',' || c == '}' || c == -1 || c == '\n') return;
+                next();
+            }
+        }
+
+        private void expectLiteral(String rest) throws IOException {
+            for (int i = 0; i < rest.length(); i++) {
+                if (next() != rest.charAt(i)) throw malformed("invalid literal");
+            }
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage of the reviews as an append-only log of insert, update and delete records.
+ * <p>
+ * Layout of the file (big endian):
+ * <pre>
+ * [MAGIC (int)][VERSION (int)][FLAGS (int)]    FLAGS: bit 0 set once the log was seeded, see {@link #markSeeded()}
+ * [record]...                     record = payload length (int) + CRC32 of the payload (int) + payload
+ *                                 payload = type (byte) + review id (long)
+ *                                           + for INSERT and UPDATE: rate (byte), username, picture, comment
+ *                                             (each one: length (int, -1 for null) + UTF-8 bytes),
+ *                                             then one score (byte) per {@link RatingDimension}
+ * </pre>
+ * Each review gets an id when inserted. An edit appends an UPDATE record, a delete appends a
+ * DELETE record (a tombstone): nothing already written is ever modified, so a write costs the
+ * size of one review whatever the size of the log, and a record survives the process being
+ * killed as soon as the method that wrote it returns.
+ * </p>
+ * <p>
+ * The records replaced by an update or a delete are garbage. Once there is enough of it
+ * ({@link #needsCompaction()}), {@link #compact()} rewrites the live records into a new file and
+ * swaps it in with an atomic rename; the tombstones are dropped, the reviews keep their ids and
+ * their order. It is meant to run in the background ({@code ReviewCompactionWorker}) while
+ * reviews keep being written: only the end of the compaction blocks the writers.
+ * </p>
+ * Crash consistency: {@link #open(File)} drops a record torn by a crash (its length or CRC does
+ * not match) and a compacted file that was not renamed yet. A log of version 1, whose header has
+ * no flags, is rewritten in the current format when opened. Whenever the process dies, the log
+ * reopens with every record written before, the last one possibly excepted.
+ * Can be used from any thread.
+ */
+public class ReviewLog {
+
+    /** A compaction is worth it once this share of the file is garbage... */
+    public static final double GARBAGE_RATIO_THRESHOLD = 0.5;
+
+    /** ...and the garbage reaches this size, in bytes: rewriting a tiny log is not worth a job. */
+    public static final long MIN_GARBAGE_BYTES = 64 * 1024;
+
+    /** "TJLG" : début de fichier, pour refuser un fichier qui n'est pas un journal d'avis. */
+    static final int MAGIC = 0x544A4C47;
+    static final int VERSION = 2;
+    // en-tête sans drapeaux : réécrit au format courant à l'ouverture
+    private static final int VERSION_1 = 1;
+    private static final int VERSION_1_HEADER_SIZE = 2 * 4;
+
+    private static final int HEADER_SIZE = 3 * 4;
+    private static final int FLAGS_OFFSET = 2 * 4;
+    private static final int FLAG_SEEDED = 1;
+    private static final int RECORD_HEADER_SIZE = 2 * 4;
+    // Au-delà, la longueur lue est forcément celle d'un enregistrement déchiré
+    private static final int MAX_PAYLOAD_SIZE = 1024 * 1024;
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final byte INSERT = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    /**
+     * The steps of a compaction, in order. The log can be reopened after a crash at any of them.
+     */
+    public enum Step {
+        /** The live records are copied to the compacted file. */
+        COPIED,
+        /** The records written during the copy are appended too, and the file is synced to disk. */
+        SYNCED,
+        /** The compacted file has replaced the log. */
+        RENAMED
+    }
+
+    /**
+     * Follows the progress of a compaction, e.g. to log it.
+     */
+    public interface CompactionListener {
+        /**
+         * Called on the compacting thread, once each step is done.
+         *
+         * @param step the step just done
+         */
+        void onStep(Step step);
+    }
+
+    private final File file;
+    private final Object lock = new Object();
+
+    // Tout ce qui suit est protégé par lock
+    private FileChannel channel;
+    private long size;
+    // Dernier enregistrement de chaque avis présent, dans l'ordre d'insertion
+    private LinkedHashMap<Long, Location> live = new LinkedHashMap<>();
+    private long liveBytes;
+    private int flags;
+    private long nextId = 1;
+    private boolean compacting;
+
+    private ReviewLog(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a log, creating it if needed, and recovers it from a crash:
+     * an unfinished compaction is discarded and a torn last record is cut off.
+     *
+     * @param file the log file
+     * @return the opened log
+     * @throws IOException if the file cannot be read or is not a review log
+     */
+    public static ReviewLog open(File file) throws IOException {
+        File compacted = compactedFile(file);
+        // compaction interrompue avant le renommage : le journal d'origine est intact
+        if (compacted.exists() && !compacted.delete()) {
+            throw new IOException("Cannot delete " + compacted);
+        }
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        ReviewLog log = new ReviewLog(file, channel);
+        try {
+            log.recover();
+        } catch (IOException | RuntimeException e) {
+            log.channel.close(); // le canal a pu être rouvert par la mise à jour du format
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Appends an INSERT record.
+     *
+     * @param review the new review
+     * @return the id given to the review, used to update or delete it
+     * @throws IOException if the record cannot be written
+     */
+    public long insert(Review review) throws IOException {
+        synchronized (lock) {
+            long id = nextId;
+            append(encode(INSERT, id, review), id);
+            nextId++;
+            return id;
+        }
+    }
+
+    /**
+     * Appends an UPDATE record. The previous version of the review becomes garbage.
+     *
+     * @param id     the id of the review
+     * @param review the edited review
+     * @return true if the review was updated, false if there is no review with this id
+     * @throws IOException if the record cannot be written
+     */
+    public boolean update(long id, Review review) throws IOException {
+        synchronized (lock) {
+            if (!live.containsKey(id)) return false;
+            append(encode(UPDATE, id, review), id);
+            return true;
+        }
+    }
+
+    /**
+     * Appends a DELETE record (a tombstone). The review and the tombstone become garbage.
+     *
+     * @param id the id of the review
+     * @return true if the review was deleted, false if there is no review with this id
+     * @throws IOException if the record cannot be written
+     */
+    public boolean delete(long id) throws IOException {
+        synchronized (lock) {
+            if (!live.containsKey(id)) return false;
+            append(encode(DELETE, id, null), id);
+            return true;
+        }
+    }
+
+    /**
+     * Reads the live reviews: the last version of each review that was not deleted.
+     *
+     * @return the reviews by id, oldest insert first
+     * @throws IOException if the file cannot be read
+     */
+    public Map<Long, Review> readLive() throws IOException {
+        synchronized (lock) {
+            Map<Long, Review> reviews = new LinkedHashMap<>(live.size() * 4 / 3 + 1);
+            for (Map.Entry<Long, Location> entry : live.entrySet()) {
+                ByteBuffer payload = read(channel, entry.getValue().offset + RECORD_HEADER_SIZE,
+                        entry.getValue().length - RECORD_HEADER_SIZE);
+                payload.position(1 + 8); // type et id
+                reviews.put(entry.getKey(), decodeReview(payload));
+            }
+            return reviews;
+        }
+    }
+
+    /**
+     * @return true if the garbage is above both thresholds and no compaction is running.
+     */
+    public boolean needsCompaction() {
+        synchronized (lock) {
+            long garbage = size - liveBytes;
+            return !compacting && garbage >= MIN_GARBAGE_BYTES && garbage >= size * GARBAGE_RATIO_THRESHOLD;
+        }
+    }
+
+    /**
+     * Rewrites the log with its live records only.
+     *
+     * @return the number of bytes reclaimed
+     * @throws IOException if the compacted file cannot be written; the log is then left as it was
+     */
+    public long compact() throws IOException {
+        return compact(null);
+    }
+
+    /**
+     * Rewrites the log with its live records only.
+     * <p>
+     * The live records are copied without holding the lock, the writers keep appending meanwhile;
+     * then, under the lock, the records appended during the copy are copied too, the new file is
+     * synced to disk and renamed over the log.
+     * </p>
+     *
+     * @param listener notified after each step, or null
+     * @return the number of bytes reclaimed, 0 if another compaction is running
+     * @throws IOException if the compacted file cannot be written; the log is then left as it was
+     */
+    public long compact(@Nullable CompactionListener listener) throws IOException {
+        FileChannel source;
+        long copiedEnd;
+        Location[] toCopy;
+        Long[] ids;
+        synchronized (lock) {
+            if (compacting) return 0;
+            compacting = true;
+            source = channel;
+            copiedEnd = size;
+            toCopy = live.values().toArray(new Location[0]);
+            ids = live.keySet().toArray(new Long[0]);
+        }
+        File compacted = compactedFile(file);
+        FileChannel target = null;
+        boolean renamed = false;
+        try {
+            target = new RandomAccessFile(compacted, "rw").getChannel();
+            target.truncate(0);
+            writeFully(target, header(0), 0); // drapeaux écrits sous le verrou, à la fin de la copie
+            long position = HEADER_SIZE;
+            LinkedHashMap<Long, Location> compactedLive = new LinkedHashMap<>(ids.length * 4 / 3 + 1);
+            for (int i = 0; i < toCopy.length; i++) {
+                // lecture positionnelle : sûre pendant que les écrivains ajoutent à la fin
+                ByteBuffer record = read(source, toCopy[i].offset, toCopy[i].length);
+                writeFully(target, record, position);
+                compactedLive.put(ids[i], new Location(position, toCopy[i].length));
+                position += toCopy[i].length;
+            }
+            notify(listener, Step.COPIED);
+
+            synchronized (lock) {
+                // enregistrements écrits pendant la copie : rejoués sur le nouveau fichier
+                long tailStart = copiedEnd;
+                while (tailStart < size) {
+                    ByteBuffer recordHeader = read(source, tailStart, RECORD_HEADER_SIZE);
+                    int length = RECORD_HEADER_SIZE + recordHeader.getInt(0);
+                    ByteBuffer record = read(source, tailStart, length);
+                    writeFully(target, record, position);
+                    apply(compactedLive, record.get(RECORD_HEADER_SIZE), record.getLong(RECORD_HEADER_SIZE + 1),
+                            new Location(position, length));
+                    position += length;
+                    tailStart += length;
+                }
+                writeFully(target, header(flags), 0);
+                target.force(true);
+                notify(listener, Step.SYNCED);
+
+                // rename(2) est atomique : après un crash, le journal est l'ancien ou le nouveau, jamais un mélange
+                if (!compacted.renameTo(file)) {
+                    throw new IOException("Cannot rename " + compacted + " to " + file);
+                }
+                renamed = true;
+                long reclaimed = size - position;
+                channel = target; // le canal suit le fichier renommé
+                size = position;
+                live = compactedLive;
+                // les modifications et pierres tombales rejouées depuis la fin sont déjà des déchets
+                liveBytes = HEADER_SIZE;
+                for (Location location : compactedLive.values()) liveBytes += location.length;
+                source.close();
+                notify(listener, Step.RENAMED);
+                return reclaimed;
+            }
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+            if (!renamed) {
+                if (target != null) target.close();
+                //noinspection ResultOfMethodCallIgnored
+                compacted.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the size of the log file, in bytes.
+     */
+    public long getSize() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * @return the bytes taken by replaced and deleted reviews and by the tombstones.
+     */
+    public long getGarbageBytes() {
+        synchronized (lock) {
+            return size - liveBytes;
+        }
+    }
+
+    /**
+     * @return true if the log holds no record at all, not even a tombstone.
+     */
+    public boolean isEmpty() {
+        synchronized (lock) {
+            return size == HEADER_SIZE;
+        }
+    }
+
+    /**
+     * @return true once {@link #markSeeded()} was called on this log, even if every review was deleted since.
+     */
+    public boolean isSeeded() {
+        synchronized (lock) {
+            return (flags & FLAG_SEEDED) != 0;
+        }
+    }
+
+    /**
+     * Records in the header that the log was filled with its initial reviews, so they are never added again.
+     *
+     * @throws IOException if the header cannot be written
+     */
+    public void markSeeded() throws IOException {
+        synchronized (lock) {
+            if ((flags & FLAG_SEEDED) != 0) return;
+            ByteBuffer value = ByteBuffer.allocate(4).putInt(flags | FLAG_SEEDED);
+            value.flip();
+            writeFully(channel, value, FLAGS_OFFSET);
+            channel.force(true);
+            flags |= FLAG_SEEDED;
+        }
+    }
+
+    /**
+     * @return the number of live reviews.
+     */
+    public int getLiveCount() {
+        synchronized (lock) {
+            return live.size();
+        }
+    }
+
+    /**
+     * Syncs the log to disk and closes it.
+     *
+     * @throws IOException if the file cannot be synced
+     */
+    public void close() throws IOException {
+        synchronized (lock) {
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // --- lecture au démarrage ---
+
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize >= VERSION_1_HEADER_SIZE) {
+            ByteBuffer header = read(channel, 0, VERSION_1_HEADER_SIZE);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION_1) {
+                upgradeFromVersion1(fileSize);
+                fileSize = channel.size();
+            }
+        }
+        if (fileSize < HEADER_SIZE) {
+            // journal neuf, ou crash pendant l'écriture de l'en-tête
+            channel.truncate(0);
+            writeFully(channel, header(0), 0);
+            channel.force(true);
+            size = HEADER_SIZE;
+            liveBytes = HEADER_SIZE;
+            return;
+        }
+        ByteBuffer header = read(channel, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a review log: " + file);
+        }
+        flags = header.getInt(FLAGS_OFFSET);
+        long position = HEADER_SIZE;
+        long maxId = 0;
+        // un enregistrement n'est écrit qu'après le précédent : le premier invalide marque la fin du journal
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            ByteBuffer recordHeader = read(channel, position, RECORD_HEADER_SIZE);
+            int payloadLength = recordHeader.getInt(0);
+            if (payloadLength < 1 + 8 || payloadLength > MAX_PAYLOAD_SIZE
+                    || position + RECORD_HEADER_SIZE + payloadLength > fileSize) {
+                break;
+            }
+            ByteBuffer payload = read(channel, position + RECORD_HEADER_SIZE, payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, payloadLength);
+            if ((int) crc.getValue() != recordHeader.getInt(4)) break;
+            byte type = payload.get(0);
+            long id = payload.getLong(1);
+            if (type != INSERT && type != UPDATE && type != DELETE) break;
+            apply(live, type, id, new Location(position, RECORD_HEADER_SIZE + payloadLength));
+            maxId = Math.max(maxId, id);
+            position += RECORD_HEADER_SIZE + payloadLength;
+        }
+        if (position < fileSize) {
+            // enregistrement déchiré par un crash : on le coupe avant d'écrire à la suite
+            channel.truncate(position);
+            channel.force(true);
+        }
+        size = position;
+        nextId = maxId + 1;
+        liveBytes = HEADER_SIZE;
+        for (Location location : live.values()) liveBytes += location.length;
+    }
+
+    /**
+     * Réécrit un journal de version 1 avec l'en-tête courant, par un renommage atomique comme la compaction.
+     * Un journal de version 1 qui contient des enregistrements a déjà reçu ses avis initiaux.
+     */
+    private void upgradeFromVersion1(long fileSize) throws IOException {
+        File upgraded = compactedFile(file);
+        try (FileChannel target = new RandomAccessFile(upgraded, "rw").getChannel()) {
+            target.truncate(0);
+            writeFully(target, header(fileSize > VERSION_1_HEADER_SIZE ? FLAG_SEEDED : 0), 0);
+            long position = VERSION_1_HEADER_SIZE;
+            while (position < fileSize) {
+                position += channel.transferTo(position, fileSize - position, target.position(HEADER_SIZE + position - VERSION_1_HEADER_SIZE));
+            }
+            target.force(true);
+        }
+        if (!upgraded.renameTo(file)) {
+            throw new IOException("Cannot rename " + upgraded + " to " + file);
+        }
+        channel.close();
+        channel = new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    // --- écriture ---
+
+    private void append(ByteBuffer record, long id) throws IOException {
+        int length = record.remaining();
+        // en cas d'échec, rien n'est publié : l'enregistrement incomplet sera écrasé par le suivant
+        writeFully(channel, record, size);
+        Location previous = apply(live, record.get(RECORD_HEADER_SIZE), id, new Location(size, length));
+        if (previous != null) liveBytes -= previous.length;
+        if (live.containsKey(id)) liveBytes += length;
+        size += length;
+    }
+
+    /**
+     * Applies a record to a map of live records.
+     *
+     * @return the previous record of the review, null if it had none
+     */
+    private static Location apply(LinkedHashMap<Long, Location> live, byte type, long id, Location location) {
+        if (type == DELETE) {
+            return live.remove(id);
+        }
+        // put sur une clé existante : l'avis garde sa place dans l'ordre d'insertion
+        return live.put(id, location);
+    }
+
+    private static ByteBuffer encode(byte type, long id, @Nullable Review review) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // longueur et CRC, remplis ensuite
+        out.writeInt(0);
+        out.writeByte(type);
+        out.writeLong(id);
+        if (review != null) {
+            out.writeByte(review.getRate());
+            writeString(out, review.getUsername());
+            writeString(out, review.getPicture());
+            writeString(out, review.getComment());
+            for (RatingDimension dimension : RatingDimension.values()) {
+                out.writeByte(review.getScore(dimension));
+            }
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int payloadLength = record.limit() - RECORD_HEADER_SIZE;
+        if (payloadLength > MAX_PAYLOAD_SIZE) {
+            throw new IOException("Review too large for the log: " + payloadLength + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, payloadLength);
+        record.putInt(0, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Review decodeReview(ByteBuffer payload) {
+        int rate = payload.get();
+        Review.Builder builder = new Review.Builder()
+                .setUsername(readString(payload))
+                .setPicture(readString(payload))
+                .setComment(readString(payload))
+                .setRate(rate);
+        // les enregistrements écrits avant les notes par critère s'arrêtent au commentaire
+        if (payload.remaining() >= RatingDimension.values().length) {
+            for (RatingDimension dimension : RatingDimension.values()) {
+                builder.setScore(dimension, payload.get());
+            }
+        }
+        return builder.build();
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) return null;
+        String value = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    // --- fichiers ---
+
+    private static File compactedFile(File file) {
+        return new File(file.getPath() + COMPACT_SUFFIX);
+    }
+
+    private static ByteBuffer header(int flags) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(flags);
+        header.flip();
+        return header;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of the review log");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    private static void notify(@Nullable CompactionListener listener, Step step) {
+        if (listener != null) listener.onStep(step);
+    }
+
+    /**
+     * Where the last record of a review is, in the file.
+     */
+    private static final class Location {
+        final long offset;
+        final int length;
+
+        Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
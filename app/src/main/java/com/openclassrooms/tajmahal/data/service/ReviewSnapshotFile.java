@@ -0,0 +1,210 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+/**
+ * Read-only binary snapshot of the reviews, designed to be memory-mapped.
+ * <p>
+ * Layout of the file (big endian):
+ * <pre>
+ * [HEADER_MAGIC (int)][VERSION (int)]
+ * [record 0][record 1]...[record n-1]   record = rate (byte) + username, picture, comment
+ *                                                (each one: length (int) + UTF-8 bytes)
+ *                                                + one score (byte) per {@link RatingDimension}
+ * [offset 0]...[offset n-1]             one int per record, position of the record in the file
+ * [index position (int)][count (int)][MAGIC (int)]
+ * </pre>
+ * The offset index lives in the file too, so opening a snapshot costs the same heap
+ * whatever the number of reviews: nothing is decoded until {@link Reader#get(int)} is called.
+ * A snapshot is limited to 2 GB, the maximum size of a single mapping.
+ * </p>
+ * Snapshots of version 1 have no header and no scores; they can still be opened, their reviews have no scores.
+ */
+public final class ReviewSnapshotFile {
+
+    /** "TJRV" : marque de fin de fichier pour détecter un snapshot tronqué. */
+    static final int MAGIC = 0x544A5256;
+    /** "TJRH" : début d'un snapshot versionné ; un snapshot de version 1 commence par une note (0 à 5). */
+    static final int HEADER_MAGIC = 0x544A5248;
+    static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 2 * 4;
+    private static final int FOOTER_SIZE = 3 * 4;
+
+    private ReviewSnapshotFile() {
+    }
+
+    /**
+     * Writes the given reviews, in order, to a new snapshot file.
+     * Records are streamed to disk one by one; only the offset index is kept in memory.
+     *
+     * @param file    the destination file, replaced if it already exists
+     * @param reviews the reviews to write, newest first
+     * @return the number of reviews written
+     * @throws IOException if the file cannot be written or exceeds 2 GB
+     */
+    public static int write(File file, Iterator<Review> reviews) throws IOException {
+        int[] offsets = new int[1024];
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            out.writeInt(HEADER_MAGIC);
+            out.writeInt(VERSION);
+            while (reviews.hasNext()) {
+                Review review = reviews.next();
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = checkedPosition(out.size());
+                out.writeByte(review.getRate());
+                writeString(out, review.getUsername());
+                writeString(out, review.getPicture());
+                writeString(out, review.getComment());
+                for (RatingDimension dimension : RatingDimension.values()) {
+                    out.writeByte(review.getScore(dimension));
+                }
+            }
+            int indexPosition = checkedPosition(out.size());
+            for (int i = 0; i < count; i++) {
+                out.writeInt(offsets[i]);
+            }
+            out.writeInt(indexPosition);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            checkedPosition(out.size());
+        }
+        return count;
+    }
+
+    /**
+     * Memory-maps an existing snapshot file.
+     *
+     * @param file the snapshot to open
+     * @return a read-only list decoding each review on access
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Reader open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < FOOTER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid review snapshot size: " + size);
+            }
+            // Le mapping reste valide après la fermeture du channel
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int footer = (int) size - FOOTER_SIZE;
+            int indexPosition = buffer.getInt(footer);
+            int count = buffer.getInt(footer + 4);
+            // version 1 : pas d'en-tête, les enregistrements commencent au début du fichier
+            boolean versioned = footer >= HEADER_SIZE && buffer.getInt(0) == HEADER_MAGIC;
+            if (versioned && buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported review snapshot version " + buffer.getInt(4) + ": " + file);
+            }
+            if (buffer.getInt(footer + 8) != MAGIC || count < 0 || indexPosition < (versioned ? HEADER_SIZE : 0)
+                    || (long) indexPosition + 4L * count != footer) {
+                throw new IOException("Corrupted review snapshot: " + file);
+            }
+            ByteBuffer indexBytes = buffer.duplicate();
+            indexBytes.position(indexPosition);
+            indexBytes.limit(footer);
+            return new Reader(buffer, indexBytes.slice().asIntBuffer(), count, versioned);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int checkedPosition(int position) throws IOException {
+        // DataOutputStream.size() sature à Integer.MAX_VALUE
+        if (position == Integer.MAX_VALUE) {
+            throw new IOException("Review snapshot exceeds 2 GB");
+        }
+        return position;
+    }
+
+    /**
+     * A read-only, random access view over a mapped snapshot.
+     * Each call to {@link #get(int)} decodes a fresh {@link Review} from the mapping,
+     * which is what the {@code RecyclerView} needs when a row is bound.
+     */
+    public static final class Reader extends AbstractList<Review> implements RandomAccess {
+
+        private final ByteBuffer buffer;
+        private final IntBuffer index;
+        private final int count;
+        private final boolean hasScores;
+
+        private Reader(ByteBuffer buffer, IntBuffer index, int count, boolean hasScores) {
+            this.buffer = buffer;
+            this.index = index;
+            this.count = count;
+            this.hasScores = hasScores;
+        }
+
+        @Override
+        public Review get(int position) {
+            if (position < 0 || position >= count) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + count);
+            }
+            // duplicate() : chaque lecture a sa propre position, les lectures concurrentes sont sûres
+            ByteBuffer record = buffer.duplicate();
+            record.position(index.get(position));
+            int rate = record.get();
+            Review.Builder builder = new Review.Builder()
+                    .setUsername(readString(record))
+                    .setPicture(readString(record))
+                    .setComment(readString(record))
+                    .setRate(rate);
+            if (hasScores) {
+                for (RatingDimension dimension : RatingDimension.values()) {
+                    builder.setScore(dimension, record.get());
+                }
+            }
+            return builder.build();
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Decodes only the author of a review, e.g. to index the reviews by author.
+         *
+         * @param position the position of the review, newest first
+         * @return the username of the author, empty if the review had none
+         */
+        public String getUsername(int position) {
+            if (position < 0 || position >= count) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + count);
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.position(index.get(position) + 1); // après la note
+            return readString(record);
+        }
+
+        private static String readString(ByteBuffer record) {
+            byte[] bytes = new byte[record.getInt()];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
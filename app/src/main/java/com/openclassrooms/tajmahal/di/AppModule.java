@@ -1,13 +1,24 @@
 package com.openclassrooms.tajmahal.di;
 
+import android.content.Context;
+import android.util.Log;
+
 import com.openclassrooms.tajmahal.data.service.RestaurantApi;
 import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantLogApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantSnapshotApi;
+import com.openclassrooms.tajmahal.data.service.ReviewCompactionWorker;
+import com.openclassrooms.tajmahal.data.service.ReviewLog;
+
+import java.io.File;
+import java.io.IOException;
 
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
 import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
 import dagger.hilt.components.SingletonComponent;
 
 /**
@@ -19,16 +30,41 @@ import dagger.hilt.components.SingletonComponent;
 @InstallIn(SingletonComponent.class)
 public class AppModule {
 
+    /** Name of the review snapshot file, in the app's files directory. */
+    public static final String REVIEW_SNAPSHOT_FILE = "reviews.snapshot";
+
+    private static final String TAG = "AppModule";
+
     /**
      * Provides a singleton instance of the RestaurantApi. In this example,
      * a fake implementation of the API is being used, which can be helpful
      * during testing or mock scenarios.
+     * <p>
+     * When a review snapshot is present on the device, the reviews are served from it
+     * through a memory-mapped {@link RestaurantSnapshotApi} instead. Otherwise they are
+     * persisted in the review log by a {@link RestaurantLogApi}.
      *
-     * @return A singleton instance of the RestaurantFakeApi.
+     * @param context   The application context, used to locate the review files.
+     * @param reviewLog The review log, provided by {@link ReviewLogModule}.
+     * @return A singleton instance of the RestaurantLogApi, RestaurantSnapshotApi or RestaurantFakeApi.
      */
     @Provides
     @Singleton
-    public RestaurantApi provideRestaurantApi() {
-        return new RestaurantFakeApi();
+    public RestaurantApi provideRestaurantApi(@ApplicationContext Context context, ReviewLog reviewLog) {
+        RestaurantApi fakeApi = new RestaurantFakeApi();
+        File snapshot = new File(context.getFilesDir(), REVIEW_SNAPSHOT_FILE);
+        if (snapshot.exists()) {
+            try {
+                return new RestaurantSnapshotApi(fakeApi, snapshot);
+            } catch (IOException e) {
+                Log.w(TAG, "Review snapshot ignored", e);
+            }
+        }
+        try {
+            return new RestaurantLogApi(fakeApi, reviewLog, () -> ReviewCompactionWorker.schedule(context));
+        } catch (IOException e) {
+            Log.w(TAG, "Review log ignored", e);
+            return fakeApi;
+        }
     }
 }
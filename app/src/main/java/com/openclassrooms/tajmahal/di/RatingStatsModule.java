@@ -0,0 +1,39 @@
+package com.openclassrooms.tajmahal.di;
+
+import android.content.Context;
+
+import com.openclassrooms.tajmahal.AppExecutors;
+import com.openclassrooms.tajmahal.data.repository.RatingStatsFile;
+import com.openclassrooms.tajmahal.ui.widget.RatingWidgetProvider;
+
+import java.io.File;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import dagger.hilt.components.SingletonComponent;
+
+/**
+ * Provides the {@link RatingStatsFile} kept up to date by the repository and read by the
+ * home-screen widget. Kept apart from {@link AppModule} so that tests replacing the API
+ * still get a repository.
+ */
+@Module
+@InstallIn(SingletonComponent.class)
+public class RatingStatsModule {
+
+    /**
+     * @param context      The application context, used to locate the file and refresh the widget.
+     * @param appExecutors The executors; the summary is written on the background one.
+     * @return The singleton rating stats file.
+     */
+    @Provides
+    @Singleton
+    public RatingStatsFile provideRatingStatsFile(@ApplicationContext Context context, AppExecutors appExecutors) {
+        return new RatingStatsFile(new File(context.getFilesDir(), RatingStatsFile.FILE_NAME),
+                appExecutors.background(), stats -> RatingWidgetProvider.refresh(context));
+    }
+}
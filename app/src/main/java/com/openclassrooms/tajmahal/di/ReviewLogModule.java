@@ -0,0 +1,63 @@
+package com.openclassrooms.tajmahal.di;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.openclassrooms.tajmahal.data.service.ReviewCompactionWorker;
+import com.openclassrooms.tajmahal.data.service.ReviewLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import dagger.hilt.components.SingletonComponent;
+
+/**
+ * Provides the {@link ReviewLog}, shared by the {@link AppModule} API and the
+ * {@link ReviewCompactionWorker}. Kept apart from {@link AppModule} so that tests replacing
+ * the API still have a log for the worker.
+ */
+@Module
+@InstallIn(SingletonComponent.class)
+public class ReviewLogModule {
+
+    /** Name of the review log file, in the app's files directory. */
+    public static final String REVIEW_LOG_FILE = "reviews.log";
+
+    private static final String TAG = "ReviewLogModule";
+
+    /**
+     * Provides the review log, recovered from a crash if needed.
+     * A file that is not a valid log is set aside and a new log is started.
+     *
+     * @param context The application context, used to locate the review log.
+     * @return The singleton review log, also used by the {@link ReviewCompactionWorker}.
+     */
+    @Provides
+    @Singleton
+    public ReviewLog provideReviewLog(@ApplicationContext Context context) {
+        File file = new File(context.getFilesDir(), REVIEW_LOG_FILE);
+        try {
+            return ReviewLog.open(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Review log corrupted, starting a new one", e);
+        }
+        // gardé de côté plutôt que supprimé, pour pouvoir l'examiner
+        File corrupted = new File(file.getPath() + ".corrupted");
+        if (!file.renameTo(corrupted)) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        try {
+            return ReviewLog.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the review log", e);
+        }
+    }
+}
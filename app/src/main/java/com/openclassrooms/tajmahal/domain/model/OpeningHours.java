@@ -0,0 +1,106 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Opening hours of a restaurant, parsed from the text shown on the details screen,
+ * e.g. "11h30 - 14h30・18h30 - 22h00".
+ * <p>
+ * The hours are kept as ranges of minutes of the day, so checking whether a restaurant is open
+ * at a given time does not parse the text again. A range ending before it starts goes past
+ * midnight ("19h00 - 01h00"). Hours that cannot be parsed give no range: the restaurant is
+ * then never considered open.
+ * </p>
+ * Immutable.
+ */
+public final class OpeningHours {
+
+    /** Heures sans aucun créneau reconnu. */
+    public static final OpeningHours NEVER = new OpeningHours(new int[0]);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // "11h30 - 14h30", "11h - 14h", "11:30-14:30"
+    private static final Pattern RANGE = Pattern.compile("(\\d{1,2})\\s*[h:]\\s*(\\d{2})?\\s*[-–]\\s*(\\d{1,2})\\s*[h:]\\s*(\\d{2})?");
+
+    // créneaux à la suite : [début0, fin0, début1, fin1...] en minutes depuis minuit
+    private final int[] ranges;
+
+    private OpeningHours(int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Parses opening hours, ranges being separated by "・", "," or ";".
+     *
+     * @param hours the opening hours as displayed, may be null
+     * @return the parsed hours, {@link #NEVER} if no range is recognized
+     */
+    public static OpeningHours parse(String hours) {
+        if (hours == null) return NEVER;
+        List<Integer> ranges = new ArrayList<>();
+        for (String part : hours.split("[・,;]")) {
+            Matcher matcher = RANGE.matcher(part.trim());
+            if (!matcher.matches()) continue;
+            int start = minuteOfDay(matcher.group(1), matcher.group(2));
+            int end = minuteOfDay(matcher.group(3), matcher.group(4));
+            if (start < 0 || end < 0) continue;
+            ranges.add(start);
+            ranges.add(end);
+        }
+        if (ranges.isEmpty()) return NEVER;
+        int[] array = new int[ranges.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ranges.get(i);
+        }
+        return new OpeningHours(array);
+    }
+
+    private static int minuteOfDay(String hour, String minute) {
+        int h = Integer.parseInt(hour);
+        int m = minute == null ? 0 : Integer.parseInt(minute);
+        // "24h00" : fermeture à minuit
+        if (h > 24 || m > 59 || (h == 24 && m != 0)) return -1;
+        return h * 60 + m;
+    }
+
+    /**
+     * @param minuteOfDay the time, in minutes since midnight, from 0 to 1439
+     * @return true if the time is in one of the ranges, start included and end excluded
+     */
+    public boolean isOpenAt(int minuteOfDay) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            int start = ranges[i];
+            int end = ranges[i + 1];
+            if (start <= end) {
+                if (minuteOfDay >= start && minuteOfDay < end) return true;
+            } else if (minuteOfDay >= start || minuteOfDay < end % MINUTES_PER_DAY) {
+                // créneau qui passe minuit
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if no range was recognized.
+     */
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(ranges, ((OpeningHours) o).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+}
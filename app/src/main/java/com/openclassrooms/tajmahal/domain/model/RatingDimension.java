@@ -0,0 +1,22 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+/**
+ * The aspects of a visit a review can rate on their own, in addition to its overall rate.
+ * <p>
+ * Each dimension is scored from 1 to {@link #MAX_SCORE}; 0 means the reviewer did not rate it.
+ * See {@link Review#getScore(RatingDimension)}.
+ * </p>
+ */
+public enum RatingDimension {
+    /** The dishes. */
+    FOOD,
+    /** The staff and the waiting time. */
+    SERVICE,
+    /** The room, the noise, the decoration. */
+    AMBIENCE,
+    /** The value for money. */
+    VALUE;
+
+    /** The highest score of a dimension. */
+    public static final int MAX_SCORE = 5;
+}
@@ -8,6 +8,8 @@ import java.util.Objects;
  * <p>
  * This class models a restaurant with its name, type (e.g., Indian, Italian), operational hours,
  * address, website, phone number, and availability of dine-in and take-away options.
+ * A restaurant of a chain also has the coordinates of its location, used to find the nearest ones;
+ * they are {@link Double#NaN} when unknown.
  * </p>
  * <p>
  * For beginners: A class is a blueprint for creating objects in Java. Objects are instances of a class.
@@ -30,6 +32,9 @@ public class Restaurant {
     private String phoneNumber;
     private boolean dineIn;
     private boolean takeAway;
+    // coordonnées en degrés décimaux (WGS 84), NaN si inconnues
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
 
     /**
      * Constructor for the Restaurant class.
@@ -54,17 +59,37 @@ public class Restaurant {
         this.takeAway = takeAway;
     }
 
+    /**
+     * Constructor for a restaurant whose location is known.
+     *
+     * @param name        The name of the restaurant.
+     * @param type        The type or cuisine of the restaurant (e.g., Indian, Italian).
+     * @param hours       The operational hours of the restaurant.
+     * @param address     The address of the restaurant.
+     * @param website     The website URL of the restaurant.
+     * @param phoneNumber The contact phone number of the restaurant.
+     * @param dineIn      A boolean indicating if dine-in is available.
+     * @param takeAway    A boolean indicating if take-away service is available.
+     * @param latitude    The latitude of the restaurant, in degrees, from -90 to 90.
+     * @param longitude   The longitude of the restaurant, in degrees, from -180 to 180.
+     */
+    public Restaurant(String name, String type, String hours, String address, String website, String phoneNumber,
+                      boolean dineIn, boolean takeAway, double latitude, double longitude) {
+        this(name, type, hours, address, website, phoneNumber, dineIn, takeAway);
+        setLocation(latitude, longitude);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Restaurant that = (Restaurant) o;
-        return dineIn == that.dineIn && takeAway == that.takeAway && Objects.equals(name, that.name) && Objects.equals(type, that.type) && Objects.equals(hours, that.hours) && Objects.equals(address, that.address) && Objects.equals(website, that.website) && Objects.equals(phoneNumber, that.phoneNumber);
+        return dineIn == that.dineIn && takeAway == that.takeAway && Objects.equals(name, that.name) && Objects.equals(type, that.type) && Objects.equals(hours, that.hours) && Objects.equals(address, that.address) && Objects.equals(website, that.website) && Objects.equals(phoneNumber, that.phoneNumber) && Double.compare(latitude, that.latitude) == 0 && Double.compare(longitude, that.longitude) == 0;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, type, hours, address, website, phoneNumber, dineIn, takeAway);
+        return Objects.hash(name, type, hours, address, website, phoneNumber, dineIn, takeAway, latitude, longitude);
     }
 
     /**
@@ -136,5 +161,39 @@ public class Restaurant {
         this.takeAway = takeAway;
     }
 
+    /**
+     * @return true if the coordinates of the restaurant are known.
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * @return the latitude in degrees, NaN if unknown.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the longitude in degrees, NaN if unknown.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @param latitude  the latitude in degrees, from -90 to 90
+     * @param longitude the longitude in degrees, from -180 to 180
+     * @throws IllegalArgumentException if a coordinate is out of range
+     */
+    public void setLocation(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("invalid location " + latitude + ", " + longitude);
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
 
 }
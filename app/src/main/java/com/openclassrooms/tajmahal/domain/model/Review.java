@@ -1,5 +1,7 @@
 package com.openclassrooms.tajmahal.domain.model;
 
+import androidx.annotation.Nullable;
+
 import java.util.Objects;
 
 
@@ -7,23 +9,62 @@ import java.util.Objects;
  * Represents a user review.
  * This class encapsulates all the details of a review, including the username of the reviewer,
  * their profile picture, the comment they left, and the rating they gave.
+ * <p>
+ * A review is immutable: it is built once, usually through a {@link Builder}, and never changes.
+ * Its hash code is therefore computed only once and cached, which makes {@link #equals(Object)}
+ * cheap when two reviews whose hash codes are already cached differ, typically an edited review
+ * compared with its previous version: the hash codes are compared before any string. Equal but
+ * distinct reviews still compare their strings, so a diff made mostly of additions and removals
+ * costs about the same as before.
+ * </p>
+ * <p>
+ * Besides its overall rate, a review can score each {@link RatingDimension} (food, service...).
+ * The scores are packed into a single {@code int}, {@value #SCORE_BITS} bits per dimension:
+ * a review without them costs no more memory than before.
+ * </p>
+ * <p>
+ * The comment can also be kept compressed by the store holding the review, see
+ * {@link #withStoredComment(String, String, StoredComment, int)}: it is then decoded each time
+ * {@link #getComment()} is called, and the hash code is computed without decoding it.
+ * </p>
+ * Example:
+ * <pre>
+ * Review review = new Review.Builder()
+ *         .setUsername("Manon Garcia")
+ *         .setPicture("https://example.com/avatar.jpg")
+ *         .setComment("Très bon restaurant !")
+ *         .setRate(5)
+ *         .build();
+ * </pre>
  */
-public class Review {
+public final class Review {
+
+    private static final int SCORE_BITS = 4;
+    private static final int SCORE_MASK = (1 << SCORE_BITS) - 1;
 
     /** The name of the user who left the review. */
-    private String username;
+    private final String username;
 
     /** The profile picture of the user who left the review. */
-    private String picture;
+    private final String picture;
+
+    /** The comment or feedback given by the user, null when it is stored. */
+    private final String comment;
 
-    /** The comment or feedback given by the user. */
-    private String comment;
+    /** The comment kept in another form, e.g. compressed, or null. */
+    private final StoredComment storedComment;
 
     /** The rating provided by the user. Typically out of 5 or 10. */
-    private int rate;
+    private final int rate;
+
+    /** The score of each dimension, {@value #SCORE_BITS} bits each in the order of {@link RatingDimension}; 0 = not rated. */
+    private final int scores;
+
+    /** Cached hash code, 0 until first computed (same approach as {@link String#hashCode()}). */
+    private int hash;
 
     /**
-     * Constructs a new Review instance.
+     * Constructs a new Review instance. Shorthand for the {@link Builder}.
      *
      * @param username the name of the user leaving the review
      * @param picture  the profile picture URL or path of the user
@@ -31,64 +72,80 @@ public class Review {
      * @param rate     the rating given by the user
      */
     public Review(String username, String picture, String comment, int rate) {
+        this(username, picture, comment, null, rate, 0);
+    }
+
+    private Review(String username, String picture, String comment, StoredComment storedComment, int rate, int scores) {
         this.username = username;
         this.picture = picture;
         this.comment = comment;
+        this.storedComment = storedComment;
         this.rate = rate;
+        this.scores = scores;
     }
 
     /**
-     * Returns the username of the reviewer.
+     * Creates a review whose comment is decoded only when it is read.
+     * It is equal to the review holding the decoded comment as a String.
      *
-     * @return a String representing the username
+     * @param username      the name of the user leaving the review
+     * @param picture       the profile picture URL or path of the user
+     * @param storedComment the comment, e.g. compressed
+     * @param rate          the rating given by the user
+     * @return the review
      */
-    public String getUsername() {
-        return username;
+    public static Review withStoredComment(String username, String picture, StoredComment storedComment, int rate) {
+        return new Review(username, picture, null, storedComment, rate, 0);
     }
 
     /**
-     * Sets or updates the username of the reviewer.
+     * Returns a copy of this review, dimension scores included, whose comment is decoded only when it is read.
+     * It is equal to this review.
      *
-     * @param username the new username to be set
+     * @param storedComment the comment of this review, e.g. compressed
+     * @return the review
      */
-    public void setUsername(String username) {
-        this.username = username;
+    public Review withStoredComment(StoredComment storedComment) {
+        return new Review(username, picture, null, storedComment, rate, scores);
     }
 
     /**
-     * Returns the profile picture of the reviewer.
+     * Returns the username of the reviewer.
      *
-     * @return a String representing the picture's URL or path
+     * @return a String representing the username
      */
-    public String getPicture() {
-        return picture;
+    public String getUsername() {
+        return username;
     }
 
     /**
-     * Sets or updates the profile picture of the reviewer.
+     * Returns the profile picture of the reviewer.
      *
-     * @param picture the new profile picture's URL or path to be set
+     * @return a String representing the picture's URL or path
      */
-    public void setPicture(String picture) {
-        this.picture = picture;
+    public String getPicture() {
+        return picture;
     }
 
     /**
      * Returns the comment left by the reviewer.
+     * A stored comment is decoded by this call.
      *
      * @return a String containing the feedback or comment
      */
     public String getComment() {
-        return comment;
+        return storedComment != null ? storedComment.decode() : comment;
     }
 
     /**
-     * Sets or updates the comment left by the reviewer.
+     * Returns the stored form of the comment, when the review was created with
+     * {@link #withStoredComment(String, String, StoredComment, int)}.
      *
-     * @param comment the new comment or feedback to be set
+     * @return the stored comment, or null when the comment is kept as a String
      */
-    public void setComment(String comment) {
-        this.comment = comment;
+    @Nullable
+    public StoredComment getStoredComment() {
+        return storedComment;
     }
 
     /**
@@ -101,17 +158,43 @@ public class Review {
     }
 
     /**
-     * Sets or updates the rating given by the reviewer.
+     * Returns the score given to one aspect of the visit.
      *
-     * @param rate the new rating value to be set
+     * @param dimension the rated aspect
+     * @return the score, from 1 to {@link RatingDimension#MAX_SCORE}, or 0 if the reviewer did not rate it
      */
-    public void setRate(int rate) {
-        this.rate = rate;
+    public int getScore(RatingDimension dimension) {
+        return (scores >>> (dimension.ordinal() * SCORE_BITS)) & SCORE_MASK;
+    }
+
+    /**
+     * @return true if at least one {@link RatingDimension} is scored.
+     */
+    public boolean hasScores() {
+        return scores != 0;
+    }
+
+    /**
+     * Returns a builder initialized with the values of this review,
+     * to create a modified copy of it.
+     *
+     * @return a new builder
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .setUsername(username)
+                .setPicture(picture)
+                .setComment(getComment())
+                .setRate(rate)
+                .setScores(scores);
     }
 
     /**
      * Compares this review with another object for equality.
      * Two reviews are considered equal if all their fields are identical.
+     * Identity is checked first, then the hash codes if both are already cached: the strings are
+     * only compared when the two reviews are very likely equal. A hash code is never computed here,
+     * which would read every string of a review compared once, e.g. freshly decoded.
      *
      * @param o the object to be compared with
      * @return true if the objects are equal, false otherwise
@@ -121,16 +204,106 @@ public class Review {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Review review = (Review) o;
-        return rate == review.rate && Objects.equals(username, review.username) && Objects.equals(picture, review.picture) && Objects.equals(comment, review.comment);
+        // seulement des hash déjà calculés (0 : pas encore) : les calculer coûterait plus que comparer les chaînes
+        int h = hash;
+        int otherHash = review.hash;
+        if (h != 0 && otherHash != 0 && h != otherHash) return false;
+        return rate == review.rate && scores == review.scores && Objects.equals(username, review.username) && Objects.equals(picture, review.picture) && Objects.equals(getComment(), review.getComment());
     }
 
     /**
      * Generates a hash code for this review based on its fields.
+     * The value is computed on the first call only, without decoding a stored comment.
      *
      * @return the generated hash code
      */
     @Override
     public int hashCode() {
-        return Objects.hash(username, picture, comment, rate);
+        int h = hash;
+        if (h == 0) {
+            // même calcul que Objects.hash(username, picture, comment, rate)
+            int commentHash = storedComment != null ? storedComment.textHashCode() : Objects.hashCode(comment);
+            h = 31 * (31 * (31 * (31 + Objects.hashCode(username)) + Objects.hashCode(picture)) + commentHash) + rate;
+            // sans notes par critère, le code reste celui d'avant leur ajout
+            if (scores != 0) h = 31 * h + scores;
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Builder for {@link Review}. All the values are optional;
+     * missing strings stay {@code null}, the rate and the dimension scores default to 0.
+     */
+    public static final class Builder {
+
+        private String username;
+        private String picture;
+        private String comment;
+        private int rate;
+        private int scores;
+
+        /**
+         * @param username the name of the user leaving the review
+         * @return this builder
+         */
+        public Builder setUsername(String username) {
+            this.username = username;
+            return this;
+        }
+
+        /**
+         * @param picture the profile picture URL or path of the user
+         * @return this builder
+         */
+        public Builder setPicture(String picture) {
+            this.picture = picture;
+            return this;
+        }
+
+        /**
+         * @param comment the feedback or comment from the user
+         * @return this builder
+         */
+        public Builder setComment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        /**
+         * @param rate the rating given by the user
+         * @return this builder
+         */
+        public Builder setRate(int rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * @param dimension the rated aspect of the visit
+         * @param score     the score, from 1 to {@link RatingDimension#MAX_SCORE}, or 0 to remove it
+         * @return this builder
+         * @throws IllegalArgumentException if the score is out of range
+         */
+        public Builder setScore(RatingDimension dimension, int score) {
+            if (score < 0 || score > RatingDimension.MAX_SCORE) {
+                throw new IllegalArgumentException("score out of range: " + score);
+            }
+            int shift = dimension.ordinal() * SCORE_BITS;
+            scores = (scores & ~(SCORE_MASK << shift)) | (score << shift);
+            return this;
+        }
+
+        private Builder setScores(int scores) {
+            this.scores = scores;
+            return this;
+        }
+
+        /**
+         * @return a new immutable review with the values of this builder
+         */
+        public Review build() {
+            return new Review(username, picture, comment, null, rate, scores);
+        }
     }
 }
@@ -0,0 +1,20 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+/**
+ * The comment of a review kept in another form than a {@link String}, e.g. compressed,
+ * and decoded only when it is read.
+ *
+ * @see Review#withStoredComment(String, String, StoredComment, int)
+ */
+public interface StoredComment {
+
+    /**
+     * @return the text of the comment
+     */
+    String decode();
+
+    /**
+     * @return the {@link String#hashCode()} of the text, so reviews are hashed without decoding it
+     */
+    int textHashCode();
+}
@@ -0,0 +1,307 @@
+package com.openclassrooms.tajmahal.ui;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.drawable.RoundedBitmapDrawable;
+import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.transition.Transition;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * In-memory cache of decoded avatars, shared by every screen showing avatars.
+ * <p>
+ * Avatars are keyed by URL and target size, so each distinct avatar is decoded once per session,
+ * however many reviews (or the logged-in user) point to it. A caller {@link #acquire acquires}
+ * an avatar and must {@link Lease#release() release} it when the view stops showing it:
+ * <ul>
+ *     <li>an avatar is never evicted while it is acquired;</li>
+ *     <li>released avatars stay cached, least recently used first out, as long as the total size
+ *     of the cached bitmaps fits in the byte budget.</li>
+ * </ul>
+ * Bitmaps are loaded by Glide and handed back to it on eviction, so they can be reused by its pool.
+ * </p>
+ * <p>
+ * Avatars are opaque photos: they are decoded as square RGB_565 bitmaps (2 bytes per pixel instead
+ * of 4), center-cropped to the view size, and drawn as circles by the views
+ * (see {@link #asCircle(Resources, Bitmap)}). A circle-cropped bitmap would need an alpha channel.
+ * Unused avatars are dropped when the system asks the app to trim its memory.
+ * </p>
+ * Must be used from the main thread.
+ */
+@Singleton
+public class AvatarCache {
+
+    /**
+     * Receives an avatar once it is decoded: a square bitmap, to draw as a circle.
+     */
+    public interface Callback {
+        void onAvatarReady(@NonNull Bitmap avatar);
+    }
+
+    // Pour le rapport : bitmaps qu'aurait décodés un chargement Glide par ligne, en ARGB_8888
+    private static final int DEFAULT_BYTES_PER_PIXEL = 4;
+
+    private final RequestManager glide;
+    private final long budgetBytes;
+
+    // ordre d'accès : les premières entrées sont les moins récemment utilisées
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(32, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Constructs the cache with a budget of 1/32 of the heap, at most 4 MB.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public AvatarCache(@ApplicationContext Context context) {
+        this(context, Math.min(4L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32));
+    }
+
+    /**
+     * @param context     the application context
+     * @param budgetBytes maximum total size of the cached avatars, referenced ones excepted
+     */
+    public AvatarCache(Context context, long budgetBytes) {
+        this.glide = Glide.with(context.getApplicationContext());
+        this.budgetBytes = budgetBytes;
+        context.getApplicationContext().registerComponentCallbacks(new TrimCallbacks());
+    }
+
+    /**
+     * Wraps an avatar into a drawable showing it as a circle, for an {@code ImageView}.
+     *
+     * @param resources the resources of the view
+     * @param avatar    an avatar received from this cache
+     * @return the circular drawable
+     */
+    public static Drawable asCircle(Resources resources, Bitmap avatar) {
+        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(resources, avatar);
+        drawable.setCircular(true);
+        return drawable;
+    }
+
+    /**
+     * Acquires the avatar at the given URL, decoding it only if it is not cached yet.
+     * The callback is called immediately when the avatar is cached, later otherwise,
+     * and never after the lease is released.
+     *
+     * @param url      the avatar URL
+     * @param sizePx   the size of the view displaying it, in pixels
+     * @param callback receives the circle-cropped avatar
+     * @return the lease to release when the avatar is no longer displayed
+     */
+    public Lease acquire(String url, int sizePx, Callback callback) {
+        String key = sizePx + "@" + url;
+        Entry entry = entries.get(key);
+        boolean load = entry == null;
+        if (load) {
+            entry = new Entry(key, sizePx);
+            entries.put(key, entry);
+        }
+        // bail pris avant de lancer Glide : sur un succès du cache mémoire, Glide livre l'avatar pendant into(),
+        // l'entrée doit alors déjà être utilisée (pour ne pas être retirée) et le bail déjà en attente
+        Lease lease = new Lease(entry, callback);
+        entry.refCount++;
+        if (entry.bitmap != null) {
+            callback.onAvatarReady(entry.bitmap);
+        } else {
+            entry.waiting.add(lease);
+        }
+        if (load) {
+            glide.asBitmap()
+                    .load(url)
+                    .format(DecodeFormat.PREFER_RGB_565) // photo opaque : pas besoin de canal alpha
+                    .centerCrop()
+                    .override(sizePx)
+                    .into(entry);
+        }
+        return lease;
+    }
+
+    /**
+     * Drops every avatar that is not currently acquired, e.g. when the system is low on memory.
+     */
+    public void evictUnused() {
+        trimTo(0);
+    }
+
+    /**
+     * @return the total size of the decoded avatars currently cached, in bytes.
+     */
+    public long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Estimates the heap saved by this cache for the avatars currently displayed, compared to
+     * each view loading its own ARGB_8888 copy of its avatar (the Glide default).
+     *
+     * @return the estimated saving, in bytes; negative when cached unused avatars cost more.
+     */
+    public long getHeapSavedBytes() {
+        long perViewBytes = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.bitmap != null) {
+                perViewBytes += (long) entry.refCount * entry.sizePx * entry.sizePx * DEFAULT_BYTES_PER_PIXEL;
+            }
+        }
+        return perViewBytes - cachedBytes;
+    }
+
+    /**
+     * @return the number of avatars cached or being loaded.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void release(Entry entry) {
+        entry.refCount--;
+        if (entry.refCount > 0) return;
+        if (entry.bitmap == null) {
+            // plus personne n'attend cet avatar : on annule le chargement
+            remove(entry);
+        } else {
+            trimTo(budgetBytes);
+        }
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Entry> iterator = new ArrayList<>(entries.values()).iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.refCount == 0 && entry.bitmap != null) {
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entry.evicted = true;
+        entries.remove(entry.key, entry);
+        if (entry.bitmap != null) {
+            cachedBytes -= entry.bitmap.getAllocationByteCount();
+            entry.bitmap = null;
+        }
+        glide.clear(entry); // rend le bitmap à Glide
+    }
+
+    /**
+     * A reference to a cached avatar, to release when the view no longer displays it.
+     */
+    public final class Lease {
+        private final Entry entry;
+        private final Callback callback;
+        private boolean released;
+
+        private Lease(Entry entry, Callback callback) {
+            this.entry = entry;
+            this.callback = callback;
+        }
+
+        /**
+         * Releases the avatar. The view must stop drawing the bitmap first, since it can be
+         * handed back to Glide and reused. Calling this method several times has no effect.
+         */
+        public void release() {
+            if (released) return;
+            released = true;
+            entry.waiting.remove(this);
+            AvatarCache.this.release(entry);
+        }
+    }
+
+    /**
+     * A cached avatar; also the Glide target loading it.
+     */
+    private final class Entry extends CustomTarget<Bitmap> {
+        final String key;
+        final int sizePx;
+        final List<Lease> waiting = new ArrayList<>(1);
+        Bitmap bitmap;
+        int refCount;
+        boolean evicted;
+
+        Entry(String key, int sizePx) {
+            super(sizePx, sizePx);
+            this.key = key;
+            this.sizePx = sizePx;
+        }
+
+        @Override
+        public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+            if (evicted) return;
+            bitmap = resource;
+            cachedBytes += resource.getAllocationByteCount();
+            List<Lease> leases = new ArrayList<>(waiting);
+            waiting.clear();
+            for (Lease lease : leases) {
+                lease.callback.onAvatarReady(resource);
+            }
+            trimTo(budgetBytes);
+        }
+
+        @Override
+        public void onLoadFailed(@Nullable Drawable errorDrawable) {
+            // les vues gardent leur image actuelle ; un prochain acquire retentera le chargement
+            waiting.clear();
+            evicted = true;
+            entries.remove(key, this);
+        }
+
+        @Override
+        public void onLoadCleared(@Nullable Drawable placeholder) {
+            // appelé quand Glide reprend le bitmap : il ne doit plus être dessiné
+            if (bitmap != null) {
+                cachedBytes -= bitmap.getAllocationByteCount();
+                bitmap = null;
+            }
+            evicted = true;
+            entries.remove(key, this);
+        }
+    }
+
+    /**
+     * Drops the unused avatars when the app goes to the background or the system runs low on memory.
+     */
+    private final class TrimCallbacks implements ComponentCallbacks2 {
+
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                evictUnused();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            evictUnused();
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    }
+}
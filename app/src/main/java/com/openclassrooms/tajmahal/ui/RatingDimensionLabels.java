@@ -0,0 +1,35 @@
+package com.openclassrooms.tajmahal.ui;
+
+import androidx.annotation.StringRes;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+
+/**
+ * Display names of the {@link RatingDimension}s, shared by the details screen and the review form.
+ */
+public final class RatingDimensionLabels {
+
+    private RatingDimensionLabels() {
+    }
+
+    /**
+     * @param dimension a rated aspect
+     * @return the string resource naming it
+     */
+    @StringRes
+    public static int of(RatingDimension dimension) {
+        switch (dimension) {
+            case FOOD:
+                return R.string.dimension_food;
+            case SERVICE:
+                return R.string.dimension_service;
+            case AMBIENCE:
+                return R.string.dimension_ambience;
+            case VALUE:
+                return R.string.dimension_value;
+            default:
+                throw new IllegalArgumentException("Unknown dimension " + dimension);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.tajmahal.ui.nearby;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import com.openclassrooms.tajmahal.adapter.NearbyRestaurantAdapter;
+import com.openclassrooms.tajmahal.databinding.FragmentNearbyBinding;
+
+import dagger.hilt.android.AndroidEntryPoint;
+
+/**
+ * Fragment listing the other restaurants of the chain that are open now, nearest first.
+ * Opened from the details screen; uses {@link NearbyViewModel} to search them.
+ */
+@AndroidEntryPoint
+public class NearbyFragment extends Fragment {
+
+    private FragmentNearbyBinding binding;
+    private NearbyViewModel nearbyViewModel;
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        binding = FragmentNearbyBinding.inflate(inflater, container, false);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        nearbyViewModel = new ViewModelProvider(this).get(NearbyViewModel.class);
+
+        NearbyRestaurantAdapter adapter = new NearbyRestaurantAdapter();
+        binding.rvNearby.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.rvNearby.setAdapter(adapter);
+        nearbyViewModel.getNearbyRestaurants().observe(getViewLifecycleOwner(), neighbors -> {
+            if (neighbors == null) return; // recherche en cours
+            adapter.submitList(neighbors);
+            binding.tvNearbyEmpty.setVisibility(neighbors.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+        // liste gardée à la rotation, recherchée de nouveau à l'ouverture de l'écran (ou après la mort du processus)
+        if (savedInstanceState == null || nearbyViewModel.getNearbyRestaurants().getValue() == null) {
+            nearbyViewModel.search();
+        }
+
+        binding.ivGoBack.setOnClickListener(v -> requireActivity().getSupportFragmentManager().popBackStack());
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+
+    public static NearbyFragment newInstance() {
+        return new NearbyFragment();
+    }
+}
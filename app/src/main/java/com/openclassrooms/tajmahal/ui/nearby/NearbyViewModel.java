@@ -0,0 +1,79 @@
+package com.openclassrooms.tajmahal.ui.nearby;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.openclassrooms.tajmahal.AppExecutors;
+import com.openclassrooms.tajmahal.data.repository.RestaurantLocationIndex;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
+
+/**
+ * Prepares the list of the {@link NearbyFragment}: the other restaurants of the chain that are
+ * open now, nearest to the restaurant displayed by the details screen first.
+ * <p>
+ * The search runs on a background thread: the first one builds the spatial index of the repository.
+ * The list is kept across configuration changes; it is searched again when the screen is reopened.
+ * </p>
+ */
+@HiltViewModel
+public class NearbyViewModel extends ViewModel {
+
+    // Nombre de restaurants affichés
+    static final int NEARBY_COUNT = 10;
+
+    private final RestaurantRepository restaurantRepository;
+    private final AppExecutors appExecutors;
+    private final MutableLiveData<List<RestaurantLocationIndex.Neighbor>> nearbyRestaurants = new MutableLiveData<>();
+
+    /**
+     * @param restaurantRepository the repository indexing the restaurants of the chain
+     * @param appExecutors         the executors used to search off the main thread
+     */
+    @Inject
+    public NearbyViewModel(RestaurantRepository restaurantRepository, AppExecutors appExecutors) {
+        this.restaurantRepository = restaurantRepository;
+        this.appExecutors = appExecutors;
+    }
+
+    /**
+     * @return LiveData holding the open restaurants, nearest first; null until the first search completes.
+     */
+    public LiveData<List<RestaurantLocationIndex.Neighbor>> getNearbyRestaurants() {
+        return nearbyRestaurants;
+    }
+
+    /**
+     * Searches the restaurants open now around the displayed restaurant.
+     */
+    public void search() {
+        Calendar now = Calendar.getInstance();
+        int minuteOfDay = now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE);
+        appExecutors.background().execute(() -> {
+            Restaurant origin = restaurantRepository.getRestaurant().getValue();
+            if (origin == null || !origin.hasLocation()) {
+                nearbyRestaurants.postValue(new ArrayList<>());
+                return;
+            }
+            // un de plus : le restaurant affiché, à distance nulle, est retiré de la liste
+            List<RestaurantLocationIndex.Neighbor> neighbors = restaurantRepository.getNearestRestaurants(
+                    origin.getLatitude(), origin.getLongitude(), NEARBY_COUNT + 1, minuteOfDay);
+            List<RestaurantLocationIndex.Neighbor> others = new ArrayList<>(neighbors.size());
+            for (RestaurantLocationIndex.Neighbor neighbor : neighbors) {
+                if (!neighbor.getRestaurant().equals(origin) && others.size() < NEARBY_COUNT) {
+                    others.add(neighbor);
+                }
+            }
+            nearbyRestaurants.postValue(others);
+        });
+    }
+}
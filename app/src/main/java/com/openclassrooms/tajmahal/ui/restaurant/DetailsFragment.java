@@ -4,23 +4,42 @@ import android.content.Intent;
 import android.graphics.Color;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
 
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.widget.Toast;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.openclassrooms.tajmahal.BuildConfig;
 import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.adapter.ReviewAdapter;
+import com.openclassrooms.tajmahal.data.repository.RatingBreakdown;
 import com.openclassrooms.tajmahal.databinding.FragmentDetailsBinding;
+import com.openclassrooms.tajmahal.databinding.ItemDimensionScoreBinding;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+import com.openclassrooms.tajmahal.ui.RatingDimensionLabels;
+import com.openclassrooms.tajmahal.ui.nearby.NearbyFragment;
 import com.openclassrooms.tajmahal.ui.reviews.ReviewFragment;
+import com.openclassrooms.tajmahal.ui.reviews.ReviewListViewModel;
+
+import java.util.Locale;
+
+import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 
@@ -35,9 +54,18 @@ import dagger.hilt.android.AndroidEntryPoint;
 @AndroidEntryPoint
 public class DetailsFragment extends Fragment {
 
+    private static final String TAG = "DetailsFragment";
+
     private FragmentDetailsBinding binding;
 
     private DetailsViewModel detailsViewModel;
+    private ReviewListViewModel reviewListViewModel;
+    private ReviewAdapter topReviewsAdapter;
+
+    @Inject
+    AvatarCache avatarCache; // avatars partagés avec l'écran des avis
+    // début de la création de la vue, pour mesurer le temps jusqu'à la première frame (debug)
+    private long viewCreationStartMillis;
 
     /**
      * This method is called when the fragment is first created.
@@ -64,11 +92,9 @@ public class DetailsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         setupUI(); // Sets up user interface components.
         setupViewModel(); // Prepares the ViewModel for the fragment.
-        detailsViewModel.getTajMahalRestaurant().observe(requireActivity(), this::updateUIWithRestaurant); // Observes changes in the restaurant data and updates the UI accordingly.
-        //updateUIWithReviews();
-        detailsViewModel.getReviews().observe(getViewLifecycleOwner(), reviews -> {
-            updateUIWithReviews();
-        });
+        detailsViewModel.getTajMahalRestaurant().observe(getViewLifecycleOwner(), this::updateUIWithRestaurant); // Observes changes in the restaurant data and updates the UI accordingly.
+        detailsViewModel.getUiState().observe(getViewLifecycleOwner(), this::updateUIWithReviews); // Binds the review summary, computed off the main thread.
+        setupTopReviews();
         setupNavigation();
 
 
@@ -76,28 +102,61 @@ public class DetailsFragment extends Fragment {
 
     /**
      * Updates the UI components with review statistics
-     * Displays the average rating, rating bar and total review count
+     * Displays the average rating, rating bar, total review count, the rating distribution, the keywords
+     * and the scores of each rated aspect
+     *
+     * @param state The review summary, already computed by the ViewModel.
      */
-
-    private void updateUIWithReviews() {
-        float avgRating = detailsViewModel.getAverageRating();
-        int reviewCount = detailsViewModel.getReviewCount();
-
-        binding.tvAverageRating.setText(String.format("%.1f", avgRating));
-        binding.ratingBar.setRating(avgRating);
-        binding.tvReviewCount.setText(String.format("(%d)", reviewCount));
+    private void updateUIWithReviews(DetailsUiState state) {
+        binding.tvAverageRating.setText(state.getAverageRatingText());
+        binding.ratingBar.setRating(state.getAverageRating());
+        binding.tvReviewCount.setText(state.getReviewCountText());
 
         //barre de progression
-        int[] distribution = detailsViewModel.getRatingDistribution();
+        binding.progressBar5.setProgress(state.getPercentage(5));
+        binding.progressBar4.setProgress(state.getPercentage(4));
+        binding.progressBar3.setProgress(state.getPercentage(3));
+        binding.progressBar2.setProgress(state.getPercentage(2));
+        binding.progressBar1.setProgress(state.getPercentage(1));
 
-        if (reviewCount > 0) {
+        // mots les plus cités dans les avis
+        if (state.getKeywords().isEmpty()) {
+            binding.tvKeywords.setVisibility(View.GONE);
+        } else {
+            binding.tvKeywords.setVisibility(View.VISIBLE);
+            binding.tvKeywords.setText(getString(R.string.review_keywords, TextUtils.join(", ", state.getKeywords())));
+        }
+
+        // notes par critère, masquées tant qu'aucun avis n'en donne
+        RatingBreakdown.Summary breakdown = state.getBreakdown();
+        if (breakdown.isEmpty()) {
+            binding.breakdownContainer.setVisibility(View.GONE);
+        } else {
+            binding.breakdownContainer.setVisibility(View.VISIBLE);
+            bindDimension(binding.dimensionFood, RatingDimension.FOOD, breakdown);
+            bindDimension(binding.dimensionService, RatingDimension.SERVICE, breakdown);
+            bindDimension(binding.dimensionAmbience, RatingDimension.AMBIENCE, breakdown);
+            bindDimension(binding.dimensionValue, RatingDimension.VALUE, breakdown);
+        }
+    }
 
-            binding.progressBar5.setProgress(distribution[4] * 100 / reviewCount);
-            binding.progressBar4.setProgress(distribution[3] * 100 / reviewCount);
-            binding.progressBar3.setProgress(distribution[2] * 100 / reviewCount);
-            binding.progressBar2.setProgress(distribution[1] * 100 / reviewCount);
-            binding.progressBar1.setProgress(distribution[0] * 100 / reviewCount);
+    /**
+     * Shows the average score of one rated aspect, or hides its row when no review scores it.
+     *
+     * @param row       the row of the aspect
+     * @param dimension the rated aspect
+     * @param breakdown the scores of all the aspects
+     */
+    private void bindDimension(ItemDimensionScoreBinding row, RatingDimension dimension, RatingBreakdown.Summary breakdown) {
+        if (breakdown.getCount(dimension) == 0) {
+            row.getRoot().setVisibility(View.GONE);
+            return;
         }
+        row.getRoot().setVisibility(View.VISIBLE);
+        row.tvDimensionLabel.setText(RatingDimensionLabels.of(dimension));
+        // jauge sur 100 : moyenne rapportée à la note maximale
+        row.pbDimensionScore.setProgress(Math.round(breakdown.getAverage(dimension) * 100 / RatingDimension.MAX_SCORE));
+        row.tvDimensionAverage.setText(breakdown.getAverageText(dimension));
     }
 
     /**
@@ -112,25 +171,77 @@ public class DetailsFragment extends Fragment {
      */
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        viewCreationStartMillis = SystemClock.uptimeMillis();
         binding = FragmentDetailsBinding.inflate(inflater, container, false); // Binds the layout using view binding.
         return binding.getRoot(); // Returns the root view.
     }
 
 
     /**
-     * Sets up the UI-specific properties, such as system UI flags and status bar color.
+     * Sets up the UI-specific properties, such as system UI flags and status bar color,
+     * and loads the restaurant picture.
      */
     private void setupUI() {
         Window window = requireActivity().getWindow();
         window.getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
         window.setStatusBarColor(Color.TRANSPARENT);
+        // Photo décodée par Glide à la taille de la vue (connue avant la mise en page), précédée d'un aperçu minuscule
+        int heroWidth = getResources().getDisplayMetrics().widthPixels;
+        int heroHeight = getResources().getDimensionPixelSize(R.dimen.hero_image_height);
+        Glide.with(this)
+                .load(R.drawable.food_picture)
+                .thumbnail(Glide.with(this).load(R.drawable.food_picture_preview))
+                .override(heroWidth, heroHeight)
+                .format(DecodeFormat.PREFER_RGB_565) // photo opaque : 2 octets par pixel
+                .into(binding.image);
+        if (BuildConfig.DEBUG) {
+            binding.getRoot().getViewTreeObserver().addOnPreDrawListener(new FirstFrameReporter());
+        }
     }
 
     /**
      * Initializes the ViewModel for this activity.
+     * Also creates the activity-scoped review list state, so the reviews screen is ready before it is opened.
      */
     private void setupViewModel() {
         detailsViewModel = new ViewModelProvider(this).get(DetailsViewModel.class);
+        reviewListViewModel = new ViewModelProvider(requireActivity()).get(ReviewListViewModel.class);
+    }
+
+    /**
+     * Displays the most helpful reviews, ranked by the repository; the section is hidden until a review gets a vote.
+     */
+    private void setupTopReviews() {
+        topReviewsAdapter = new ReviewAdapter(avatarCache);
+        topReviewsAdapter.setHelpfulVotes(reviewListViewModel.getHelpfulVotes());
+        binding.rvTopReviews.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.rvTopReviews.setAdapter(topReviewsAdapter);
+        detailsViewModel.getTopReviews().observe(getViewLifecycleOwner(), topReviews -> {
+            int visibility = topReviews.isEmpty() ? View.GONE : View.VISIBLE;
+            binding.tvTopReviewsTitle.setVisibility(visibility);
+            binding.rvTopReviews.setVisibility(visibility);
+            // les votes ne changent pas les avis : on rafraîchit les compteurs des (au plus 3) lignes
+            topReviewsAdapter.submitList(topReviews, topReviewsAdapter::refreshHelpfulVotes);
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        binding.rvTopReviews.setAdapter(null); // recycle les lignes, qui libèrent leur avatar
+        super.onDestroyView();
+    }
+
+    /**
+     * Debug builds only: logs the time from the creation of the view to its first frame.
+     * DetailsFirstFrameBenchmarkTest measures it against the former direct load of the photo.
+     */
+    private class FirstFrameReporter implements ViewTreeObserver.OnPreDrawListener {
+        @Override
+        public boolean onPreDraw() {
+            binding.getRoot().getViewTreeObserver().removeOnPreDrawListener(this);
+            Log.d(TAG, "first frame " + (SystemClock.uptimeMillis() - viewCreationStartMillis) + " ms after view creation");
+            return true;
+        }
     }
 
     /**
@@ -151,19 +262,25 @@ public class DetailsFragment extends Fragment {
         binding.chipOnPremise.setVisibility(restaurant.isDineIn() ? View.VISIBLE : View.GONE);
         binding.chipTakeAway.setVisibility(restaurant.isTakeAway() ? View.VISIBLE : View.GONE);
 
-        binding.buttonAdress.setOnClickListener(v -> openMap(restaurant.getAddress()));
+        binding.buttonAdress.setOnClickListener(v -> openMap(restaurant));
         binding.buttonPhone.setOnClickListener(v -> dialPhoneNumber(restaurant.getPhoneNumber()));
         binding.buttonWebsite.setOnClickListener(v -> openBrowser(restaurant.getWebsite()));
     }
 
     /**
-     * Opens the provided address in Google Maps or shows an error if Google Maps
+     * Opens the restaurant in Google Maps or shows an error if Google Maps
      * is not installed.
      *
-     * @param address The address to be shown in Google Maps.
+     * @param restaurant The restaurant to be shown in Google Maps: at its coordinates when known,
+     *                   otherwise by searching its address.
      */
-    private void openMap(String address) {
-        Uri gmmIntentUri = Uri.parse("geo:0,0?q=" + Uri.encode(address));
+    private void openMap(Restaurant restaurant) {
+        String query = Uri.encode(restaurant.getAddress());
+        Uri gmmIntentUri = restaurant.hasLocation()
+                // repère aux coordonnées, libellé avec l'adresse
+                ? Uri.parse(String.format(Locale.ROOT, "geo:%f,%f?q=%f,%f(%s)", restaurant.getLatitude(), restaurant.getLongitude(),
+                        restaurant.getLatitude(), restaurant.getLongitude(), query))
+                : Uri.parse("geo:0,0?q=" + query);
         Intent mapIntent = new Intent(Intent.ACTION_VIEW, gmmIntentUri);
         mapIntent.setPackage("com.google.android.apps.maps");
         if (mapIntent.resolveActivity(requireActivity().getPackageManager()) != null) {
@@ -215,6 +332,9 @@ public class DetailsFragment extends Fragment {
         binding.tvRateCTA.setOnClickListener(v -> {
             requireActivity().getSupportFragmentManager().beginTransaction().replace(R.id.container, ReviewFragment.newInstance()).addToBackStack(null).commit();
         });
+        binding.tvNearbyCTA.setOnClickListener(v -> {
+            requireActivity().getSupportFragmentManager().beginTransaction().replace(R.id.container, NearbyFragment.newInstance()).addToBackStack(null).commit();
+        });
 
     }
 }
\ No newline at end of file
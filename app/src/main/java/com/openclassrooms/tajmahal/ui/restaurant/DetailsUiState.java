@@ -0,0 +1,168 @@
+package com.openclassrooms.tajmahal.ui.restaurant;
+
+import com.openclassrooms.tajmahal.data.repository.RatingBreakdown;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable state of the review summary shown by {@link DetailsFragment}:
+ * average rating, number of reviews, percentage of reviews for each star
+ * the words most mentioned in the comments and the scores of each rated aspect.
+ * <p>
+ * Everything is computed in a single pass over the reviews by {@link #from(List)},
+ * so the fragment only has to bind the values. The keywords come from the repository's
+ * streaming summary, see {@link #withKeywords(List)}, and the scores of each aspect from its
+ * incremental aggregates, see {@link #withBreakdown(RatingBreakdown.Summary)}.
+ * </p>
+ */
+public final class DetailsUiState {
+
+    /** State displayed when there are no reviews. */
+    public static final DetailsUiState EMPTY = new DetailsUiState(0, 0, new int[5], Collections.emptyList(), RatingBreakdown.Summary.EMPTY);
+
+    private final float averageRating;
+    private final int reviewCount;
+    private final int[] percentages;
+    private final String averageRatingText;
+    private final String reviewCountText;
+    private final List<String> keywords;
+    private final RatingBreakdown.Summary breakdown;
+
+    private DetailsUiState(float averageRating, int reviewCount, int[] percentages, List<String> keywords, RatingBreakdown.Summary breakdown) {
+        this.averageRating = averageRating;
+        this.reviewCount = reviewCount;
+        this.percentages = percentages;
+        this.keywords = keywords;
+        this.breakdown = breakdown;
+        this.averageRatingText = String.format(Locale.getDefault(), "%.1f", averageRating);
+        this.reviewCountText = String.format(Locale.getDefault(), "(%d)", reviewCount);
+    }
+
+    /**
+     * Computes the state of the given reviews in a single pass.
+     *
+     * @param reviews the reviews, may be null
+     * @return the summary of the reviews
+     */
+    public static DetailsUiState from(List<Review> reviews) {
+        if (reviews == null || reviews.isEmpty()) return EMPTY;
+
+        int[] distribution = new int[5]; // Index 0 = 1 étoile, Index 4 = 5 étoiles
+        long sum = 0;
+        int count = 0;
+        for (Review review : reviews) {
+            int rate = review.getRate();
+            sum += rate;
+            count++;
+            if (rate >= 1 && rate <= 5) {
+                distribution[rate - 1]++;
+            }
+        }
+        return fromDistribution(distribution, count, sum);
+    }
+
+    /**
+     * Builds the state from aggregates already computed elsewhere.
+     *
+     * @param distribution number of reviews per star, index 0 = 1 star
+     * @param reviewCount  total number of reviews
+     * @param ratingSum    sum of all the ratings
+     * @return the summary of the reviews
+     */
+    static DetailsUiState fromDistribution(int[] distribution, int reviewCount, long ratingSum) {
+        if (reviewCount == 0) return EMPTY;
+        int[] percentages = new int[5];
+        for (int star = 0; star < 5; star++) {
+            percentages[star] = (int) (distribution[star] * 100L / reviewCount);
+        }
+        return new DetailsUiState((float) ratingSum / reviewCount, reviewCount, percentages, Collections.emptyList(), RatingBreakdown.Summary.EMPTY);
+    }
+
+    /**
+     * @param keywords the words most mentioned in the comments, most mentioned first, may be null
+     * @return a copy of this state showing the given keywords
+     */
+    public DetailsUiState withKeywords(List<String> keywords) {
+        List<String> copy = keywords == null || keywords.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(keywords));
+        return new DetailsUiState(averageRating, reviewCount, percentages, copy, breakdown);
+    }
+
+    /**
+     * @param breakdown the scores of each rated aspect, may be null
+     * @return a copy of this state showing the given scores
+     */
+    public DetailsUiState withBreakdown(RatingBreakdown.Summary breakdown) {
+        return new DetailsUiState(averageRating, reviewCount, percentages, keywords,
+                breakdown == null ? RatingBreakdown.Summary.EMPTY : breakdown);
+    }
+
+    /**
+     * @return the average rating, 0 if there are no reviews.
+     */
+    public float getAverageRating() {
+        return averageRating;
+    }
+
+    /**
+     * @return the number of reviews.
+     */
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    /**
+     * @param stars the number of stars, from 1 to 5
+     * @return the percentage of reviews giving this number of stars, from 0 to 100
+     */
+    public int getPercentage(int stars) {
+        return percentages[stars - 1];
+    }
+
+    /**
+     * @return the average rating formatted for display, e.g. "4.2".
+     */
+    public String getAverageRatingText() {
+        return averageRatingText;
+    }
+
+    /**
+     * @return the number of reviews formatted for display, e.g. "(12)".
+     */
+    public String getReviewCountText() {
+        return reviewCountText;
+    }
+
+    /**
+     * @return the words most mentioned in the comments, most mentioned first; empty if unknown.
+     */
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * @return the scores of each rated aspect; empty if no review scores any.
+     */
+    public RatingBreakdown.Summary getBreakdown() {
+        return breakdown;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DetailsUiState that = (DetailsUiState) o;
+        return Float.compare(that.averageRating, averageRating) == 0 && reviewCount == that.reviewCount && Arrays.equals(percentages, that.percentages) && keywords.equals(that.keywords) && breakdown.equals(that.breakdown);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * (31 * Float.floatToIntBits(averageRating) + reviewCount) + Arrays.hashCode(percentages)) + keywords.hashCode()) + breakdown.hashCode();
+    }
+}
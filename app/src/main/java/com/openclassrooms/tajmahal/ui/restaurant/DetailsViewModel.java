@@ -3,8 +3,10 @@ package com.openclassrooms.tajmahal.ui.restaurant;
 import android.content.Context;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.openclassrooms.tajmahal.AppExecutors;
 import com.openclassrooms.tajmahal.R;
 import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
@@ -27,16 +29,46 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 @HiltViewModel
 public class DetailsViewModel extends ViewModel {
 
+    // Nombre de mots-clés affichés ("On en parle : ...")
+    static final int TOP_KEYWORDS = 3;
+
     private final RestaurantRepository restaurantRepository;
 
+    private final MediatorLiveData<DetailsUiState> uiState = new MediatorLiveData<>();
+
+    // Dernier état publié, lu et écrit uniquement sur le thread d'arrière-plan
+    private DetailsUiState lastUiState;
+
     /**
      * Constructor that Hilt will use to create an instance of MainViewModel.
      *
      * @param restaurantRepository The repository which will provide restaurant data.
+     * @param appExecutors         The executors used to compute the UI state off the main thread.
+     * @param warmUp               The startup warm-up, whose summary is shown immediately when ready.
      */
     @Inject
-    public DetailsViewModel(RestaurantRepository restaurantRepository) {
+    public DetailsViewModel(RestaurantRepository restaurantRepository, AppExecutors appExecutors, DetailsWarmUp warmUp) {
         this.restaurantRepository = restaurantRepository;
+        // résumé déjà calculé par la préparation (DetailsWarmUp) : affiché dès la création du fragment
+        DetailsUiState prepared = warmUp.getUiState(restaurantRepository.getReviews().getValue());
+        if (prepared != null) {
+            lastUiState = prepared;
+            uiState.setValue(prepared);
+        }
+        uiState.addSource(restaurantRepository.getReviews(), reviews ->
+                appExecutors.background().execute(() -> {
+                    // résumé préparé pour ces avis : réutilisé, même s'il n'était pas prêt à la création du ViewModel
+                    DetailsUiState state = warmUp.getUiState(reviews);
+                    if (state == null) {
+                        state = DetailsUiState.from(reviews)
+                                .withKeywords(restaurantRepository.getTopKeywords(TOP_KEYWORDS))
+                                .withBreakdown(restaurantRepository.getRatingBreakdown());
+                    }
+                    if (!state.equals(lastUiState)) {
+                        lastUiState = state;
+                        uiState.postValue(state);
+                    }
+                }));
     }
 
     /**
@@ -47,6 +79,14 @@ public class DetailsViewModel extends ViewModel {
         return restaurantRepository.getRestaurant();
     }
 
+    /**
+     * Fetches the most helpful reviews, kept ranked by the repository on each vote.
+     * @return LiveData object containing the most helpful reviews, most helpful first.
+     */
+    public LiveData<List<Review>> getTopReviews() {
+        return restaurantRepository.getTopReviews();
+    }
+
     /**
      * Retrieves the current day of the week in French.
      *
@@ -86,56 +126,15 @@ public class DetailsViewModel extends ViewModel {
     }
 
     /**
-     * Retrieves the list of user reviews as LiveData.
-     * @return LiveData containing the list of reviews
-     */
-    public LiveData<List<Review>> getReviews() {
-        return restaurantRepository.getReviews();
-    }
-
-    /**
-     * Calculates the average rating from all reviews.
-     * @return The average rating as a float, or 0 if no reviews exist
-     */
-    public float getAverageRating() {
-        List<Review> reviews = getReviews().getValue();
-        if (reviews == null || reviews.isEmpty()) return 0;
-
-        float sum = 0;
-        for (Review review : reviews) {
-            sum += review.getRate();
-        }
-        return sum / reviews.size();
-    }
-
-    /**
-     * Gets the total number of reviews.
+     * Returns the review summary displayed by the details screen.
+     * <p>
+     * The state is computed in a single pass over the reviews on a background thread, and only
+     * re-emitted when it actually changes.
      *
-     * @return The count of reviews, or 0 if no reviews exist
+     * @return LiveData holding the current {@link DetailsUiState}.
      */
-    public int getReviewCount() {
-        List<Review> reviews = getReviews().getValue();
-        return reviews != null ? reviews.size() : 0;
-    }
-
-    /**
-     * adds up the reviews based on their rating
-     *
-     * @return the distribution of reviews
-     */
-    public int[] getRatingDistribution() {
-        List<Review> reviews = getReviews().getValue();
-        int[] distribution = new int[5]; // Index 0 = 1 étoile, Index 4 = 5 étoiles
-
-        if (reviews == null) return distribution;
-
-        for (Review review : reviews) {
-            int rate = review.getRate();
-            if (rate >= 1 && rate <= 5) {
-                distribution[rate - 1]++;
-            }
-        }
-        return distribution;
+    public LiveData<DetailsUiState> getUiState() {
+        return uiState;
     }
 
 }
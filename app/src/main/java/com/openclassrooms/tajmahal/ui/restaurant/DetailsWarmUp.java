@@ -0,0 +1,85 @@
+package com.openclassrooms.tajmahal.ui.restaurant;
+
+import androidx.annotation.Nullable;
+
+import com.openclassrooms.tajmahal.AppExecutors;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Prepares the data of the details screen while the application starts, before the first fragment exists.
+ * <p>
+ * Started by {@code TajMahalApplication}, before any activity exists, it runs once on the background
+ * executor: it creates the repository (replaying the review log), loads the restaurant details, reads
+ * the reviews and computes their summary, keywords included. {@link DetailsViewModel} then shows that
+ * summary as soon as it is ready instead of computing it after the fragment is created.
+ * </p>
+ * The repository is only resolved inside the background task: injecting this class costs nothing
+ * on the main thread. Building the repository there is safe: its constructor gives the reviews LiveData
+ * their initial value without calling {@code setValue()}, and later changes are published on the main thread.
+ */
+@Singleton
+public class DetailsWarmUp {
+
+    private final Provider<RestaurantRepository> restaurantRepository;
+    private final AppExecutors appExecutors;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // Résumé préparé et liste d'avis dont il est issu, publiés ensemble
+    private volatile Result result;
+
+    /**
+     * @param restaurantRepository the repository to warm up, created on the background executor
+     * @param appExecutors         the executors; the warm-up runs on the background one
+     */
+    @Inject
+    public DetailsWarmUp(Provider<RestaurantRepository> restaurantRepository, AppExecutors appExecutors) {
+        this.restaurantRepository = restaurantRepository;
+        this.appExecutors = appExecutors;
+    }
+
+    /**
+     * Starts the warm-up on the background executor. Only the first call has an effect.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        appExecutors.background().execute(() -> {
+            // singleton : le premier get() construit le repository ici, hors du thread principal
+            RestaurantRepository restaurantRepository = this.restaurantRepository.get();
+            restaurantRepository.preloadRestaurant();
+            List<Review> reviews = restaurantRepository.getReviews().getValue();
+            if (reviews == null) return;
+            DetailsUiState state = DetailsUiState.from(reviews)
+                    .withKeywords(restaurantRepository.getTopKeywords(DetailsViewModel.TOP_KEYWORDS))
+                    .withBreakdown(restaurantRepository.getRatingBreakdown());
+            result = new Result(reviews, state);
+        });
+    }
+
+    /**
+     * @param reviews the reviews currently published by the repository
+     * @return the summary prepared at startup if it was computed from these very reviews, null otherwise
+     */
+    @Nullable
+    DetailsUiState getUiState(@Nullable List<Review> reviews) {
+        Result prepared = result;
+        return prepared != null && prepared.reviews == reviews ? prepared.uiState : null;
+    }
+
+    private static final class Result {
+        final List<Review> reviews;
+        final DetailsUiState uiState;
+
+        Result(List<Review> reviews, DetailsUiState uiState) {
+            this.reviews = reviews;
+            this.uiState = uiState;
+        }
+    }
+}
@@ -7,7 +7,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -16,12 +18,21 @@ import android.view.ViewGroup;
 import android.view.Window;
 import android.widget.Toast;
 
-import com.bumptech.glide.Glide;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.openclassrooms.tajmahal.BuildConfig;
 import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.adapter.MyReviewAdapter;
 import com.openclassrooms.tajmahal.adapter.ReviewAdapter;
 import com.openclassrooms.tajmahal.databinding.FragmentReviewBinding;
+import com.openclassrooms.tajmahal.databinding.ItemDimensionInputBinding;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+import com.openclassrooms.tajmahal.ui.RatingDimensionLabels;
 
-import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 
@@ -29,6 +40,7 @@ import dagger.hilt.android.AndroidEntryPoint;
 /**
  * Fragment that displays a list of reviews for a restaurant and allows users to add new reviews.
  * uses ReviewViewModel to manage data and ReviewAdapter to display the list of reviews.
+ * The "my reviews" section lists the reviews of the logged-in user, who can edit them in the form or delete them.
  */
 
 @AndroidEntryPoint
@@ -36,7 +48,14 @@ public class ReviewFragment extends Fragment {
 
     private FragmentReviewBinding binding;
     private ReviewViewModel reviewViewModel;
+    private ReviewListViewModel reviewListViewModel; // état de la liste, partagé au niveau de l'activité
     private ReviewAdapter adapter;
+    private MyReviewAdapter myReviewAdapter;
+    private final ReviewScroller reviewScroller = new ReviewScroller();
+    private AvatarCache.Lease userAvatarLease;
+
+    @Inject
+    AvatarCache avatarCache; // avatars décodés partagés avec les autres écrans
 
 // ---lifecycle methods ---
 
@@ -57,29 +76,80 @@ public class ReviewFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         setupViewModel();  //connexion entre fragment et données
         setupRecyclerView(); // crée l'adapter
+        setupMyReviews(); // section "mes avis"
         setupUI(); // mise en place de l'interface
         setupRestaurantInfo();
+        setupDimensionInputs(); // noms des critères du formulaire
         observeViewModelData();
         setupAddReviewButton();
         setupBackButton();
 
     }
 
+    @Override
+    public void onDestroyView() {
+        // Libère les avatars : les vues sont vidées avant que les bitmaps ne soient rendus au cache
+        binding.ivAvatarUser.setImageDrawable(null);
+        userAvatarLease.release();
+        // La position est gardée pour la prochaine visite ; l'adapter, lui, survit à la vue
+        reviewListViewModel.saveScrollState(binding.rvReviews.getLayoutManager().onSaveInstanceState());
+        adapter.removeListListener(reviewScroller);
+        binding.rvReviews.setAdapter(null); // recycle les lignes, qui libèrent leur avatar
+        super.onDestroyView();
+    }
+
     // ---setup methods ---
     private void setupViewModel() {
         reviewViewModel = new ViewModelProvider(this).get(ReviewViewModel.class);
+        reviewListViewModel = new ViewModelProvider(requireActivity()).get(ReviewListViewModel.class);
     }
 
     /**
-     * cree l'adapteur
+     * récupère l'adapteur partagé, qui contient déjà la liste des avis
      * configure le recyclerview pour utiliser l'adapter
-     * disposition des items liste verticale
+     * disposition des items liste verticale, à la position de la dernière visite
      */
     private void setupRecyclerView() {
-        adapter = new ReviewAdapter();
+        adapter = reviewListViewModel.getAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        if (reviewListViewModel.getScrollState() != null) {
+            layoutManager.onRestoreInstanceState(reviewListViewModel.getScrollState());
+        }
+        binding.rvReviews.setLayoutManager(layoutManager);
         binding.rvReviews.setAdapter(adapter);
-        binding.rvReviews.setLayoutManager(new LinearLayoutManager(requireContext()));
+        adapter.addListListener(reviewScroller);
+        if (BuildConfig.DEBUG) {
+            binding.rvReviews.addOnScrollListener(new AvatarMemoryReporter());
+        }
+
+    }
+
+    /**
+     * section "mes avis" : modifier charge l'avis dans le formulaire, supprimer demande confirmation
+     */
+    private void setupMyReviews() {
+        myReviewAdapter = new MyReviewAdapter(new MyReviewAdapter.Actions() {
+            @Override
+            public void onEdit(Review review) {
+                reviewViewModel.startEditing(review);
+            }
 
+            @Override
+            public void onDelete(Review review) {
+                new MaterialAlertDialogBuilder(requireContext())
+                        .setMessage(R.string.review_delete_confirm)
+                        .setPositiveButton(R.string.review_delete, (dialog, which) -> reviewViewModel.deleteReview(review))
+                        .setNegativeButton(R.string.review_cancel_edit, null)
+                        .show();
+            }
+        });
+        binding.rvMyReviews.setAdapter(myReviewAdapter);
+        binding.tvCancelEdit.setOnClickListener(v -> {
+            reviewViewModel.cancelEditing();
+            binding.etUserComment.setText("");
+            binding.rbRatingBarUser.setRating(0);
+            setDimensionScores(null);
+        });
     }
 
     private void setupUI() {
@@ -101,7 +171,9 @@ public class ReviewFragment extends Fragment {
         binding.tvRestaurantName.setText("TajMahal");
         binding.tvUserName.setText("Manon Garcia");
 
-        Glide.with(requireContext()).load("https://xsgames.co/randomusers/assets/avatars/female/20.jpg").circleCrop().into(binding.ivAvatarUser);
+        int avatarSize = getResources().getDimensionPixelSize(R.dimen.review_avatar_size);
+        userAvatarLease = avatarCache.acquire("https://xsgames.co/randomusers/assets/avatars/female/20.jpg",
+                avatarSize, avatar -> binding.ivAvatarUser.setImageDrawable(AvatarCache.asCircle(getResources(), avatar)));
     }
 // --- ViewModel Observation  ---
 
@@ -112,14 +184,7 @@ public class ReviewFragment extends Fragment {
      * met à jour l'affichage du RecyclerView
      */
     private void observeViewModelData() {
-        // observe liste avis
-
-        reviewViewModel.getReviews().observe(getViewLifecycleOwner(), reviews -> {
-            adapter.submitList(null);
-            adapter.submitList(new ArrayList<>(reviews), () -> {
-                binding.rvReviews.smoothScrollToPosition(0);
-            });
-        });
+        // la liste des avis est soumise à l'adapter par ReviewListViewModel, même quand l'écran n'est pas affiché
 
         // observe èvènement de validation et erreur comment et rating
         reviewViewModel.getCommentError().observe(getViewLifecycleOwner(), error -> {
@@ -134,12 +199,42 @@ public class ReviewFragment extends Fragment {
             }
         });
 
+        // avis de l'utilisateur : la section n'apparaît que s'il en a
+        reviewViewModel.getMyReviews().observe(getViewLifecycleOwner(), myReviews -> {
+            int visibility = myReviews.isEmpty() ? View.GONE : View.VISIBLE;
+            binding.tvMyReviewsTitle.setVisibility(visibility);
+            binding.rvMyReviews.setVisibility(visibility);
+            myReviewAdapter.submitList(myReviews);
+        });
+
+        // mode modification : le formulaire affiche l'avis modifié, le bouton "Modifier" l'enregistre
+        reviewViewModel.getEditedReview().observe(getViewLifecycleOwner(), review -> {
+            boolean editing = review != null;
+            if (editing) {
+                binding.etUserComment.setText(review.getComment());
+                binding.rbRatingBarUser.setRating(review.getRate());
+                setDimensionScores(review);
+            }
+            binding.btValidation.setText(editing ? R.string.review_update : R.string.review_submit);
+            binding.tvCancelEdit.setVisibility(editing ? View.VISIBLE : View.GONE);
+        });
+
+        reviewViewModel.getReviewEditSuccessEvent().observe(getViewLifecycleOwner(), isSuccess -> {
+            if (isSuccess) {
+                binding.etUserComment.setText("");
+                binding.rbRatingBarUser.setRating(0);
+                setDimensionScores(null);
+                Toast.makeText(requireContext(), R.string.review_updated, Toast.LENGTH_SHORT).show();
+            }
+        });
+
         // observe succes
         reviewViewModel.getReviewAddSuccessEvent().observe(getViewLifecycleOwner(), isSuccess -> {
             if (isSuccess) {
                 // Réinitialisation de l'UI si l'ajout a réussi - C'EST UNE MANIPULATION D'UI
                 binding.etUserComment.setText("");
                 binding.rbRatingBarUser.setRating(0);
+                setDimensionScores(null);
                 Toast.makeText(requireContext(), "Avis ajouté avec succès", Toast.LENGTH_SHORT).show();
             }
         });
@@ -158,10 +253,53 @@ public class ReviewFragment extends Fragment {
             float rating = binding.rbRatingBarUser.getRating();
 
             // appel à ViewModel pour traitement
-            reviewViewModel.processNewReview(comment, (int) rating);
+            reviewViewModel.processNewReview(comment, (int) rating, getDimensionScores());
         });
     }
 
+    // --- notes par critère ---
+
+    /**
+     * @return the input row of each {@link RatingDimension}, indexed by its ordinal
+     */
+    private ItemDimensionInputBinding[] dimensionRows() {
+        return new ItemDimensionInputBinding[]{binding.inputFood, binding.inputService, binding.inputAmbience, binding.inputValue};
+    }
+
+    /**
+     * affiche le nom de chaque critère à côté de ses étoiles
+     */
+    private void setupDimensionInputs() {
+        ItemDimensionInputBinding[] rows = dimensionRows();
+        for (RatingDimension dimension : RatingDimension.values()) {
+            rows[dimension.ordinal()].tvDimensionLabel.setText(RatingDimensionLabels.of(dimension));
+        }
+    }
+
+    /**
+     * @return the score given to each dimension, indexed by its ordinal, 0 if not rated
+     */
+    private int[] getDimensionScores() {
+        ItemDimensionInputBinding[] rows = dimensionRows();
+        int[] scores = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            scores[i] = (int) rows[i].rbDimensionScore.getRating();
+        }
+        return scores;
+    }
+
+    /**
+     * Shows the dimension scores of a review in the form.
+     *
+     * @param review the edited review, or null to clear the scores
+     */
+    private void setDimensionScores(@Nullable Review review) {
+        ItemDimensionInputBinding[] rows = dimensionRows();
+        for (RatingDimension dimension : RatingDimension.values()) {
+            rows[dimension.ordinal()].rbDimensionScore.setRating(review == null ? 0 : review.getScore(dimension));
+        }
+    }
+
     private void setupBackButton() {
         binding.ivGoBack.setOnClickListener(v -> {
             requireActivity().getSupportFragmentManager().popBackStack();
@@ -172,4 +310,29 @@ public class ReviewFragment extends Fragment {
     public static ReviewFragment newInstance() {
         return new ReviewFragment();
     }
-}
\ No newline at end of file
+
+    /**
+     * Scrolls back to the top when reviews are added while the list is displayed, to show the new one.
+     */
+    private class ReviewScroller implements AsyncListDiffer.ListListener<Review> {
+        @Override
+        public void onCurrentListChanged(@NonNull List<Review> previousList, @NonNull List<Review> currentList) {
+            if (currentList.size() > previousList.size()) {
+                binding.rvReviews.smoothScrollToPosition(0);
+            }
+        }
+    }
+
+    /**
+     * Debug builds only: logs the heap saved by the shared avatar cache each time the list stops scrolling.
+     */
+    private class AvatarMemoryReporter extends RecyclerView.OnScrollListener {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState != RecyclerView.SCROLL_STATE_IDLE) return;
+            Log.d("ReviewFragment", "avatars: " + avatarCache.size() + " cached, "
+                    + avatarCache.getCachedBytes() / 1024 + " KB decoded, "
+                    + avatarCache.getHeapSavedBytes() / 1024 + " KB saved vs one ARGB_8888 bitmap per row");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.openclassrooms.tajmahal.ui.reviews;
+
+import android.content.Context;
+import android.os.Parcelable;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModel;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.adapter.ReviewAdapter;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewListUpdate;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * Activity-scoped state of the review list, shared by the details and review screens.
+ * <p>
+ * {@link ReviewFragment} is recreated on each visit. This ViewModel, obtained with
+ * {@code new ViewModelProvider(requireActivity())}, outlives it and keeps:
+ * <ul>
+ *     <li>the {@link ReviewAdapter}, with the last snapshot: the repository's changes are applied
+ *     here when it publishes them, not when the screen is opened;</li>
+ *     <li>the scroll position of the list;</li>
+ *     <li>leases on the avatars of the first reviews, so they are decoded while the details
+ *     screen is displayed and stay cached between visits;</li>
+ *     <li>the helpful votes of the current user, shown by the rows.</li>
+ * </ul>
+ * Opening the review screen then only attaches the adapter and binds the visible rows.
+ * </p>
+ * Must be used from the main thread.
+ */
+@HiltViewModel
+public class ReviewListViewModel extends ViewModel {
+
+    // Environ un écran de lignes
+    static final int PREFETCHED_AVATARS = 10;
+    // Utilisateur connecté, en dur comme dans ReviewViewModel (à remplacer par un Repository)
+    private static final String CURRENT_USER = "Manon Garcia";
+
+    private final LiveData<ReviewListUpdate> reviewUpdates;
+    private final Observer<ReviewListUpdate> reviewUpdatesObserver = this::onReviewsChanged;
+    private final AvatarCache avatarCache;
+    private final ReviewAdapter adapter;
+    private final ReviewAdapter.HelpfulVotes helpfulVotes;
+    private final int avatarSize;
+
+    // Avatars préchargés, clé = URL
+    private final Map<String, AvatarCache.Lease> prefetched = new HashMap<>();
+    private Parcelable scrollState;
+
+    /**
+     * @param restaurantRepository the repository publishing the reviews
+     * @param avatarCache          the cache shared with the rows
+     * @param context              the application context, for the avatar size
+     */
+    @Inject
+    public ReviewListViewModel(RestaurantRepository restaurantRepository, AvatarCache avatarCache,
+                               @ApplicationContext Context context) {
+        this.avatarCache = avatarCache;
+        this.adapter = new ReviewAdapter(avatarCache);
+        this.avatarSize = context.getResources().getDimensionPixelSize(R.dimen.review_avatar_size);
+        this.helpfulVotes = new ReviewAdapter.HelpfulVotes() {
+            @Override
+            public int getVotes(Review review) {
+                return restaurantRepository.getHelpfulVotes(review);
+            }
+
+            @Override
+            public boolean hasVoted(Review review) {
+                return restaurantRepository.hasVotedHelpful(review, CURRENT_USER);
+            }
+
+            @Override
+            public void vote(Review review) {
+                restaurantRepository.voteHelpful(review, CURRENT_USER);
+            }
+        };
+        adapter.setHelpfulVotes(helpfulVotes);
+        this.reviewUpdates = restaurantRepository.getReviewUpdates();
+        reviewUpdates.observeForever(reviewUpdatesObserver);
+    }
+
+    /**
+     * @return the adapter to attach to the list; it already holds the current reviews.
+     */
+    public ReviewAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * @return the helpful votes of the current user, shared by every list of reviews.
+     */
+    public ReviewAdapter.HelpfulVotes getHelpfulVotes() {
+        return helpfulVotes;
+    }
+
+    /**
+     * @return the scroll state saved by {@link #saveScrollState(Parcelable)}, or null.
+     */
+    @Nullable
+    public Parcelable getScrollState() {
+        return scrollState;
+    }
+
+    /**
+     * @param state the state of the list's layout manager, when the list view is destroyed
+     */
+    public void saveScrollState(@Nullable Parcelable state) {
+        scrollState = state;
+    }
+
+    /**
+     * @return the number of avatars currently prefetched.
+     */
+    int getPrefetchedCount() {
+        return prefetched.size();
+    }
+
+    private void onReviewsChanged(ReviewListUpdate update) {
+        // pas de copie : la liste est déjà un snapshot, et peut être paresseuse (snapshot mappé)
+        // changements appliqués tels quels, diff seulement pour un rafraîchissement complet
+        adapter.applyUpdate(update);
+        prefetchAvatars(update.getReviews());
+    }
+
+    /** Garde un bail sur les avatars des premiers avis, libère ceux qui ne sont plus en tête. */
+    private void prefetchAvatars(List<Review> newReviews) {
+        Map<String, AvatarCache.Lease> kept = new HashMap<>();
+        int count = Math.min(PREFETCHED_AVATARS, newReviews.size());
+        for (int i = 0; i < count; i++) {
+            String url = newReviews.get(i).getPicture();
+            if (url == null || kept.containsKey(url)) continue;
+            AvatarCache.Lease lease = prefetched.remove(url);
+            kept.put(url, lease != null ? lease : avatarCache.acquire(url, avatarSize, avatar -> { }));
+        }
+        releasePrefetched();
+        prefetched.putAll(kept);
+    }
+
+    private void releasePrefetched() {
+        for (AvatarCache.Lease lease : prefetched.values()) {
+            lease.release();
+        }
+        prefetched.clear();
+    }
+
+    @Override
+    protected void onCleared() {
+        reviewUpdates.removeObserver(reviewUpdatesObserver);
+        releasePrefetched();
+    }
+}
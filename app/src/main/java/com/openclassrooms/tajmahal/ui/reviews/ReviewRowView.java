@@ -0,0 +1,329 @@
+package com.openclassrooms.tajmahal.ui.reviews;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.res.ResourcesCompat;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+/**
+ * A review row drawn by a single view, as a lighter alternative to {@code item_review.xml}.
+ * <p>
+ * The XML row inflates a {@code ConstraintLayout} with two {@code TextView}s, a {@code RatingBar},
+ * an image and a separator, then measures all of them. This view reproduces the same layout
+ * (same margins, text sizes and colors) but measures and draws the avatar, name, stars and
+ * comment itself. The comment's {@link StaticLayout} is cached per text and width, and shared
+ * between rows, so binding a review that has already been displayed does not lay its text out again.
+ * </p>
+ * Used by {@code ReviewAdapter} when flat rows are enabled; the adapter provides the avatar bitmap.
+ */
+public class ReviewRowView extends View {
+
+    private static final int STAR_COUNT = 5;
+    private static final int STAR_COLOR = 0xFFFFB800;
+    private static final int EMPTY_STAR_COLOR = 0xFFE0E0E0;
+    private static final int SEPARATOR_COLOR = 0xFFDADADA;
+    private static final int AVATAR_PLACEHOLDER_COLOR = 0xFFE0E0E0;
+    private static final int HELPFUL_COLOR = 0xFF7A7A7A;
+
+    // Mises en page des commentaires partagées entre les lignes, clé = largeur + texte
+    private static final LruCache<String, StaticLayout> COMMENT_LAYOUTS = new LruCache<>(200);
+
+    private static Typeface nameTypeface;
+    private static Typeface commentTypeface;
+
+    // Dimensions reprises de item_review.xml, en pixels
+    private final int marginStart;
+    private final int marginTop;
+    private final int avatarSize;
+    private final int textMarginStart;
+    private final int starsMarginTop;
+    private final int starSize;
+    private final int starSpacing;
+    private final int commentMarginTop;
+    private final int separatorMarginTop;
+    private final int separatorMarginHorizontal;
+    private final float separatorHeight;
+
+    private final TextPaint namePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint commentPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint helpfulPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint starPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint avatarPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final Paint separatorPaint = new Paint();
+    private final Path starPath = new Path();
+    private final RectF avatarRect = new RectF();
+    private final Matrix avatarMatrix = new Matrix();
+    // Zone cliquable du bouton "utile", agrandie à la taille minimale d'une cible tactile
+    private final RectF helpfulRect = new RectF();
+
+    private String name = "";
+    private CharSequence displayedName = "";
+    private String comment = "";
+    private int rate;
+    private Bitmap avatar;
+    private StaticLayout commentLayout;
+    private String helpfulLabel;
+    private OnClickListener helpfulClickListener;
+    private boolean helpfulPressed;
+
+    public ReviewRowView(Context context) {
+        super(context);
+        marginStart = dp(24);
+        marginTop = dp(24);
+        avatarSize = getResources().getDimensionPixelSize(R.dimen.review_avatar_size);
+        textMarginStart = dp(16);
+        starsMarginTop = dp(12);
+        starSize = dp(16);
+        starSpacing = dp(2);
+        commentMarginTop = dp(16);
+        separatorMarginTop = dp(16);
+        separatorMarginHorizontal = dp(20);
+        separatorHeight = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 0.75f, getResources().getDisplayMetrics());
+
+        loadTypefaces(context);
+        namePaint.setTypeface(nameTypeface);
+        namePaint.setTextSize(sp(10));
+        namePaint.setColor(Color.BLACK);
+        commentPaint.setTypeface(commentTypeface);
+        commentPaint.setTextSize(sp(12));
+        commentPaint.setColor(Color.BLACK);
+        helpfulPaint.setTypeface(commentTypeface);
+        helpfulPaint.setTextSize(sp(10));
+        helpfulPaint.setColor(HELPFUL_COLOR);
+        separatorPaint.setColor(SEPARATOR_COLOR);
+        buildStarPath(starSize / 2f);
+    }
+
+    /**
+     * Displays the given review. The avatar must be set separately, see {@link #setAvatar(Bitmap)}.
+     *
+     * @param review the review to display
+     */
+    public void bind(Review review) {
+        bind(review, review.getComment());
+    }
+
+    /**
+     * Displays the given review with a comment already decoded, e.g. by a {@code CommentCache}.
+     *
+     * @param review         the review to display
+     * @param decodedComment the comment of the review
+     */
+    public void bind(Review review, String decodedComment) {
+        String newComment = decodedComment == null ? "" : decodedComment;
+        boolean commentChanged = !newComment.equals(comment);
+        name = review.getUsername() == null ? "" : review.getUsername();
+        displayedName = name;
+        comment = newComment;
+        rate = review.getRate();
+        setContentDescription(name + ", " + rate + "/" + STAR_COUNT + ", " + comment);
+        if (commentChanged) {
+            commentLayout = null;
+            requestLayout(); // la hauteur dépend du commentaire
+        } else {
+            updateNameLayout(getWidth());
+        }
+        invalidate();
+    }
+
+    /**
+     * @return the size of the avatar, in pixels.
+     */
+    public int getAvatarSize() {
+        return avatarSize;
+    }
+
+    /**
+     * @param avatar the square avatar, drawn as a circle, or null for the placeholder
+     */
+    public void setAvatar(@Nullable Bitmap avatar) {
+        this.avatar = avatar;
+        avatarPaint.setShader(avatar == null ? null : new BitmapShader(avatar, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        invalidate();
+    }
+
+    /**
+     * @param label the label of the helpful button, drawn at the end of the stars, or null to hide it
+     */
+    public void setHelpfulLabel(@Nullable String label) {
+        helpfulLabel = label;
+        invalidate();
+    }
+
+    /**
+     * @param listener called when the helpful button is tapped
+     */
+    public void setOnHelpfulClickListener(@Nullable OnClickListener listener) {
+        helpfulClickListener = listener;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (helpfulLabel == null || helpfulClickListener == null) return super.onTouchEvent(event);
+        boolean inside = helpfulRect.contains(event.getX(), event.getY());
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                helpfulPressed = inside;
+                return inside || super.onTouchEvent(event);
+            case MotionEvent.ACTION_UP:
+                if (helpfulPressed && inside) {
+                    helpfulPressed = false;
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    helpfulClickListener.onClick(this);
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                helpfulPressed = false;
+                break;
+        }
+        return helpfulPressed || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        updateNameLayout(width);
+        StaticLayout layout = commentLayout(width);
+        int height = marginTop + avatarSize + commentMarginTop + layout.getHeight()
+                + separatorMarginTop + (int) Math.ceil(separatorHeight);
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+
+        // Avatar
+        avatarRect.set(marginStart, marginTop, marginStart + avatarSize, marginTop + avatarSize);
+        if (avatar != null) {
+            // le bitmap est carré : le shader le peint dans le cercle, mis à l'échelle de l'avatar
+            avatarMatrix.setScale(avatarSize / (float) avatar.getWidth(), avatarSize / (float) avatar.getHeight());
+            avatarMatrix.postTranslate(avatarRect.left, avatarRect.top);
+            avatarPaint.getShader().setLocalMatrix(avatarMatrix);
+            canvas.drawOval(avatarRect, avatarPaint);
+        } else {
+            starPaint.setColor(AVATAR_PLACEHOLDER_COLOR);
+            canvas.drawOval(avatarRect, starPaint);
+        }
+
+        // Nom
+        float textStart = marginStart + avatarSize + textMarginStart;
+        float nameBaseline = marginTop - namePaint.ascent();
+        canvas.drawText(displayedName, 0, displayedName.length(), textStart, nameBaseline, namePaint);
+
+        // Étoiles
+        float starsTop = nameBaseline + namePaint.descent() + starsMarginTop;
+        for (int star = 0; star < STAR_COUNT; star++) {
+            starPaint.setColor(star < rate ? STAR_COLOR : EMPTY_STAR_COLOR);
+            int save = canvas.save();
+            canvas.translate(textStart + star * (starSize + starSpacing), starsTop);
+            canvas.drawPath(starPath, starPaint);
+            canvas.restoreToCount(save);
+        }
+
+        // Bouton "utile", aligné à droite sur la ligne des étoiles
+        if (helpfulLabel != null) {
+            float labelWidth = helpfulPaint.measureText(helpfulLabel);
+            float labelEnd = width - marginStart;
+            float baseline = starsTop + starSize / 2f - (helpfulPaint.ascent() + helpfulPaint.descent()) / 2f;
+            canvas.drawText(helpfulLabel, labelEnd - labelWidth, baseline, helpfulPaint);
+            float touchPadding = Math.max(0, (dp(48) - starSize) / 2f);
+            helpfulRect.set(labelEnd - labelWidth - touchPadding, starsTop - touchPadding,
+                    labelEnd + touchPadding, starsTop + starSize + touchPadding);
+        } else {
+            helpfulRect.setEmpty();
+        }
+
+        // Commentaire
+        StaticLayout layout = commentLayout(width);
+        float commentTop = marginTop + avatarSize + commentMarginTop;
+        int save = canvas.save();
+        canvas.translate(textMarginStart, commentTop);
+        layout.draw(canvas);
+        canvas.restoreToCount(save);
+
+        // Séparateur
+        float separatorTop = commentTop + layout.getHeight() + separatorMarginTop;
+        canvas.drawRect(separatorMarginHorizontal, separatorTop, width - separatorMarginHorizontal,
+                separatorTop + separatorHeight, separatorPaint);
+    }
+
+    private StaticLayout commentLayout(int width) {
+        int textWidth = Math.max(0, width - textMarginStart);
+        if (commentLayout != null && commentLayout.getWidth() == textWidth) {
+            return commentLayout;
+        }
+        String key = textWidth + "|" + comment;
+        StaticLayout layout = COMMENT_LAYOUTS.get(key);
+        if (layout == null) {
+            layout = StaticLayout.Builder.obtain(comment, 0, comment.length(), commentPaint, textWidth)
+                    .setAlignment(Layout.Alignment.ALIGN_NORMAL)
+                    .setIncludePad(true)
+                    .build();
+            COMMENT_LAYOUTS.put(key, layout);
+        }
+        commentLayout = layout;
+        return layout;
+    }
+
+    private void updateNameLayout(int width) {
+        float available = width - (marginStart + avatarSize + textMarginStart);
+        displayedName = available > 0 ? TextUtils.ellipsize(name, namePaint, available, TextUtils.TruncateAt.END) : name;
+    }
+
+    /** Étoile à 5 branches inscrite dans un carré de côté 2 * radius. */
+    private void buildStarPath(float radius) {
+        float innerRadius = radius * 0.45f;
+        starPath.reset();
+        for (int point = 0; point < 10; point++) {
+            double angle = Math.PI / 5 * point - Math.PI / 2;
+            float r = point % 2 == 0 ? radius : innerRadius;
+            float x = radius + (float) (r * Math.cos(angle));
+            float y = radius + (float) (r * Math.sin(angle));
+            if (point == 0) starPath.moveTo(x, y);
+            else starPath.lineTo(x, y);
+        }
+        starPath.close();
+    }
+
+    private static void loadTypefaces(Context context) {
+        if (nameTypeface != null) return;
+        // inter_semibold est une police téléchargeable : on prend la police embarquée la plus proche
+        Typeface semibold = ResourcesCompat.getFont(context, R.font.jakarta_semibold);
+        Typeface regular = ResourcesCompat.getFont(context, R.font.jakarta_regular);
+        nameTypeface = semibold != null ? semibold : Typeface.DEFAULT_BOLD;
+        commentTypeface = regular != null ? regular : Typeface.DEFAULT;
+    }
+
+    private int dp(int value) {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics()));
+    }
+
+    private float sp(int value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value, getResources().getDisplayMetrics());
+    }
+}
@@ -1,10 +1,14 @@
 package com.openclassrooms.tajmahal.ui.reviews;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.openclassrooms.tajmahal.AppExecutors;
 import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
 import com.openclassrooms.tajmahal.domain.model.Review;
 
 import java.util.List;
@@ -15,7 +19,13 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 
 @HiltViewModel
 public class ReviewViewModel extends ViewModel {
+
+    // Utilisateur connecté, en dur (à remplacer par un Repository)
+    static final String CURRENT_USER = "Manon Garcia";
+    private static final String CURRENT_USER_PICTURE = "https://xsgames.co/randomusers/assets/avatars/female/20.jpg";
+
     private final RestaurantRepository restaurantRepository;
+    private final AppExecutors appExecutors;
 
     // --- LiveData pour la gestion de l'état UI ---
 
@@ -40,12 +50,31 @@ public class ReviewViewModel extends ViewModel {
         return reviewAddSuccessEvent;
     }
 
+    // Événement à usage unique : l'avis modifié a été enregistré
+    private final MutableLiveData<Boolean> reviewEditSuccessEvent = new MutableLiveData<>();
+
+    public LiveData<Boolean> getReviewEditSuccessEvent() {
+        return reviewEditSuccessEvent;
+    }
+
+    // Avis de l'utilisateur en cours de modification, null si le formulaire ajoute un nouvel avis
+    private final MutableLiveData<Review> editedReview = new MutableLiveData<>();
+
+    public LiveData<Review> getEditedReview() {
+        return editedReview;
+    }
+
+    // Avis de l'utilisateur connecté, relus dans l'index par auteur à chaque changement de la liste
+    private final MediatorLiveData<List<Review>> myReviews = new MediatorLiveData<>();
+    private boolean myReviewsObserved;
+
 
     // --- Constructor & Data access ---
 
     @Inject
-    public ReviewViewModel(RestaurantRepository restaurantRepository) {
+    public ReviewViewModel(RestaurantRepository restaurantRepository, AppExecutors appExecutors) {
         this.restaurantRepository = restaurantRepository;
+        this.appExecutors = appExecutors;
     }
     /**
      * Retrieves customer review details
@@ -55,13 +84,70 @@ public class ReviewViewModel extends ViewModel {
         return restaurantRepository.getReviews();
     }
 
+    /**
+     * Retrieves the reviews of the logged-in user, newest first.
+     * They are read from the repository's author index, off the main thread, each time the reviews change.
+     *
+     * @return LiveData containing the reviews of the user
+     */
+    public LiveData<List<Review>> getMyReviews() {
+        if (!myReviewsObserved) {
+            myReviewsObserved = true;
+            myReviews.addSource(restaurantRepository.getReviews(), reviews ->
+                    appExecutors.background().execute(() ->
+                            myReviews.postValue(restaurantRepository.getReviewsBy(CURRENT_USER))));
+        }
+        return myReviews;
+    }
+
+    /**
+     * Loads one of the user's reviews into the form: the next valid submission edits it.
+     *
+     * @param review a review of the logged-in user
+     */
+    public void startEditing(Review review) {
+        editedReview.setValue(review);
+    }
+
+    /**
+     * Leaves the edit mode: the next valid submission adds a new review.
+     */
+    public void cancelEditing() {
+        editedReview.setValue(null);
+    }
+
+    /**
+     * Deletes one of the user's reviews, off the main thread.
+     *
+     * @param review a review of the logged-in user
+     */
+    public void deleteReview(Review review) {
+        if (review == editedReview.getValue()) {
+            editedReview.setValue(null);
+        }
+        appExecutors.background().execute(() -> restaurantRepository.deleteReview(review));
+    }
+
     // --- Business Logic & State Management ---
 
     /**
      * Valide les entrées utilisateur et ajoute l'avis si entrées valides.
+     * Le contrôle des doublons et l'ajout se font ensemble hors du thread principal, le résultat est publié sur le thread principal.
+     * En mode modification (voir {@link #startEditing(Review)}), l'avis modifié remplace l'ancien, sans contrôle
+     * des doublons : l'ancien commentaire, encore indexé, ressemble forcément au nouveau.
      * Met à jour les LiveData d'erreur et de succès.
      */
     public void processNewReview(String comment, int rating) {
+        processNewReview(comment, rating, null);
+    }
+
+    /**
+     * Comme {@link #processNewReview(String, int)}, avec les notes par critère (facultatives).
+     *
+     * @param dimensionScores note de chaque {@link RatingDimension}, indexée par {@link RatingDimension#ordinal()},
+     *                        0 = critère non noté ; null si aucun critère n'est noté
+     */
+    public void processNewReview(String comment, int rating, int[] dimensionScores) {
         // 1. Validation du Commentaire
         if (comment.isEmpty()) {
             commentError.setValue("Désolés, le commentaire ne peut pas être vide");
@@ -78,21 +164,70 @@ public class ReviewViewModel extends ViewModel {
         ratingError.setValue(null); // Clear previous rating error
 
         // 3. L'avis est valide: préparation des données utilisateur (à remplacer par un Repository)
-        String username = "Manon Garcia";
-        String picture = "https://xsgames.co/randomusers/assets/avatars/female/20.jpg";
+        String username = CURRENT_USER;
+        String picture = CURRENT_USER_PICTURE;
 
-        // 4. Ajout de l'avis via le Repository
-        addReview(username, picture, comment, rating);
+        Review edited = editedReview.getValue();
+        if (edited != null) {
+            editReview(edited, comment, rating, dimensionScores);
+            return;
+        }
 
-        // 5. Émission de l'événement de succès (pour que la View réagisse)
-        reviewAddSuccessEvent.setValue(true);
+        // 4. Contrôle des doublons (index d'empreintes) et ajout via le Repository, en une seule opération en arrière-plan :
+        // deux envois rapprochés du même avis ne peuvent pas passer tous les deux le contrôle
+        Review.Builder builder = new Review.Builder()
+                .setUsername(username)
+                .setPicture(picture)
+                .setComment(comment)
+                .setRate(rating);
+        Review review = setScores(builder, dimensionScores).build();
+        appExecutors.background().execute(() -> {
+            ReviewFingerprintIndex.Match duplicate = restaurantRepository.addReviewIfAbsent(review);
+            appExecutors.mainThread().execute(() -> {
+                if (duplicate == ReviewFingerprintIndex.Match.EXACT) {
+                    commentError.setValue("Cet avis a déjà été publié");
+                    return;
+                }
+                if (duplicate == ReviewFingerprintIndex.Match.NEAR) {
+                    commentError.setValue("Un avis très similaire a déjà été publié");
+                    return;
+                }
+
+                // 5. Émission de l'événement de succès (pour que la View réagisse)
+                reviewAddSuccessEvent.setValue(true);
+            });
+        });
     }
 
     /**
-     * Adds a new review to the list with using the repository
+     * Replaces the edited review through the repository, then leaves the edit mode.
      */
-    private void addReview(String username, String picture, String comment, int rate) {
-        Review newReview = new Review(username, picture, comment, rate);
-        restaurantRepository.addReview(newReview);
+    private void editReview(Review edited, String comment, int rate, int[] dimensionScores) {
+        Review.Builder builder = edited.toBuilder()
+                .setComment(comment)
+                .setRate(rate);
+        Review updated = setScores(builder, dimensionScores).build();
+        appExecutors.background().execute(() -> {
+            boolean saved = restaurantRepository.editReview(edited, updated);
+            appExecutors.mainThread().execute(() -> {
+                editedReview.setValue(null);
+                if (saved) {
+                    reviewEditSuccessEvent.setValue(true);
+                } else {
+                    commentError.setValue("Cet avis n'existe plus");
+                }
+            });
+        });
+    }
+
+    /**
+     * Copies the dimension scores of the form into the review; without scores, the review keeps the ones it had.
+     */
+    private static Review.Builder setScores(Review.Builder builder, int[] dimensionScores) {
+        if (dimensionScores == null) return builder;
+        for (RatingDimension dimension : RatingDimension.values()) {
+            builder.setScore(dimension, dimensionScores[dimension.ordinal()]);
+        }
+        return builder;
     }
 }
\ No newline at end of file
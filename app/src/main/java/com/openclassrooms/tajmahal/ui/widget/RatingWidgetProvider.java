@@ -0,0 +1,68 @@
+package com.openclassrooms.tajmahal.ui.widget;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.widget.RemoteViews;
+
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.data.repository.RatingStatsFile;
+import com.openclassrooms.tajmahal.ui.MainActivity;
+
+import java.io.File;
+
+/**
+ * Home-screen widget showing the average rating and the number of reviews of the restaurant.
+ * <p>
+ * The widget never loads the reviews: it reads the {@value RatingStatsFile#FILE_SIZE}-byte
+ * {@link RatingStatsFile} kept up to date by the repository, and injects nothing. When an update
+ * starts the process, {@code TajMahalApplication} starts the details warm-up, which builds the repository
+ * on the background executor: the widget is drawn from the file without waiting for it, and nothing runs
+ * on the main thread besides the Hilt component. The app refreshes the widget through
+ * {@link #refresh(Context)} each time the file is rewritten; there is no periodic update.
+ * </p>
+ * For beginners: an app widget is drawn by the launcher, in another process. The app describes
+ * its content with {@link RemoteViews}, which only support a few simple views.
+ */
+public class RatingWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        update(context, appWidgetManager, appWidgetIds);
+    }
+
+    /**
+     * Redraws every rating widget placed on the home screen from the stats file.
+     * Can be called from any thread.
+     *
+     * @param context any context of the application
+     */
+    public static void refresh(Context context) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context, RatingWidgetProvider.class));
+        if (ids.length > 0) {
+            update(context, manager, ids);
+        }
+    }
+
+    private static void update(Context context, AppWidgetManager manager, int[] appWidgetIds) {
+        // quelques octets lus : pas besoin de goAsync()
+        RatingStatsFile.Stats stats = RatingStatsFile.read(new File(context.getFilesDir(), RatingStatsFile.FILE_NAME));
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_rating);
+        if (stats == null) {
+            views.setTextViewText(R.id.tvWidgetAverage, "–");
+            views.setTextViewText(R.id.tvWidgetCount, context.getString(R.string.widget_no_stats));
+        } else {
+            views.setTextViewText(R.id.tvWidgetAverage, context.getString(R.string.widget_average, stats.getAverageText()));
+            views.setTextViewText(R.id.tvWidgetCount, context.getString(R.string.widget_review_count, stats.getCount()));
+        }
+        // un appui ouvre l'application
+        Intent intent = new Intent(context, MainActivity.class);
+        views.setOnClickPendingIntent(R.id.widgetRoot,
+                PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+        manager.updateAppWidget(appWidgetIds, views);
+    }
+}
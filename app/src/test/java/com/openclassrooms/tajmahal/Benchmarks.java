@@ -0,0 +1,34 @@
+package com.openclassrooms.tajmahal;
+
+import org.junit.Assume;
+
+/**
+ * Mode mesure des tests unitaires
+ * désactivé par défaut : la suite ne fait que des vérifications, sans seuil de temps ni affichage ;
+ * activé par ./gradlew testDebugUnitTest -Pbenchmarks (propriété reviewBenchmark.enabled, voir app/build.gradle.kts)
+ * et toujours par la tâche benchmarkUnitTest, lancée par ./gradlew check : les seuils font échouer le build de la CI
+ */
+final class Benchmarks {
+
+    /** true si les mesures sont demandées */
+    static final boolean ENABLED = Boolean.getBoolean("reviewBenchmark.enabled");
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Ignore le test, sans échec, hors du mode mesure : pour les tests qui ne font que chronométrer.
+     */
+    static void assumeEnabled() {
+        Assume.assumeTrue("mesure désactivée (-Pbenchmarks)", ENABLED);
+    }
+
+    /**
+     * Affiche une mesure, seulement en mode mesure.
+     */
+    static void report(String format, Object... args) {
+        if (ENABLED) {
+            System.out.printf(format + "%n", args);
+        }
+    }
+}
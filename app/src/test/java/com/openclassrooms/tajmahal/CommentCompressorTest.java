@@ -0,0 +1,186 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.adapter.CommentCache;
+import com.openclassrooms.tajmahal.data.service.CommentCompressor;
+import com.openclassrooms.tajmahal.data.service.ConcurrentReviewStore;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de la compression des commentaires d'avis
+ * aller-retour, gain de mémoire et coût de décodage par bind sur 100 000 avis, borne du cache LRU
+ */
+public class CommentCompressorTest {
+
+    private static final int REVIEW_COUNT = 100_000;
+    private static final int SCREEN_ROWS = 10;
+
+    private static final String[] OPENINGS = {
+            "Très bonne soirée dans ce restaurant,", "Nous sommes venus en famille un dimanche midi,",
+            "Deuxième visite et toujours aussi bon,", "Déjeuner rapide entre collègues,",
+            "Première fois que je goûte la cuisine indienne ici,", "Soirée décevante malheureusement,",
+            "Restaurant recommandé par des amis,", "Commande à emporter ce soir,",
+    };
+    private static final String[] MIDDLES = {
+            " le poulet tikka masala était délicieux et la sauce bien épicée.",
+            " le service était un peu lent mais le personnel très aimable.",
+            " les plats sont copieux et le rapport qualité prix excellent.",
+            " le naan au fromage était encore chaud et le riz basmati parfumé.",
+            " les currys manquaient de saveurs et les portions étaient petites.",
+            " l'accueil est chaleureux et le cadre agréable.",
+            " le biryani d'agneau est savoureux, les épices sont bien dosées.",
+            " nous avons attendu longtemps et les plats étaient tièdes.",
+    };
+    private static final String[] ENDINGS = {
+            " Je recommande vivement !", " Nous reviendrons avec plaisir.", " Dommage, je ne pense pas revenir.",
+            " Merci à toute l'équipe.", " Les desserts maison valent le détour.", " Un peu cher pour la qualité.",
+            " Parfait pour un dîner entre amis.", "",
+    };
+
+    private static List<Review> plainReviews;
+    private static CommentCompressor compressor;
+    private static List<Review> storedReviews;
+
+    @BeforeClass
+    public static void setUp() {
+        plainReviews = generateReviews(REVIEW_COUNT);
+        compressor = CommentCompressor.french();
+        ConcurrentReviewStore store = new ConcurrentReviewStore(compressor);
+        store.addAll(plainReviews);
+        storedReviews = store.snapshot(); // la plus récente en premier
+    }
+
+    /**
+     * test 1 - chaque commentaire compressé se décode à l'identique, l'avis reste égal à l'original
+     */
+    @Test
+    public void compact_shouldRoundTripEveryComment() {
+        int compressed = 0;
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            Review original = plainReviews.get(i);
+            Review stored = storedReviews.get(REVIEW_COUNT - 1 - i);
+            if (stored.getStoredComment() != null) compressed++;
+            assertEquals(original.getComment(), stored.getComment());
+            assertEquals(original.hashCode(), stored.hashCode());
+            assertEquals(original, stored);
+        }
+        assertEquals(compressor.getCompressedCount(), compressed);
+        assertTrue(compressed > REVIEW_COUNT / 2);
+
+        // commentaire court : gardé tel quel, même instance
+        Review shortReview = new Review("Emilie Hood", null, "Très bon restaurant Indien ! Je recommande.", 4);
+        assertSame(shortReview, compressor.compact(shortReview));
+        // caractères hors du corpus
+        Review emoji = new Review("Léa", null, "Génial 😋🍛 — \"naan\" croustillant, café noir, addition 42 € ; à refaire\nligne 2", 5);
+        assertEquals(emoji, compressor.compact(emoji));
+        assertEquals(emoji.getComment(), compressor.compact(emoji).getComment());
+    }
+
+    /**
+     * test 2 - les commentaires compressés occupent au plus 60 % de la mémoire des chaînes
+     */
+    @Test
+    public void compact_shouldSaveHeapOnLargeHistory() {
+        long plainBytes = 0;
+        long storedBytes = 0;
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            plainBytes += stringBytes(plainReviews.get(i).getComment());
+            Review stored = storedReviews.get(i);
+            CommentCompressor.CompressedComment comment = (CommentCompressor.CompressedComment) stored.getStoredComment();
+            // objet (en-tête, référence, 2 int) + tableau (en-tête, données)
+            storedBytes += comment == null ? stringBytes(stored.getComment()) : 24 + align(16 + comment.getCompressedSize());
+        }
+        storedBytes += compressor.getDictionarySize();
+        Benchmarks.report("%d comments: %d KB as strings, %d KB compressed (%d %%), dictionary %d bytes",
+                REVIEW_COUNT, plainBytes / 1024, storedBytes / 1024, 100 * storedBytes / plainBytes, compressor.getDictionarySize());
+
+        assertTrue(storedBytes * 100 <= plainBytes * 60);
+    }
+
+    /**
+     * test 3 - défilement écran par écran : un bind décode une fois, un retour en arrière sert le cache,
+     * et le cache ne dépasse pas son budget
+     */
+    @Test
+    public void commentCache_scrolling_shouldDecodeOnceAndStayBounded() {
+        int maxChars = 16 * 1024;
+        CommentCache cache = new CommentCache(maxChars);
+        int rows = 5_000;
+
+        long start = System.nanoTime();
+        for (int screen = 0; screen < rows / SCREEN_ROWS; screen++) {
+            for (int row = 0; row < SCREEN_ROWS; row++) {
+                assertNotNull(cache.get(storedReviews.get(screen * SCREEN_ROWS + row)));
+            }
+            assertTrue(cache.getCachedChars() <= maxChars);
+        }
+        long missNanos = System.nanoTime() - start;
+        long misses = cache.getMissCount();
+
+        // retour sur les 5 derniers écrans : déjà décodés
+        start = System.nanoTime();
+        for (int i = rows - 1; i >= rows - 5 * SCREEN_ROWS; i--) {
+            assertEquals(plainReviews.get(REVIEW_COUNT - 1 - i).getComment(), cache.get(storedReviews.get(i)));
+        }
+        long hitNanos = System.nanoTime() - start;
+        long hits = cache.getHitCount();
+
+        double missMicros = missNanos / 1000.0 / rows;
+        double hitMicros = hitNanos / 1000.0 / (5 * SCREEN_ROWS);
+        Benchmarks.report("bind: %.2f µs with decoding (%d decoded), %.2f µs from the cache (%d hits), %d comments cached (%d chars)",
+                missMicros, misses, hitMicros, hits, cache.size(), cache.getCachedChars());
+
+        assertEquals(5 * SCREEN_ROWS, hits);
+        assertTrue(cache.getCachedChars() <= maxChars);
+        if (Benchmarks.ENABLED) {
+            assertTrue(missMicros < 1_000); // bien en dessous d'une frame de 16 ms par écran
+        }
+    }
+
+    /**
+     * test 4 - un commentaire gardé en chaîne ne passe pas par le cache
+     */
+    @Test
+    public void commentCache_plainComment_shouldNotBeCached() {
+        CommentCache cache = new CommentCache(CommentCache.DEFAULT_MAX_CHARS);
+        Review review = new Review("Emilie Hood", null, "Très bon restaurant Indien ! Je recommande.", 4);
+
+        assertEquals(review.getComment(), cache.get(review));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    private static List<Review> generateReviews(int count) {
+        Random random = new Random(42);
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String comment = OPENINGS[random.nextInt(OPENINGS.length)]
+                    + MIDDLES[random.nextInt(MIDDLES.length)]
+                    + MIDDLES[random.nextInt(MIDDLES.length)]
+                    + ENDINGS[random.nextInt(ENDINGS.length)];
+            reviews.add(new Review("Client " + i, null, comment, 1 + random.nextInt(5)));
+        }
+        return reviews;
+    }
+
+    /**
+     * Taille d'une chaîne sur Android : objet String + tableau, en UTF-16 dès qu'un caractère n'est pas ASCII.
+     */
+    private static long stringBytes(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) ascii = text.charAt(i) < 128;
+        return 24 + align(16 + (long) text.length() * (ascii ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
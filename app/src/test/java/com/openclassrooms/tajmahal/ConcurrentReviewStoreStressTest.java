@@ -0,0 +1,120 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.service.ConcurrentReviewStore;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de charge du ConcurrentReviewStore
+ * plusieurs écrivains et lecteurs en parallèle : aucun avis perdu, snapshots toujours cohérents
+ * affiche le débit en fonction du nombre de threads
+ */
+public class ConcurrentReviewStoreStressTest {
+
+    private static final int REVIEWS_PER_WRITER = 50_000;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    /**
+     * test 1 - N écrivains + N lecteurs : rien n'est perdu, ordre de chaque écrivain conservé
+     */
+    @Test
+    public void concurrentWritersAndReaders_shouldLoseNothingAndSeeConsistentSnapshots() throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            ConcurrentReviewStore store = new ConcurrentReviewStore();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicBoolean writing = new AtomicBoolean(true);
+            AtomicLong snapshotsRead = new AtomicLong();
+            CountDownLatch start = new CountDownLatch(1);
+
+            Thread[] writers = new Thread[threads];
+            for (int w = 0; w < threads; w++) {
+                int writer = w;
+                writers[w] = new Thread(() -> {
+                    await(start);
+                    for (int i = 0; i < REVIEWS_PER_WRITER; i++) {
+                        store.add(new Review("writer" + writer, null, Integer.toString(i), 5));
+                    }
+                });
+            }
+            Thread[] readers = new Thread[threads];
+            for (int r = 0; r < threads; r++) {
+                readers[r] = new Thread(() -> {
+                    await(start);
+                    try {
+                        int previousSize = 0;
+                        while (writing.get()) {
+                            List<Review> snapshot = store.snapshot();
+                            assertTrue(snapshot.size() >= previousSize);
+                            previousSize = snapshot.size();
+                            checkConsistent(snapshot, threads);
+                            snapshotsRead.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                });
+            }
+
+            for (Thread thread : writers) thread.start();
+            for (Thread thread : readers) thread.start();
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Thread thread : writers) thread.join();
+            long elapsedNanos = System.nanoTime() - startNanos;
+            writing.set(false);
+            for (Thread thread : readers) thread.join();
+
+            if (failure.get() != null) throw new AssertionError(failure.get());
+            int total = threads * REVIEWS_PER_WRITER;
+            List<Review> all = store.snapshot();
+            assertEquals(total, all.size());
+            Set<String> unique = new HashSet<>();
+            for (Review review : all) {
+                unique.add(review.getUsername() + "/" + review.getComment());
+            }
+            assertEquals(total, unique.size());
+            checkConsistent(all, threads);
+
+            Benchmarks.report("%d writer(s) + %d reader(s): %,.0f adds/s, %d snapshots read",
+                    threads, threads, total / (elapsedNanos / 1e9), snapshotsRead.get());
+        }
+    }
+
+    /**
+     * Vérifie un snapshot : pour chaque écrivain, ses avis du plus récent au plus ancien, sans trou
+     */
+    private static void checkConsistent(List<Review> snapshot, int writers) {
+        int[] lastSeen = new int[writers];
+        Arrays.fill(lastSeen, -1);
+        for (Review review : snapshot) {
+            assertNotNull(review);
+            int writer = Integer.parseInt(review.getUsername().substring("writer".length()));
+            int sequence = Integer.parseInt(review.getComment());
+            assertTrue(lastSeen[writer] == -1 || sequence == lastSeen[writer] - 1);
+            lastSeen[writer] = sequence;
+        }
+        for (int sequence : lastSeen) {
+            assertTrue(sequence <= 0);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
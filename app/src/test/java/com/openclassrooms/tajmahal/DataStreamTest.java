@@ -0,0 +1,226 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.DataStream;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.StreamEmitter;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test du flux d'avis avec backpressure (DataStream)
+ * demande, filtre, fenêtres, stratégies de tampon et consommation hors du thread principal
+ */
+public class DataStreamTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * test 1 - un flux froid n'émet que ce qui est demandé
+     */
+    @Test
+    public void fromIterable_shouldEmitOnlyRequestedValues() {
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0);
+        DataStream.fromIterable(() -> Arrays.asList(1, 2, 3, 4, 5)).subscribe(subscriber);
+
+        assertTrue(subscriber.values.isEmpty());
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2), subscriber.values);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), subscriber.values);
+        assertTrue(subscriber.completed);
+    }
+
+    /**
+     * test 2 - filtre puis fenêtres : une fenêtre demandée = une fenêtre de valeurs acceptées,
+     * la dernière fenêtre est partielle
+     */
+    @Test
+    public void filterThenWindow_shouldGroupAcceptedValues() {
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) numbers.add(i);
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<>(1);
+
+        DataStream.fromIterable(() -> numbers)
+                .filter(n -> n % 2 == 0)
+                .window(4)
+                .subscribe(subscriber);
+
+        assertEquals(Collections.singletonList(Arrays.asList(2, 4, 6, 8)), subscriber.values);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(Arrays.asList(2, 4, 6, 8), Arrays.asList(10, 12, 14, 16), Arrays.asList(18, 20)),
+                subscriber.values);
+        assertTrue(subscriber.completed);
+    }
+
+    /**
+     * test 3 - consommateur lent : chaque stratégie garde les bonnes valeurs quand le tampon déborde
+     */
+    @Test
+    public void observeOn_fullBuffer_shouldApplyOverflowStrategy() {
+        assertEquals(Arrays.asList(8, 9, 10), slowConsumer(DataStream.Overflow.DROP_OLDEST).values);
+        assertEquals(Arrays.asList(1, 2, 3), slowConsumer(DataStream.Overflow.DROP_NEWEST).values);
+
+        RecordingSubscriber<Integer> failed = slowConsumer(DataStream.Overflow.ERROR);
+        assertTrue(failed.values.isEmpty());
+        assertTrue(failed.error instanceof DataStream.BackpressureException);
+    }
+
+    /**
+     * test 4 - un flux chaud sans demande échoue au lieu de perdre des valeurs en silence
+     */
+    @Test
+    public void emitter_withoutDemand_shouldSignalBackpressure() {
+        StreamEmitter<Integer> emitter = new StreamEmitter<>();
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        emitter.subscribe(subscriber);
+
+        emitter.emit(1);
+        emitter.emit(2);
+
+        assertEquals(Collections.singletonList(1), subscriber.values);
+        assertTrue(subscriber.error instanceof DataStream.BackpressureException);
+        assertEquals(0, emitter.getSubscriberCount());
+    }
+
+    /**
+     * test 5 - un indexeur en arrière-plan reçoit par fenêtres les avis ajoutés depuis plusieurs threads,
+     * sans passer par le thread principal
+     */
+    @Test
+    public void streamAddedReviews_shouldReachBackgroundConsumerByWindows() throws Exception {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run);
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        int writers = 4;
+        int perWriter = 250;
+        CountDownLatch received = new CountDownLatch(writers * perWriter / 2 / 10); // fenêtres de 10 avis notés 5
+        List<List<Review>> windows = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> consumerThreads = Collections.synchronizedList(new ArrayList<>());
+
+        repository.streamAddedReviews()
+                .observeOn(background, 10_000, DataStream.Overflow.ERROR)
+                .filter(review -> review.getRate() >= 4)
+                .window(10)
+                .subscribe(new RecordingSubscriber<List<Review>>(Long.MAX_VALUE) {
+                    @Override
+                    public void onNext(List<Review> window) {
+                        consumerThreads.add(Thread.currentThread());
+                        windows.add(window);
+                        received.countDown();
+                    }
+                });
+
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads[w] = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    // une note sur deux est >= 4
+                    repository.addReview(new Review("writer" + writer, null, "avis " + i, i % 2 == 0 ? 5 : 2));
+                }
+            });
+            threads[w].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        background.shutdown();
+        int total = 0;
+        for (List<Review> window : windows) {
+            assertEquals(10, window.size());
+            for (Review review : window) assertEquals(5, review.getRate());
+            total += window.size();
+        }
+        assertEquals(writers * perWriter / 2, total);
+        for (Thread thread : consumerThreads) assertNotSame(Thread.currentThread(), thread);
+    }
+
+    /**
+     * test 6 - les flux froids du repository : restaurant puis avis, au rythme de la demande
+     */
+    @Test
+    public void streamReviews_shouldFollowDemand() {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run);
+        List<Review> reviews = repository.getReviews().getValue();
+
+        RecordingSubscriber<Review> subscriber = new RecordingSubscriber<>(1);
+        repository.streamReviews().subscribe(subscriber);
+        assertEquals(Collections.singletonList(reviews.get(0)), subscriber.values);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(reviews, subscriber.values);
+        assertTrue(subscriber.completed);
+
+        RecordingSubscriber<Restaurant> restaurant = new RecordingSubscriber<>(Long.MAX_VALUE);
+        repository.streamRestaurant().subscribe(restaurant);
+        assertEquals(1, restaurant.values.size());
+        assertEquals("Taj Mahal", restaurant.values.get(0).getName());
+        assertTrue(restaurant.completed);
+    }
+
+    /**
+     * 10 valeurs émises dans un tampon de 3, livrées ensuite à un abonné qui demande tout.
+     */
+    private static RecordingSubscriber<Integer> slowConsumer(DataStream.Overflow overflow) {
+        StreamEmitter<Integer> emitter = new StreamEmitter<>();
+        List<Runnable> pending = new ArrayList<>();
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        emitter.observeOn(pending::add, 3, overflow).subscribe(subscriber);
+
+        for (int i = 1; i <= 10; i++) emitter.emit(i);
+        // l'executor n'a encore rien livré : le consommateur est "lent"
+        while (!pending.isEmpty()) pending.remove(0).run();
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber<T> implements DataStream.Subscriber<T> {
+        private final long initialRequest;
+        final List<T> values = new ArrayList<>();
+        DataStream.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(DataStream.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
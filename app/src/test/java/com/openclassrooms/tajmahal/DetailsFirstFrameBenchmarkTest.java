@@ -0,0 +1,133 @@
+package com.openclassrooms.tajmahal;
+
+import android.graphics.BitmapFactory;
+import android.os.Bundle;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.bumptech.glide.Glide;
+import com.openclassrooms.tajmahal.ui.MainActivity;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsFragment;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.time.Duration;
+
+import dagger.hilt.android.testing.HiltAndroidRule;
+import dagger.hilt.android.testing.HiltAndroidTest;
+import dagger.hilt.android.testing.HiltTestApplication;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Benchmark Robolectric de la première frame de DetailsFragment
+ * compare la photo chargée par Glide (aperçu puis photo, décodée hors du thread principal)
+ * à l'ancien chargement direct de food_picture (android:src), décodé sur le thread principal avant la première frame.
+ * Le mode graphique natif décode vraiment les PNG ; seul le temps du thread principal est mesuré, pas celui d'un appareil.
+ * Ignoré hors du mode mesure (voir {@link Benchmarks}).
+ */
+@HiltAndroidTest
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@Config(sdk = 33, application = HiltTestApplication.class, qualifiers = "w411dp-h891dp-xxhdpi")
+public class DetailsFirstFrameBenchmarkTest {
+
+    private static final int RUNS = 5;
+
+    @Rule
+    public HiltAndroidRule hiltRule = new HiltAndroidRule(this);
+
+    @Before
+    public void setup() {
+        hiltRule.inject();
+    }
+
+    /**
+     * test 1 - de la création du fragment à sa première frame : le chargement par Glide est plus rapide
+     * que le décodage direct de la photo
+     */
+    @Test
+    public void firstFrame_withGlideThumbnail_shouldBeFasterThanDirectPhotoLoad() {
+        Benchmarks.assumeEnabled();
+        // préchauffage : chargement des classes, de Glide, des polices et des ressources
+        firstFrameNanos(false);
+        firstFrameNanos(true);
+
+        long glideBest = Long.MAX_VALUE;
+        long directBest = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            glideBest = Math.min(glideBest, firstFrameNanos(false));
+            directBest = Math.min(directBest, firstFrameNanos(true));
+        }
+
+        Benchmarks.report("Details first frame: Glide thumbnail %.1f ms, direct src %.1f ms",
+                glideBest / 1e6, directBest / 1e6);
+        assertTrue("glide " + glideBest + " ns vs direct " + directBest + " ns", glideBest < directBest);
+    }
+
+    /**
+     * Ouvre l'écran de détails et mesure le temps entre la création de DetailsFragment et sa première frame.
+     *
+     * @param directLoad true pour remplacer la requête Glide par l'ancien chargement direct de la photo
+     * @return le temps en nanosecondes
+     */
+    private long firstFrameNanos(boolean directLoad) {
+        ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class);
+        long[] createdAt = {0};
+        long[] firstFrameAt = {0};
+        // enregistré avant onCreate : MainActivity ajoute DetailsFragment dès sa création
+        controller.get().getSupportFragmentManager().registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @Nullable Bundle savedInstanceState) {
+                if (f instanceof DetailsFragment) createdAt[0] = System.nanoTime();
+            }
+
+            @Override
+            public void onFragmentViewCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull View v,
+                                              @Nullable Bundle savedInstanceState) {
+                if (!(f instanceof DetailsFragment)) return;
+                if (directLoad) {
+                    // comme l'ancien android:src : la photo entière décodée à la densité de l'écran, avant la première frame
+                    ImageView image = v.findViewById(R.id.image);
+                    Glide.with(f).clear(image);
+                    image.setImageBitmap(BitmapFactory.decodeResource(f.getResources(), R.drawable.food_picture));
+                }
+                v.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        v.getViewTreeObserver().removeOnPreDrawListener(this);
+                        firstFrameAt[0] = System.nanoTime();
+                        return true;
+                    }
+                });
+            }
+        }, false);
+
+        controller.setup();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        controller.pause().stop().destroy();
+        // chaque mesure repart sans la photo en mémoire, comme au premier lancement
+        Glide.get(ApplicationProvider.getApplicationContext()).clearMemory();
+
+        assertTrue("DetailsFragment was not created", createdAt[0] > 0);
+        assertTrue("no frame drawn", firstFrameAt[0] > 0);
+        return firstFrameAt[0] - createdAt[0];
+    }
+}
@@ -0,0 +1,95 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.MutableLiveData;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsUiState;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsViewModel;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsWarmUp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Details view model test class
+ * vérifie le calcul de DetailsUiState et qu'il n'est publié que s'il change
+ */
+public class DetailsViewModelTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Mock
+    private RestaurantRepository mockRepository;
+
+    private final MutableLiveData<List<Review>> reviews = new MutableLiveData<>();
+    private final List<DetailsUiState> states = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(mockRepository.getReviews()).thenReturn(reviews);
+        AppExecutors executors = new AppExecutors(Runnable::run, Runnable::run);
+        DetailsViewModel viewModel = new DetailsViewModel(mockRepository, executors, new DetailsWarmUp(() -> mockRepository, executors));
+        viewModel.getUiState().observeForever(states::add);
+    }
+
+    /**
+     * test 1 - moyenne, nombre d'avis et pourcentages calculés en une passe
+     */
+    @Test
+    public void getUiState_shouldSummarizeReviews() {
+        reviews.setValue(Arrays.asList(review(5), review(5), review(4), review(2)));
+
+        assertEquals(1, states.size());
+        DetailsUiState state = states.get(0);
+        assertEquals(4.0f, state.getAverageRating(), 0.001f);
+        assertEquals(4, state.getReviewCount());
+        assertEquals(50, state.getPercentage(5));
+        assertEquals(25, state.getPercentage(4));
+        assertEquals(0, state.getPercentage(3));
+        assertEquals(25, state.getPercentage(2));
+        assertEquals(0, state.getPercentage(1));
+        assertEquals("(4)", state.getReviewCountText());
+    }
+
+    /**
+     * test 2 - une nouvelle liste avec le même résumé n'est pas republiée
+     */
+    @Test
+    public void getUiState_withUnchangedSummary_shouldNotReEmit() {
+        reviews.setValue(Arrays.asList(review(5), review(3)));
+        reviews.setValue(Arrays.asList(review(3), review(5)));
+        reviews.setValue(Arrays.asList(review(3), review(5), review(4)));
+
+        assertEquals(2, states.size());
+        assertEquals(3, states.get(1).getReviewCount());
+    }
+
+    /**
+     * test 3 - aucun avis
+     */
+    @Test
+    public void getUiState_withoutReviews_shouldBeEmpty() {
+        reviews.setValue(new ArrayList<>());
+
+        assertEquals(DetailsUiState.EMPTY, states.get(0));
+        assertEquals(0, states.get(0).getReviewCount());
+    }
+
+    private static Review review(int rate) {
+        return new Review("User", "https://example.com/image.jpg", "Avis", rate);
+    }
+}
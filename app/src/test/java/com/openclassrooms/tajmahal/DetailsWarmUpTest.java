@@ -0,0 +1,164 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsUiState;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsViewModel;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsWarmUp;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de temps de démarrage de l'écran de détails
+ * compare le délai entre la création de DetailsViewModel et le premier résumé des avis,
+ * sans puis avec la préparation lancée par TajMahalApplication (DetailsWarmUp)
+ */
+public class DetailsWarmUpTest {
+
+    private static final int REVIEWS = 200_000;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+    private final AppExecutors appExecutors = new AppExecutors(background, Runnable::run);
+
+    @After
+    public void tearDown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * test 1 - avec la préparation au démarrage, le résumé et le restaurant sont prêts dès la création
+     * du ViewModel, sans nouvel appel à l'API ; le gain est mesuré et affiché
+     */
+    @Test
+    public void warmUp_shouldMakeDetailsReadyBeforeFirstFragment() throws Exception {
+        RestaurantApi api = generatedApi();
+        timeToFirstState(new RestaurantRepository(api, Runnable::run), false); // préchauffage de la JVM
+
+        long coldNanos = timeToFirstState(new RestaurantRepository(api, Runnable::run), false);
+        RestaurantRepository repository = new RestaurantRepository(api, Runnable::run);
+        long warmNanos = timeToFirstState(repository, true);
+
+        Benchmarks.report("%d reviews: first summary %.1f ms without warm-up, %.3f ms with warm-up (%.1f ms saved)",
+                REVIEWS, coldNanos / 1e6, warmNanos / 1e6, (coldNanos - warmNanos) / 1e6);
+        if (Benchmarks.ENABLED) {
+            assertTrue("warm " + warmNanos + " ns vs cold " + coldNanos + " ns", warmNanos * 10 < coldNanos);
+        }
+
+        long apiCalls = repository.getApiCallCount();
+        assertNotNull(repository.getRestaurant().getValue());
+        assertEquals(apiCalls, repository.getApiCallCount()); // restaurant préchargé
+    }
+
+    /**
+     * test 2 - un avis ajouté après la préparation : le résumé préparé n'est plus utilisé
+     */
+    @Test
+    public void warmUp_withReviewsChangedSince_shouldComputeFreshSummary() throws Exception {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run);
+        DetailsWarmUp warmUp = new DetailsWarmUp(() -> repository, appExecutors);
+        warmUp.start();
+        awaitBackground();
+        int count = repository.getReviews().getValue().size();
+
+        repository.addReview(new Review("Nouveau", null, "Ajouté après le démarrage", 1));
+        AtomicReference<DetailsUiState> state = new AtomicReference<>();
+        CountDownLatch published = new CountDownLatch(1);
+        new DetailsViewModel(repository, appExecutors, warmUp).getUiState().observeForever(value -> {
+            state.set(value);
+            published.countDown();
+        });
+
+        assertTrue(published.await(10, TimeUnit.SECONDS));
+        assertEquals(count + 1, state.get().getReviewCount());
+    }
+
+    /**
+     * test 3 - ViewModel créé avant la fin de la préparation : le résumé préparé est publié dès qu'il est prêt
+     */
+    @Test
+    public void viewModelCreatedBeforeWarmUp_shouldPublishPreparedSummary() throws Exception {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run);
+        int count = repository.getReviews().getValue().size();
+        // l'executor d'arrière-plan est bloqué : la préparation ne tourne pas encore
+        CountDownLatch blocked = new CountDownLatch(1);
+        background.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        DetailsWarmUp warmUp = new DetailsWarmUp(() -> repository, appExecutors);
+        warmUp.start();
+
+        AtomicReference<DetailsUiState> state = new AtomicReference<>();
+        CountDownLatch published = new CountDownLatch(1);
+        new DetailsViewModel(repository, appExecutors, warmUp).getUiState().observeForever(value -> {
+            state.set(value);
+            published.countDown();
+        });
+        assertNull(state.get());
+        blocked.countDown();
+
+        assertTrue(published.await(10, TimeUnit.SECONDS));
+        assertEquals(count, state.get().getReviewCount());
+    }
+
+    /**
+     * @param warmUp true pour lancer la préparation comme TajMahalApplication, et attendre qu'elle
+     *               se termine (le temps de création de la vue)
+     * @return le temps entre la création du ViewModel et son premier résumé, en nanosecondes
+     */
+    private long timeToFirstState(RestaurantRepository repository, boolean warmUp) throws Exception {
+        DetailsWarmUp detailsWarmUp = new DetailsWarmUp(() -> repository, appExecutors);
+        if (warmUp) {
+            detailsWarmUp.start();
+            awaitBackground();
+        }
+        CountDownLatch published = new CountDownLatch(1);
+        long start = System.nanoTime();
+        DetailsViewModel viewModel = new DetailsViewModel(repository, appExecutors, detailsWarmUp);
+        viewModel.getUiState().observeForever(state -> published.countDown());
+        assertTrue(published.await(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        awaitBackground(); // le calcul éventuel en cours ne déborde pas sur la mesure suivante
+        return elapsed;
+    }
+
+    /** L'executor d'arrière-plan traite les tâches dans l'ordre : attendre une tâche vide suffit. */
+    private void awaitBackground() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        background.execute(done::countDown);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+    }
+
+    private static RestaurantApi generatedApi() {
+        RestaurantApi api = new RestaurantFakeApi();
+        List<Review> reviews = new ArrayList<>(REVIEWS);
+        for (int i = 0; i < REVIEWS; i++) {
+            reviews.add(new Review("User " + i, null,
+                    "Avis " + i + " : le curry est délicieux, service rapide et accueil chaleureux", i % 5 + 1));
+        }
+        api.addReviews(reviews);
+        return api;
+    }
+}
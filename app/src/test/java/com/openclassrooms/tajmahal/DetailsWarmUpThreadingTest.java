@@ -0,0 +1,95 @@
+package com.openclassrooms.tajmahal;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.openclassrooms.tajmahal.data.repository.CoalescingPublisher;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsUiState;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsViewModel;
+import com.openclassrooms.tajmahal.ui.restaurant.DetailsWarmUp;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Test Robolectric de la préparation de l'écran de détails avec les vrais threads
+ * sans InstantTaskExecutorRule : une écriture de LiveData hors du thread principal lève une exception
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class DetailsWarmUpThreadingTest {
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+    // erreur levée par une tâche d'arrière-plan, qui serait sinon perdue par l'executor
+    private final AtomicReference<Throwable> backgroundFailure = new AtomicReference<>();
+    private final AppExecutors appExecutors = new AppExecutors(task -> background.execute(() -> {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            backgroundFailure.set(t);
+        }
+    }), new Handler(Looper.getMainLooper())::post);
+
+    @After
+    public void tearDown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * test 1 - le repository est construit sur le thread d'arrière-plan sans erreur,
+     * puis le ViewModel créé sur le thread principal publie le résumé préparé
+     */
+    @Test
+    public void start_shouldBuildRepositoryOffMainThread() throws Exception {
+        AtomicReference<RestaurantRepository> repository = new AtomicReference<>();
+        AtomicReference<Thread> builtOn = new AtomicReference<>();
+        DetailsWarmUp warmUp = new DetailsWarmUp(() -> {
+            // comme Hilt : le premier get() construit le singleton, avec le vrai publisher (frame suivante)
+            builtOn.set(Thread.currentThread());
+            repository.set(new RestaurantRepository(new RestaurantFakeApi(), CoalescingPublisher.nextFrame()));
+            return repository.get();
+        }, appExecutors);
+
+        warmUp.start();
+        awaitBackground();
+        assertNull("warm-up failed: " + backgroundFailure.get(), backgroundFailure.get());
+        assertNotSame(Looper.getMainLooper().getThread(), builtOn.get());
+
+        List<Review> reviews = repository.get().getReviews().getValue();
+        assertNotNull(reviews);
+        List<DetailsUiState> states = new ArrayList<>();
+        new DetailsViewModel(repository.get(), appExecutors, warmUp).getUiState().observeForever(states::add);
+        assertEquals(1, states.size());
+        assertEquals(reviews.size(), states.get(0).getReviewCount());
+
+        // un avis ajouté ensuite est publié sur le thread principal, à la frame suivante
+        repository.get().addReview(new Review("Nouveau", null, "Ajouté après le démarrage", 4));
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        assertEquals(reviews.size() + 1, repository.get().getReviews().getValue().size());
+    }
+
+    /** L'executor d'arrière-plan traite les tâches dans l'ordre : attendre une tâche vide suffit. */
+    private void awaitBackground() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        background.execute(done::countDown);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+    }
+}
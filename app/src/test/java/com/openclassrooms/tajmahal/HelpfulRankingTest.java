@@ -0,0 +1,139 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.repository.HelpfulRanking;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test du classement des avis les plus utiles
+ * le tas mis à jour à chaque vote doit donner le même résultat qu'un tri complet
+ */
+public class HelpfulRankingTest {
+
+    /**
+     * test 1 - votes aléatoires : le top K incrémental est égal au top K d'un tri complet
+     */
+    @Test
+    public void vote_randomVotes_shouldMatchFullSort() {
+        int reviewCount = 500;
+        int k = 5;
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < reviewCount; i++) {
+            reviews.add(new Review("User " + i, "https://example.com/" + i + ".jpg", "Avis " + i, i % 5 + 1));
+        }
+        HelpfulRanking ranking = new HelpfulRanking(k);
+        int[] votes = new int[reviewCount];
+        long[] reachedAt = new long[reviewCount];
+
+        Random random = new Random(42);
+        for (int vote = 1; vote <= 20_000; vote++) {
+            // quelques avis très populaires, beaucoup d'avis peu votés
+            int index = random.nextBoolean() ? random.nextInt(20) : random.nextInt(reviewCount);
+            ranking.vote(reviews.get(index), "voter " + vote);
+            votes[index]++;
+            reachedAt[index] = vote;
+
+            if (vote % 1000 == 0) {
+                assertEquals("after " + vote + " votes", expectedTop(reviews, votes, reachedAt, k), ranking.getTop());
+            }
+        }
+    }
+
+    /**
+     * test 2 - un même utilisateur ne vote qu'une fois par avis
+     */
+    @Test
+    public void vote_sameVoterTwice_shouldCountOnce() {
+        HelpfulRanking ranking = new HelpfulRanking(3);
+        Review review = new Review("User", "https://example.com/image.jpg", "Avis", 4);
+
+        assertTrue(ranking.vote(review, "Manon Garcia"));
+        assertFalse(ranking.vote(review, "Manon Garcia"));
+
+        assertEquals(1, ranking.getVotes(review));
+        assertTrue(ranking.hasVoted(review, "Manon Garcia"));
+        assertFalse(ranking.hasVoted(review, "Someone else"));
+    }
+
+    /**
+     * test 3 - un vote hors du top qui ne le dépasse pas ne change pas le classement
+     */
+    @Test
+    public void vote_belowTop_shouldNotChangeRanking() {
+        HelpfulRanking ranking = new HelpfulRanking(2);
+        Review a = new Review("A", "https://example.com/a.jpg", "Avis A", 5);
+        Review b = new Review("B", "https://example.com/b.jpg", "Avis B", 4);
+        Review c = new Review("C", "https://example.com/c.jpg", "Avis C", 3);
+        ranking.vote(a, "1");
+        ranking.vote(a, "2");
+        ranking.vote(b, "1");
+        ranking.vote(b, "2");
+
+        assertFalse(ranking.vote(c, "1"));
+        assertEquals(Arrays.asList(a, b), ranking.getTop());
+
+        ranking.vote(c, "2");
+        assertTrue(ranking.vote(c, "3"));
+        assertEquals(Arrays.asList(c, a), ranking.getTop());
+    }
+
+    /**
+     * test 4 - aucun vote : classement vide
+     */
+    @Test
+    public void getTop_withoutVotes_shouldBeEmpty() {
+        assertTrue(new HelpfulRanking(3).getTop().isEmpty());
+    }
+
+    /**
+     * test 5 - deux avis identiques ont chacun leurs votes : supprimer l'un garde les votes de l'autre
+     */
+    @Test
+    public void vote_identicalReviews_shouldBeCountedSeparately() {
+        HelpfulRanking ranking = new HelpfulRanking(3);
+        Review first = new Review("User", "https://example.com/image.jpg", "Avis publié deux fois", 4);
+        Review second = new Review("User", "https://example.com/image.jpg", "Avis publié deux fois", 4);
+        assertEquals(first, second);
+
+        ranking.vote(first, "1");
+        ranking.vote(first, "2");
+        ranking.vote(second, "1");
+
+        assertEquals(2, ranking.getVotes(first));
+        assertEquals(1, ranking.getVotes(second));
+        assertTrue(ranking.hasVoted(second, "1"));
+        assertFalse(ranking.hasVoted(second, "2"));
+
+        assertTrue(ranking.remove(first));
+        assertFalse(ranking.hasVotes(first));
+        assertEquals(0, ranking.getVotes(first));
+        assertEquals(1, ranking.getVotes(second));
+        assertEquals(1, ranking.getTop().size());
+        assertSame(second, ranking.getTop().get(0));
+    }
+
+    /** Tri complet : plus de votes d'abord, puis score atteint le plus tôt. */
+    private static List<Review> expectedTop(List<Review> reviews, int[] votes, long[] reachedAt, int k) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < reviews.size(); i++) {
+            if (votes[i] > 0) indexes.add(i);
+        }
+        Collections.sort(indexes, (x, y) -> votes[x] != votes[y]
+                ? Integer.compare(votes[y], votes[x])
+                : Long.compare(reachedAt[x], reachedAt[y]));
+        List<Review> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, indexes.size()); i++) {
+            top.add(reviews.get(indexes.get(i)));
+        }
+        return top;
+    }
+}
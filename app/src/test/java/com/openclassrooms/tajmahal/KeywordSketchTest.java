@@ -0,0 +1,136 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.repository.KeywordSketch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test des mots-clés des avis (count-min sketch + tas des meilleurs candidats)
+ * comparé aux comptes exacts sur des commentaires générés
+ */
+public class KeywordSketchTest {
+
+    private static final int VOCABULARY = 20_000;
+    private static final int COMMENTS = 100_000;
+
+    /**
+     * test 1 - sur 100 000 commentaires (loi de Zipf), le top 5 approché est le top 5 exact
+     * et les estimations ne dépassent les comptes exacts que de e/width du total
+     */
+    @Test
+    public void top_onZipfComments_shouldMatchExactCounts() {
+        int width = 4096;
+        KeywordSketch sketch = new KeywordSketch(width, 4, 50);
+        Map<String, Integer> exact = new HashMap<>();
+        long words = 0;
+
+        Random random = new Random(7);
+        double[] cumulative = zipf(VOCABULARY, 1.1);
+        for (int i = 0; i < COMMENTS; i++) {
+            StringBuilder comment = new StringBuilder("Le ");
+            Set<String> distinct = new LinkedHashSet<>();
+            for (int w = 0; w < 8; w++) {
+                String word = word(sample(cumulative, random));
+                comment.append(word).append(w % 3 == 0 ? ", et " : " ");
+                distinct.add(word);
+            }
+            sketch.add(comment.toString());
+            for (String word : distinct) {
+                exact.merge(word, 1, Integer::sum);
+                words++;
+            }
+        }
+
+        List<String> exactTop = exactTop(exact, 5);
+        assertEquals(exactTop, sketch.top(5));
+        assertEquals(words, sketch.getWordCount());
+
+        // borne du count-min sketch : surestimation <= e/width * N (avec forte probabilité)
+        long bound = (long) Math.ceil(Math.E / width * words);
+        for (Map.Entry<String, Integer> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(entry.getKey() + " sous-estimé", estimate >= entry.getValue());
+            assertTrue(entry.getKey() + " : " + estimate + " vs " + entry.getValue(), estimate - entry.getValue() <= bound);
+        }
+        // mémoire bornée : 4 x 4096 compteurs, quelle que soit la taille du vocabulaire
+        Benchmarks.report("vocabulary %d words, sketch %d KB, top %s", exact.size(), 4 * width * 4 / 1024, sketch.top(5));
+    }
+
+    /**
+     * test 2 - mots vides français, élisions et mots courts sont ignorés, un mot compte une fois par avis
+     */
+    @Test
+    public void add_shouldIgnoreStopWordsAndCountOncePerComment() {
+        KeywordSketch sketch = new KeywordSketch(256, 4, 10);
+
+        sketch.add("Le curry est très bon, vraiment très bon curry !");
+        sketch.add("L'accueil était rapide et le service aussi.");
+        sketch.add("Service rapide, curry parfait.");
+
+        assertEquals(Arrays.asList("curry", "rapide", "service"), sketch.top(3));
+        assertEquals(2, sketch.estimate("curry"));
+        assertEquals(0, sketch.estimate("très"));
+        assertEquals(0, sketch.estimate("était"));
+        assertEquals(1, sketch.estimate("accueil"));
+        assertTrue(sketch.top(10).containsAll(new HashSet<>(Arrays.asList("accueil", "parfait"))));
+    }
+
+    /**
+     * test 3 - aucun avis, aucun mot-clé
+     */
+    @Test
+    public void top_withoutComments_shouldBeEmpty() {
+        KeywordSketch sketch = new KeywordSketch(256, 4, 10);
+        sketch.add(null);
+        sketch.add("Le, la, les : et de");
+        assertTrue(sketch.top(5).isEmpty());
+    }
+
+    private static double[] zipf(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) cumulative[i] /= sum;
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+    }
+
+    /** Mots artificiels distincts, en lettres uniquement. */
+    private static String word(int index) {
+        StringBuilder word = new StringBuilder("mot");
+        do {
+            word.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return word.toString();
+    }
+
+    private static List<String> exactTop(Map<String, Integer> counts, int k) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> !a.getValue().equals(b.getValue())
+                ? Integer.compare(b.getValue(), a.getValue())
+                : a.getKey().compareTo(b.getKey()));
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < k; i++) top.add(entries.get(i).getKey());
+        return top;
+    }
+}
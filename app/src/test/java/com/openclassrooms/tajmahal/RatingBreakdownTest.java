@@ -0,0 +1,165 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RatingBreakdown;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.ReviewLog;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test des notes par critère (cuisine, service, ambiance, rapport qualité-prix)
+ * agrégats tenus à jour à chaque ajout, modification et suppression, sans relire les avis
+ */
+public class RatingBreakdownTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * test 1 - ajouts, modifications et suppressions au hasard : les agrégats du repository
+     * sont identiques à un calcul complet sur la liste des avis
+     */
+    @Test
+    public void incrementalBreakdown_shouldMatchFullRecompute() {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi());
+        // avis initiaux sans notes par critère
+        assertTrue(repository.getRatingBreakdown().isEmpty());
+
+        Random random = new Random(47);
+        List<Review> mine = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 || mine.isEmpty()) {
+                Review review = randomScores(new Review.Builder()
+                        .setUsername("user" + step)
+                        .setComment("avis " + step)
+                        .setRate(random.nextInt(5) + 1), random).build();
+                repository.addReview(review);
+                mine.add(review);
+            } else if (action == 1) {
+                int position = random.nextInt(mine.size());
+                Review current = mine.get(position);
+                Review updated = randomScores(current.toBuilder(), random).build();
+                assertTrue(repository.editReview(current, updated));
+                mine.set(position, updated);
+            } else {
+                Review removed = mine.remove(random.nextInt(mine.size()));
+                assertTrue(repository.deleteReview(removed));
+            }
+            if (step % 100 == 0) {
+                assertEquals(fullRecompute(repository.getReviews().getValue()), repository.getRatingBreakdown());
+            }
+        }
+        RatingBreakdown.Summary summary = repository.getRatingBreakdown();
+        assertEquals(fullRecompute(repository.getReviews().getValue()), summary);
+
+        // moyenne et pourcentages relus sur la liste de référence
+        for (RatingDimension dimension : RatingDimension.values()) {
+            int count = 0;
+            long sum = 0;
+            int[] histogram = new int[RatingDimension.MAX_SCORE];
+            for (Review review : mine) {
+                int score = review.getScore(dimension);
+                if (score == 0) continue;
+                count++;
+                sum += score;
+                histogram[score - 1]++;
+            }
+            assertEquals(count, summary.getCount(dimension));
+            assertEquals(count == 0 ? 0 : (float) sum / count, summary.getAverage(dimension), 0.0001f);
+            for (int score = 1; score <= RatingDimension.MAX_SCORE; score++) {
+                assertEquals(count == 0 ? 0 : (int) (histogram[score - 1] * 100L / count), summary.getPercentage(dimension, score));
+            }
+        }
+    }
+
+    /**
+     * test 2 - les notes par critère sont validées, comparées par equals, et ne changent pas le hashCode des avis sans notes
+     */
+    @Test
+    public void scores_shouldBeValidatedAndKeepHashCodeOfUnscoredReviews() {
+        Review plain = new Review("Manon Garcia", null, "Très bon", 5);
+        Review scored = plain.toBuilder().setScore(RatingDimension.FOOD, 5).setScore(RatingDimension.VALUE, 3).build();
+
+        assertFalse(plain.hasScores());
+        assertTrue(scored.hasScores());
+        assertEquals(5, scored.getScore(RatingDimension.FOOD));
+        assertEquals(0, scored.getScore(RatingDimension.SERVICE));
+        assertEquals(3, scored.getScore(RatingDimension.VALUE));
+        assertNotEquals(plain, scored);
+        assertEquals(scored, scored.toBuilder().build());
+        assertEquals(plain, scored.toBuilder().setScore(RatingDimension.FOOD, 0).setScore(RatingDimension.VALUE, 0).build());
+
+        // hashCode d'un avis sans notes : calcul d'origine
+        assertEquals(Objects.hash("Manon Garcia", null, "Très bon", 5), plain.hashCode());
+
+        try {
+            new Review.Builder().setScore(RatingDimension.AMBIENCE, RatingDimension.MAX_SCORE + 1);
+            fail("score > MAX_SCORE accepted");
+        } catch (IllegalArgumentException expected) {
+            // attendu
+        }
+    }
+
+    /**
+     * test 3 - le journal des avis conserve les notes par critère
+     */
+    @Test
+    public void reviewLog_shouldKeepScores() throws IOException {
+        File file = new File(folder.getRoot(), "reviews.log");
+        Review scored = new Review.Builder()
+                .setUsername("Manon Garcia")
+                .setComment("Très bon")
+                .setRate(4)
+                .setScore(RatingDimension.SERVICE, 2)
+                .setScore(RatingDimension.AMBIENCE, 5)
+                .build();
+        Review plain = new Review("Ranjit Singh", null, "Parfait", 5);
+
+        ReviewLog log = ReviewLog.open(file);
+        long scoredId = log.insert(plain);
+        log.update(scoredId, scored);
+        long plainId = log.insert(plain);
+        log.close();
+
+        Map<Long, Review> live = ReviewLog.open(file).readLive();
+        assertEquals(scored, live.get(scoredId));
+        assertEquals(5, live.get(scoredId).getScore(RatingDimension.AMBIENCE));
+        assertEquals(plain, live.get(plainId));
+        assertFalse(live.get(plainId).hasScores());
+    }
+
+    private static Review.Builder randomScores(Review.Builder builder, Random random) {
+        for (RatingDimension dimension : RatingDimension.values()) {
+            // 0 = critère non noté
+            builder.setScore(dimension, random.nextInt(RatingDimension.MAX_SCORE + 1));
+        }
+        return builder;
+    }
+
+    private static RatingBreakdown.Summary fullRecompute(List<Review> reviews) {
+        RatingBreakdown breakdown = new RatingBreakdown();
+        for (Review review : reviews) breakdown.add(review);
+        return breakdown.summary();
+    }
+}
@@ -0,0 +1,110 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RatingStatsFile;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test du fichier de résumé des notes lu par le widget de l'écran d'accueil
+ * réécrit par le repository à chaque changement de note, une fois par rafale, lu sans charger les avis
+ */
+public class RatingStatsFileTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * test 1 - le fichier suit les ajouts, modifications et suppressions du repository
+     */
+    @Test
+    public void repository_shouldRewriteStatsWhenRatingsChange() throws IOException {
+        File file = new File(folder.getRoot(), RatingStatsFile.FILE_NAME);
+        List<RatingStatsFile.Stats> written = new ArrayList<>();
+        RatingStatsFile statsFile = new RatingStatsFile(file, Runnable::run, written::add);
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run, statsFile);
+
+        // avis initiaux : 5 + 4 + 5 + 2 + 4 = 20 pour 5 avis
+        assertEquals(new RatingStatsFile.Stats(5, 20), RatingStatsFile.read(file));
+        assertEquals(RatingStatsFile.FILE_SIZE, file.length());
+        assertEquals("4.0", RatingStatsFile.read(file).getAverageText().replace(',', '.'));
+
+        Review mine = new Review("Manon Garcia", null, "Très bon", 5);
+        repository.addReview(mine);
+        assertEquals(new RatingStatsFile.Stats(6, 25), RatingStatsFile.read(file));
+
+        Review edited = mine.toBuilder().setRate(1).build();
+        assertTrue(repository.editReview(mine, edited));
+        assertEquals(new RatingStatsFile.Stats(6, 21), RatingStatsFile.read(file));
+
+        // commentaire modifié, note identique : le fichier n'est pas réécrit
+        int writes = written.size();
+        assertTrue(repository.editReview(edited, edited.toBuilder().setComment("Bof").build()));
+        assertEquals(writes, written.size());
+
+        assertTrue(repository.deleteReview(repository.getReviewsBy("Manon Garcia").get(0)));
+        assertEquals(new RatingStatsFile.Stats(5, 20), RatingStatsFile.read(file));
+        assertEquals(new RatingStatsFile.Stats(5, 20), written.get(written.size() - 1));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * test 2 - une rafale d'ajouts (import) ne réécrit le fichier qu'une fois
+     */
+    @Test
+    public void burstOfChanges_shouldWriteOnce() {
+        File file = new File(folder.getRoot(), RatingStatsFile.FILE_NAME);
+        List<Runnable> pendingTasks = new ArrayList<>();
+        List<RatingStatsFile.Stats> written = new ArrayList<>();
+        RatingStatsFile statsFile = new RatingStatsFile(file, pendingTasks::add, written::add);
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run, statsFile);
+
+        for (int i = 0; i < 100; i++) {
+            repository.addReview(new Review("user" + i, null, "avis " + i, 3));
+        }
+        assertEquals(1, pendingTasks.size());
+        pendingTasks.remove(0).run();
+
+        assertEquals(1, written.size());
+        assertEquals(new RatingStatsFile.Stats(105, 320), RatingStatsFile.read(file));
+        // un changement après le calcul en prévoit un autre
+        repository.addReview(new Review("user100", null, "avis 100", 4));
+        assertEquals(1, pendingTasks.size());
+    }
+
+    /**
+     * test 3 - fichier absent, tronqué ou étranger : pas de résumé, le widget affiche son invitation
+     */
+    @Test
+    public void read_missingOrInvalidFile_shouldReturnNull() throws IOException {
+        File file = new File(folder.getRoot(), RatingStatsFile.FILE_NAME);
+        assertNull(RatingStatsFile.read(file));
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[RatingStatsFile.FILE_SIZE - 1]);
+        }
+        assertNull(RatingStatsFile.read(file));
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[RatingStatsFile.FILE_SIZE]);
+        }
+        assertNull(RatingStatsFile.read(file));
+    }
+}
@@ -0,0 +1,349 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantLocationIndex;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.OpeningHours;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de l'index spatial des restaurants de la chaîne
+ * mêmes résultats qu'un parcours linéaire sur 50 000 restaurants, y compris près du 180e méridien et des pôles,
+ * et benchmark des deux recherches
+ */
+public class RestaurantLocationIndexTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private static final int RESTAURANT_COUNT = 50_000;
+    private static final int QUERY_COUNT = 200;
+    private static final int ROUNDS = 3;
+    private static final String[] HOURS = {
+            "11h30 - 14h30・18h30 - 22h00", "12h00 - 15h00・19h00 - 23h30", "18h00 - 01h00", "11h00 - 15h00", "Fermé"
+    };
+
+    /**
+     * test 1 - les k plus proches, ouverts ou non, sont ceux du parcours linéaire, dans le même ordre
+     */
+    @Test
+    public void nearest_shouldMatchLinearScan() {
+        Random random = new Random(49);
+        List<Restaurant> restaurants = randomRestaurants(random, RESTAURANT_COUNT);
+        RestaurantLocationIndex index = new RestaurantLocationIndex(restaurants);
+        LinearScan scan = new LinearScan(restaurants);
+        assertEquals(RESTAURANT_COUNT, index.size());
+
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            double[] query = randomQuery(random, q);
+            int count = 1 + random.nextInt(20);
+            int minuteOfDay = q % 2 == 0 ? RestaurantLocationIndex.ANY_TIME : random.nextInt(24 * 60);
+            List<RestaurantLocationIndex.Neighbor> expected = scan.nearest(query[0], query[1], count, minuteOfDay);
+            List<RestaurantLocationIndex.Neighbor> actual = index.nearest(query[0], query[1], count, minuteOfDay);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame("query " + q + " rank " + i, expected.get(i).getRestaurant(), actual.get(i).getRestaurant());
+                assertEquals(expected.get(i).getDistanceMeters(), actual.get(i).getDistanceMeters(), 1e-6);
+            }
+        }
+    }
+
+    /**
+     * test 2 - les restaurants d'une zone, y compris à cheval sur le 180e méridien, sont ceux du parcours linéaire
+     */
+    @Test
+    public void within_shouldMatchLinearScan() {
+        Random random = new Random(50);
+        List<Restaurant> restaurants = randomRestaurants(random, RESTAURANT_COUNT);
+        RestaurantLocationIndex index = new RestaurantLocationIndex(restaurants);
+        LinearScan scan = new LinearScan(restaurants);
+
+        for (int q = 0; q < 500; q++) {
+            double south = -90 + random.nextDouble() * 170;
+            double north = Math.min(90, south + random.nextDouble() * 20);
+            double west = -180 + random.nextDouble() * 360;
+            // une fois sur quatre, la zone passe le 180e méridien
+            double east = q % 4 == 0 ? west + 10 - 360 : Math.min(180, west + random.nextDouble() * 20);
+            if (east < -180) east = -170;
+            assertEquals("box " + q, identities(scan.within(south, west, north, east)),
+                    identities(index.within(south, west, north, east)));
+        }
+        assertTrue(index.within(10, 0, -10, 20).isEmpty());
+    }
+
+    /**
+     * test 3 - benchmark sur 50 000 restaurants : l'index répond plus vite que le parcours linéaire
+     */
+    @Test
+    public void index_shouldBeFasterThanLinearScan() {
+        Benchmarks.assumeEnabled();
+        Random random = new Random(51);
+        List<Restaurant> restaurants = randomRestaurants(random, RESTAURANT_COUNT);
+        long buildStart = System.nanoTime();
+        RestaurantLocationIndex index = new RestaurantLocationIndex(restaurants);
+        long buildNanos = System.nanoTime() - buildStart;
+        LinearScan scan = new LinearScan(restaurants);
+        double[][] queries = new double[QUERY_COUNT][];
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            queries[q] = randomQuery(random, q);
+        }
+
+        long[] scanBest = {Long.MAX_VALUE};
+        long[] indexBest = {Long.MAX_VALUE};
+        double scanSum = benchmark(scanBest, () -> {
+            double sum = 0;
+            for (double[] query : queries) {
+                for (RestaurantLocationIndex.Neighbor neighbor : scan.nearest(query[0], query[1], 10, 12 * 60)) {
+                    sum += neighbor.getDistanceMeters();
+                }
+            }
+            return sum;
+        });
+        double indexSum = benchmark(indexBest, () -> {
+            double sum = 0;
+            for (double[] query : queries) {
+                for (RestaurantLocationIndex.Neighbor neighbor : index.nearest(query[0], query[1], 10, 12 * 60)) {
+                    sum += neighbor.getDistanceMeters();
+                }
+            }
+            return sum;
+        });
+        report("10 nearest open", scanBest[0], indexBest[0]);
+        assertEquals(scanSum, indexSum, 1e-3);
+        assertTrue("index " + indexBest[0] + " ns vs scan " + scanBest[0] + " ns", indexBest[0] < scanBest[0]);
+
+        long[] scanBoxBest = {Long.MAX_VALUE};
+        long[] indexBoxBest = {Long.MAX_VALUE};
+        double scanCount = benchmark(scanBoxBest, () -> {
+            int count = 0;
+            for (double[] query : queries) {
+                count += scan.within(query[0] - 1, query[1] - 1, query[0] + 1, query[1] + 1).size();
+            }
+            return count;
+        });
+        double indexCount = benchmark(indexBoxBest, () -> {
+            int count = 0;
+            for (double[] query : queries) {
+                count += index.within(query[0] - 1, query[1] - 1, query[0] + 1, query[1] + 1).size();
+            }
+            return count;
+        });
+        report("2x2 degree box", scanBoxBest[0], indexBoxBest[0]);
+        Benchmarks.report("Index built in %.2f ms", buildNanos / 1e6);
+        assertEquals(scanCount, indexCount, 0);
+        assertTrue("index " + indexBoxBest[0] + " ns vs scan " + scanBoxBest[0] + " ns", indexBoxBest[0] < scanBoxBest[0]);
+    }
+
+    /**
+     * test 4 - horaires : plusieurs créneaux, créneau après minuit, texte non reconnu jamais ouvert
+     */
+    @Test
+    public void openingHours_shouldParseRanges() {
+        OpeningHours hours = OpeningHours.parse("11h30 - 14h30・18h30 - 22h00");
+        assertFalse(hours.isOpenAt(11 * 60 + 29));
+        assertTrue(hours.isOpenAt(11 * 60 + 30));
+        assertFalse(hours.isOpenAt(14 * 60 + 30));
+        assertTrue(hours.isOpenAt(21 * 60 + 59));
+        assertFalse(hours.isOpenAt(22 * 60));
+
+        OpeningHours night = OpeningHours.parse("18h00 - 01h00");
+        assertTrue(night.isOpenAt(23 * 60));
+        assertTrue(night.isOpenAt(30));
+        assertFalse(night.isOpenAt(60));
+        assertFalse(night.isOpenAt(12 * 60));
+
+        assertTrue(OpeningHours.parse("11:00-24:00").isOpenAt(23 * 60 + 59));
+        assertSame(OpeningHours.NEVER, OpeningHours.parse("Fermé"));
+        assertSame(OpeningHours.NEVER, OpeningHours.parse(null));
+        assertSame(OpeningHours.NEVER, OpeningHours.parse("25h00 - 26h00"));
+    }
+
+    /**
+     * test 5 - repository : restaurants de la chaîne les plus proches du Taj Mahal, fermés exclus
+     */
+    @Test
+    public void repository_shouldFindNearestOpenRestaurants() {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi());
+        Restaurant tajMahal = repository.getRestaurant().getValue();
+        assertTrue(tajMahal.hasLocation());
+
+        List<RestaurantLocationIndex.Neighbor> all = repository.getNearestRestaurants(
+                tajMahal.getLatitude(), tajMahal.getLongitude(), 10, RestaurantLocationIndex.ANY_TIME);
+        assertEquals(6, all.size());
+        assertEquals(tajMahal, all.get(0).getRestaurant());
+        assertEquals(0, all.get(0).getDistanceMeters(), 1e-6);
+        // Lyon, à environ 390 km, est le plus loin
+        assertEquals("Taj Mahal Lyon", all.get(5).getRestaurant().getName());
+        assertEquals(390_000, all.get(5).getDistanceMeters(), 10_000);
+
+        // à minuit, seul Batignolles (18h00 - 01h00) est ouvert
+        List<RestaurantLocationIndex.Neighbor> open = repository.getNearestRestaurants(
+                tajMahal.getLatitude(), tajMahal.getLongitude(), 10, 0);
+        assertEquals(1, open.size());
+        assertEquals("Taj Mahal Batignolles", open.get(0).getRestaurant().getName());
+
+        // Paris intra-muros
+        assertEquals(4, repository.getRestaurantsIn(48.81, 2.25, 48.91, 2.42).size());
+    }
+
+    /**
+     * Restaurants répartis sur tout le globe, la moitié regroupés en villes (coordonnées proches, voire égales).
+     */
+    private static List<Restaurant> randomRestaurants(Random random, int count) {
+        double[][] cities = new double[50][];
+        for (int c = 0; c < cities.length; c++) {
+            cities[c] = randomPoint(random);
+        }
+        // quelques villes près du 180e méridien et des pôles
+        cities[0] = new double[]{-17.7, 179.9};
+        cities[1] = new double[]{64.7, -179.8};
+        cities[2] = new double[]{89.5, 10};
+        List<Restaurant> restaurants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double latitude;
+            double longitude;
+            if (i % 2 == 0) {
+                double[] city = cities[random.nextInt(cities.length)];
+                latitude = clamp(city[0] + random.nextGaussian() * 0.05, -90, 90);
+                longitude = wrap(city[1] + random.nextGaussian() * 0.05);
+                if (i % 1000 == 0) {
+                    latitude = city[0];
+                    longitude = city[1];
+                }
+            } else {
+                double[] point = randomPoint(random);
+                latitude = point[0];
+                longitude = point[1];
+            }
+            restaurants.add(new Restaurant("Restaurant " + i, "Indien", HOURS[i % HOURS.length], "Adresse " + i,
+                    "http://www.tajmahal.fr", "06 00 00 00 00", true, true, latitude, longitude));
+        }
+        // un restaurant sans coordonnées n'est pas indexé
+        restaurants.add(new Restaurant("Sans adresse", "Indien", HOURS[0], "", "", "", true, true));
+        return restaurants;
+    }
+
+    private static double[] randomQuery(Random random, int q) {
+        switch (q % 5) {
+            case 0:
+                return new double[]{-17.7 + random.nextGaussian(), wrap(-179.9 + random.nextGaussian())};
+            case 1:
+                return new double[]{clamp(88 + random.nextDouble() * 2, -90, 90), -180 + random.nextDouble() * 360};
+            default:
+                return randomPoint(random);
+        }
+    }
+
+    // point uniforme sur la sphère
+    private static double[] randomPoint(Random random) {
+        double latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+        return new double[]{latitude, -180 + random.nextDouble() * 360};
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double wrap(double longitude) {
+        if (longitude > 180) return longitude - 360;
+        if (longitude < -180) return longitude + 360;
+        return longitude;
+    }
+
+    private static Set<Restaurant> identities(List<Restaurant> restaurants) {
+        Set<Restaurant> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(restaurants);
+        assertEquals("duplicate result", restaurants.size(), set.size());
+        return set;
+    }
+
+    private static double benchmark(long[] best, Measured measured) {
+        double result = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            result = measured.run();
+            best[0] = Math.min(best[0], System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private static void report(String name, long scanNanos, long indexNanos) {
+        Benchmarks.report("%s (%d restaurants, %d queries): linear scan %.2f ms, k-d tree %.2f ms (x%.1f)",
+                name, RESTAURANT_COUNT, QUERY_COUNT, scanNanos / 1e6, indexNanos / 1e6, (double) scanNanos / indexNanos);
+    }
+
+    private interface Measured {
+        double run();
+    }
+
+    /**
+     * Recherche de référence : toutes les distances, horaires déjà analysés comme dans l'index.
+     */
+    private static final class LinearScan {
+
+        private final List<Restaurant> restaurants = new ArrayList<>();
+        private final List<OpeningHours> hours = new ArrayList<>();
+
+        LinearScan(List<Restaurant> all) {
+            for (Restaurant restaurant : all) {
+                if (!restaurant.hasLocation()) continue;
+                restaurants.add(restaurant);
+                hours.add(OpeningHours.parse(restaurant.getHours()));
+            }
+        }
+
+        List<RestaurantLocationIndex.Neighbor> nearest(double latitude, double longitude, int count, int minuteOfDay) {
+            // meilleurs candidats triés par insertion : k est petit
+            Restaurant[] best = new Restaurant[count];
+            double[] bestDistances = new double[count];
+            int size = 0;
+            for (int i = 0; i < restaurants.size(); i++) {
+                if (minuteOfDay != RestaurantLocationIndex.ANY_TIME && !hours.get(i).isOpenAt(minuteOfDay)) continue;
+                Restaurant restaurant = restaurants.get(i);
+                double distance = RestaurantLocationIndex.distanceMeters(latitude, longitude,
+                        restaurant.getLatitude(), restaurant.getLongitude());
+                if (size == count && distance >= bestDistances[size - 1]) continue;
+                int position = size < count ? size++ : size - 1;
+                while (position > 0 && bestDistances[position - 1] > distance) {
+                    best[position] = best[position - 1];
+                    bestDistances[position] = bestDistances[position - 1];
+                    position--;
+                }
+                best[position] = restaurant;
+                bestDistances[position] = distance;
+            }
+            List<RestaurantLocationIndex.Neighbor> neighbors = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                neighbors.add(new RestaurantLocationIndex.Neighbor(best[i], bestDistances[i]));
+            }
+            return neighbors;
+        }
+
+        List<Restaurant> within(double south, double west, double north, double east) {
+            List<Restaurant> results = new ArrayList<>();
+            for (Restaurant restaurant : restaurants) {
+                double latitude = restaurant.getLatitude();
+                double longitude = restaurant.getLongitude();
+                boolean inLongitude = west <= east
+                        ? longitude >= west && longitude <= east
+                        : longitude >= west || longitude <= east;
+                if (latitude >= south && latitude <= north && inLongitude) results.add(restaurant);
+            }
+            return results;
+        }
+    }
+}
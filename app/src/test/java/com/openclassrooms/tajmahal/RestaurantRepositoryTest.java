@@ -0,0 +1,171 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Repository test class
+ * utilise le vrai RestaurantFakeApi et un ordonnanceur manuel à la place des frames
+ */
+public class RestaurantRepositoryTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    // émissions programmées, exécutées quand le test "dessine une frame"
+    private final List<Runnable> pendingFrames = new ArrayList<>();
+    private final List<List<Review>> emissions = new ArrayList<>();
+
+    private RestaurantRepository repository;
+
+    @Before
+    public void setup() {
+        repository = new RestaurantRepository(new RestaurantFakeApi(), pendingFrames::add);
+        repository.getReviews().observeForever(emissions::add);
+        emissions.clear(); // ignore la valeur initiale
+    }
+
+    /**
+     * test 1 - N ajouts rapides dans la même frame donnent une seule émission
+     */
+    @Test
+    public void addReview_burstInOneFrame_shouldEmitOnceWithFinalState() {
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            repository.addReview(new Review("User " + i, "https://example.com/" + i + ".jpg", "Avis " + i, i % 5 + 1));
+        }
+        assertEquals(0, emissions.size());
+        assertEquals(1, pendingFrames.size());
+
+        drawFrame();
+
+        assertEquals(1, emissions.size());
+        List<Review> reviews = emissions.get(0);
+        assertEquals(5 + count, reviews.size());
+        assertEquals("Avis " + (count - 1), reviews.get(0).getComment());
+        assertEquals("Avis 0", reviews.get(count - 1).getComment());
+    }
+
+    /**
+     * test 2 - N ajouts répartis sur plusieurs frames : au plus une émission par frame
+     */
+    @Test
+    public void addReview_burstOverSeveralFrames_shouldEmitAtMostOncePerFrame() {
+        int count = 1000;
+        int addsPerFrame = 64;
+        int frames = 0;
+        for (int i = 0; i < count; i++) {
+            repository.addReview(new Review("User " + i, "https://example.com/" + i + ".jpg", "Avis " + i, 5));
+            if (i % addsPerFrame == addsPerFrame - 1) {
+                drawFrame();
+                frames++;
+            }
+        }
+        drawFrame();
+        frames++;
+
+        assertTrue(emissions.size() <= frames);
+        assertEquals((count + addsPerFrame - 1) / addsPerFrame, emissions.size());
+        List<Review> last = emissions.get(emissions.size() - 1);
+        assertEquals(5 + count, last.size());
+        assertEquals("Avis " + (count - 1), last.get(0).getComment());
+        assertEquals(repository.getReviews().getValue(), last);
+    }
+
+    /**
+     * test 3 - un vote "utile" qui change le classement le publie, un second vote du même utilisateur non
+     */
+    @Test
+    public void voteHelpful_shouldPublishTopReviewsOnlyWhenRankingChanges() {
+        List<List<Review>> topEmissions = new ArrayList<>();
+        repository.getTopReviews().observeForever(topEmissions::add);
+        topEmissions.clear(); // ignore la valeur initiale (liste vide)
+        Review review = repository.getReviews().getValue().get(2);
+
+        repository.voteHelpful(review, "Manon Garcia");
+        repository.voteHelpful(review, "Manon Garcia");
+
+        assertEquals(1, topEmissions.size());
+        assertEquals(1, topEmissions.get(0).size());
+        assertSame(review, topEmissions.get(0).get(0));
+        assertEquals(1, repository.getHelpfulVotes(review));
+        assertTrue(repository.hasVotedHelpful(review, "Manon Garcia"));
+    }
+
+    /**
+     * test 4 - le même avis envoyé en même temps par plusieurs threads n'est ajouté qu'une fois
+     */
+    @Test
+    public void addReviewIfAbsent_concurrentDuplicates_shouldAddOnce() throws Exception {
+        int initialSize = repository.getReviews().getValue().size();
+        Review review = new Review("Manon Garcia", null, "Le biryani était parfait, je reviendrai", 5);
+        AtomicInteger added = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (repository.addReviewIfAbsent(review) == ReviewFingerprintIndex.Match.NONE) {
+                    added.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        drawFrame();
+
+        assertEquals(1, added.get());
+        assertEquals(initialSize + 1, repository.getReviews().getValue().size());
+        assertEquals(ReviewFingerprintIndex.Match.EXACT, repository.addReviewIfAbsent(review));
+    }
+
+    /**
+     * test 5 - un vote sur un avis supprimé, venu d'une ligne encore affichée, est ignoré
+     * et ne remet pas l'avis dans le classement
+     */
+    @Test
+    public void voteHelpful_onDeletedReview_shouldBeIgnored() {
+        Review review = repository.getReviews().getValue().get(1);
+        repository.voteHelpful(review, "Manon Garcia");
+        assertEquals(1, repository.getTopReviews().getValue().size());
+
+        assertTrue(repository.deleteReview(review));
+        assertTrue(repository.getTopReviews().getValue().isEmpty());
+
+        repository.voteHelpful(review, "Someone else");
+        assertEquals(0, repository.getHelpfulVotes(review));
+        assertFalse(repository.hasVotedHelpful(review, "Someone else"));
+        assertTrue(repository.getTopReviews().getValue().isEmpty());
+    }
+
+    private void drawFrame() {
+        List<Runnable> frame = new ArrayList<>(pendingFrames);
+        pendingFrames.clear();
+        for (Runnable emission : frame) {
+            emission.run();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantSnapshotApi;
+import com.openclassrooms.tajmahal.data.service.ReviewSnapshotFile;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test du snapshot mappé en mémoire
+ * en mode mesure (-Pbenchmarks), vérifie aussi avec 1 000 000 d'avis que rien n'est chargé sur le heap à l'ouverture
+ */
+public class RestaurantSnapshotApiTest {
+
+    // 1M avis seulement en mode mesure : écrire le fichier et mesurer le heap prend plusieurs secondes
+    private static final int REVIEW_COUNT = Benchmarks.ENABLED ? 1_000_000 : 20_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * test 1 - lecture aléatoire dans un grand snapshot ; en mode mesure, 1M avis et heap quasi constant
+     */
+    @Test
+    public void getReviews_withLargeSnapshot_decodesOnAccessWithConstantHeap() throws IOException {
+        File file = folder.newFile("reviews.snapshot");
+        assertEquals(REVIEW_COUNT, ReviewSnapshotFile.write(file, generatedReviews(REVIEW_COUNT)));
+
+        // System.gc() est lent et sa mesure dépend de la JVM : seulement en mode mesure
+        long heapBefore = Benchmarks.ENABLED ? usedHeap() : 0;
+        RestaurantSnapshotApi api = new RestaurantSnapshotApi(new RestaurantFakeApi(), file);
+        List<Review> reviews = api.getReviews();
+
+        assertEquals(REVIEW_COUNT, reviews.size());
+        assertEquals(generatedReview(0), reviews.get(0));
+        assertEquals(generatedReview(REVIEW_COUNT - 1), reviews.get(REVIEW_COUNT - 1));
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            int position = random.nextInt(REVIEW_COUNT);
+            assertEquals(generatedReview(position), reviews.get(position));
+        }
+        if (Benchmarks.ENABLED) {
+            long heapDelta = usedHeap() - heapBefore;
+
+            // 1M avis décodés occuperaient plus de 100 Mo, le snapshot mappé doit rester sous 8 Mo
+            Benchmarks.report("Snapshot file: %d KB, heap delta: %d KB", file.length() / 1024, heapDelta / 1024);
+            assertTrue("Heap grew by " + heapDelta + " bytes", heapDelta < 8L * 1024 * 1024);
+        }
+    }
+
+    /**
+     * test 2 - un avis ajouté apparaît en tête, les anciens snapshots ne changent pas
+     */
+    @Test
+    public void addReview_shouldInsertNewestFirstWithoutChangingPreviousSnapshot() throws IOException {
+        File file = folder.newFile("small.snapshot");
+        ReviewSnapshotFile.write(file, generatedReviews(3));
+        RestaurantSnapshotApi api = new RestaurantSnapshotApi(new RestaurantFakeApi(), file);
+        List<Review> before = api.getReviews();
+
+        Review newReview = new Review("Manon Garcia", "https://example.com/me.jpg", "Très bon !", 5);
+        api.addReview(newReview);
+        List<Review> after = api.getReviews();
+
+        assertEquals(3, before.size());
+        assertEquals(4, after.size());
+        assertEquals(newReview, after.get(0));
+        assertEquals(generatedReview(0), after.get(1));
+        assertEquals("Taj Mahal", api.getRestaurant().getName());
+    }
+
+    /**
+     * test 3 - un fichier tronqué est refusé
+     */
+    @Test(expected = IOException.class)
+    public void open_withTruncatedFile_shouldThrow() throws IOException {
+        File file = folder.newFile("truncated.snapshot");
+        ReviewSnapshotFile.write(file, generatedReviews(10));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        ReviewSnapshotFile.open(file);
+    }
+
+    /**
+     * test 4 - les notes par critère survivent à l'écriture et à la relecture du snapshot
+     */
+    @Test
+    public void open_shouldKeepDimensionScores() throws IOException {
+        File file = folder.newFile("scores.snapshot");
+        Review scored = new Review.Builder()
+                .setUsername("Manon Garcia")
+                .setPicture("https://example.com/me.jpg")
+                .setComment("Cuisine parfaite, service lent")
+                .setRate(4)
+                .setScore(RatingDimension.FOOD, 5)
+                .setScore(RatingDimension.SERVICE, 2)
+                .setScore(RatingDimension.VALUE, 4)
+                .build();
+        List<Review> reviews = Arrays.asList(scored, generatedReview(0));
+        ReviewSnapshotFile.write(file, reviews.iterator());
+
+        List<Review> read = ReviewSnapshotFile.open(file);
+        assertEquals(reviews, read);
+        assertEquals(2, read.get(0).getScore(RatingDimension.SERVICE));
+        assertEquals(0, read.get(0).getScore(RatingDimension.AMBIENCE));
+        assertFalse(read.get(1).hasScores());
+    }
+
+    /**
+     * test 5 - un snapshot de version 1 (sans en-tête ni notes par critère) s'ouvre toujours
+     */
+    @Test
+    public void open_withVersion1File_shouldReadReviewsWithoutScores() throws IOException {
+        File file = folder.newFile("v1.snapshot");
+        List<Review> reviews = Arrays.asList(generatedReview(0), generatedReview(1), generatedReview(2));
+        // format de version 1, écrit à la main : enregistrements, index, pied de page
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            int[] offsets = new int[reviews.size()];
+            for (int i = 0; i < reviews.size(); i++) {
+                Review review = reviews.get(i);
+                offsets[i] = out.size();
+                out.writeByte(review.getRate());
+                for (String value : new String[]{review.getUsername(), review.getPicture(), review.getComment()}) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            int indexPosition = out.size();
+            for (int offset : offsets) out.writeInt(offset);
+            out.writeInt(indexPosition);
+            out.writeInt(reviews.size());
+            out.writeInt(0x544A5256);
+        }
+
+        assertEquals(reviews, ReviewSnapshotFile.open(file));
+    }
+
+    /**
+     * test 6 - "mes avis" par l'index des auteurs : mêmes avis, dans le même ordre, qu'un parcours de la liste
+     */
+    @Test
+    public void getReviewsBy_shouldMatchScanOfReviews() throws IOException {
+        File file = folder.newFile("authors.snapshot");
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            reviews.add(new Review("user" + (i % 100), "https://example.com/a.jpg", "Avis " + i, i % 5 + 1));
+        }
+        ReviewSnapshotFile.write(file, reviews.iterator());
+        RestaurantSnapshotApi api = new RestaurantSnapshotApi(new RestaurantFakeApi(), file);
+        api.addReview(new Review("user7", "https://example.com/a.jpg", "Ajouté pendant la session", 5));
+
+        for (String author : new String[]{"user7", "user99", "inconnu"}) {
+            List<Review> scanned = new ArrayList<>();
+            for (Review review : api.getReviews()) {
+                if (author.equals(review.getUsername())) scanned.add(review);
+            }
+            assertEquals(author, scanned, api.getReviewsBy(author));
+        }
+        assertEquals(101, api.getReviewsBy("user7").size());
+    }
+
+    /**
+     * test 7 - un avis du snapshot se modifie et se supprime en place, le fichier et les vues prises avant ne changent pas
+     */
+    @Test
+    public void updateAndDelete_snapshotReviews_shouldPatchViewsInPlace() throws IOException {
+        File file = folder.newFile("edits.snapshot");
+        ReviewSnapshotFile.write(file, generatedReviews(5_000));
+        RestaurantSnapshotApi api = new RestaurantSnapshotApi(new RestaurantFakeApi(), file);
+        Review added = new Review("Manon Garcia", "https://example.com/me.jpg", "Très bon !", 5);
+        api.addReview(added);
+        List<Review> reference = new ArrayList<>(api.getReviews()); // le plus récent en premier
+
+        Random random = new Random(3);
+        for (int step = 0; step < 500; step++) {
+            List<Review> before = api.getReviews();
+            List<Review> beforeCopy = new ArrayList<>(before);
+            int index = 1 + random.nextInt(reference.size() - 1); // avis du snapshot
+            Review current = reference.get(index);
+            if (random.nextBoolean()) {
+                Review updated = current.toBuilder().setComment("modifié " + step).build();
+                assertTrue(api.updateReview(current, updated));
+                reference.set(index, updated);
+            } else {
+                assertTrue(api.deleteReview(current));
+                assertFalse(api.deleteReview(current));
+                reference.remove(index);
+            }
+            assertEquals(beforeCopy, before);
+        }
+
+        assertEquals(reference, api.getReviews());
+        assertTrue(api.deleteReview(added));
+        assertEquals(reference.subList(1, reference.size()), api.getReviews());
+        Review last = reference.get(reference.size() - 1);
+        List<Review> byAuthor = api.getReviewsBy(last.getUsername());
+        assertEquals(Collections.singletonList(last), byAuthor);
+        assertEquals(5_000, ReviewSnapshotFile.open(file).size());
+    }
+
+    /**
+     * test 8 - un enregistrement relu rend la même instance tant qu'elle est référencée, comme le demandent les votes
+     */
+    @Test
+    public void getReviews_sameRecordTwice_shouldReturnSameInstance() throws IOException {
+        File file = folder.newFile("instances.snapshot");
+        ReviewSnapshotFile.write(file, generatedReviews(1_000));
+        RestaurantSnapshotApi api = new RestaurantSnapshotApi(new RestaurantFakeApi(), file);
+
+        Review review = api.getReviews().get(42);
+        assertSame(review, api.getReviews().get(42));
+        assertSame(review, api.getReviewsBy(review.getUsername()).get(0));
+
+        // une autre instance égale ne supprime pas celle-ci : elle est retrouvée par égalité
+        Review copy = review.toBuilder().build();
+        assertNotSame(review, copy);
+        assertTrue(api.deleteReview(copy));
+        assertTrue(api.getReviewsBy(review.getUsername()).isEmpty());
+    }
+
+    private static Iterator<Review> generatedReviews(int count) {
+        return new Iterator<Review>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Review next() {
+                return generatedReview(next++);
+            }
+        };
+    }
+
+    private static Review generatedReview(int i) {
+        return new Review("User " + i, "https://example.com/avatars/" + (i % 100) + ".jpg",
+                "Avis numéro " + i + ", très bon curry", i % 5 + 1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,276 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark de l'égalité de Review, comme l'utilise ReviewAdapter.ItemCallback.areContentsTheSame
+ * compare le Review immuable (hash en cache) à l'ancienne implémentation (LegacyReview)
+ * sur le diff de 100 000 avis dont 10% ont un commentaire modifié : le gain se limite aux avis modifiés,
+ * un diff d'ajouts et de suppressions (avis égaux, hash pas encore calculés) doit seulement rester au même niveau
+ */
+public class ReviewEqualityBenchmarkTest {
+
+    private static final int REVIEW_COUNT = 100_000;
+    private static final int EDIT_EVERY = 10;
+    private static final int ROUNDS = 20;
+
+    /**
+     * test 1 - diff de 100 000 avis dont 10% modifiés : même résultat, moins de comparaisons de chaînes
+     * les avis inchangés sont des copies égales (nouvelles chaînes, comme après un décodage du snapshot)
+     */
+    @Test
+    public void diff_withCachedHash_shouldBeFasterThanLegacyEquals() {
+        Benchmarks.assumeEnabled();
+        List<Review> oldReviews = new ArrayList<>();
+        List<Review> newReviews = new ArrayList<>();
+        List<LegacyReview> oldLegacy = new ArrayList<>();
+        List<LegacyReview> newLegacy = new ArrayList<>();
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            Review review = new Review("User " + i, "https://example.com/" + (i % 100) + ".jpg", longComment(i), i % 5 + 1);
+            oldReviews.add(review);
+            oldLegacy.add(LegacyReview.of(review));
+            // avis modifié : seule la fin du commentaire change
+            String comment = i % EDIT_EVERY == 0 ? longComment(i) + " (modifié)" : longComment(i);
+            Review copy = new Review("User " + i, "https://example.com/" + (i % 100) + ".jpg", comment, i % 5 + 1);
+            newReviews.add(copy);
+            newLegacy.add(LegacyReview.of(copy));
+        }
+        // les hash sont calculés une fois, quand l'avis entre dans le repository (index d'empreintes, diff précédent...)
+        hashAll(oldReviews);
+        hashAll(newReviews);
+
+        long[] legacyBest = {Long.MAX_VALUE};
+        long[] cachedBest = {Long.MAX_VALUE};
+        int legacyChanged = benchmark(legacyBest, () -> countChanged(oldLegacy, newLegacy));
+        int cachedChanged = benchmark(cachedBest, () -> countChanged(oldReviews, newReviews));
+        report("Diff, 10% edited", legacyBest[0], cachedBest[0]);
+
+        assertEquals(REVIEW_COUNT / EDIT_EVERY, legacyChanged);
+        assertEquals(legacyChanged, cachedChanged);
+
+        // seules les lignes modifiées profitent du hash : on les mesure à part
+        List<Review> oldEdited = new ArrayList<>();
+        List<Review> newEdited = new ArrayList<>();
+        List<LegacyReview> oldLegacyEdited = new ArrayList<>();
+        List<LegacyReview> newLegacyEdited = new ArrayList<>();
+        for (int i = 0; i < REVIEW_COUNT; i += EDIT_EVERY) {
+            oldEdited.add(oldReviews.get(i));
+            newEdited.add(newReviews.get(i));
+            oldLegacyEdited.add(oldLegacy.get(i));
+            newLegacyEdited.add(newLegacy.get(i));
+        }
+        legacyBest[0] = Long.MAX_VALUE;
+        cachedBest[0] = Long.MAX_VALUE;
+        benchmark(legacyBest, () -> countChanged(oldLegacyEdited, newLegacyEdited));
+        benchmark(cachedBest, () -> countChanged(oldEdited, newEdited));
+        report("Edited rows only", legacyBest[0], cachedBest[0]);
+
+        assertTrue("cached " + cachedBest[0] + " ns vs legacy " + legacyBest[0] + " ns", cachedBest[0] < legacyBest[0]);
+    }
+
+    /**
+     * test 2 - hashCode en cache : plus de tableau varargs ni de boxing à chaque appel (HashMap, HashSet...)
+     */
+    @Test
+    public void hashCode_whenCached_shouldBeFasterThanLegacyHash() {
+        Benchmarks.assumeEnabled();
+        List<Review> reviews = new ArrayList<>();
+        List<LegacyReview> legacyReviews = new ArrayList<>();
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            Review review = new Review("User " + i, "https://example.com/" + (i % 100) + ".jpg", longComment(i), i % 5 + 1);
+            reviews.add(review);
+            legacyReviews.add(LegacyReview.of(review));
+        }
+
+        long[] legacyBest = {Long.MAX_VALUE};
+        long[] cachedBest = {Long.MAX_VALUE};
+        int legacySum = benchmark(legacyBest, () -> sumHashes(legacyReviews));
+        int cachedSum = benchmark(cachedBest, () -> sumHashes(reviews));
+        report("hashCode()", legacyBest[0], cachedBest[0]);
+
+        assertEquals(legacySum, cachedSum);
+        assertTrue("cached " + cachedBest[0] + " ns vs legacy " + legacyBest[0] + " ns", cachedBest[0] < legacyBest[0]);
+    }
+
+    /**
+     * test 3 - diff d'ajouts et de suppressions sur des avis fraîchement décodés (hash pas encore calculés) :
+     * equals ne calcule pas de hash, le coût reste celui de l'ancienne implémentation
+     */
+    @Test
+    public void diff_mixedAddRemoveWithColdHashes_shouldStayOnParWithLegacyEquals() {
+        Benchmarks.assumeEnabled();
+        long[] legacyBest = {Long.MAX_VALUE};
+        long[] cachedBest = {Long.MAX_VALUE};
+        int legacyChanged = 0;
+        int cachedChanged = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // nouvelles copies à chaque tour : aucun hash en cache, comme après un décodage du snapshot
+            List<Review> oldReviews = mixedList(0);
+            List<Review> newReviews = mixedList(1);
+            List<LegacyReview> oldLegacy = legacy(oldReviews);
+            List<LegacyReview> newLegacy = legacy(newReviews);
+
+            long start = System.nanoTime();
+            legacyChanged = countMatched(oldLegacy, newLegacy);
+            legacyBest[0] = Math.min(legacyBest[0], System.nanoTime() - start);
+            start = System.nanoTime();
+            cachedChanged = countMatched(oldReviews, newReviews);
+            cachedBest[0] = Math.min(cachedBest[0], System.nanoTime() - start);
+        }
+        report("Diff, adds and removes, cold hashes", legacyBest[0], cachedBest[0]);
+
+        assertEquals(legacyChanged, cachedChanged);
+        // même niveau, à 25% près pour le bruit de mesure
+        assertTrue("cached " + cachedBest[0] + " ns vs legacy " + legacyBest[0] + " ns",
+                cachedBest[0] < legacyBest[0] * 5 / 4);
+    }
+
+    /**
+     * test 4 - le hash est stable et l'égalité reste complète
+     */
+    @Test
+    public void equals_shouldMatchFieldEquality() {
+        Review review = new Review.Builder().setUsername("A").setPicture("p").setComment("c").setRate(4).build();
+
+        assertEquals(review, review.toBuilder().build());
+        assertEquals(review.hashCode(), review.toBuilder().build().hashCode());
+        assertNotEquals(review, review.toBuilder().setRate(3).build());
+        assertNotEquals(review, review.toBuilder().setComment("d").build());
+        assertNotEquals(review, null);
+    }
+
+    private interface Measured {
+        int run();
+    }
+
+    /** exécute plusieurs fois et garde le meilleur temps, pour écarter le JIT et le GC */
+    private static int benchmark(long[] best, Measured measured) {
+        int result = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            result = measured.run();
+            best[0] = Math.min(best[0], System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private static void report(String name, long legacyNanos, long cachedNanos) {
+        Benchmarks.report("%s (%d reviews): legacy %.2f ms, cached hash %.2f ms (x%.1f)",
+                name, REVIEW_COUNT, legacyNanos / 1e6, cachedNanos / 1e6, (double) legacyNanos / cachedNanos);
+    }
+
+    private static int sumHashes(List<?> items) {
+        int sum = 0;
+        for (Object item : items) {
+            sum += item.hashCode();
+        }
+        return sum;
+    }
+
+    private static <T> int countChanged(List<T> oldItems, List<T> newItems) {
+        int changed = 0;
+        for (int i = 0; i < oldItems.size(); i++) {
+            if (!oldItems.get(i).equals(newItems.get(i))) changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * Liste où un avis sur 20 est retiré et un nouvel avis inséré tous les 20, selon la version (0 ou 1).
+     */
+    private static List<Review> mixedList(int version) {
+        List<Review> reviews = new ArrayList<>(REVIEW_COUNT);
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            if (i % 20 == version) continue; // retiré dans cette version
+            if (i % 20 == 10) {
+                reviews.add(new Review("New " + version + " " + i, "https://example.com/new.jpg", longComment(i), 5));
+            }
+            reviews.add(new Review("User " + i, "https://example.com/" + (i % 100) + ".jpg", longComment(i), i % 5 + 1));
+        }
+        return reviews;
+    }
+
+    private static List<LegacyReview> legacy(List<Review> reviews) {
+        List<LegacyReview> legacy = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            legacy.add(LegacyReview.of(review));
+        }
+        return legacy;
+    }
+
+    /**
+     * Comme les diagonales de DiffUtil : avance dans les deux listes tant que les avis sont égaux,
+     * et sur une différence compare l'avis suivant de chaque côté pour retrouver l'alignement.
+     */
+    private static <T> int countMatched(List<T> oldItems, List<T> newItems) {
+        int matched = 0;
+        int o = 0;
+        int n = 0;
+        while (o < oldItems.size() && n < newItems.size()) {
+            if (oldItems.get(o).equals(newItems.get(n))) {
+                matched++;
+                o++;
+                n++;
+            } else if (n + 1 < newItems.size() && oldItems.get(o).equals(newItems.get(n + 1))) {
+                n++; // inséré
+            } else {
+                o++; // retiré
+            }
+        }
+        return matched;
+    }
+
+    private static void hashAll(List<Review> reviews) {
+        for (Review review : reviews) {
+            review.hashCode();
+        }
+    }
+
+    private static String longComment(int i) {
+        return "Avis " + (i % 7) + " : la cuisine est délicieuse et le service est également excellent. "
+                + "Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. "
+                + "Cet endroit est un choix sûr, nous y retournerons avec plaisir très bientôt !";
+    }
+
+    /**
+     * Ancienne implémentation de Review.equals / hashCode, sans cache
+     */
+    private static final class LegacyReview {
+        final String username;
+        final String picture;
+        final String comment;
+        final int rate;
+
+        LegacyReview(String username, String picture, String comment, int rate) {
+            this.username = username;
+            this.picture = picture;
+            this.comment = comment;
+            this.rate = rate;
+        }
+
+        static LegacyReview of(Review review) {
+            return new LegacyReview(review.getUsername(), review.getPicture(), review.getComment(), review.getRate());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LegacyReview review = (LegacyReview) o;
+            return rate == review.rate && Objects.equals(username, review.username) && Objects.equals(picture, review.picture) && Objects.equals(comment, review.comment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, picture, comment, rate);
+        }
+    }
+}
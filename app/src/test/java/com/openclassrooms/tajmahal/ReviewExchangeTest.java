@@ -0,0 +1,354 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.ReviewExchange;
+import com.openclassrooms.tajmahal.domain.model.RatingDimension;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de l'export / import des avis en CSV et JSON Lines
+ * l'aller-retour de 1 000 000 d'avis tourne dans une JVM limitée à 32 Mo de heap
+ */
+public class ReviewExchangeTest {
+
+    private static final int REVIEW_COUNT = 1_000_000;
+    // 1M avis décodés occuperaient plus de 100 Mo
+    private static final String HEAP_CAP = "-Xmx32m";
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * test 1 - aller-retour de 1M avis en CSV par le repository, sous un heap de 32 Mo
+     */
+    @Test
+    public void roundTrip_oneMillionReviewsAsCsv_underSmallHeap() throws Exception {
+        assertRoundTripInSmallHeap(ReviewExchange.Format.CSV);
+    }
+
+    /**
+     * test 2 - aller-retour de 1M avis en JSON Lines par le repository, sous un heap de 32 Mo
+     */
+    @Test
+    public void roundTrip_oneMillionReviewsAsJsonLines_underSmallHeap() throws Exception {
+        assertRoundTripInSmallHeap(ReviewExchange.Format.JSON_LINES);
+    }
+
+    /**
+     * test 3 - virgules, guillemets, retours à la ligne, antislash, accents, emoji et null survivent à l'aller-retour
+     */
+    @Test
+    public void roundTrip_specialCharacters_shouldBePreserved() throws IOException {
+        List<Review> reviews = Arrays.asList(
+                new Review("Jean, \"le critique\"", "https://example.com/a.jpg", "Ligne 1\nLigne 2\r\nfin", 5),
+                new Review("Zoé", "", "Épicé \\ très bon 🌶️\t!", 4),
+                new Review("Anonyme", "https://example.com/b.jpg", "\u0001 contrôle", 1));
+
+        for (ReviewExchange.Format format : ReviewExchange.Format.values()) {
+            StringWriter out = new StringWriter();
+            ReviewExchange.RecordWriter writer = ReviewExchange.newWriter(out, format);
+            for (Review review : reviews) writer.write(review);
+            writer.flush();
+
+            assertEquals(format.name(), reviews, readAll(new StringReader(out.toString()), format));
+        }
+
+        // null n'existe qu'en JSON ; en CSV il devient un champ vide
+        Review withNull = new Review(null, null, "Sans nom", 3);
+        StringWriter json = new StringWriter();
+        ReviewExchange.newWriter(json, ReviewExchange.Format.JSON_LINES).write(withNull);
+        assertEquals(withNull, readAll(new StringReader(json.toString()), ReviewExchange.Format.JSON_LINES).get(0));
+    }
+
+    /**
+     * test 4 - une entrée mal formée est refusée avec le numéro de ligne
+     */
+    @Test
+    public void read_malformedInput_shouldReportLine() throws IOException {
+        String csv = "username,picture,comment,rate\nA,a.jpg,Bon,5\nB,b.jpg,Moyen,trois\n";
+        try {
+            readAll(new StringReader(csv), ReviewExchange.Format.CSV);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("line 3"));
+        }
+
+        String json = "{\"username\":\"A\",\"rate\":5}\n{\"username\":\"B\",\"rate\":5\n";
+        try {
+            readAll(new StringReader(json), ReviewExchange.Format.JSON_LINES);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("line 2"));
+        }
+    }
+
+    /**
+     * test 5 - les notes par critère survivent à l'aller-retour, un critère non noté reste à 0
+     */
+    @Test
+    public void roundTrip_dimensionScores_shouldBePreserved() throws IOException {
+        List<Review> reviews = Arrays.asList(
+                new Review.Builder().setUsername("Manon").setPicture("https://example.com/m.jpg")
+                        .setComment("Parfait").setRate(5)
+                        .setScore(RatingDimension.FOOD, 5).setScore(RatingDimension.SERVICE, 4)
+                        .setScore(RatingDimension.AMBIENCE, 5).setScore(RatingDimension.VALUE, 3).build(),
+                new Review.Builder().setUsername("Jean").setPicture("").setComment("Service lent").setRate(3)
+                        .setScore(RatingDimension.SERVICE, 1).build(),
+                new Review("Zoé", "", "Sans détail", 4));
+
+        for (ReviewExchange.Format format : ReviewExchange.Format.values()) {
+            StringWriter out = new StringWriter();
+            ReviewExchange.RecordWriter writer = ReviewExchange.newWriter(out, format);
+            for (Review review : reviews) writer.write(review);
+            writer.flush();
+
+            List<Review> read = readAll(new StringReader(out.toString()), format);
+            assertEquals(format.name(), reviews, read);
+            assertEquals(format.name(), 1, read.get(1).getScore(RatingDimension.SERVICE));
+            assertEquals(format.name(), 0, read.get(1).getScore(RatingDimension.FOOD));
+        }
+    }
+
+    /**
+     * test 6 - un CSV à 4 colonnes (export antérieur aux notes par critère) s'importe toujours ;
+     * une note par critère hors de 0 à 5 est refusée avec le numéro de ligne
+     */
+    @Test
+    public void read_legacyCsvAndInvalidScore() throws IOException {
+        List<Review> legacy = readAll(new StringReader("username,picture,comment,rate\nA,a.jpg,Bon,5\n"),
+                ReviewExchange.Format.CSV);
+        assertEquals(Arrays.asList(new Review("A", "a.jpg", "Bon", 5)), legacy);
+
+        String csv = "username,picture,comment,rate,food,service,ambience,value\nA,a.jpg,Bon,5,5,,,\nB,b.jpg,Bon,5,9,,,\n";
+        try {
+            readAll(new StringReader(csv), ReviewExchange.Format.CSV);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("line 3"));
+        }
+
+        String json = "{\"username\":\"A\",\"rate\":5,\"food\":4}\n{\"username\":\"B\",\"rate\":5,\"value\":-1}\n";
+        try {
+            readAll(new StringReader(json), ReviewExchange.Format.JSON_LINES);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("line 2"));
+        }
+    }
+
+    /**
+     * test 7 - l'import ajoute les avis par lots, dans l'ordre : le dernier importé devient le plus récent
+     */
+    @Test
+    public void importReviews_shouldAppendInOrder() throws IOException {
+        List<Runnable> pendingFrames = new ArrayList<>();
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), pendingFrames::add);
+        int before = repository.getReviews().getValue().size();
+        int count = RestaurantRepository.IMPORT_BATCH_SIZE * 2 + 500;
+
+        StringWriter out = new StringWriter();
+        ReviewExchange.RecordWriter writer = ReviewExchange.newWriter(out, ReviewExchange.Format.JSON_LINES);
+        for (int i = 0; i < count; i++) writer.write(generatedReview(i));
+
+        long imported = repository.importReviews(new StringReader(out.toString()), ReviewExchange.Format.JSON_LINES);
+        for (Runnable frame : pendingFrames) frame.run();
+
+        List<Review> reviews = repository.getReviews().getValue();
+        assertEquals(count, imported);
+        assertEquals(before + count, reviews.size());
+        assertEquals(generatedReview(count - 1), reviews.get(0));
+        assertEquals(generatedReview(0), reviews.get(count - 1));
+    }
+
+    // --- aller-retour dans une JVM séparée, limitée en heap ---
+
+    private void assertRoundTripInSmallHeap(ReviewExchange.Format format) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, HEAP_CAP, "-cp", System.getProperty("java.class.path"),
+                ReviewExchangeTest.class.getName(), format.name(), folder.getRoot().getAbsolutePath())
+                .redirectErrorStream(true)
+                .start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) output.append(line).append('\n');
+        }
+        int exitCode = process.waitFor();
+        Benchmarks.report("%s", output.toString().trim());
+        assertEquals(output.toString(), 0, exitCode);
+    }
+
+    /**
+     * Point d'entrée de la JVM limitée : exporte 1M avis générés à la volée par le repository,
+     * puis les réimporte par lots et vérifie chaque avis, sans jamais les garder tous en mémoire.
+     */
+    public static void main(String[] args) throws IOException {
+        ReviewExchange.Format format = ReviewExchange.Format.valueOf(args[0]);
+        File file = new File(args[1], "reviews." + format.name().toLowerCase());
+        ArchTaskExecutor.getInstance().setDelegate(new SynchronousTaskExecutor());
+
+        GeneratedApi api = new GeneratedApi(REVIEW_COUNT);
+        RestaurantRepository repository = new RestaurantRepository(api, Runnable::run);
+
+        long start = System.nanoTime();
+        long exported;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024)) {
+            exported = repository.exportReviews(out, format);
+        }
+        long exportNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long imported;
+        try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 64 * 1024)) {
+            imported = repository.importReviews(in, format);
+        }
+        long importNanos = System.nanoTime() - start;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%s: %d KB file, export %d ms, import %d ms, max heap %d MB, used %d MB%n",
+                format, file.length() / 1024, exportNanos / 1_000_000, importNanos / 1_000_000,
+                runtime.maxMemory() / (1024 * 1024), (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+        if (exported != REVIEW_COUNT || imported != REVIEW_COUNT || api.verified != REVIEW_COUNT) {
+            System.out.println("exported " + exported + ", imported " + imported + ", verified " + api.verified);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static List<Review> readAll(Reader in, ReviewExchange.Format format) throws IOException {
+        ReviewExchange.RecordReader reader = ReviewExchange.newReader(in, format);
+        List<Review> reviews = new ArrayList<>();
+        Review review;
+        while ((review = reader.read()) != null) reviews.add(review);
+        return reviews;
+    }
+
+    /** Avis déterministe, avec de quoi tester l'échappement. */
+    private static Review generatedReview(int index) {
+        String comment = index % 3 == 0
+                ? "Avis " + index + ", très \"bon\"\nmerci"
+                : "Avis " + index + " : la cuisine est délicieuse";
+        return new Review("User " + index, "https://example.com/avatar/" + (index % 100) + ".jpg", comment, index % 5 + 1);
+    }
+
+    /**
+     * API générant les avis à la demande et vérifiant ceux qui sont importés, sans les stocker.
+     */
+    private static final class GeneratedApi implements RestaurantApi {
+        private final int count;
+        long verified;
+
+        GeneratedApi(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Restaurant getRestaurant() {
+            return new RestaurantFakeApi().getRestaurant();
+        }
+
+        @Override
+        public List<Review> getReviews() {
+            // le plus récent en premier, comme les autres API
+            return new GeneratedReviews(count);
+        }
+
+        @Override
+        public void addReview(Review review) {
+            addReviews(java.util.Collections.singletonList(review));
+        }
+
+        @Override
+        public void addReviews(List<Review> reviews) {
+            for (Review review : reviews) {
+                Review expected = generatedReview((int) verified);
+                if (!expected.equals(review)) {
+                    throw new AssertionError("review " + verified + ": expected " + expected.getComment() + ", got " + review.getComment());
+                }
+                verified++;
+            }
+        }
+
+        // les avis générés ne sont jamais modifiés par ce test
+        @Override
+        public boolean updateReview(Review current, Review updated) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteReview(Review review) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class GeneratedReviews extends AbstractList<Review> implements RandomAccess {
+        private final int count;
+
+        GeneratedReviews(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Review get(int index) {
+            return generatedReview(count - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    /** Même rôle qu'InstantTaskExecutorRule, hors JUnit. */
+    private static final class SynchronousTaskExecutor extends TaskExecutor {
+        @Override
+        public void executeOnDiskIO(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void postToMainThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public boolean isMainThread() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex;
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex.Match;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de l'index d'empreintes des commentaires
+ * vérifie la détection des doublons exacts et des quasi-doublons
+ */
+public class ReviewFingerprintIndexTest {
+
+    private ReviewFingerprintIndex index;
+
+    @Before
+    public void setup() {
+        index = new ReviewFingerprintIndex();
+        index.add("Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end.");
+        index.add("Top");
+    }
+
+    /**
+     * test 1 - même commentaire à la casse, aux accents et à la ponctuation près
+     */
+    @Test
+    public void find_withSameNormalizedComment_shouldReturnExact() {
+        assertEquals(Match.EXACT, index.find("SERVICE TRES RAPIDE et nourriture delicieuse ; nous mangeons ici chaque week end !!"));
+        assertEquals(Match.EXACT, index.find("top"));
+    }
+
+    /**
+     * test 2 - mêmes mots dans un autre ordre, mots étirés ou mots courts ajoutés
+     */
+    @Test
+    public void find_withReorderedOrStretchedWords_shouldReturnNear() {
+        assertEquals(Match.NEAR, index.find("Nourriture délicieuse et service trèèès rapide, ici nous mangeons chaque week-end"));
+        assertEquals(Match.NEAR, index.find("Le service très rapide et la nourriture délicieuse, nous mangeons ici chaque week-end."));
+    }
+
+    /**
+     * test 3 - un commentaire différent n'est pas signalé
+     */
+    @Test
+    public void find_withDifferentComment_shouldReturnNone() {
+        assertEquals(Match.NONE, index.find("Service lent mais nourriture délicieuse, nous reviendrons."));
+        assertEquals(Match.NONE, index.find("Top top"));
+        assertEquals(Match.NONE, index.find(""));
+        assertEquals(2, index.size());
+    }
+}
@@ -0,0 +1,366 @@
+package com.openclassrooms.tajmahal;
+
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.openclassrooms.tajmahal.adapter.ReviewAdapter;
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewListUpdate;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.di.AppModule;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.MainActivity;
+import com.openclassrooms.tajmahal.ui.reviews.ReviewFragment;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.testing.BindValue;
+import dagger.hilt.android.testing.HiltAndroidRule;
+import dagger.hilt.android.testing.HiltAndroidTest;
+import dagger.hilt.android.testing.HiltTestApplication;
+import dagger.hilt.android.testing.UninstallModules;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Benchmark Robolectric de la liste des avis de ReviewFragment
+ * défilement scripté de rvReviews sur 10 000 avis : temps et allocations par ligne
+ * pour la création, le bind et le diff de ReviewAdapter, et pour l'ajout appliqué sans diff.
+ * Les seuils sont configurés dans app/build.gradle.kts (propriétés reviewBenchmark.*) ;
+ * les temps ne sont vérifiés et affichés qu'en mode mesure (voir {@link Benchmarks}).
+ */
+@HiltAndroidTest
+@UninstallModules(AppModule.class)
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33, application = HiltTestApplication.class, qualifiers = "w411dp-h891dp-xxhdpi")
+public class ReviewListBenchmarkTest {
+
+    private static final int REVIEWS = 10_000;
+    private static final int WARM_UP_ROWS = 200;
+
+    @Rule
+    public HiltAndroidRule hiltRule = new HiltAndroidRule(this);
+
+    // 10 000 avis générés à la place de l'API de AppModule
+    @BindValue
+    RestaurantApi restaurantApi = generatedApi(REVIEWS);
+
+    @Inject
+    RestaurantRepository repository;
+
+    private RecyclerView recyclerView;
+    private ReviewAdapter adapter;
+    private TimingAdapter timingAdapter;
+
+    @Before
+    public void setup() {
+        hiltRule.inject();
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).setup().get();
+        activity.getSupportFragmentManager().beginTransaction()
+                .replace(R.id.container, ReviewFragment.newInstance())
+                .commitNow();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        recyclerView = activity.findViewById(R.id.rvReviews);
+        adapter = (ReviewAdapter) recyclerView.getAdapter();
+        // l'adapter partagé de l'écran est mesuré à travers une enveloppe qui lui délègue tout
+        timingAdapter = new TimingAdapter(adapter);
+        recyclerView.setAdapter(timingAdapter);
+        layout();
+    }
+
+    /**
+     * test 1 - défilement de haut en bas des 10 000 avis : création, bind et allocations par ligne sous les seuils,
+     * et le nombre de lignes créées reste borné (les lignes sont recyclées)
+     */
+    @Test
+    public void scroll_throughAllReviews_shouldStayUnderThresholds() {
+        assertTrue("reviews " + adapter.getItemCount(), adapter.getItemCount() >= REVIEWS);
+        assertTrue(recyclerView.getHeight() > 0);
+
+        // préchauffage : chargement des classes, des polices et des ressources
+        scrollUntil(WARM_UP_ROWS);
+        recyclerView.scrollToPosition(0);
+        layout();
+        timingAdapter.reset();
+
+        int frames = scrollUntil(adapter.getItemCount() - 1);
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        assertEquals(adapter.getItemCount() - 1, layoutManager.findLastVisibleItemPosition());
+
+        Stats create = timingAdapter.create;
+        Stats bind = timingAdapter.bind;
+        Benchmarks.report("scroll %d rows in %d frames", bind.count, frames);
+        Benchmarks.report("create: %d rows, %.1f us/row, %.1f KB allocated/row", create.count, create.micros(), create.kilobytes());
+        Benchmarks.report("bind:   %d rows, %.1f us/row, %.1f KB allocated/row", bind.count, bind.micros(), bind.kilobytes());
+
+        assertTrue(bind.count >= adapter.getItemCount() - WARM_UP_ROWS);
+        assertTrue("created rows " + create.count, create.count <= threshold("maxCreatedRows", 60));
+        if (Benchmarks.ENABLED) {
+            assertBelow("create us/row", create.micros(), threshold("maxCreateMicrosPerRow", 15000));
+            assertBelow("bind us/row", bind.micros(), threshold("maxBindMicrosPerRow", 3000));
+            assertBelow("create KB/row", create.kilobytes(), threshold("maxCreateAllocKbPerRow", 512));
+            assertBelow("bind KB/row", bind.kilobytes(), threshold("maxBindAllocKbPerRow", 128));
+        }
+    }
+
+    /**
+     * test 2 - diff de la liste affichée (ajout en tête, modification, suppression) sous le seuil par ligne
+     */
+    @Test
+    public void diff_onFullList_shouldStayUnderThreshold() {
+        Benchmarks.assumeEnabled();
+        submitAndWait(withInserted(adapter.getCurrentList())); // préchauffage
+
+        Stats diff = new Stats();
+        for (int i = 0; i < 3; i++) {
+            List<Review> list = new ArrayList<>(adapter.getCurrentList());
+            List<Review> next = withInserted(list);
+            next.set(next.size() / 2, rated(next.get(next.size() / 2)));
+            next.remove(next.size() - 1);
+
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            submitAndWait(next);
+            diff.add(System.nanoTime() - start, allocatedBytes() - allocated, next.size());
+        }
+
+        Benchmarks.report("diff:   %d rows, %.2f us/row, %.3f KB allocated/row (main thread)",
+                diff.count, diff.micros(), diff.kilobytes());
+        assertBelow("diff us/row", diff.micros(), threshold("maxDiffMicrosPerRow", 50));
+    }
+
+    /**
+     * test 3 - avis ajouté par le repository : la ligne est insérée en tête dans la frame de publication,
+     * sans diff, en un temps qui ne dépend pas du nombre d'avis
+     */
+    @Test
+    public void addReview_shouldInsertRowWithoutDiff() {
+        Stats insert = new Stats();
+        for (int i = 0; i < 3; i++) {
+            List<Review> before = adapter.getCurrentList();
+            repository.addReview(new Review("New user " + i, "https://example.com/new.jpg", "Nouvel avis " + i, 5));
+
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            // une frame : publication du snapshot, insertion notifiée, mise en page
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16));
+            insert.add(System.nanoTime() - start, allocatedBytes() - allocated, 1);
+
+            ReviewListUpdate update = repository.getReviewUpdates().getValue();
+            assertFalse(update.isFullRefresh());
+            assertSame(before, update.getPrevious());
+            // déjà affichée à la fin de la frame : aucun diff en arrière-plan à attendre
+            assertSame(update.getReviews(), adapter.getCurrentList());
+            assertEquals(before.size() + 1, adapter.getItemCount());
+        }
+
+        Benchmarks.report("insert: %d updates, %.1f us/update, %.1f KB allocated/update (main thread, %d rows)",
+                insert.count, insert.micros(), insert.kilobytes(), adapter.getItemCount());
+        if (Benchmarks.ENABLED) {
+            assertBelow("insert us/update", insert.micros(), threshold("maxInsertMicrosPerUpdate", 5000));
+        }
+    }
+
+    /**
+     * Fait défiler la liste d'une demi-hauteur par frame jusqu'à afficher la position donnée.
+     *
+     * @return le nombre de frames
+     */
+    private int scrollUntil(int position) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int step = recyclerView.getHeight() / 2;
+        int frames = 0;
+        while (layoutManager.findLastVisibleItemPosition() < position && recyclerView.canScrollVertically(1)) {
+            recyclerView.scrollBy(0, step); // crée et bind les lignes qui apparaissent
+            frames++;
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+        return frames;
+    }
+
+    /** Soumet une liste et attend la fin du diff, calculé en arrière-plan par l'adapter. */
+    private void submitAndWait(List<Review> list) {
+        boolean[] committed = new boolean[1];
+        adapter.submitList(list, () -> committed[0] = true);
+        while (!committed[0]) {
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        layout();
+    }
+
+    /** Mesure et place tout l'écran à la taille de l'affichage, comme une frame. */
+    private void layout() {
+        shadowOf(Looper.getMainLooper()).idle();
+        View root = recyclerView.getRootView();
+        DisplayMetrics display = root.getResources().getDisplayMetrics();
+        root.measure(View.MeasureSpec.makeMeasureSpec(display.widthPixels, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(display.heightPixels, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, display.widthPixels, display.heightPixels);
+    }
+
+    private static List<Review> withInserted(List<Review> list) {
+        List<Review> next = new ArrayList<>(list.size() + 1);
+        next.add(new Review("New user " + list.size(), "https://example.com/new.jpg", "Nouvel avis", 5));
+        next.addAll(list);
+        return next;
+    }
+
+    private static Review rated(Review review) {
+        return new Review(review.getUsername(), review.getPicture(), review.getComment(), review.getRate() % 5 + 1);
+    }
+
+    private static RestaurantApi generatedApi(int count) {
+        RestaurantApi api = new RestaurantFakeApi();
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reviews.add(new Review("User " + i, "https://example.com/avatar/" + (i % 50) + ".jpg",
+                    "Avis " + i + " : la cuisine est délicieuse et le service est également excellent.", i % 5 + 1));
+        }
+        api.addReviews(reviews);
+        return api;
+    }
+
+    private static long threshold(String name, long defaultValue) {
+        return Long.getLong("reviewBenchmark." + name, defaultValue);
+    }
+
+    private static void assertBelow(String label, double value, long threshold) {
+        assertTrue(String.format("%s: %.2f > threshold %d", label, value, threshold), value <= threshold);
+    }
+
+    /** Octets alloués par le thread courant (le thread principal de Robolectric). */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Temps et allocations cumulés d'une opération. */
+    private static final class Stats {
+        long count;
+        long nanos;
+        long bytes;
+
+        void add(long nanos, long bytes, long rows) {
+            this.nanos += nanos;
+            this.bytes += bytes;
+            this.count += rows;
+        }
+
+        double micros() {
+            return count == 0 ? 0 : nanos / 1e3 / count;
+        }
+
+        double kilobytes() {
+            return count == 0 ? 0 : bytes / 1024.0 / count;
+        }
+    }
+
+    /**
+     * Délègue tout à ReviewAdapter et mesure onCreateViewHolder et onBindViewHolder.
+     * Les notifications de l'adapter (diff, votes) sont retransmises à la liste.
+     */
+    private static final class TimingAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder> {
+        private final ReviewAdapter delegate;
+        Stats create = new Stats();
+        Stats bind = new Stats();
+
+        TimingAdapter(ReviewAdapter delegate) {
+            this.delegate = delegate;
+            delegate.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    notifyDataSetChanged();
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                    notifyItemRangeChanged(positionStart, itemCount, payload);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    notifyItemRangeInserted(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    notifyItemRangeRemoved(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                    for (int i = 0; i < itemCount; i++) notifyItemMoved(fromPosition + i, toPosition + i);
+                }
+            });
+        }
+
+        void reset() {
+            create = new Stats();
+            bind = new Stats();
+        }
+
+        @NonNull
+        @Override
+        public ReviewAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            ReviewAdapter.ViewHolder holder = delegate.onCreateViewHolder(parent, viewType);
+            create.add(System.nanoTime() - start, allocatedBytes() - allocated, 1);
+            return holder;
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ReviewAdapter.ViewHolder holder, int position) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            delegate.onBindViewHolder(holder, position);
+            bind.add(System.nanoTime() - start, allocatedBytes() - allocated, 1);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ReviewAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
+            } else {
+                delegate.onBindViewHolder(holder, position, payloads);
+            }
+        }
+
+        @Override
+        public void onViewRecycled(@NonNull ReviewAdapter.ViewHolder holder) {
+            delegate.onViewRecycled(holder); // libère l'avatar de la ligne
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return delegate.getItemViewType(position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return delegate.getItemCount();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewListUpdate;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test des changements publiés avec chaque snapshot des avis
+ * ajout en tête, modification et suppression appliqués par position, sans comparer les listes
+ */
+public class ReviewListUpdateTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    // émissions programmées, exécutées quand le test "dessine une frame" ; programmées aussi par les écrivains du test 4
+    private final List<Runnable> pendingFrames = Collections.synchronizedList(new ArrayList<>());
+    private final List<ReviewListUpdate> updates = new ArrayList<>();
+
+    private RestaurantRepository repository;
+
+    @Before
+    public void setup() {
+        repository = new RestaurantRepository(new RestaurantFakeApi(), pendingFrames::add);
+        repository.getReviewUpdates().observeForever(updates::add);
+    }
+
+    /**
+     * test 1 - premier snapshot : rafraîchissement complet ; un ajout : une ligne insérée en tête ;
+     * une rafale d'ajouts : une seule insertion
+     */
+    @Test
+    public void addReview_shouldPublishInsertionAtTop() {
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).isFullRefresh());
+        assertNull(updates.get(0).getPrevious());
+        List<Review> first = updates.get(0).getReviews();
+
+        repository.addReview(new Review("Manon Garcia", null, "Très bon", 5));
+        drawFrame();
+        ReviewListUpdate update = updates.get(1);
+        assertSame(first, update.getPrevious());
+        assertSame(repository.getReviews().getValue(), update.getReviews());
+        assertEquals(1, update.getChanges().size());
+        assertChange(ReviewListUpdate.Type.INSERTED, 0, 1, update.getChanges().get(0));
+
+        for (int i = 0; i < 100; i++) {
+            repository.addReview(new Review("user" + i, null, "avis " + i, 3));
+        }
+        drawFrame();
+        assertEquals(1, updates.get(2).getChanges().size());
+        assertChange(ReviewListUpdate.Type.INSERTED, 0, 100, updates.get(2).getChanges().get(0));
+    }
+
+    /**
+     * test 2 - rafales au hasard d'ajouts, modifications et suppressions : appliquer les changements
+     * au snapshot précédent redonne exactement le nouveau snapshot
+     */
+    @Test
+    public void randomBursts_changesShouldTurnPreviousIntoNewSnapshot() {
+        Random random = new Random(48);
+        for (int i = 0; i < 200; i++) {
+            repository.addReview(new Review("user" + (i % 20), null, "avis " + i, i % 5 + 1));
+        }
+        drawFrame();
+
+        int fullRefreshes = 0;
+        for (int frame = 0; frame < 300; frame++) {
+            int writes = 1 + random.nextInt(8);
+            for (int i = 0; i < writes; i++) {
+                List<Review> published = repository.getReviews().getValue();
+                Review target = published.get(random.nextInt(published.size()));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        repository.addReview(new Review("user" + random.nextInt(20), null, "nouveau " + frame + "-" + i, 4));
+                        break;
+                    case 1:
+                        // un avis déjà modifié ou supprimé dans la frame n'est plus trouvé : écriture refusée
+                        repository.editReview(target, target.toBuilder().setComment("modifié " + frame + "-" + i).build());
+                        break;
+                    default:
+                        repository.deleteReview(target);
+                        break;
+                }
+            }
+            drawFrame();
+            ReviewListUpdate update = updates.get(updates.size() - 1);
+            if (update.isFullRefresh()) {
+                fullRefreshes++;
+            } else {
+                assertAppliedEquals(update);
+            }
+        }
+        assertEquals(0, fullRefreshes);
+    }
+
+    /**
+     * test 3 - trop de modifications dans une frame : rafraîchissement complet, puis de nouveau des changements
+     */
+    @Test
+    public void manyEditsInOneFrame_shouldFallBackToFullRefresh() {
+        for (int i = 0; i < 200; i++) {
+            repository.addReview(new Review("user" + i, null, "avis " + i, 3));
+        }
+        drawFrame();
+        List<Review> published = repository.getReviews().getValue();
+        for (int i = 0; i < 100; i++) {
+            Review target = published.get(i);
+            assertTrue(repository.editReview(target, target.toBuilder().setRate(5).build()));
+        }
+        drawFrame();
+        ReviewListUpdate update = updates.get(updates.size() - 1);
+        assertTrue(update.isFullRefresh());
+        assertSame(published, update.getPrevious());
+
+        repository.deleteReview(repository.getReviews().getValue().get(3));
+        drawFrame();
+        update = updates.get(updates.size() - 1);
+        assertEquals(1, update.getChanges().size());
+        assertChange(ReviewListUpdate.Type.REMOVED, 3, 1, update.getChanges().get(0));
+    }
+
+    /**
+     * test 4 - écritures concurrentes pendant les publications : chaque snapshot contient exactement
+     * les changements publiés avec lui
+     */
+    @Test
+    public void concurrentWrites_changesShouldMatchEachSnapshot() throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int writerCount = 4;
+        CountDownLatch done = new CountDownLatch(writerCount);
+        for (int w = 0; w < writerCount; w++) {
+            int writer = w;
+            new Thread(() -> {
+                Random random = new Random(writer);
+                try {
+                    for (int i = 0; !stop.get(); i++) {
+                        String author = "writer" + writer;
+                        List<Review> mine = repository.getReviewsBy(author);
+                        if (mine.isEmpty() || random.nextInt(3) == 0) {
+                            repository.addReview(new Review(author, null, "avis " + writer + "-" + i, 4));
+                        } else if (random.nextBoolean()) {
+                            Review target = mine.get(random.nextInt(mine.size()));
+                            repository.editReview(target, target.toBuilder().setRate(random.nextInt(5) + 1).build());
+                        } else {
+                            repository.deleteReview(mine.get(random.nextInt(mine.size())));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        int applied = 0;
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            drawFrame();
+            ReviewListUpdate update = updates.get(updates.size() - 1);
+            if (!update.isFullRefresh() && update.getPrevious() != null) {
+                assertAppliedEquals(update);
+                applied++;
+            }
+        }
+        stop.set(true);
+        done.await();
+        assertNull(failure.get());
+        Benchmarks.report("%d updates applied during concurrent writes", applied);
+        assertTrue(applied > 0);
+    }
+
+    /**
+     * Applique les changements, dans l'ordre, à une copie du snapshot précédent : les lignes non touchées
+     * doivent être les mêmes avis que dans le nouveau snapshot, les lignes insérées ou modifiées de nouveaux avis.
+     */
+    private static void assertAppliedEquals(ReviewListUpdate update) {
+        List<Review> expected = update.getReviews();
+        List<Review> previous = update.getPrevious();
+        // null = ligne insérée ou modifiée, dont l'avis n'est connu qu'à la fin
+        List<Review> rows = new ArrayList<>(previous);
+        List<Review> changedRows = new ArrayList<>();
+        for (ReviewListUpdate.Change change : update.getChanges()) {
+            int position = change.getPosition();
+            for (int i = 0; i < change.getCount(); i++) {
+                switch (change.getType()) {
+                    case INSERTED:
+                        rows.add(position, null);
+                        break;
+                    case REMOVED:
+                        rows.remove(position);
+                        break;
+                    case CHANGED:
+                        assertNotNull("row changed twice", rows.get(position + i));
+                        changedRows.add(rows.get(position + i));
+                        rows.set(position + i, null);
+                        break;
+                }
+            }
+        }
+        assertEquals(expected.size(), rows.size());
+        Set<Review> previousRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        previousRows.addAll(previous);
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != null) {
+                assertSame("position " + i + " after " + update.getChanges(), rows.get(i), expected.get(i));
+            } else {
+                assertFalse("position " + i + " after " + update.getChanges(), previousRows.contains(expected.get(i)));
+            }
+        }
+        // l'ancienne version d'un avis modifié n'est plus affichée
+        Set<Review> newRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        newRows.addAll(expected);
+        for (Review changed : changedRows) {
+            assertFalse(newRows.contains(changed));
+        }
+    }
+
+    private static void assertChange(ReviewListUpdate.Type type, int position, int count, ReviewListUpdate.Change change) {
+        assertEquals(type, change.getType());
+        assertEquals(position, change.getPosition());
+        assertEquals(count, change.getCount());
+    }
+
+    private void drawFrame() {
+        List<Runnable> frames;
+        synchronized (pendingFrames) {
+            frames = new ArrayList<>(pendingFrames);
+            pendingFrames.clear();
+        }
+        for (Runnable frame : frames) frame.run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.openclassrooms.tajmahal;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStore;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+import com.openclassrooms.tajmahal.ui.reviews.ReviewListViewModel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Test de l'état de la liste des avis partagé au niveau de l'activité
+ * la liste, l'adapter et les avatars préchargés existent sans ReviewFragment
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ReviewListViewModelTest {
+
+    private final List<Runnable> pendingFrames = new ArrayList<>();
+    private final List<AvatarCache.Lease> leases = new ArrayList<>();
+
+    private RestaurantRepository repository;
+    private AvatarCache avatarCache;
+    private ViewModelStore store;
+    private ReviewListViewModel viewModel;
+
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        repository = new RestaurantRepository(new RestaurantFakeApi(), pendingFrames::add);
+        avatarCache = mock(AvatarCache.class);
+        when(avatarCache.acquire(anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            AvatarCache.Lease lease = mock(AvatarCache.Lease.class);
+            leases.add(lease);
+            return lease;
+        });
+
+        // ViewModelStore joue le rôle de l'activité : clear() appelle onCleared()
+        store = new ViewModelStore();
+        viewModel = new ViewModelProvider(store, new ViewModelProvider.Factory() {
+            @NonNull
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+                return (T) new ReviewListViewModel(repository, avatarCache, context);
+            }
+        }).get(ReviewListViewModel.class);
+    }
+
+    /**
+     * test 1 - l'adapter contient les avis avant que l'écran des avis ne soit ouvert
+     */
+    @Test
+    public void adapter_shouldHoldReviewsWithoutFragment() {
+        List<Review> reviews = repository.getReviews().getValue();
+
+        assertNotNull(reviews);
+        assertEquals(reviews.size(), viewModel.getAdapter().getItemCount());
+        assertSame(reviews, viewModel.getAdapter().getCurrentList());
+    }
+
+    /**
+     * test 2 - un avis ajouté pendant que l'écran est fermé est déjà dans l'adapter au retour
+     */
+    @Test
+    public void addReview_whileScreenClosed_shouldUpdateAdapter() throws InterruptedException {
+        int before = viewModel.getAdapter().getItemCount();
+        Review review = new Review("Manon Garcia", "https://example.com/me.jpg", "Excellent biryani", 5);
+
+        repository.addReview(review);
+        for (Runnable frame : pendingFrames) frame.run();
+
+        // le diff se fait en arrière-plan, le résultat est publié sur le thread principal
+        long deadline = System.currentTimeMillis() + 5000;
+        while (viewModel.getAdapter().getItemCount() == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        assertEquals(before + 1, viewModel.getAdapter().getItemCount());
+        assertSame(review, viewModel.getAdapter().getCurrentList().get(0));
+    }
+
+    /**
+     * test 3 - les avatars des premiers avis sont préchargés, une seule fois par URL, et libérés avec l'activité
+     */
+    @Test
+    public void avatars_shouldBePrefetchedOncePerUrlAndReleasedOnCleared() {
+        List<Review> reviews = repository.getReviews().getValue();
+        int expected = (int) reviews.subList(0, Math.min(10, reviews.size())).stream()
+                .map(Review::getPicture).distinct().count();
+
+        assertEquals(expected, leases.size());
+
+        store.clear();
+
+        for (AvatarCache.Lease lease : leases) {
+            verify(lease, times(1)).release();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.openclassrooms.tajmahal;
+
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantLogApi;
+import com.openclassrooms.tajmahal.data.service.ReviewLog;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test du journal des avis (ajouts, modifications, suppressions) et de sa compaction
+ * le processus est tué pendant la compaction, dans une JVM séparée : le journal rouvert doit être intact
+ */
+public class ReviewLogTest {
+
+    // Code de sortie du processus tué volontairement (comme un kill -9)
+    private static final int CRASH_EXIT = 137;
+    private static final int CRASH_SEED = 2024;
+    private static final int CRASH_OPERATIONS = 3_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * test 1 - ajouts, modifications et suppressions relus à l'identique après réouverture,
+     * dans l'ordre d'ajout ; une suppression est une pierre tombale, comptée comme déchet
+     */
+    @Test
+    public void reopen_shouldReplayInsertsUpdatesAndTombstones() throws IOException {
+        File file = folder.newFile("reviews.log");
+        ReviewLog log = ReviewLog.open(file);
+        assertTrue(log.isEmpty());
+        long first = log.insert(new Review("Manon Garcia", null, "Bon", 4));
+        long second = log.insert(new Review("Ranjit Singh", "https://xsgames.co/randomusers/assets/avatars/male/71.jpg", "Parfait", 5));
+        long third = log.insert(new Review("Emilie Hood", null, null, 3));
+        long sizeBefore = log.getSize();
+        assertTrue(log.update(first, new Review("Manon Garcia", null, "Très bon finalement", 5)));
+        assertTrue(log.delete(second));
+        assertFalse(log.delete(second));
+        assertFalse(log.update(second, new Review("Ranjit Singh", null, "Trop tard", 1)));
+        // ancienne version, avis supprimé et pierre tombale : tout est déchet
+        assertTrue(log.getGarbageBytes() > log.getSize() - sizeBefore);
+        log.close();
+
+        ReviewLog reopened = ReviewLog.open(file);
+        Map<Long, Review> live = reopened.readLive();
+        assertEquals(2, reopened.getLiveCount());
+        assertEquals(Arrays.asList(first, third), new ArrayList<>(live.keySet()));
+        assertEquals(new Review("Manon Garcia", null, "Très bon finalement", 5), live.get(first));
+        assertNull(live.get(third).getComment());
+        // les ids continuent après réouverture
+        assertTrue(reopened.insert(new Review("David John", null, "Moyen", 2)) > third);
+        reopened.close();
+    }
+
+    /**
+     * test 2 - dernier enregistrement déchiré (crash pendant l'écriture) ou corrompu :
+     * il est coupé à la réouverture et les écritures suivantes repartent de là
+     */
+    @Test
+    public void open_withTornLastRecord_shouldDropItAndKeepAppending() throws IOException {
+        File file = folder.newFile("reviews.log");
+        ReviewLog log = ReviewLog.open(file);
+        for (int i = 0; i < 3; i++) log.insert(new Review("user" + i, null, "avis " + i, 4));
+        log.close();
+
+        // écriture interrompue : il manque la fin du 3e enregistrement
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        log = ReviewLog.open(file);
+        assertEquals(2, log.getLiveCount());
+        long twoRecords = log.getSize();
+        assertEquals(twoRecords, file.length());
+        log.insert(new Review("user3", null, "avis 3", 5));
+        log.close();
+
+        // octet modifié dans le dernier enregistrement : le CRC ne correspond plus
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 2);
+            int value = raf.read();
+            raf.seek(raf.length() - 2);
+            raf.write(value ^ 0xFF);
+        }
+        log = ReviewLog.open(file);
+        Map<Long, Review> live = log.readLive();
+        assertEquals(2, live.size());
+        assertEquals(twoRecords, file.length());
+        assertEquals(new Review("user1", null, "avis 1", 4), live.get(2L));
+        log.close();
+    }
+
+    /**
+     * test 3 - la compaction récupère les déchets, garde ids et ordre, et n'oublie pas
+     * les écritures faites pendant la copie
+     */
+    @Test
+    public void compact_shouldReclaimGarbageAndKeepWritesDoneDuringCopy() throws IOException {
+        File file = folder.newFile("reviews.log");
+        ReviewLog log = ReviewLog.open(file);
+        Workload workload = new Workload(7);
+        for (int i = 0; i < 2_000; i++) workload.step(log);
+        while (!log.needsCompaction()) workload.step(log);
+        long garbage = log.getGarbageBytes();
+        long sizeBefore = log.getSize();
+
+        List<ReviewLog.Step> steps = new ArrayList<>();
+        long reclaimed = log.compact(step -> {
+            steps.add(step);
+            if (step == ReviewLog.Step.COPIED) {
+                // les écrivains continuent pendant la copie
+                try {
+                    for (int i = 0; i < 50; i++) workload.step(log);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        Benchmarks.report("compaction: %d KB -> %d KB, %d KB reclaimed", sizeBefore / 1024, log.getSize() / 1024, reclaimed / 1024);
+
+        assertEquals(Arrays.asList(ReviewLog.Step.values()), steps);
+        assertTrue(reclaimed >= garbage / 2);
+        assertFalse(new File(file.getPath() + ".compact").exists());
+        assertEquals(workload.live, log.readLive());
+        assertFalse(log.needsCompaction());
+        // modifications et suppressions faites pendant la copie : comptées comme déchets, comme à la réouverture
+        long garbageAfter = log.getGarbageBytes();
+        assertTrue(garbageAfter > 0);
+        log.close();
+        ReviewLog compacted = ReviewLog.open(file);
+        assertEquals(garbageAfter, compacted.getGarbageBytes());
+        // on continue d'écrire dans le fichier compacté
+        for (int i = 0; i < 100; i++) workload.step(compacted);
+        compacted.close();
+        ReviewLog reopened = ReviewLog.open(file);
+        assertEquals(workload.live, reopened.readLive());
+        reopened.close();
+    }
+
+    /**
+     * test 4 - processus tué après chaque étape de la compaction : le journal rouvert contient
+     * exactement les avis écrits, et une copie non renommée est supprimée
+     */
+    @Test
+    public void crashAtEachCompactionStep_shouldRecover() throws Exception {
+        for (ReviewLog.Step step : ReviewLog.Step.values()) {
+            File file = new File(folder.newFolder(step.name()), "reviews.log");
+            Process process = startChild("step", file, step.name());
+            String output = readAll(process);
+            assertEquals(output, CRASH_EXIT, process.waitFor());
+
+            File compacted = new File(file.getPath() + ".compact");
+            assertEquals(step != ReviewLog.Step.RENAMED, compacted.exists());
+            Workload expected = new Workload(CRASH_SEED);
+            for (int i = 0; i < CRASH_OPERATIONS; i++) expected.step(null);
+            // écritures faites par le processus pendant la copie
+            for (int i = 0; i < 10; i++) expected.step(null);
+
+            ReviewLog log = ReviewLog.open(file);
+            assertFalse(compacted.exists());
+            assertEquals(step.name(), expected.live, log.readLive());
+            log.insert(new Review("Après", null, "le crash", 5));
+            log.close();
+        }
+    }
+
+    /**
+     * test 5 - processus tué n'importe quand pendant une suite d'écritures et de compactions :
+     * le journal rouvert est l'état après une des opérations, au moins toutes celles confirmées
+     */
+    @Test
+    public void killAtRandomTimes_shouldRecoverAConfirmedPrefix() throws Exception {
+        Random random = new Random(11);
+        for (int attempt = 0; attempt < 5; attempt++) {
+            File file = new File(folder.newFolder("kill" + attempt), "reviews.log");
+            int killAfter = 500 + random.nextInt(4_000);
+            Process process = startChild("loop", file, String.valueOf(attempt));
+            int confirmed = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while (confirmed < killAfter && (line = reader.readLine()) != null) {
+                    if (line.startsWith("ok ")) confirmed = Integer.parseInt(line.substring(3));
+                }
+                process.destroyForcibly();
+            }
+            process.waitFor();
+            assertEquals(killAfter, confirmed);
+
+            ReviewLog log = ReviewLog.open(file);
+            Map<Long, Review> recovered = log.readLive();
+            log.close();
+            Workload expected = new Workload(attempt);
+            for (int i = 0; i < confirmed; i++) expected.step(null);
+            // le processus a pu faire quelques opérations de plus avant de mourir
+            int extra = 0;
+            while (!expected.live.equals(recovered) && extra < 100_000) {
+                expected.step(null);
+                extra++;
+            }
+            Benchmarks.report("killed after %d confirmed operations, recovered %d more", confirmed, extra);
+            assertEquals(expected.live, recovered);
+        }
+    }
+
+    /**
+     * test 6 - l'API enregistre ajouts, modifications et suppressions dans le journal,
+     * et demande une compaction quand les déchets dépassent le seuil
+     */
+    @Test
+    public void restaurantLogApi_shouldPersistWritesAndScheduleCompaction() throws IOException {
+        File file = folder.newFile("reviews.log");
+        AtomicInteger scheduled = new AtomicInteger();
+        ReviewLog log = ReviewLog.open(file);
+        RestaurantLogApi api = new RestaurantLogApi(new RestaurantFakeApi(), log, scheduled::incrementAndGet);
+        List<Review> initial = new RestaurantFakeApi().getReviews();
+        assertEquals(initial, api.getReviews());
+
+        Review mine = new Review("Manon Garcia", null, "Le curry était fade et froid", 2);
+        api.addReview(mine);
+        api.addReview(mine); // deux avis égaux : le plus récent est modifié
+        Review current = api.getReviewsBy("Manon Garcia").get(0);
+        int edits = 0;
+        while (scheduled.get() == 0) {
+            Review edited = current.toBuilder().setComment("Modifié " + edits + ", le biryani était parfait et le service aimable").build();
+            assertTrue(api.updateReview(current, edited));
+            current = edited;
+            edits++;
+        }
+        assertTrue(log.needsCompaction());
+        // l'autre avis égal, resté tel quel
+        assertTrue(api.deleteReview(api.getReviewsBy("Manon Garcia").get(1)));
+        List<Review> expected = api.getReviews();
+        log.compact();
+        log.close();
+
+        ReviewLog reopened = ReviewLog.open(file);
+        RestaurantLogApi reopenedApi = new RestaurantLogApi(new RestaurantFakeApi(), reopened, scheduled::incrementAndGet);
+        Benchmarks.report("%d edits before the compaction was scheduled", edits);
+        assertEquals(expected, reopenedApi.getReviews());
+        assertEquals(initial.size() + 1, reopenedApi.getReviews().size()); // pas de nouvel ajout des avis initiaux
+        assertTrue(reopenedApi.deleteReview(reopenedApi.getReviewsBy("Manon Garcia").get(0)));
+        assertTrue(reopenedApi.getReviewsBy("Manon Garcia").isEmpty());
+        reopened.close();
+    }
+
+    /**
+     * test 7 - tous les avis supprimés puis le journal compacté : les avis initiaux ne reviennent pas à la réouverture
+     */
+    @Test
+    public void restaurantLogApi_allReviewsDeleted_shouldNotSeedAgain() throws IOException {
+        File file = folder.newFile("reviews.log");
+        ReviewLog log = ReviewLog.open(file);
+        assertFalse(log.isSeeded());
+        RestaurantLogApi api = new RestaurantLogApi(new RestaurantFakeApi(), log, () -> { });
+        assertTrue(log.isSeeded());
+        for (Review review : api.getReviews()) {
+            assertTrue(api.deleteReview(review));
+        }
+        log.compact();
+        assertTrue(log.isEmpty()); // plus que l'en-tête
+        log.close();
+
+        ReviewLog reopened = ReviewLog.open(file);
+        assertTrue(reopened.isSeeded());
+        assertTrue(new RestaurantLogApi(new RestaurantFakeApi(), reopened, () -> { }).getReviews().isEmpty());
+        reopened.close();
+    }
+
+    /**
+     * test 8 - journal de la version 1 (en-tête sans drapeaux) : réécrit au format courant, avis conservés,
+     * considéré comme déjà rempli puisqu'il contient des enregistrements
+     */
+    @Test
+    public void open_version1Log_shouldUpgradeAndKeepRecords() throws IOException {
+        File file = folder.newFile("reviews.log");
+        ReviewLog log = ReviewLog.open(file);
+        long first = log.insert(new Review("Manon Garcia", null, "Bon", 4));
+        log.insert(new Review("Ranjit Singh", null, "Parfait", 5));
+        assertTrue(log.delete(first));
+        Map<Long, Review> expected = log.readLive();
+        log.close();
+
+        // en-tête de la version 1 : MAGIC et VERSION, sans les drapeaux
+        byte[] current = Files.readAllBytes(file.toPath());
+        ByteArrayOutputStream version1 = new ByteArrayOutputStream();
+        version1.write(current, 0, 4);
+        version1.write(new byte[]{0, 0, 0, 1});
+        version1.write(current, 12, current.length - 12);
+        Files.write(file.toPath(), version1.toByteArray());
+
+        ReviewLog upgraded = ReviewLog.open(file);
+        assertEquals(expected, upgraded.readLive());
+        assertTrue(upgraded.isSeeded());
+        assertEquals(current.length, file.length());
+        upgraded.insert(new Review("Emilie Hood", null, "Moyen", 3));
+        upgraded.close();
+        ReviewLog reopened = ReviewLog.open(file);
+        assertEquals(2, reopened.getLiveCount());
+        reopened.close();
+    }
+
+    // --- JVM séparée, tuée pendant la compaction ---
+
+    private static Process startChild(String mode, File file, String argument) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ReviewLogTest.class.getName(), mode, file.getAbsolutePath(), argument)
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    private static String readAll(Process process) throws IOException {
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) output.append(line).append('\n');
+        }
+        return output.toString();
+    }
+
+    /**
+     * Point d'entrée de la JVM tuée.
+     * "step" : écrit le journal puis se tue juste après l'étape de compaction donnée ;
+     * "loop" : écrit et compacte sans fin, en confirmant chaque opération sur la sortie.
+     */
+    public static void main(String[] args) throws IOException {
+        ReviewLog log = ReviewLog.open(new File(args[1]));
+        if (args[0].equals("step")) {
+            ReviewLog.Step crashAt = ReviewLog.Step.valueOf(args[2]);
+            Workload workload = new Workload(CRASH_SEED);
+            for (int i = 0; i < CRASH_OPERATIONS; i++) workload.step(log);
+            log.compact(step -> {
+                if (step == ReviewLog.Step.COPIED) {
+                    try {
+                        for (int i = 0; i < 10; i++) workload.step(log);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                if (step == crashAt) Runtime.getRuntime().halt(CRASH_EXIT);
+            });
+            System.exit(0); // pas de crash : le test échoue sur le code de sortie
+        }
+        Workload workload = new Workload(Integer.parseInt(args[2]));
+        for (int operation = 1; ; operation++) {
+            workload.step(log);
+            System.out.println("ok " + operation);
+            if (operation % 100 == 0) log.compact();
+        }
+    }
+
+    /**
+     * Suite d'écritures déterministe (même graine, mêmes opérations), avec l'état attendu du journal.
+     */
+    private static final class Workload {
+        final Map<Long, Review> live = new LinkedHashMap<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final Random random;
+        private long nextId = 1;
+        private int operation;
+
+        Workload(long seed) {
+            random = new Random(seed);
+        }
+
+        /**
+         * Applique l'opération suivante au journal (s'il est donné) et à l'état attendu.
+         */
+        void step(ReviewLog log) throws IOException {
+            operation++;
+            double choice = random.nextDouble();
+            if (ids.size() < 500 || choice < 0.4) {
+                Review review = review();
+                long id = nextId++;
+                if (log != null) assertEquals(id, log.insert(review));
+                live.put(id, review);
+                ids.add(id);
+            } else if (choice < 0.8) {
+                long id = ids.get(random.nextInt(ids.size()));
+                Review review = live.get(id).toBuilder().setComment("modifié " + operation + " " + comment()).build();
+                if (log != null) assertTrue(log.update(id, review));
+                live.put(id, review);
+            } else {
+                int index = random.nextInt(ids.size());
+                long id = ids.get(index);
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+                if (log != null) assertTrue(log.delete(id));
+                live.remove(id);
+            }
+        }
+
+        private Review review() {
+            return new Review("user" + random.nextInt(300), random.nextBoolean() ? null : "https://xsgames.co/randomusers/assets/avatars/female/" + random.nextInt(80) + ".jpg",
+                    comment(), 1 + random.nextInt(5));
+        }
+
+        private String comment() {
+            StringBuilder comment = new StringBuilder("Avis ");
+            int words = 5 + random.nextInt(25);
+            for (int i = 0; i < words; i++) comment.append(random.nextBoolean() ? " délicieux" : " épicé");
+            return comment.toString();
+        }
+    }
+}
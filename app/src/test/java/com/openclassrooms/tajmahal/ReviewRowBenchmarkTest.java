@@ -0,0 +1,120 @@
+package com.openclassrooms.tajmahal;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.openclassrooms.tajmahal.adapter.ReviewAdapter;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.AvatarCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark Robolectric des lignes d'avis
+ * compare l'inflation + bind + mesure de item_review.xml et de ReviewRowView (ligne dessinée)
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ReviewRowBenchmarkTest {
+
+    private static final int ROWS = 300;
+    private static final int WIDTH_PX = 1080;
+
+    private Context context;
+    private RecyclerView parent;
+    private List<Review> reviews;
+    private AvatarCache avatarCache;
+
+    @Before
+    public void setup() {
+        context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.Theme_TajMahal);
+        avatarCache = new AvatarCache(context, 4L * 1024 * 1024);
+        parent = new RecyclerView(context);
+        parent.setLayoutManager(new LinearLayoutManager(context));
+        reviews = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            reviews.add(new Review("User " + i, "https://example.com/" + (i % 20) + ".jpg",
+                    "Avis " + i + " : la cuisine est délicieuse et le service est également excellent.", i % 5 + 1));
+        }
+    }
+
+    /**
+     * test 1 - création, bind et mesure des deux types de lignes, la ligne dessinée s'inflate plus vite
+     */
+    @Test
+    public void flatRows_shouldInflateFasterThanXmlRows() {
+        Benchmarks.assumeEnabled();
+        // préchauffage : chargement des classes, des polices et des ressources
+        run(false, 20);
+        run(true, 20);
+
+        long[] xml = run(false, ROWS);
+        long[] flat = run(true, ROWS);
+
+        Benchmarks.report("XML row:  create %.1f us/row, bind+measure %.1f us/row", xml[0] / 1e3 / ROWS, xml[1] / 1e3 / ROWS);
+        Benchmarks.report("Flat row: create %.1f us/row, bind+measure %.1f us/row", flat[0] / 1e3 / ROWS, flat[1] / 1e3 / ROWS);
+        assertTrue("flat create " + flat[0] + " ns vs xml create " + xml[0] + " ns", flat[0] < xml[0]);
+    }
+
+    /**
+     * test 2 - les deux lignes ont une hauteur du même ordre
+     */
+    @Test
+    public void flatRow_shouldMeasureLikeXmlRow() {
+        int xmlHeight = measuredHeight(new ReviewAdapter(avatarCache, false));
+        int flatHeight = measuredHeight(new ReviewAdapter(avatarCache, true));
+
+        assertTrue(xmlHeight > 0);
+        assertTrue("flat " + flatHeight + " vs xml " + xmlHeight, Math.abs(flatHeight - xmlHeight) < xmlHeight / 4);
+    }
+
+    /**
+     * @return {temps de création, temps de bind + mesure} en nanosecondes
+     */
+    private long[] run(boolean flatRows, int rows) {
+        ReviewAdapter adapter = new ReviewAdapter(avatarCache, flatRows);
+        adapter.submitList(reviews.subList(0, rows));
+
+        long createNanos = 0;
+        long bindNanos = 0;
+        for (int position = 0; position < rows; position++) {
+            long start = System.nanoTime();
+            ReviewAdapter.ViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+            createNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            adapter.onBindViewHolder(holder, position);
+            measure(holder.itemView);
+            bindNanos += System.nanoTime() - start;
+        }
+        return new long[]{createNanos, bindNanos};
+    }
+
+    private int measuredHeight(ReviewAdapter adapter) {
+        adapter.submitList(reviews);
+        ReviewAdapter.ViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+        adapter.onBindViewHolder(holder, 0);
+        measure(holder.itemView);
+        return holder.itemView.getMeasuredHeight();
+    }
+
+    private static void measure(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH_PX, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+}
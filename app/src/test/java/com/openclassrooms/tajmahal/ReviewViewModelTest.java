@@ -5,6 +5,7 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex;
 import com.openclassrooms.tajmahal.domain.model.Review;
 import com.openclassrooms.tajmahal.ui.reviews.ReviewViewModel;
 
@@ -17,11 +18,13 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.never;
 import static org.junit.Assert.assertTrue;
@@ -44,7 +47,9 @@ public class ReviewViewModelTest {
     @Before
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        viewModel = new ReviewViewModel(mockRepository);
+        when(mockRepository.addReviewIfAbsent(any(Review.class))).thenReturn(ReviewFingerprintIndex.Match.NONE);
+        // exécuteurs synchrones : le contrôle des doublons s'exécute immédiatement
+        viewModel = new ReviewViewModel(mockRepository, new AppExecutors(Runnable::run, Runnable::run));
     }
 
     /**
@@ -61,7 +66,7 @@ public class ReviewViewModelTest {
         viewModel.processNewReview(comment, rating);
 
         // Assert
-        verify(mockRepository).addReview(any(Review.class));
+        verify(mockRepository).addReviewIfAbsent(any(Review.class));
     }
 
     /**
@@ -78,7 +83,7 @@ public class ReviewViewModelTest {
         viewModel.processNewReview(comment, rating);
 
         // Assert
-        verify(mockRepository).addReview(argThat(review ->
+        verify(mockRepository).addReviewIfAbsent(argThat(review ->
                 review.getUsername().equals("Manon Garcia") &&
                         review.getPicture().equals("https://xsgames.co/randomusers/assets/avatars/female/20.jpg") &&
                         review.getComment().equals(comment) &&
@@ -125,7 +130,7 @@ public class ReviewViewModelTest {
         // Assert
         assertNotNull(viewModel.getCommentError().getValue());
         assertEquals("Désolés, le commentaire ne peut pas être vide", viewModel.getCommentError().getValue());
-        verify(mockRepository, never()).addReview(any(Review.class));
+        verify(mockRepository, never()).addReviewIfAbsent(any(Review.class));
     }
 
     /**
@@ -143,7 +148,7 @@ public class ReviewViewModelTest {
         // Assert
         assertNotNull(viewModel.getRatingError().getValue());
         assertEquals("Merci de donner une note", viewModel.getRatingError().getValue());
-        verify(mockRepository, never()).addReview(any(Review.class));
+        verify(mockRepository, never()).addReviewIfAbsent(any(Review.class));
     }
 
     /**
@@ -159,7 +164,69 @@ public class ReviewViewModelTest {
         viewModel.processNewReview(comment, rating);
 
         // Assert
-        verify(mockRepository).addReview(any(Review.class));
+        verify(mockRepository).addReviewIfAbsent(any(Review.class));
         assertTrue(viewModel.getReviewAddSuccessEvent().getValue());
     }
+
+    /**
+     * test 7 - test si le commentaire est un doublon
+     */
+    @Test
+    public void processNewReview_withDuplicateComment_shouldSetCommentError() {
+        // Arrange
+        String comment = "Très bon restaurant Indien ! Je recommande.";
+        when(mockRepository.addReviewIfAbsent(any(Review.class))).thenReturn(ReviewFingerprintIndex.Match.EXACT);
+
+        // Act
+        viewModel.processNewReview(comment, 4);
+
+        // Assert
+        assertEquals("Cet avis a déjà été publié", viewModel.getCommentError().getValue());
+        verify(mockRepository, never()).addReviewIfAbsent(any(Review.class));
+        assertNull(viewModel.getReviewAddSuccessEvent().getValue());
+    }
+
+    /**
+     * test 8 - en mode modification, l'avis est remplacé au lieu d'être ajouté
+     */
+    @Test
+    public void processNewReview_whileEditing_shouldEditReview() {
+        // Arrange
+        Review mine = new Review("Manon Garcia", "https://xsgames.co/randomusers/assets/avatars/female/20.jpg", "Bon", 3);
+        when(mockRepository.editReview(any(Review.class), any(Review.class))).thenReturn(true);
+        viewModel.startEditing(mine);
+
+        // Act
+        viewModel.processNewReview("Très bon finalement", 5);
+
+        // Assert
+        verify(mockRepository).editReview(eq(mine), argThat(review ->
+                review.getUsername().equals("Manon Garcia") &&
+                        review.getComment().equals("Très bon finalement") &&
+                        review.getRate() == 5));
+        verify(mockRepository, never()).addReviewIfAbsent(any(Review.class));
+        assertTrue(viewModel.getReviewEditSuccessEvent().getValue());
+        assertNull(viewModel.getEditedReview().getValue());
+    }
+
+    /**
+     * test 9 - "mes avis" vient de l'index par auteur du repository, supprimer passe par le repository
+     */
+    @Test
+    public void getMyReviews_shouldUseAuthorIndexAndDeleteThroughRepository() {
+        // Arrange
+        Review mine = new Review("Manon Garcia", null, "Très bon service", 4);
+        when(mockRepository.getReviews()).thenReturn(new MutableLiveData<>(Arrays.asList(
+                new Review("John Doe", null, "Great restaurant!", 4), mine)));
+        when(mockRepository.getReviewsBy("Manon Garcia")).thenReturn(Collections.singletonList(mine));
+
+        // Act
+        viewModel.getMyReviews().observeForever(reviews -> { });
+        viewModel.deleteReview(mine);
+
+        // Assert
+        assertEquals(Collections.singletonList(mine), viewModel.getMyReviews().getValue());
+        verify(mockRepository).getReviewsBy("Manon Garcia");
+        verify(mockRepository).deleteReview(mine);
+    }
 }
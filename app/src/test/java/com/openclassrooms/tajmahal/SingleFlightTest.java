@@ -0,0 +1,237 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.SingleFlight;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.service.ReviewExchange;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de la déduplication des requêtes simultanées (single flight)
+ * une rafale de requêtes identiques ne donne qu'un appel à l'API, dont le résultat est partagé
+ */
+public class SingleFlightTest {
+
+    private static final int THREADS = 8;
+    private static final int BURSTS = 5;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * test 1 - chaque rafale de demandes du restaurant ne donne qu'un appel à l'API, même résultat pour tous
+     */
+    @Test
+    public void getRestaurant_concurrentBurst_shouldCallApiOncePerBurst() throws Exception {
+        BlockingApi api = new BlockingApi();
+        RestaurantRepository repository = new RestaurantRepository(api, Runnable::run);
+
+        for (int burst = 1; burst <= BURSTS; burst++) {
+            long coalescedBefore = repository.getCoalescedCallCount();
+            List<Object> results = burst(api.restaurantGate,
+                    () -> repository.getCoalescedCallCount() == coalescedBefore + THREADS - 1,
+                    () -> repository.getRestaurant().getValue());
+
+            assertEquals(burst, api.restaurantCalls.get());
+            for (Object result : results) assertSame(results.get(0), result);
+        }
+        assertEquals(BURSTS * (THREADS - 1), repository.getCoalescedCallCount());
+        Benchmarks.report("%d requests, %d API calls, %d coalesced",
+                BURSTS * THREADS, api.restaurantCalls.get(), repository.getCoalescedCallCount());
+    }
+
+    /**
+     * test 2 - les lectures simultanées des avis (ici des exports) partagent un seul appel à l'API
+     */
+    @Test
+    public void readReviews_concurrentBurst_shouldCallApiOncePerBurst() throws Exception {
+        BlockingApi api = new BlockingApi();
+        RestaurantRepository repository = new RestaurantRepository(api, Runnable::run);
+        int callsBefore = api.reviewsCalls.get(); // publication initiale des avis
+
+        api.blockReviews = true;
+        long coalescedBefore = repository.getCoalescedCallCount();
+        List<Object> results = burst(api.reviewsGate,
+                () -> repository.getCoalescedCallCount() == coalescedBefore + THREADS - 1,
+                () -> export(repository));
+
+        assertEquals(callsBefore + 1, api.reviewsCalls.get());
+        for (Object result : results) assertEquals(results.get(0), result);
+    }
+
+    /**
+     * test 3 - un avis ajouté pendant une lecture en cours : les lectures suivantes ne la partagent pas
+     */
+    @Test
+    public void addReview_duringFlight_shouldNotBeHiddenFromLaterReads() throws Exception {
+        BlockingApi api = new BlockingApi();
+        RestaurantRepository repository = new RestaurantRepository(api, Runnable::run);
+        int count = api.getReviews().size();
+
+        api.blockReviews = true;
+        AtomicReference<String> staleExport = new AtomicReference<>();
+        Thread reader = new Thread(() -> staleExport.set(export(repository)));
+        reader.start();
+        waitFor(() -> api.reviewsWaiting.get() == 1);
+
+        api.blockReviews = false;
+        repository.addReview(new Review("Nouveau", null, "Ajouté pendant la lecture", 4));
+        String freshExport = export(repository);
+        api.reviewsGate.countDown();
+        reader.join();
+
+        assertTrue(freshExport.contains("Ajouté pendant la lecture"));
+        assertEquals(count + 1, repository.getReviews().getValue().size());
+    }
+
+    /**
+     * test 4 - l'exception de la requête est partagée par toute la rafale, l'appel suivant relance la requête
+     */
+    @Test
+    public void execute_failingRequest_shouldShareExceptionThenRetry() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Object> results = burst(gate, () -> flight.getCoalescedCount() == THREADS - 1, () -> {
+            try {
+                return flight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    awaitGate(gate);
+                    throw new IllegalStateException("backend down");
+                });
+            } catch (IllegalStateException e) {
+                return e.getMessage();
+            }
+        });
+
+        assertEquals(1, calls.get());
+        for (Object result : results) assertEquals("backend down", result);
+        assertEquals("ok", flight.execute("key", () -> "ok"));
+        assertEquals(2, flight.getExecutedCount());
+    }
+
+    /**
+     * Lance THREADS appels simultanés, attend qu'ils soient tous en vol, puis ouvre la porte de l'API.
+     *
+     * @return le résultat de chaque appel
+     */
+    private static List<Object> burst(CountDownLatch gate, BooleanSupplier allInFlight, Call call) throws Exception {
+        List<Object> results = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        Object[] values = new Object[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    values[index] = call.run();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads[i].start();
+        }
+        waitFor(allInFlight);
+        gate.countDown();
+        for (Thread thread : threads) thread.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        for (Object value : values) results.add(value);
+        return results;
+    }
+
+    private static String export(RestaurantRepository repository) {
+        StringWriter out = new StringWriter();
+        try {
+            repository.exportReviews(out, ReviewExchange.Format.JSON_LINES);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("timeout");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitGate(CountDownLatch gate) {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private interface Call {
+        Object run() throws Exception;
+    }
+
+    /**
+     * API qui compte ses appels et les retient jusqu'à l'ouverture d'une porte.
+     */
+    private static final class BlockingApi implements RestaurantApi {
+        private final RestaurantApi delegate = new RestaurantFakeApi();
+        final AtomicInteger restaurantCalls = new AtomicInteger();
+        final AtomicInteger reviewsCalls = new AtomicInteger();
+        final AtomicInteger reviewsWaiting = new AtomicInteger();
+        volatile CountDownLatch restaurantGate = new CountDownLatch(1);
+        final CountDownLatch reviewsGate = new CountDownLatch(1);
+        volatile boolean blockReviews;
+
+        @Override
+        public Restaurant getRestaurant() {
+            restaurantCalls.incrementAndGet();
+            awaitGate(restaurantGate);
+            restaurantGate = new CountDownLatch(1); // la rafale suivante attendra à nouveau
+            return delegate.getRestaurant();
+        }
+
+        @Override
+        public List<Review> getReviews() {
+            reviewsCalls.incrementAndGet();
+            if (blockReviews) {
+                reviewsWaiting.incrementAndGet();
+                awaitGate(reviewsGate);
+            }
+            return delegate.getReviews();
+        }
+
+        @Override
+        public void addReview(Review review) {
+            delegate.addReview(review);
+        }
+
+        @Override
+        public boolean updateReview(Review current, Review updated) {
+            return delegate.updateReview(current, updated);
+        }
+
+        @Override
+        public boolean deleteReview(Review review) {
+            return delegate.deleteReview(review);
+        }
+    }
+}
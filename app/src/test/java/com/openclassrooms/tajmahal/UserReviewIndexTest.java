@@ -0,0 +1,248 @@
+package com.openclassrooms.tajmahal;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewFingerprintIndex;
+import com.openclassrooms.tajmahal.data.service.ConcurrentReviewStore;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test de l'index des avis par auteur
+ * "mes avis" sans parcourir la liste, modification et suppression en place, index de recherche à jour
+ */
+public class UserReviewIndexTest {
+
+    private static final int REVIEW_COUNT = 100_000;
+    private static final int USER_COUNT = 10_000;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * test 1 - modifications et suppressions au hasard : le store reste identique à une liste de référence,
+     * les snapshots pris avant ne changent pas
+     */
+    @Test
+    public void replaceAndRemove_shouldMatchReferenceAndKeepOldSnapshots() {
+        ConcurrentReviewStore store = new ConcurrentReviewStore();
+        List<Review> reference = new ArrayList<>(); // le plus ancien en premier
+        for (int i = 0; i < 5_000; i++) {
+            Review review = new Review("user" + (i % 50), null, "avis " + i, i % 5 + 1);
+            store.add(review);
+            reference.add(review);
+        }
+        Random random = new Random(7);
+        for (int step = 0; step < 2_000; step++) {
+            List<Review> before = store.snapshot();
+            List<Review> beforeCopy = new ArrayList<>(before);
+            int position = random.nextInt(reference.size());
+            Review current = reference.get(position);
+            if (random.nextBoolean()) {
+                Review updated = current.toBuilder().setComment("modifié " + step).build();
+                assertTrue(store.replace(current, updated));
+                reference.set(position, updated);
+            } else {
+                assertTrue(store.remove(current));
+                assertFalse(store.remove(current));
+                reference.remove(position);
+            }
+            assertEquals(beforeCopy, before);
+        }
+
+        List<Review> expected = new ArrayList<>(reference);
+        Collections.reverse(expected);
+        assertEquals(expected, store.snapshot());
+        assertEquals(reference.size(), store.size());
+        for (int user = 0; user < 50; user++) {
+            List<Review> byUser = new ArrayList<>();
+            for (Review review : expected) {
+                if (review.getUsername().equals("user" + user)) byUser.add(review);
+            }
+            assertEquals(byUser, store.reviewsBy("user" + user));
+        }
+    }
+
+    /**
+     * test 2 - un avis édité garde son auteur
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void replace_withAnotherAuthor_shouldFail() {
+        ConcurrentReviewStore store = new ConcurrentReviewStore();
+        Review review = new Review("Manon Garcia", null, "Bon", 4);
+        store.add(review);
+        store.replace(review, new Review("Quelqu'un d'autre", null, "Bon", 4));
+    }
+
+    /**
+     * test 3 - sur 100 000 avis, "mes avis" par l'index ne lit que les avis de l'utilisateur :
+     * bien moins cher qu'un parcours de la liste
+     */
+    @Test
+    public void getReviewsBy_shouldNotDependOnReviewCount() {
+        RestaurantFakeApi api = new RestaurantFakeApi();
+        List<Review> reviews = new ArrayList<>(REVIEW_COUNT);
+        for (int i = 0; i < REVIEW_COUNT; i++) {
+            reviews.add(new Review("user" + (i % USER_COUNT), null, "avis " + i, i % 5 + 1));
+        }
+        api.addReviews(reviews);
+        RestaurantApi scanningApi = new ScanningApi(api);
+
+        long indexed = bestNanos(() -> api.getReviewsBy("user42"));
+        long scanned = bestNanos(() -> scanningApi.getReviewsBy("user42"));
+        Benchmarks.report("%d reviews: my reviews in %.3f µs with the index, %.3f µs with a scan",
+                REVIEW_COUNT, indexed / 1000.0, scanned / 1000.0);
+
+        assertEquals(REVIEW_COUNT / USER_COUNT, api.getReviewsBy("user42").size());
+        assertEquals(scanningApi.getReviewsBy("user42"), api.getReviewsBy("user42"));
+        if (Benchmarks.ENABLED) {
+            assertTrue(indexed * 20 < scanned);
+        }
+    }
+
+    /**
+     * test 4 - modifier puis supprimer par le repository : liste, index des doublons,
+     * mots-clés et votes "utile" mis à jour sans reconstruction
+     */
+    @Test
+    public void editAndDelete_shouldUpdateIndexesIncrementally() {
+        RestaurantRepository repository = new RestaurantRepository(new RestaurantFakeApi(), Runnable::run);
+        repository.addReview(new Review("Manon Garcia", null, "Le curry était fade et froid", 2));
+        // index construits avant la modification
+        assertEquals(ReviewFingerprintIndex.Match.EXACT, repository.findDuplicate("Le curry était fade et froid"));
+        repository.getTopKeywords(3);
+        Review mine = repository.getReviewsBy("Manon Garcia").get(0);
+        repository.voteHelpful(mine, "Ranjit Singh");
+        int count = repository.getReviews().getValue().size();
+
+        Review edited = mine.toBuilder().setComment("Le biryani était parfait, biryani excellent").setRate(5).build();
+        assertTrue(repository.editReview(mine, edited));
+
+        List<Review> reviews = repository.getReviews().getValue();
+        assertEquals(count, reviews.size());
+        assertEquals(edited, reviews.get(0));
+        assertEquals(Collections.singletonList(edited), repository.getReviewsBy("Manon Garcia"));
+        assertEquals(ReviewFingerprintIndex.Match.NONE, repository.findDuplicate("Le curry était fade et froid"));
+        assertEquals(ReviewFingerprintIndex.Match.EXACT, repository.findDuplicate("Le biryani était parfait, biryani excellent"));
+        assertTrue(repository.getTopKeywords(50).contains("biryani"));
+        assertEquals(1, repository.getHelpfulVotes(edited));
+        assertEquals(Collections.singletonList(edited), repository.getTopReviews().getValue());
+
+        assertTrue(repository.deleteReview(reviews.get(0)));
+        assertFalse(repository.deleteReview(reviews.get(0)));
+
+        assertEquals(count - 1, repository.getReviews().getValue().size());
+        assertTrue(repository.getReviewsBy("Manon Garcia").isEmpty());
+        assertEquals(ReviewFingerprintIndex.Match.NONE, repository.findDuplicate("Le biryani était parfait, biryani excellent"));
+        assertFalse(repository.getTopKeywords(50).contains("biryani"));
+        assertTrue(repository.getTopReviews().getValue().isEmpty());
+    }
+
+    /**
+     * test 5 - 100 000 suppressions mêlées à des ajouts : le store reste identique à la référence,
+     * et les dernières suppressions ne coûtent pas plus que les premières
+     */
+    @Test
+    public void remove_manyTimes_shouldKeepConstantCost() {
+        ConcurrentReviewStore store = new ConcurrentReviewStore();
+        List<Review> reviews = new ArrayList<>(REVIEW_COUNT * 2);
+        for (int i = 0; i < REVIEW_COUNT * 2; i++) {
+            Review review = new Review("user" + (i % USER_COUNT), null, "avis " + i, i % 5 + 1);
+            reviews.add(review);
+            store.add(review);
+        }
+        List<Review> remaining = new ArrayList<>(); // le plus ancien en premier
+        List<Review> added = new ArrayList<>();
+        long firstNanos = 0;
+        long lastNanos = 0;
+        int batch = 1_000;
+        for (int i = 0; i < REVIEW_COUNT * 2; i++) {
+            if (i % 2 == 1) {
+                remaining.add(reviews.get(i));
+                continue;
+            }
+            long start = System.nanoTime();
+            assertTrue(store.remove(reviews.get(i)));
+            long elapsed = System.nanoTime() - start;
+            int removals = i / 2;
+            if (removals < batch) firstNanos += elapsed;
+            if (removals >= REVIEW_COUNT - batch) lastNanos += elapsed;
+            // un ajout entre deux suppressions : le dernier chunk est recopié puis complété
+            if (removals % 1000 == 0) {
+                Review review = new Review("nouveau", null, "ajout " + i, 3);
+                store.add(review);
+                added.add(review);
+            }
+        }
+        remaining.addAll(added); // ajoutés après tous les avis de départ
+        Benchmarks.report("%d removals: first %d in %.1f µs, last %d in %.1f µs",
+                REVIEW_COUNT, batch, firstNanos / 1000.0, batch, lastNanos / 1000.0);
+
+        List<Review> expected = new ArrayList<>(remaining);
+        Collections.reverse(expected);
+        assertEquals(expected, store.snapshot());
+        assertEquals(REVIEW_COUNT, store.removedCount());
+        if (Benchmarks.ENABLED) {
+            assertTrue("last " + lastNanos + " ns vs first " + firstNanos + " ns", lastNanos < firstNanos * 3);
+        }
+    }
+
+    private static long bestNanos(Runnable lookup) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 50; i++) {
+            long start = System.nanoTime();
+            lookup.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * API sans index : "mes avis" par l'implémentation par défaut, qui parcourt la liste.
+     */
+    private static final class ScanningApi implements RestaurantApi {
+        private final RestaurantApi delegate;
+
+        ScanningApi(RestaurantApi delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Restaurant getRestaurant() {
+            return delegate.getRestaurant();
+        }
+
+        @Override
+        public List<Review> getReviews() {
+            return delegate.getReviews();
+        }
+
+        @Override
+        public void addReview(Review review) {
+            delegate.addReview(review);
+        }
+
+        @Override
+        public boolean updateReview(Review current, Review updated) {
+            return delegate.updateReview(current, updated);
+        }
+
+        @Override
+        public boolean deleteReview(Review review) {
+            return delegate.deleteReview(review);
+        }
+    }
+}